@@ -0,0 +1,378 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config;
+
+import cz.auderis.tools.config.ConfigurationClassWriter.Code;
+
+import java.lang.ref.SoftReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static cz.auderis.tools.config.ConfigurationClassWriter.*;
+
+/**
+ * Generates concrete classes implementing configuration interfaces. Values of methods
+ * without arguments are stored in final fields of the generated class (without boxing
+ * of primitive values), so that a call of such method is equivalent to a plain field
+ * read. Methods with arguments delegate to an {@link java.lang.reflect.InvocationHandler}
+ * in the same way as a {@link java.lang.reflect.Proxy} does.
+ *
+ * <p>A class is generated at most once for each interface. If the interface cannot
+ * be implemented by a generated class (e.g. it is not public or it has methods
+ * returning {@code void}), {@code null} is returned and the caller is expected
+ * to use a proxy instead.
+ *
+ * <p>Generated classes are cached as long as there is enough memory. A generated
+ * class implements its interface, so a cached class necessarily refers to the interface
+ * and to the classloader that defined it. The interface therefore cannot be
+ * garbage-collected before the softly referenced cache entry is cleared, i.e. until
+ * the class has not been used for some time or the memory is needed.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+final class ConfigurationClassGenerator {
+
+	static final String GENERATED_PACKAGE = "cz.auderis.tools.config.generated.";
+	private static final int MAX_VALUE_FIELDS = 2048;
+
+	private static final String OBJECT_NAME = "java/lang/Object";
+	private static final String HANDLER_NAME = "java/lang/reflect/InvocationHandler";
+	private static final String HANDLER_FIELD = "handler";
+	private static final String HANDLER_DESCRIPTOR = "Ljava/lang/reflect/InvocationHandler;";
+	private static final String METHODS_FIELD = "methods";
+	private static final String METHODS_DESCRIPTOR = "[Ljava/lang/reflect/Method;";
+	private static final String INVOKE_DESCRIPTOR = "(Ljava/lang/Object;Ljava/lang/reflect/Method;[Ljava/lang/Object;)Ljava/lang/Object;";
+	private static final String CONSTRUCTOR_DESCRIPTOR = "([Ljava/lang/Object;" + HANDLER_DESCRIPTOR + METHODS_DESCRIPTOR + ")V";
+	private static final String VALUE_FIELD_PREFIX = "value";
+
+	private static final Map<Class<?>, SoftReference<GeneratedClass>> GENERATED_CLASSES
+			= new WeakHashMap<Class<?>, SoftReference<GeneratedClass>>();
+	private static final GeneratedClass UNSUPPORTED = new GeneratedClass(null, null, null);
+	private static final AtomicInteger CLASS_COUNTER = new AtomicInteger();
+
+	/**
+	 * Returns the class generated for the given interface.
+	 *
+	 * @param targetClass configuration interface
+	 * @return generated class or {@code null} if the interface is not supported
+	 */
+	static GeneratedClass getGeneratedClass(Class<?> targetClass) {
+		if (null == targetClass) {
+			throw new NullPointerException();
+		}
+		synchronized (GENERATED_CLASSES) {
+			final SoftReference<GeneratedClass> generatedRef = GENERATED_CLASSES.get(targetClass);
+			GeneratedClass generated = (null != generatedRef) ? generatedRef.get() : null;
+			if (null == generated) {
+				generated = generateClass(targetClass);
+				GENERATED_CLASSES.put(targetClass, new SoftReference<GeneratedClass>(generated));
+			}
+			return (UNSUPPORTED != generated) ? generated : null;
+		}
+	}
+
+	private static GeneratedClass generateClass(Class<?> targetClass) {
+		if (!targetClass.isInterface() || !isAccessible(targetClass)) {
+			return UNSUPPORTED;
+		}
+		final List<Method> valueMethods = new ArrayList<Method>();
+		final List<Method> delegatedMethods = new ArrayList<Method>();
+		final Set<String> signatures = new HashSet<String>();
+		for (Method method : targetClass.getMethods()) {
+			if (Modifier.isStatic(method.getModifiers())) {
+				continue;
+			}
+			final Class<?> returnType = method.getReturnType();
+			final Class<?>[] parameterTypes = method.getParameterTypes();
+			if ((Void.TYPE == returnType) || !isAccessible(returnType)) {
+				return UNSUPPORTED;
+			}
+			for (Class<?> parameterType : parameterTypes) {
+				if (!isAccessible(parameterType)) {
+					return UNSUPPORTED;
+				}
+			}
+			if (!signatures.add(method.getName() + Arrays.toString(parameterTypes))) {
+				// Multiple inherited methods with different return types
+				return UNSUPPORTED;
+			}
+			if (0 == parameterTypes.length) {
+				valueMethods.add(method);
+			} else {
+				delegatedMethods.add(method);
+			}
+		}
+		if (valueMethods.size() > MAX_VALUE_FIELDS) {
+			return UNSUPPORTED;
+		}
+		final String className = GENERATED_PACKAGE + targetClass.getSimpleName() + "$" + CLASS_COUNTER.incrementAndGet();
+		final Method[] values = valueMethods.toArray(new Method[valueMethods.size()]);
+		final Method[] delegates = delegatedMethods.toArray(new Method[delegatedMethods.size()]);
+		final byte[] classBytes = writeClass(internalName(className), targetClass, values, delegates);
+		try {
+			ClassLoader parentLoader = targetClass.getClassLoader();
+			if (null == parentLoader) {
+				parentLoader = ConfigurationClassGenerator.class.getClassLoader();
+			}
+			final GeneratedClassLoader loader = new GeneratedClassLoader(parentLoader);
+			loader.define(className, classBytes);
+			// Force verification of the generated code
+			final Class<?> generatedClass = Class.forName(className, true, loader);
+			final Constructor<?> constructor = generatedClass.getConstructor(Object[].class, InvocationHandler.class, Method[].class);
+			return new GeneratedClass(constructor, values, delegates);
+		} catch (Exception e) {
+			return UNSUPPORTED;
+		} catch (LinkageError e) {
+			return UNSUPPORTED;
+		}
+	}
+
+	private static byte[] writeClass(String className, Class<?> targetClass, Method[] values, Method[] delegates) {
+		final ConfigurationClassWriter writer = new ConfigurationClassWriter();
+		writer.addField(ACC_PRIVATE | ACC_FINAL, HANDLER_FIELD, HANDLER_DESCRIPTOR);
+		writer.addField(ACC_PRIVATE | ACC_FINAL, METHODS_FIELD, METHODS_DESCRIPTOR);
+		for (int i=0; i<values.length; ++i) {
+			writer.addField(ACC_PRIVATE | ACC_FINAL, VALUE_FIELD_PREFIX + i, descriptor(values[i].getReturnType()));
+		}
+		// Constructor stores the resolved values
+		final Code init = new Code(3, 4);
+		init.op(ALOAD_0).op(INVOKESPECIAL, writer.methodRef(OBJECT_NAME, "<init>", "()V"));
+		init.op(ALOAD_0).op(ALOAD_2).op(PUTFIELD, writer.fieldRef(className, HANDLER_FIELD, HANDLER_DESCRIPTOR));
+		init.op(ALOAD_0).op(ALOAD_3).op(PUTFIELD, writer.fieldRef(className, METHODS_FIELD, METHODS_DESCRIPTOR));
+		for (int i=0; i<values.length; ++i) {
+			final Class<?> valueType = values[i].getReturnType();
+			init.op(ALOAD_0).op(ALOAD_1).pushInt(i).op(AALOAD);
+			writeUnboxOrCast(writer, init, valueType);
+			init.op(PUTFIELD, writer.fieldRef(className, VALUE_FIELD_PREFIX + i, descriptor(valueType)));
+		}
+		init.op(RETURN);
+		writer.addMethod(ACC_PUBLIC, "<init>", CONSTRUCTOR_DESCRIPTOR, init);
+		// Methods without arguments return the stored values
+		for (int i=0; i<values.length; ++i) {
+			final Class<?> valueType = values[i].getReturnType();
+			final Code getter = new Code(2, 1);
+			getter.op(ALOAD_0).op(GETFIELD, writer.fieldRef(className, VALUE_FIELD_PREFIX + i, descriptor(valueType)));
+			getter.returnValue(valueType);
+			writer.addMethod(ACC_PUBLIC | ACC_FINAL, values[i].getName(), methodDescriptor(values[i]), getter);
+		}
+		// Other methods are delegated to the invocation handler
+		for (int i=0; i<delegates.length; ++i) {
+			final Method method = delegates[i];
+			final Class<?>[] parameterTypes = method.getParameterTypes();
+			int slotCount = 1;
+			for (Class<?> parameterType : parameterTypes) {
+				slotCount += slotSize(parameterType);
+			}
+			final Code delegate = new Code(8, slotCount);
+			delegate.op(ALOAD_0).op(GETFIELD, writer.fieldRef(className, HANDLER_FIELD, HANDLER_DESCRIPTOR));
+			delegate.op(ALOAD_0);
+			delegate.op(ALOAD_0).op(GETFIELD, writer.fieldRef(className, METHODS_FIELD, METHODS_DESCRIPTOR));
+			delegate.pushInt(i).op(AALOAD);
+			delegate.pushInt(parameterTypes.length).op(ANEWARRAY, writer.classRef(OBJECT_NAME));
+			int slot = 1;
+			for (int j=0; j<parameterTypes.length; ++j) {
+				final Class<?> parameterType = parameterTypes[j];
+				delegate.op(DUP).pushInt(j).load(parameterType, slot);
+				if (parameterType.isPrimitive()) {
+					final String boxedName = internalName(boxedType(parameterType).getName());
+					final String valueOfDescriptor = "(" + descriptor(parameterType) + ")L" + boxedName + ";";
+					delegate.op(INVOKESTATIC, writer.methodRef(boxedName, "valueOf", valueOfDescriptor));
+				}
+				delegate.op(AASTORE);
+				slot += slotSize(parameterType);
+			}
+			delegate.invokeInterface(writer.interfaceMethodRef(HANDLER_NAME, "invoke", INVOKE_DESCRIPTOR), 4);
+			writeUnboxOrCast(writer, delegate, method.getReturnType());
+			delegate.returnValue(method.getReturnType());
+			writer.addMethod(ACC_PUBLIC | ACC_FINAL, method.getName(), methodDescriptor(method), delegate);
+		}
+		final int classAccess = ACC_PUBLIC | ACC_FINAL | ACC_SUPER;
+		return writer.toByteArray(classAccess, className, OBJECT_NAME, internalName(targetClass.getName()));
+	}
+
+	private static void writeUnboxOrCast(ConfigurationClassWriter writer, Code code, Class<?> type) {
+		if (Boolean.TYPE == type) {
+			code.op(CHECKCAST, writer.classRef("java/lang/Boolean"));
+			code.op(INVOKEVIRTUAL, writer.methodRef("java/lang/Boolean", "booleanValue", "()Z"));
+		} else if (Character.TYPE == type) {
+			code.op(CHECKCAST, writer.classRef("java/lang/Character"));
+			code.op(INVOKEVIRTUAL, writer.methodRef("java/lang/Character", "charValue", "()C"));
+		} else if (type.isPrimitive()) {
+			// Any number is accepted for numeric types
+			final String valueMethod = type.getName() + "Value";
+			code.op(CHECKCAST, writer.classRef("java/lang/Number"));
+			code.op(INVOKEVIRTUAL, writer.methodRef("java/lang/Number", valueMethod, "()" + descriptor(type)));
+		} else if (Object.class != type) {
+			code.op(CHECKCAST, writer.classRef(internalName(type.getName())));
+		}
+	}
+
+	static boolean isAccessible(Class<?> type) {
+		Class<?> checkedType = type;
+		while (checkedType.isArray()) {
+			checkedType = checkedType.getComponentType();
+		}
+		if (checkedType.isPrimitive()) {
+			return true;
+		}
+		for (Class<?> cls = checkedType; null != cls; cls = cls.getDeclaringClass()) {
+			if (!Modifier.isPublic(cls.getModifiers())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static Class<?> boxedType(Class<?> primitiveType) {
+		if (Boolean.TYPE == primitiveType) {
+			return Boolean.class;
+		} else if (Byte.TYPE == primitiveType) {
+			return Byte.class;
+		} else if (Character.TYPE == primitiveType) {
+			return Character.class;
+		} else if (Short.TYPE == primitiveType) {
+			return Short.class;
+		} else if (Integer.TYPE == primitiveType) {
+			return Integer.class;
+		} else if (Long.TYPE == primitiveType) {
+			return Long.class;
+		} else if (Float.TYPE == primitiveType) {
+			return Float.class;
+		}
+		return Double.class;
+	}
+
+	private static int slotSize(Class<?> type) {
+		return ((Long.TYPE == type) || (Double.TYPE == type)) ? 2 : 1;
+	}
+
+	private static String internalName(String className) {
+		return className.replace('.', '/');
+	}
+
+	private static String methodDescriptor(Method method) {
+		final StringBuilder result = new StringBuilder("(");
+		for (Class<?> parameterType : method.getParameterTypes()) {
+			result.append(descriptor(parameterType));
+		}
+		result.append(')').append(descriptor(method.getReturnType()));
+		return result.toString();
+	}
+
+	private static String descriptor(Class<?> type) {
+		if (type.isArray()) {
+			return internalName(type.getName());
+		} else if (!type.isPrimitive()) {
+			return 'L' + internalName(type.getName()) + ';';
+		} else if (Boolean.TYPE == type) {
+			return "Z";
+		} else if (Byte.TYPE == type) {
+			return "B";
+		} else if (Character.TYPE == type) {
+			return "C";
+		} else if (Short.TYPE == type) {
+			return "S";
+		} else if (Integer.TYPE == type) {
+			return "I";
+		} else if (Long.TYPE == type) {
+			return "J";
+		} else if (Float.TYPE == type) {
+			return "F";
+		} else if (Double.TYPE == type) {
+			return "D";
+		}
+		return "V";
+	}
+
+	private ConfigurationClassGenerator() {
+		throw new AssertionError();
+	}
+
+
+	/**
+	 * Class generated for a configuration interface.
+	 */
+	static final class GeneratedClass {
+
+		private final Constructor<?> constructor;
+		private final Method[] valueMethods;
+		private final Method[] delegatedMethods;
+
+		GeneratedClass(Constructor<?> constructor, Method[] valueMethods, Method[] delegatedMethods) {
+			this.constructor = constructor;
+			this.valueMethods = valueMethods;
+			this.delegatedMethods = delegatedMethods;
+		}
+
+		/**
+		 * Returns methods whose values are stored in the instances; the order
+		 * corresponds to the values passed to {@link #newInstance(Object[], java.lang.reflect.InvocationHandler)}.
+		 */
+		Method[] getValueMethods() {
+			return valueMethods.clone();
+		}
+
+		boolean acceptsValue(int index, Object value) {
+			final Class<?> valueType = valueMethods[index].getReturnType();
+			if (!valueType.isPrimitive()) {
+				return (null == value) || valueType.isInstance(value);
+			} else if (Boolean.TYPE == valueType) {
+				return value instanceof Boolean;
+			} else if (Character.TYPE == valueType) {
+				return value instanceof Character;
+			}
+			return value instanceof Number;
+		}
+
+		Object newInstance(Object[] values, InvocationHandler handler) {
+			if ((null == values) || (null == handler)) {
+				throw new NullPointerException();
+			} else if (values.length != valueMethods.length) {
+				throw new IllegalArgumentException("invalid number of values");
+			}
+			try {
+				return constructor.newInstance(values, handler, delegatedMethods);
+			} catch (Exception e) {
+				throw new IllegalStateException("cannot create instance of " + constructor.getDeclaringClass().getName(), e);
+			}
+		}
+	}
+
+
+	private static final class GeneratedClassLoader extends ClassLoader {
+
+		GeneratedClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		Class<?> define(String className, byte[] classBytes) {
+			return defineClass(className, classBytes, 0, classBytes.length);
+		}
+	}
+
+}
@@ -0,0 +1,339 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Minimal writer of Java class files, sufficient for generation of classes
+ * implementing configuration interfaces. Only the constant pool, fields and
+ * methods with straight-line code (i.e. without branches and exception handlers)
+ * are supported, so that the class file version 49 can be used and no stack
+ * map frames need to be computed.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+final class ConfigurationClassWriter {
+
+	static final int ACC_PUBLIC = 0x0001;
+	static final int ACC_PRIVATE = 0x0002;
+	static final int ACC_FINAL = 0x0010;
+	static final int ACC_SUPER = 0x0020;
+
+	static final int ALOAD_0 = 0x2A;
+	static final int ALOAD_1 = 0x2B;
+	static final int ALOAD_2 = 0x2C;
+	static final int ALOAD_3 = 0x2D;
+	static final int AALOAD = 0x32;
+	static final int AASTORE = 0x53;
+	static final int DUP = 0x59;
+	static final int RETURN = 0xB1;
+	static final int GETFIELD = 0xB4;
+	static final int PUTFIELD = 0xB5;
+	static final int INVOKEVIRTUAL = 0xB6;
+	static final int INVOKESPECIAL = 0xB7;
+	static final int INVOKESTATIC = 0xB8;
+	static final int INVOKEINTERFACE = 0xB9;
+	static final int ANEWARRAY = 0xBD;
+	static final int CHECKCAST = 0xC0;
+
+	private static final int CLASS_MAGIC = 0xCAFEBABE;
+	private static final int CLASS_VERSION = 49;
+	private static final int MAX_POOL_SIZE = 0xFFFF;
+	private static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_FIELDREF = 9;
+	private static final int CONSTANT_METHODREF = 10;
+	private static final int CONSTANT_INTERFACE_METHODREF = 11;
+	private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+	private final ByteArrayOutputStream poolBytes;
+	private final DataOutputStream pool;
+	private final Map<String, Integer> poolIndex;
+	private int poolCount;
+	private final ByteArrayOutputStream memberBytes;
+	private final DataOutputStream fields;
+	private final ByteArrayOutputStream methodBytes;
+	private final DataOutputStream methods;
+	private int fieldCount;
+	private int methodCount;
+
+	ConfigurationClassWriter() {
+		this.poolBytes = new ByteArrayOutputStream(1024);
+		this.pool = new DataOutputStream(poolBytes);
+		this.poolIndex = new HashMap<String, Integer>();
+		this.poolCount = 1;
+		this.memberBytes = new ByteArrayOutputStream(256);
+		this.fields = new DataOutputStream(memberBytes);
+		this.methodBytes = new ByteArrayOutputStream(1024);
+		this.methods = new DataOutputStream(methodBytes);
+	}
+
+	int utf8(String value) {
+		final String key = "U" + value;
+		final Integer index = poolIndex.get(key);
+		if (null != index) {
+			return index;
+		}
+		try {
+			pool.writeByte(CONSTANT_UTF8);
+			pool.writeUTF(value);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return registerPoolEntry(key, 1);
+	}
+
+	int classRef(String internalName) {
+		final String key = "C" + internalName;
+		final Integer index = poolIndex.get(key);
+		if (null != index) {
+			return index;
+		}
+		final int nameIndex = utf8(internalName);
+		writePoolEntry(CONSTANT_CLASS, nameIndex);
+		return registerPoolEntry(key, 1);
+	}
+
+	int fieldRef(String owner, String name, String descriptor) {
+		return memberRef(CONSTANT_FIELDREF, owner, name, descriptor);
+	}
+
+	int methodRef(String owner, String name, String descriptor) {
+		return memberRef(CONSTANT_METHODREF, owner, name, descriptor);
+	}
+
+	int interfaceMethodRef(String owner, String name, String descriptor) {
+		return memberRef(CONSTANT_INTERFACE_METHODREF, owner, name, descriptor);
+	}
+
+	void addField(int access, String name, String descriptor) {
+		final int nameIndex = utf8(name);
+		final int descriptorIndex = utf8(descriptor);
+		try {
+			fields.writeShort(access);
+			fields.writeShort(nameIndex);
+			fields.writeShort(descriptorIndex);
+			fields.writeShort(0);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		++fieldCount;
+	}
+
+	void addMethod(int access, String name, String descriptor, Code code) {
+		final int nameIndex = utf8(name);
+		final int descriptorIndex = utf8(descriptor);
+		final int codeIndex = utf8("Code");
+		final byte[] instructions = code.toByteArray();
+		try {
+			methods.writeShort(access);
+			methods.writeShort(nameIndex);
+			methods.writeShort(descriptorIndex);
+			methods.writeShort(1);
+			// Code attribute without exception table and nested attributes
+			methods.writeShort(codeIndex);
+			methods.writeInt(12 + instructions.length);
+			methods.writeShort(code.maxStack);
+			methods.writeShort(code.maxLocals);
+			methods.writeInt(instructions.length);
+			methods.write(instructions);
+			methods.writeShort(0);
+			methods.writeShort(0);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		++methodCount;
+	}
+
+	byte[] toByteArray(int access, String thisName, String superName, String... interfaceNames) {
+		final int thisIndex = classRef(thisName);
+		final int superIndex = classRef(superName);
+		final int[] interfaceIndices = new int[interfaceNames.length];
+		for (int i=0; i<interfaceNames.length; ++i) {
+			interfaceIndices[i] = classRef(interfaceNames[i]);
+		}
+		final ByteArrayOutputStream result = new ByteArrayOutputStream(16 + poolBytes.size() + memberBytes.size() + methodBytes.size());
+		final DataOutputStream out = new DataOutputStream(result);
+		try {
+			out.writeInt(CLASS_MAGIC);
+			out.writeShort(0);
+			out.writeShort(CLASS_VERSION);
+			out.writeShort(poolCount);
+			poolBytes.writeTo(out);
+			out.writeShort(access);
+			out.writeShort(thisIndex);
+			out.writeShort(superIndex);
+			out.writeShort(interfaceIndices.length);
+			for (int interfaceIndex : interfaceIndices) {
+				out.writeShort(interfaceIndex);
+			}
+			out.writeShort(fieldCount);
+			memberBytes.writeTo(out);
+			out.writeShort(methodCount);
+			methodBytes.writeTo(out);
+			out.writeShort(0);
+			out.flush();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return result.toByteArray();
+	}
+
+	private int memberRef(int tag, String owner, String name, String descriptor) {
+		final String key = tag + owner + '.' + name + ':' + descriptor;
+		final Integer index = poolIndex.get(key);
+		if (null != index) {
+			return index;
+		}
+		final int classIndex = classRef(owner);
+		final int nameAndTypeIndex = nameAndType(name, descriptor);
+		writePoolEntry(tag, classIndex, nameAndTypeIndex);
+		return registerPoolEntry(key, 1);
+	}
+
+	private int nameAndType(String name, String descriptor) {
+		final String key = "N" + name + ':' + descriptor;
+		final Integer index = poolIndex.get(key);
+		if (null != index) {
+			return index;
+		}
+		final int nameIndex = utf8(name);
+		final int descriptorIndex = utf8(descriptor);
+		writePoolEntry(CONSTANT_NAME_AND_TYPE, nameIndex, descriptorIndex);
+		return registerPoolEntry(key, 1);
+	}
+
+	private void writePoolEntry(int tag, int... indices) {
+		try {
+			pool.writeByte(tag);
+			for (int index : indices) {
+				pool.writeShort(index);
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private int registerPoolEntry(String key, int size) {
+		final int index = poolCount;
+		poolCount += size;
+		if (poolCount > MAX_POOL_SIZE) {
+			throw new IllegalStateException("constant pool too large");
+		}
+		poolIndex.put(key, index);
+		return index;
+	}
+
+
+	/**
+	 * Bytecode of a single method.
+	 */
+	static final class Code {
+
+		private final ByteArrayOutputStream bytes;
+		int maxStack;
+		int maxLocals;
+
+		Code(int maxStack, int maxLocals) {
+			this.bytes = new ByteArrayOutputStream(64);
+			this.maxStack = maxStack;
+			this.maxLocals = maxLocals;
+		}
+
+		Code op(int opcode) {
+			bytes.write(opcode);
+			return this;
+		}
+
+		Code op(int opcode, int operand) {
+			bytes.write(opcode);
+			bytes.write(operand >>> 8);
+			bytes.write(operand);
+			return this;
+		}
+
+		Code invokeInterface(int methodIndex, int argumentSlots) {
+			op(INVOKEINTERFACE, methodIndex);
+			bytes.write(argumentSlots);
+			bytes.write(0);
+			return this;
+		}
+
+		Code pushInt(int value) {
+			if ((value >= -1) && (value <= 5)) {
+				// ICONST_M1 .. ICONST_5
+				bytes.write(0x03 + value);
+			} else if ((value >= Byte.MIN_VALUE) && (value <= Byte.MAX_VALUE)) {
+				// BIPUSH
+				bytes.write(0x10);
+				bytes.write(value);
+			} else if ((value >= Short.MIN_VALUE) && (value <= Short.MAX_VALUE)) {
+				// SIPUSH
+				op(0x11, value);
+			} else {
+				throw new IllegalArgumentException("constant out of range");
+			}
+			return this;
+		}
+
+		Code load(Class<?> type, int slot) {
+			final int opcode;
+			if (!type.isPrimitive()) {
+				opcode = 0x19;
+			} else if (Long.TYPE == type) {
+				opcode = 0x16;
+			} else if (Float.TYPE == type) {
+				opcode = 0x17;
+			} else if (Double.TYPE == type) {
+				opcode = 0x18;
+			} else {
+				opcode = 0x15;
+			}
+			bytes.write(opcode);
+			bytes.write(slot);
+			return this;
+		}
+
+		Code returnValue(Class<?> type) {
+			final int opcode;
+			if (!type.isPrimitive()) {
+				opcode = 0xB0;
+			} else if (Long.TYPE == type) {
+				opcode = 0xAD;
+			} else if (Float.TYPE == type) {
+				opcode = 0xAE;
+			} else if (Double.TYPE == type) {
+				opcode = 0xAF;
+			} else {
+				opcode = 0xAC;
+			}
+			bytes.write(opcode);
+			return this;
+		}
+
+		byte[] toByteArray() {
+			return bytes.toByteArray();
+		}
+	}
+
+}
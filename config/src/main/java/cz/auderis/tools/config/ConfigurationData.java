@@ -20,6 +20,7 @@ import cz.auderis.tools.config.spi.CompoundDataProvider;
 import cz.auderis.tools.config.spi.MapBasedDataProvider;
 import cz.auderis.tools.config.spi.SystemPropertyDataProvider;
 
+import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.Map;
 
@@ -43,13 +44,71 @@ public final class ConfigurationData {
 		return new CompoundDataProvider(providers);
 	}
 
-	@SuppressWarnings("unchecked")
 	public static <T> T createConfigurationObject(ConfigurationDataProvider dataProvider, Class<T> targetClass, ClassLoader clsLoader) {
 		if ((null == dataProvider) || (null == targetClass)) {
 			throw new NullPointerException();
 		}
+		final ConfigurationDataAccessProxyHandler proxyHandler = createHandler(dataProvider, targetClass, clsLoader);
+		return createProxy(proxyHandler, targetClass, clsLoader);
+	}
+
+	public static <T> T createConfigurationObject(ConfigurationDataProvider dataProvider, Class<T> targetClass) {
+		return createConfigurationObject(dataProvider, targetClass, null);
+	}
+
+	/**
+	 * Creates a configuration object with values resolved in advance. Unlike
+	 * {@link #createConfigurationObject(ConfigurationDataProvider, Class, ClassLoader)},
+	 * the result is an instance of a generated class: values of methods without arguments
+	 * are translated immediately and stored in final fields, so that later changes
+	 * of the data provider are not reflected. Methods with arguments are evaluated
+	 * on each call.
+	 *
+	 * <p>If a class cannot be generated for the interface (e.g. because the interface
+	 * is not public) or a value cannot be stored (e.g. a primitive value is missing),
+	 * a proxy-based object is returned instead.
+	 *
+	 * @param dataProvider source of configuration data
+	 * @param targetClass configuration interface
+	 * @param clsLoader classloader used to discover data translators; may be {@code null}
+	 * @param <T> type of configuration interface
+	 * @return configuration object
+	 * @throws java.lang.NullPointerException if {@code dataProvider} or {@code targetClass} is {@code null}
+	 */
+	public static <T> T createEagerConfigurationObject(ConfigurationDataProvider dataProvider, Class<T> targetClass, ClassLoader clsLoader) {
+		if ((null == dataProvider) || (null == targetClass)) {
+			throw new NullPointerException();
+		}
+		final ConfigurationDataAccessProxyHandler handler = createHandler(dataProvider, targetClass, clsLoader);
+		final ConfigurationClassGenerator.GeneratedClass generatedClass = ConfigurationClassGenerator.getGeneratedClass(targetClass);
+		if (null != generatedClass) {
+			final Method[] valueMethods = generatedClass.getValueMethods();
+			final Object[] values = new Object[valueMethods.length];
+			boolean valuesAccepted = true;
+			for (int i=0; valuesAccepted && (i<valueMethods.length); ++i) {
+				values[i] = handler.evaluate(valueMethods[i], null);
+				valuesAccepted = generatedClass.acceptsValue(i, values[i]);
+			}
+			if (valuesAccepted) {
+				return targetClass.cast(generatedClass.newInstance(values, handler));
+			}
+		}
+		return createProxy(handler, targetClass, clsLoader);
+	}
+
+	public static <T> T createEagerConfigurationObject(ConfigurationDataProvider dataProvider, Class<T> targetClass) {
+		return createEagerConfigurationObject(dataProvider, targetClass, null);
+	}
+
+	private static ConfigurationDataAccessProxyHandler createHandler(ConfigurationDataProvider dataProvider, Class<?> targetClass, ClassLoader clsLoader) {
+		final ClassLoader translatorLoader = (null != clsLoader) ? clsLoader : Thread.currentThread().getContextClassLoader();
+		final DataTranslatorRegistry translatorRegistry = DataTranslatorRegistry.forClassLoader(translatorLoader);
+		return new ConfigurationDataAccessProxyHandler(dataProvider, targetClass, translatorRegistry);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T createProxy(ConfigurationDataAccessProxyHandler proxyHandler, Class<T> targetClass, ClassLoader clsLoader) {
 		final Class<?>[] interfaces = { targetClass };
-		final ConfigurationDataAccessProxyHandler proxyHandler = new ConfigurationDataAccessProxyHandler(dataProvider);
 		Exception firstFailure = null;
 		// First try the provided classloader
 		if (null != clsLoader) {
@@ -88,10 +147,6 @@ public final class ConfigurationData {
 		throw new IllegalArgumentException("cannot create proxy class", firstFailure);
 	}
 
-	public static <T> T createConfigurationObject(ConfigurationDataProvider dataProvider, Class<T> targetClass) {
-		return createConfigurationObject(dataProvider, targetClass, null);
-	}
-
 	private ConfigurationData() {
 		throw new AssertionError();
 	}
@@ -0,0 +1,393 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config;
+
+import cz.auderis.tools.config.annotation.ConfigurationEntries;
+import cz.auderis.tools.config.annotation.ConfigurationEntryName;
+import cz.auderis.tools.config.annotation.DefaultConfigurationEntryValue;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.text.MessageFormat;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Immutable description of the way a single configuration object method
+ * is evaluated. Everything that depends only on the method declaration
+ * (configuration entry names, default value, translation strategy and
+ * public constructors of the result type) is resolved when the plan is created,
+ * so that the evaluation itself consists of provider lookups and the
+ * actual value translation.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+final class ConfigurationMethodPlan {
+
+	private static final String GETTER_PREFIX = "get";
+	private static final String GETTER_PREFIX_BOOLEAN = "is";
+	private static final Constructor<?>[] NO_CONSTRUCTORS = new Constructor<?>[0];
+
+	enum ResultKind {
+		STRING,
+		PRIMITIVE,
+		ENUM,
+		OBJECT
+	}
+
+	private final Method method;
+	private final String[] keyCandidates;
+	private final Object defaultValue;
+	private final Class<?> resultType;
+	private final ResultKind resultKind;
+	private final DataTranslatorRegistry translatorRegistry;
+	private final Constructor<?>[] constructors;
+
+	private ConfigurationMethodPlan(Method method, DataTranslatorRegistry translatorRegistry) {
+		this.method = method;
+		this.translatorRegistry = translatorRegistry;
+		this.keyCandidates = resolveKeyCandidates(method);
+		this.defaultValue = resolveDefaultValue(method);
+		this.resultType = method.getReturnType();
+		this.resultKind = resolveResultKind(resultType);
+		if (ResultKind.OBJECT == resultKind) {
+			this.constructors = resultType.getConstructors();
+		} else {
+			this.constructors = NO_CONSTRUCTORS;
+		}
+	}
+
+	static ConfigurationMethodPlan compile(Method method, DataTranslatorRegistry translatorRegistry) {
+		if ((null == method) || (null == translatorRegistry)) {
+			throw new NullPointerException();
+		}
+		return new ConfigurationMethodPlan(method, translatorRegistry);
+	}
+
+	Method getMethod() {
+		return method;
+	}
+
+	/**
+	 * Returns names of configuration entries in the order in which they are
+	 * searched in a data provider.
+	 */
+	String[] getKeyCandidates() {
+		return keyCandidates.clone();
+	}
+
+	ResultKind getResultKind() {
+		return resultKind;
+	}
+
+	Object evaluate(ConfigurationDataProvider dataProvider, Object[] args) {
+		final Object sourceValue = resolveSourceValue(dataProvider);
+		return translate(sourceValue, args);
+	}
+
+	Object resolveSourceValue(ConfigurationDataProvider dataProvider) {
+		for (String key : keyCandidates) {
+			if (dataProvider.containsKey(key)) {
+				return dataProvider.getRawObject(key);
+			}
+		}
+		return defaultValue;
+	}
+
+	Object translate(Object sourceValue, Object[] args) {
+		final StandardJavaTranslator standardTranslator;
+		switch (resultKind) {
+			case STRING:
+				return translateToString(sourceValue, args);
+			case PRIMITIVE:
+				standardTranslator = StandardJavaTranslator.instance();
+				return standardTranslator.translatePrimitive(sourceValue, resultType);
+			case ENUM:
+				standardTranslator = StandardJavaTranslator.instance();
+				return standardTranslator.translateEnum(sourceValue, resultType);
+			default:
+				break;
+		}
+		final Object pluginResult = tryPluginTranslators(sourceValue, args);
+		if (null != pluginResult) {
+			return (DataTranslator.NULL_OBJECT != pluginResult) ? pluginResult : null;
+		}
+		final Object constructedResult = tryConstruct(sourceValue, args);
+		if (null != constructedResult) {
+			return constructedResult;
+		}
+		// Try special cases
+		if (null != sourceValue) {
+			if ((Class.class == resultType) && (sourceValue instanceof String)) {
+				try {
+					final Class<?> classResult = Class.forName((String) sourceValue);
+					return classResult;
+				} catch (ClassNotFoundException e) {
+					// Exception ignored
+				}
+			}
+		}
+		return null;
+	}
+
+	private String translateToString(Object sourceValue, Object[] args) {
+		if (null == sourceValue) {
+			return "";
+		} else if (sourceValue instanceof String) {
+			if (null != args) {
+				try {
+					return MessageFormat.format((String) sourceValue, args);
+				} catch (Exception e) {
+					// Fall through
+				}
+			}
+			return (String) sourceValue;
+		}
+		return sourceValue.toString();
+	}
+
+	private Object tryPluginTranslators(Object sourceValue, Object[] args) {
+		final DataTranslatorRegistry.TranslatorCandidate[] translators = translatorRegistry.getCandidates(resultType);
+		if (0 == translators.length) {
+			return null;
+		}
+		final DataTranslatorContext context = new ConfigurationDataAccessProxyHandler.DataTranslatorContextImpl(method, args);
+		for (DataTranslatorRegistry.TranslatorCandidate candidate : translators) {
+			try {
+				final DataTranslator selectedTranslator = candidate.translator;
+				final Object result = selectedTranslator.translateToClass(sourceValue, resultType, context);
+				if (null != result) {
+					return result;
+				}
+			} catch (Exception e) {
+				// Silently ignored
+			}
+		}
+		return null;
+	}
+
+	private Object tryConstruct(Object sourceValue, Object[] args) {
+		if ((null == sourceValue) || (0 == constructors.length)) {
+			return null;
+		}
+		try {
+			if (null == args) {
+				final Object[] paramRef = { sourceValue };
+				final Constructor<?> constructor = findSingleArgumentConstructor(paramRef);
+				if (null == constructor) {
+					return null;
+				}
+				// Use value from paramRef in case it was necessary to convert the source value
+				final Object result = constructor.newInstance(paramRef[0]);
+				return result;
+			}
+			// More complex case - append method arguments
+			final Object[] extArgs = new Object[1 + args.length];
+			extArgs[0] = sourceValue;
+			System.arraycopy(args, 0, extArgs, 1, args.length);
+			for (Constructor<?> constructor : constructors) {
+				if (matchParameters(constructor.getParameterTypes(), extArgs)) {
+					final Object result = constructor.newInstance(extArgs);
+					return result;
+				}
+			}
+		} catch (Exception e) {
+			// Silently ignored
+		}
+		return null;
+	}
+
+	private Constructor<?> findSingleArgumentConstructor(Object[] paramRef) {
+		final Object param = paramRef[0];
+		final Class<?> paramClass = param.getClass();
+		final Constructor<?> exactConstructor = findSingleArgumentConstructor(paramClass);
+		if (null != exactConstructor) {
+			return exactConstructor;
+		}
+		// If the paramClass represents a primitive value, try to use the boxed variant
+		// (or vice versa)
+		final StandardJavaTranslator stdTranslator = StandardJavaTranslator.instance();
+		final Class<?> altParamClass = stdTranslator.switchPrimitiveAndBoxedType(paramClass);
+		if (null != altParamClass) {
+			final Constructor<?> altConstructor = findSingleArgumentConstructor(altParamClass);
+			if (null != altConstructor) {
+				return altConstructor;
+			}
+		}
+		// Try other strategies only if the parameter is a string
+		if (String.class == paramClass) {
+			final String textParam = (String) param;
+			for (Constructor<?> candidate : constructors) {
+				final Class<?>[] candidateArgTypes = candidate.getParameterTypes();
+				if (1 != candidateArgTypes.length) {
+					continue;
+				}
+				final Class<?> argType = candidateArgTypes[0];
+				// Try to convert the parameter into primitive value
+				if (stdTranslator.isPrimitiveOrBoxed(argType)) {
+					final Object convertedParam = stdTranslator.translatePrimitive(textParam, argType);
+					if (null != convertedParam) {
+						paramRef[0] = convertedParam;
+						return candidate;
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	private Constructor<?> findSingleArgumentConstructor(Class<?> paramClass) {
+		for (Constructor<?> candidate : constructors) {
+			final Class<?>[] candidateArgTypes = candidate.getParameterTypes();
+			if ((1 == candidateArgTypes.length) && (paramClass == candidateArgTypes[0])) {
+				return candidate;
+			}
+		}
+		return null;
+	}
+
+	private static boolean matchParameters(Class<?>[] parameterTypes, Object[] arguments) {
+		if (parameterTypes.length != arguments.length) {
+			return false;
+		}
+		for (int i=0; i<parameterTypes.length; ++i) {
+			final Class<?> paramType = parameterTypes[i];
+			final Object arg = arguments[i];
+			if (null == arg) {
+				// Wildcard - null can be used for all non-primitive types
+				if (paramType.isPrimitive()) {
+					return false;
+				}
+			} else if (!paramType.isAssignableFrom(arg.getClass())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static ResultKind resolveResultKind(Class<?> resultType) {
+		if (String.class == resultType) {
+			return ResultKind.STRING;
+		} else if (StandardJavaTranslator.instance().isPrimitiveOrBoxed(resultType)) {
+			return ResultKind.PRIMITIVE;
+		} else if (resultType.isEnum()) {
+			return ResultKind.ENUM;
+		}
+		return ResultKind.OBJECT;
+	}
+
+	private static Object resolveDefaultValue(Method method) {
+		final DefaultConfigurationEntryValue defaultValAnnotation = method.getAnnotation(DefaultConfigurationEntryValue.class);
+		final String result = (null != defaultValAnnotation) ? defaultValAnnotation.value() : null;
+		if ((null == result) || result.isEmpty()) {
+			return null;
+		}
+		return result;
+	}
+
+	private static String[] resolveKeyCandidates(Method method) {
+		final String keyPrefix = getResourceKeyPrefix(method);
+		final Set<String> keys = new LinkedHashSet<String>(4);
+		final ConfigurationEntryName nameAnnotation = method.getAnnotation(ConfigurationEntryName.class);
+		boolean keyNameDefined = false;
+		if (null != nameAnnotation) {
+			final String keyName = nameAnnotation.name();
+			keyNameDefined = (null != keyName) && !keyName.isEmpty();
+			if (keyNameDefined) {
+				keys.add(keyPrefix + keyName);
+			}
+			final String[] keyAliases = nameAnnotation.alias();
+			if (null != keyAliases) {
+				for (String alias : keyAliases) {
+					if ((null != alias) && !alias.isEmpty()) {
+						keys.add(keyPrefix + alias);
+					}
+				}
+			}
+		}
+		// If the explicit name was defined, use it in all cases (i.e. don't use the implicit name)
+		if (!keyNameDefined) {
+			final String methodName = method.getName();
+			final boolean booleanGetter = isBasicBooleanGetter(method);
+			keys.add(keyPrefix + trimOptionalGetterPrefix(methodName, booleanGetter));
+		}
+		return keys.toArray(new String[keys.size()]);
+	}
+
+	private static String getResourceKeyPrefix(Method method) {
+		final Class<?> declaringClass = method.getDeclaringClass();
+		final ConfigurationEntries prefixAnnotation = declaringClass.getAnnotation(ConfigurationEntries.class);
+		if (null == prefixAnnotation) {
+			return "";
+		}
+		final String explicitPrefix = prefixAnnotation.prefix();
+		if ((null == explicitPrefix) || explicitPrefix.trim().isEmpty()) {
+			return "";
+		}
+		final StringBuilder resultPrefix = new StringBuilder();
+		if (ConfigurationEntries.CLASS_NAME_PREFIX.equals(explicitPrefix)) {
+			resultPrefix.append(declaringClass.getSimpleName());
+		} else {
+			resultPrefix.append(explicitPrefix);
+		}
+		if (resultPrefix.charAt(resultPrefix.length() - 1) != '.') {
+			resultPrefix.append('.');
+		}
+		return resultPrefix.toString();
+	}
+
+	private static String trimOptionalGetterPrefix(String methodName, boolean considerBooleanPrefix) {
+		final String prefix;
+		if (methodName.startsWith(GETTER_PREFIX)) {
+			prefix = GETTER_PREFIX;
+		} else if (considerBooleanPrefix && methodName.startsWith(GETTER_PREFIX_BOOLEAN)) {
+			prefix = GETTER_PREFIX_BOOLEAN;
+		} else {
+			return methodName;
+		}
+		final String propertyName = methodName.substring(prefix.length());
+		if (propertyName.isEmpty() || !Character.isUpperCase(propertyName.charAt(0))) {
+			// This is probably not a getter
+			return methodName;
+		}
+		return Character.toLowerCase(propertyName.charAt(0)) + propertyName.substring(1);
+	}
+
+	private static boolean isBasicBooleanGetter(Method method) {
+		final Class<?> resultType = method.getReturnType();
+		if (Boolean.TYPE != resultType) {
+			return false;
+		} else if (0 != method.getParameterTypes().length) {
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder str = new StringBuilder("ConfigurationMethodPlan{");
+		str.append(method.getName()).append(" -> ").append(resultKind);
+		str.append(", keys=");
+		for (int i=0; i<keyCandidates.length; ++i) {
+			str.append((0 == i) ? "[" : ", ").append(keyCandidates[i]);
+		}
+		str.append("]}");
+		return str.toString();
+	}
+
+}
@@ -19,7 +19,8 @@ package cz.auderis.tools.config;
 /**
  * {@code DataTranslator} defines a mechanism by which an arbitrary object
  * is translated into an instance of a given class. Classes implementing
- * this interface are discovered using standard {@link java.util.ServiceLoader}.
+ * this interface are discovered using standard {@link java.util.ServiceLoader};
+ * discovered instances are kept by {@link cz.auderis.tools.config.DataTranslatorRegistry}.
  *
  * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
  * @version 1.0
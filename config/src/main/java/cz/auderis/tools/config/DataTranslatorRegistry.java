@@ -0,0 +1,281 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config;
+
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@code DataTranslatorRegistry} holds {@link cz.auderis.tools.config.DataTranslator}s
+ * discovered by {@link java.util.ServiceLoader} in a single classloader.
+ * The discovery is performed only once (or when {@link #reload()} is called)
+ * and the translators applicable to a target class are cached, sorted
+ * by their priority.
+ *
+ * <p>Registries are kept for each classloader as long as there is enough memory.
+ * A registry refers to its classloader weakly, so that the cache itself does not
+ * keep the classloader alive. However, translators whose classes are defined by
+ * that classloader refer to it; such a classloader can be garbage-collected only
+ * after the softly referenced registry is cleared, i.e. when the registry has not
+ * been used for some time or the memory is needed.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public final class DataTranslatorRegistry {
+
+	private static final Map<ClassLoader, SoftReference<DataTranslatorRegistry>> REGISTRIES
+			= new WeakHashMap<ClassLoader, SoftReference<DataTranslatorRegistry>>();
+	private static final DataTranslator[] NO_TRANSLATORS = new DataTranslator[0];
+	static final TranslatorCandidate[] NO_CANDIDATES = new TranslatorCandidate[0];
+
+	private final WeakReference<ClassLoader> classLoaderRef;
+	private final boolean systemClassLoader;
+	private volatile State state;
+
+	/**
+	 * Returns the registry of translators discovered in the given classloader.
+	 *
+	 * @param classLoader classloader used to discover the translators; if {@code null},
+	 *                    the system classloader is used
+	 * @return translator registry
+	 */
+	public static DataTranslatorRegistry forClassLoader(ClassLoader classLoader) {
+		synchronized (REGISTRIES) {
+			final SoftReference<DataTranslatorRegistry> registryRef = REGISTRIES.get(classLoader);
+			DataTranslatorRegistry registry = (null != registryRef) ? registryRef.get() : null;
+			if (null == registry) {
+				registry = new DataTranslatorRegistry(classLoader);
+				REGISTRIES.put(classLoader, new SoftReference<DataTranslatorRegistry>(registry));
+			}
+			return registry;
+		}
+	}
+
+	/**
+	 * Returns the registry of translators discovered in the context classloader
+	 * of the current thread.
+	 *
+	 * @return translator registry
+	 */
+	public static DataTranslatorRegistry forContextClassLoader() {
+		return forClassLoader(Thread.currentThread().getContextClassLoader());
+	}
+
+	/**
+	 * Discards translators of all existing registries, so that they will be discovered again
+	 * on next use.
+	 */
+	public static void reloadAll() {
+		final List<DataTranslatorRegistry> registries = new ArrayList<DataTranslatorRegistry>();
+		synchronized (REGISTRIES) {
+			for (SoftReference<DataTranslatorRegistry> registryRef : REGISTRIES.values()) {
+				final DataTranslatorRegistry registry = registryRef.get();
+				if (null != registry) {
+					registries.add(registry);
+				}
+			}
+		}
+		for (DataTranslatorRegistry registry : registries) {
+			registry.reload();
+		}
+	}
+
+	private DataTranslatorRegistry(ClassLoader classLoader) {
+		this.classLoaderRef = new WeakReference<ClassLoader>(classLoader);
+		this.systemClassLoader = (null == classLoader);
+	}
+
+	/**
+	 * Returns the classloader in which the translators are discovered.
+	 *
+	 * @return classloader, may be {@code null} for the system classloader
+	 *         or if the classloader was garbage-collected
+	 */
+	public ClassLoader getClassLoader() {
+		return classLoaderRef.get();
+	}
+
+	/**
+	 * Returns all discovered translators.
+	 *
+	 * @return unmodifiable list of translators
+	 */
+	public List<DataTranslator> getTranslators() {
+		return Collections.unmodifiableList(Arrays.asList(getState().translators));
+	}
+
+	/**
+	 * Returns translators that support the given class, ordered from
+	 * the highest priority.
+	 *
+	 * @param targetClass class of the expected result of translation
+	 * @return unmodifiable list of applicable translators
+	 * @throws java.lang.NullPointerException if {@code targetClass} is {@code null}
+	 */
+	public List<DataTranslator> getTranslators(Class<?> targetClass) {
+		final TranslatorCandidate[] candidates = getCandidates(targetClass);
+		final List<DataTranslator> result = new ArrayList<DataTranslator>(candidates.length);
+		for (TranslatorCandidate candidate : candidates) {
+			result.add(candidate.translator);
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+	/**
+	 * Discards discovered translators, so that they will be discovered again on next use.
+	 */
+	public void reload() {
+		state = null;
+	}
+
+	TranslatorCandidate[] getCandidates(Class<?> targetClass) {
+		if (null == targetClass) {
+			throw new NullPointerException();
+		}
+		final State currentState = getState();
+		TranslatorCandidate[] candidates = currentState.candidates.get(targetClass);
+		if (null == candidates) {
+			candidates = findApplicableTranslators(currentState.translators, targetClass);
+			final TranslatorCandidate[] existingCandidates = currentState.candidates.putIfAbsent(targetClass, candidates);
+			if (null != existingCandidates) {
+				candidates = existingCandidates;
+			}
+		}
+		return candidates;
+	}
+
+	private State getState() {
+		State currentState = state;
+		if (null == currentState) {
+			synchronized (this) {
+				currentState = state;
+				if (null == currentState) {
+					currentState = new State(discoverTranslators());
+					state = currentState;
+				}
+			}
+		}
+		return currentState;
+	}
+
+	private DataTranslator[] discoverTranslators() {
+		final ClassLoader classLoader = classLoaderRef.get();
+		if ((null == classLoader) && !systemClassLoader) {
+			// Only a stale registry can outlive its classloader
+			return NO_TRANSLATORS;
+		}
+		final ServiceLoader<DataTranslator> translators = ServiceLoader.load(DataTranslator.class, classLoader);
+		final Iterator<DataTranslator> translatorIterator = translators.iterator();
+		final List<DataTranslator> result = new ArrayList<DataTranslator>();
+		while (true) {
+			boolean hasNext;
+			try {
+				hasNext = translatorIterator.hasNext();
+			} catch (ServiceConfigurationError e) {
+				hasNext = false;
+			}
+			if (!hasNext) {
+				break;
+			}
+			try {
+				result.add(translatorIterator.next());
+			} catch (ServiceConfigurationError e) {
+				// Silently ignored
+			}
+		}
+		return result.toArray(NO_TRANSLATORS);
+	}
+
+	private static TranslatorCandidate[] findApplicableTranslators(DataTranslator[] translators, Class<?> targetClass) {
+		final List<TranslatorCandidate> applicableTranslators = new ArrayList<TranslatorCandidate>(2);
+		for (DataTranslator translator : translators) {
+			try {
+				final int supportPriority = translator.getTargetClassSupportPriority(targetClass);
+				if (supportPriority > DataTranslator.PRIORITY_NOT_SUPPORTED) {
+					applicableTranslators.add(new TranslatorCandidate(translator, supportPriority));
+				}
+			} catch (Exception e) {
+				// Silently ignored
+			}
+		}
+		if (applicableTranslators.isEmpty()) {
+			return NO_CANDIDATES;
+		}
+		Collections.sort(applicableTranslators);
+		return applicableTranslators.toArray(NO_CANDIDATES);
+	}
+
+	@Override
+	public String toString() {
+		return "DataTranslatorRegistry{" + classLoaderRef.get() + "}";
+	}
+
+	private static final class State {
+
+		final DataTranslator[] translators;
+		final ConcurrentMap<Class<?>, TranslatorCandidate[]> candidates;
+
+		State(DataTranslator[] translators) {
+			this.translators = translators;
+			this.candidates = new ConcurrentHashMap<Class<?>, TranslatorCandidate[]>();
+		}
+	}
+
+	static final class TranslatorCandidate implements Comparable<TranslatorCandidate> {
+
+		final DataTranslator translator;
+		final int priority;
+
+		public TranslatorCandidate(DataTranslator translator, int priority) {
+			this.translator = translator;
+			this.priority = priority;
+		}
+
+		@Override
+		public int compareTo(TranslatorCandidate other) {
+			return other.priority - this.priority;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			final TranslatorCandidate candidate = (TranslatorCandidate) o;
+			if (priority != candidate.priority) return false;
+			if (!translator.equals(candidate.translator)) return false;
+			return true;
+		}
+
+		@Override
+		public int hashCode() {
+			return priority;
+		}
+	}
+
+}
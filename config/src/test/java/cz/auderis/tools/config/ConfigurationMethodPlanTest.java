@@ -0,0 +1,126 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config;
+
+import cz.auderis.tools.config.annotation.ConfigurationEntries;
+import cz.auderis.tools.config.annotation.ConfigurationEntryName;
+import cz.auderis.tools.config.annotation.DefaultConfigurationEntryValue;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * {@code ConfigurationMethodPlanTest}
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class ConfigurationMethodPlanTest {
+
+	@ConfigurationEntries(prefix = "server")
+	public static interface PlannedDataObject {
+		String getHost();
+		@ConfigurationEntryName(name = "port", alias = { "tcpPort", "listenPort" }) int port();
+		@ConfigurationEntryName(alias = "timeoutMillis") @DefaultConfigurationEntryValue("250") long getTimeout();
+		Range range(Integer upperBound);
+		Range fixedRange();
+	}
+
+	@Test
+	public void shouldResolveKeyCandidatesInAdvance() throws Exception {
+		// Given
+		final Class<PlannedDataObject> type = PlannedDataObject.class;
+		final DataTranslatorRegistry registry = DataTranslatorRegistry.forContextClassLoader();
+
+		// When
+		final ConfigurationMethodPlan hostPlan = ConfigurationMethodPlan.compile(type.getMethod("getHost"), registry);
+		final ConfigurationMethodPlan portPlan = ConfigurationMethodPlan.compile(type.getMethod("port"), registry);
+		final ConfigurationMethodPlan timeoutPlan = ConfigurationMethodPlan.compile(type.getMethod("getTimeout"), registry);
+		final ConfigurationMethodPlan rangePlan = ConfigurationMethodPlan.compile(type.getMethod("range", Integer.class), registry);
+
+		// Then
+		assertThat(hostPlan.getKeyCandidates(), is(new String[] { "server.host" }));
+		assertThat(portPlan.getKeyCandidates(), is(new String[] { "server.port", "server.tcpPort", "server.listenPort" }));
+		assertThat(timeoutPlan.getKeyCandidates(), is(new String[] { "server.timeoutMillis", "server.timeout" }));
+		assertThat(hostPlan.getResultKind(), is(ConfigurationMethodPlan.ResultKind.STRING));
+		assertThat(portPlan.getResultKind(), is(ConfigurationMethodPlan.ResultKind.PRIMITIVE));
+		assertThat(rangePlan.getResultKind(), is(ConfigurationMethodPlan.ResultKind.OBJECT));
+	}
+
+	@Test
+	public void shouldEvaluatePlansThroughProxy() throws Exception {
+		// Given
+		final Map<String, Object> dataSource = new HashMap<String, Object>();
+		dataSource.put("server.host", "example.org");
+		dataSource.put("server.listenPort", "8080");
+		dataSource.put("server.range", "10");
+		dataSource.put("server.fixedRange", "5");
+		final ConfigurationDataProvider data = ConfigurationData.getMapDataProvider(dataSource);
+
+		// When
+		final PlannedDataObject testObject = ConfigurationData.createConfigurationObject(data, PlannedDataObject.class);
+
+		// Then
+		assertThat("host", testObject.getHost(), is("example.org"));
+		assertThat("port from alias", testObject.port(), is(8080));
+		assertThat("default timeout", testObject.getTimeout(), is(250L));
+		assertThat("range with argument", testObject.range(20).toString(), is("10..20"));
+		assertThat("range with another argument", testObject.range(30).toString(), is("10..30"));
+		assertThat("range with null argument", testObject.range(null).toString(), is("10..null"));
+		assertThat("single argument range", testObject.fixedRange().toString(), is("5..5"));
+	}
+
+	@Test
+	public void shouldNotConstructMissingValue() throws Exception {
+		// Given
+		final ConfigurationDataProvider data = ConfigurationData.getMapDataProvider(new HashMap<String, Object>());
+
+		// When
+		final PlannedDataObject testObject = ConfigurationData.createConfigurationObject(data, PlannedDataObject.class);
+
+		// Then
+		assertThat(testObject.fixedRange(), nullValue());
+		assertThat(testObject.range(1), nullValue());
+	}
+
+
+	public static final class Range {
+		private final String lowerBound;
+		private final Integer upperBound;
+
+		public Range(String bound) {
+			this.lowerBound = bound;
+			this.upperBound = Integer.valueOf(bound);
+		}
+
+		public Range(String lowerBound, Integer upperBound) {
+			this.lowerBound = lowerBound;
+			this.upperBound = upperBound;
+		}
+
+		@Override
+		public String toString() {
+			return lowerBound + ".." + upperBound;
+		}
+	}
+
+}
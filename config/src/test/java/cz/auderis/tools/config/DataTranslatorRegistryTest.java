@@ -0,0 +1,113 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config;
+
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * {@code DataTranslatorRegistryTest}
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class DataTranslatorRegistryTest {
+
+	@Test
+	public void shouldShareRegistryOfClassLoader() throws Exception {
+		// Given
+		final ClassLoader classLoader = getClass().getClassLoader();
+
+		// When
+		final DataTranslatorRegistry registry = DataTranslatorRegistry.forClassLoader(classLoader);
+
+		// Then
+		assertThat(DataTranslatorRegistry.forClassLoader(classLoader), sameInstance(registry));
+		assertThat(registry.getClassLoader(), sameInstance(classLoader));
+	}
+
+	@Test
+	public void shouldSortApplicableTranslatorsByPriority() throws Exception {
+		// Given
+		final DataTranslatorRegistry registry = DataTranslatorRegistry.forClassLoader(getClass().getClassLoader());
+
+		// When
+		final List<DataTranslator> translatorsA = registry.getTranslators(PluginDataObjectTest.TestClassA.class);
+		final List<DataTranslator> translatorsB = registry.getTranslators(PluginDataObjectTest.TestClassB.class);
+
+		// Then
+		assertThat(translatorsA.size(), is(3));
+		assertThat(translatorsA.get(0), instanceOf(PluginDataObjectTest.HighPriorityTranslator.class));
+		assertThat(translatorsA.get(1), instanceOf(PluginDataObjectTest.MidPriorityTranslator.class));
+		assertThat(translatorsA.get(2), instanceOf(PluginDataObjectTest.LowPriorityTranslator.class));
+		assertThat(translatorsB.size(), is(2));
+		assertThat(translatorsB.get(1), instanceOf(PluginDataObjectTest.LowPriorityTranslator.class));
+		assertThat(registry.getTranslators(Runnable.class).isEmpty(), is(true));
+	}
+
+	@Test
+	public void shouldDiscoverTranslatorsOnlyOnce() throws Exception {
+		// Given
+		final DataTranslatorRegistry registry = DataTranslatorRegistry.forClassLoader(getClass().getClassLoader());
+		final DataTranslator first = registry.getTranslators(PluginDataObjectTest.TestClassA.class).get(0);
+
+		// When
+		final DataTranslator cached = registry.getTranslators(PluginDataObjectTest.TestClassA.class).get(0);
+		registry.reload();
+		final DataTranslator reloaded = registry.getTranslators(PluginDataObjectTest.TestClassA.class).get(0);
+
+		// Then
+		assertThat(cached, sameInstance(first));
+		assertThat(reloaded, not(sameInstance(first)));
+		assertThat(reloaded, instanceOf(PluginDataObjectTest.HighPriorityTranslator.class));
+	}
+
+	@Test
+	public void shouldNotRetainClassLoader() throws Exception {
+		// Given
+		ClassLoader classLoader = new URLClassLoader(new URL[0], null);
+		final WeakReference<ClassLoader> classLoaderRef = new WeakReference<ClassLoader>(classLoader);
+		DataTranslatorRegistry.forClassLoader(classLoader).getTranslators();
+
+		// When
+		classLoader = null;
+		for (int i = 0; (i < 50) && (null != classLoaderRef.get()); ++i) {
+			System.gc();
+			Thread.sleep(10L);
+		}
+
+		// Then
+		assertThat(classLoaderRef.get(), nullValue());
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void shouldRejectNullTargetClass() throws Exception {
+		DataTranslatorRegistry.forContextClassLoader().getTranslators(null);
+	}
+
+}
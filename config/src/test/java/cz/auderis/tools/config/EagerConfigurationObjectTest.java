@@ -0,0 +1,187 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config;
+
+import cz.auderis.tools.config.annotation.DefaultConfigurationEntryValue;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+/**
+ * {@code EagerConfigurationObjectTest}
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class EagerConfigurationObjectTest {
+
+	public static interface EagerDataObject {
+		boolean isEnabled();
+		byte getByteValue();
+		short getShortValue();
+		int getCount();
+		long getSize();
+		float getRatio();
+		double getFactor();
+		Integer getBoxedCount();
+		String getName();
+		TimeUnit getUnit();
+		BigDecimal getPrice();
+		UUID getId();
+		@DefaultConfigurationEntryValue("fallback") String getMissingName();
+		long[] getMissingArray();
+	}
+
+	public static interface ParameterizedDataObject extends EagerDataObject {
+		String greeting(String name, int count);
+		long scaledSize(double factor, long offset, char mode);
+	}
+
+	public static interface ObjectWithVoidMethod {
+		String getName();
+		void refresh();
+	}
+
+	static interface HiddenDataObject {
+		String getName();
+	}
+
+	@Test
+	public void shouldStoreResolvedValuesInGeneratedClass() throws Exception {
+		// Given
+		final ConfigurationDataProvider data = ConfigurationData.getMapDataProvider(createDataSource());
+
+		// When
+		final EagerDataObject testObject = ConfigurationData.createEagerConfigurationObject(data, EagerDataObject.class);
+
+		// Then
+		assertThat(Proxy.isProxyClass(testObject.getClass()), is(false));
+		assertThat(testObject.getClass().getName(), startsWith(ConfigurationClassGenerator.GENERATED_PACKAGE));
+		assertThat(testObject.isEnabled(), is(true));
+		assertThat(testObject.getByteValue(), is((byte) -7));
+		assertThat(testObject.getShortValue(), is((short) 1234));
+		assertThat(testObject.getCount(), is(42));
+		assertThat(testObject.getSize(), is(5000000000L));
+		assertThat(testObject.getRatio(), is(0.25f));
+		assertThat(testObject.getFactor(), is(1.5d));
+		assertThat(testObject.getBoxedCount(), is(17));
+		assertThat(testObject.getName(), is("eager"));
+		assertThat(testObject.getUnit(), is(TimeUnit.SECONDS));
+		assertThat(testObject.getPrice(), is(new BigDecimal("12.50")));
+		assertThat(testObject.getId(), is(UUID.fromString("f669dd2a-6722-11e4-b116-123b93f75cba")));
+		assertThat(testObject.getMissingName(), is("fallback"));
+		assertThat(testObject.getMissingArray(), nullValue());
+	}
+
+	@Test
+	public void shouldMatchProxyBasedObject() throws Exception {
+		// Given
+		final ConfigurationDataProvider data = ConfigurationData.getMapDataProvider(createDataSource());
+
+		// When
+		final EagerDataObject eagerObject = ConfigurationData.createEagerConfigurationObject(data, EagerDataObject.class);
+		final EagerDataObject proxyObject = ConfigurationData.createConfigurationObject(data, EagerDataObject.class);
+
+		// Then
+		assertThat(eagerObject.getSize(), is(proxyObject.getSize()));
+		assertThat(eagerObject.getFactor(), is(proxyObject.getFactor()));
+		assertThat(eagerObject.getName(), is(proxyObject.getName()));
+		assertThat(eagerObject.getUnit(), is(proxyObject.getUnit()));
+		assertThat(eagerObject.getPrice(), is(proxyObject.getPrice()));
+	}
+
+	@Test
+	public void shouldDelegateMethodsWithArguments() throws Exception {
+		// Given
+		final Map<String, Object> dataSource = createDataSource();
+		dataSource.put("greeting", "Hello {0} ({1})");
+		dataSource.put("scaledSize", "77");
+		final ConfigurationDataProvider data = ConfigurationData.getMapDataProvider(dataSource);
+
+		// When
+		final ParameterizedDataObject testObject = ConfigurationData.createEagerConfigurationObject(data, ParameterizedDataObject.class);
+
+		// Then
+		assertThat(Proxy.isProxyClass(testObject.getClass()), is(false));
+		assertThat(testObject.greeting("world", 3), is("Hello world (3)"));
+		assertThat(testObject.scaledSize(2.0, 5L, 'x'), is(77L));
+		assertThat(testObject.getCount(), is(42));
+	}
+
+	@Test
+	public void shouldReuseGeneratedClass() throws Exception {
+		// Given
+		final ConfigurationDataProvider data = ConfigurationData.getMapDataProvider(createDataSource());
+		final ConfigurationDataProvider otherData = ConfigurationData.getMapDataProvider(new HashMap<String, Object>());
+
+		// When
+		final EagerDataObject first = ConfigurationData.createEagerConfigurationObject(data, EagerDataObject.class);
+		final EagerDataObject second = ConfigurationData.createEagerConfigurationObject(otherData, EagerDataObject.class);
+
+		// Then
+		assertThat(second.getClass(), sameInstance((Object) first.getClass()));
+		assertThat(second.getCount(), is(0));
+		assertThat(second.getName(), is(""));
+	}
+
+	@Test
+	public void shouldFallBackToProxyForUnsupportedInterfaces() throws Exception {
+		// Given
+		final Map<String, Object> dataSource = new HashMap<String, Object>();
+		dataSource.put("name", "proxy");
+		final ConfigurationDataProvider data = ConfigurationData.getMapDataProvider(dataSource);
+
+		// When
+		final ObjectWithVoidMethod voidObject = ConfigurationData.createEagerConfigurationObject(data, ObjectWithVoidMethod.class);
+		final HiddenDataObject hiddenObject = ConfigurationData.createEagerConfigurationObject(data, HiddenDataObject.class);
+
+		// Then
+		assertThat(Proxy.isProxyClass(voidObject.getClass()), is(true));
+		assertThat(voidObject.getName(), is("proxy"));
+		assertThat(Proxy.isProxyClass(hiddenObject.getClass()), is(true));
+		assertThat(hiddenObject.getName(), is("proxy"));
+	}
+
+	private static Map<String, Object> createDataSource() {
+		final Map<String, Object> dataSource = new HashMap<String, Object>();
+		dataSource.put("enabled", "true");
+		dataSource.put("byteValue", "-7");
+		dataSource.put("shortValue", "1234");
+		dataSource.put("count", "42");
+		dataSource.put("size", "5000000000");
+		dataSource.put("ratio", "0.25");
+		dataSource.put("factor", 1.5d);
+		dataSource.put("boxedCount", "17");
+		dataSource.put("name", "eager");
+		dataSource.put("unit", "seconds");
+		dataSource.put("price", "12.50");
+		dataSource.put("id", "f669dd2a-6722-11e4-b116-123b93f75cba");
+		return dataSource;
+	}
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2015 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.math;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe generator of unique identifiers. Instead of updating a shared
+ * atomic variable for every identifier, each thread reserves a block of
+ * consecutive values and hands them out locally; the shared state is touched
+ * only once per block.
+ *
+ * <p>The identifiers are unique, but they are monotonic only within a single
+ * thread. The methods {@link #next()} and {@link #value()} follow the contract
+ * of {@link cz.auderis.tools.math.Counter}, with the exception that
+ * {@code value()} reports the last value obtained by the calling thread.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class AtomicSequence {
+
+	/**
+	 * Number of identifiers reserved at once by default.
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 64;
+
+	private final long initial;
+	private final int blockSize;
+	private final AtomicLong nextBlockStart;
+	private final ThreadLocal<Block> localBlock;
+
+	/**
+	 * Creates a new sequence starting at zero.
+	 */
+	public AtomicSequence() {
+		this(0L, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Creates a new sequence starting at the provided value.
+	 *
+	 * @param initial the first value of the sequence
+	 */
+	public AtomicSequence(long initial) {
+		this(initial, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Creates a new sequence starting at the provided value, with given
+	 * number of identifiers reserved by a thread at once.
+	 *
+	 * @param initial the first value of the sequence
+	 * @param blockSize number of identifiers reserved at once
+	 * @throws java.lang.IllegalArgumentException if {@code blockSize} is not positive
+	 */
+	public AtomicSequence(long initial, int blockSize) {
+		if (blockSize <= 0) {
+			throw new IllegalArgumentException("block size must be positive");
+		}
+		this.initial = initial;
+		this.blockSize = blockSize;
+		this.nextBlockStart = new AtomicLong(initial);
+		this.localBlock = new ThreadLocal<Block>() {
+			@Override
+			protected Block initialValue() {
+				return new Block(AtomicSequence.this.initial - 1L);
+			}
+		};
+	}
+
+	/**
+	 * Returns the next unique value of the sequence.
+	 *
+	 * @return unique value
+	 */
+	public long next() {
+		final Block block = localBlock.get();
+		if (block.next == block.limit) {
+			final long start = nextBlockStart.getAndAdd(blockSize);
+			block.next = start;
+			block.limit = start + blockSize;
+		}
+		block.last = block.next;
+		++block.next;
+		return block.last;
+	}
+
+	/**
+	 * Returns the value that was most recently obtained by the calling thread.
+	 * If the thread did not invoke {@link #next()} yet, the value preceding
+	 * the initial value of the sequence is returned.
+	 *
+	 * @return last value obtained by the current thread
+	 */
+	public long value() {
+		return localBlock.get().last;
+	}
+
+	/**
+	 * Returns the lowest value that was not reserved by any thread yet. All
+	 * values returned by {@link #next()} so far are lower than this limit.
+	 *
+	 * @return upper (exclusive) limit of reserved values
+	 */
+	public long getReservedLimit() {
+		return nextBlockStart.get();
+	}
+
+	/**
+	 * Returns the number of values reserved by a thread at once.
+	 *
+	 * @return block size
+	 */
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	/**
+	 * Releases the block reserved by the calling thread. The unused values
+	 * from the block are discarded.
+	 */
+	public void releaseLocalBlock() {
+		localBlock.remove();
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder str = new StringBuilder("AtomicSequence[reserved<");
+		str.append(nextBlockStart.get());
+		str.append(", block=").append(blockSize);
+		str.append(']');
+		return str.toString();
+	}
+
+	static final class Block {
+		long next;
+		long limit;
+		long last;
+
+		Block(long last) {
+			this.last = last;
+		}
+	}
+
+}
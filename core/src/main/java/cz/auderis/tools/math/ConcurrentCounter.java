@@ -0,0 +1,212 @@
+/*
+ * Copyright 2015 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.math;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe counterpart of {@link cz.auderis.tools.math.Counter} that spreads
+ * concurrent updates over several independent cells (stripes), in a manner
+ * similar to {@code java.util.concurrent.atomic.LongAdder}.
+ *
+ * <p>Each updating thread is mapped to its own cell, so that threads running
+ * on different cores rarely compete for the same cache line. The reading
+ * operations ({@link #value()}, {@link #sum()}) add all the cells together;
+ * they are therefore more expensive than updates and they provide
+ * a consistent result only in the absence of concurrent updates.
+ *
+ * <p>The accumulating methods ({@link #add(long)}, {@link #sum()},
+ * {@link #sumThenReset()}) work with the plain sum: a counter created with
+ * initial value <i>N</i> sums to <i>N</i> before any update (i.e. the default
+ * counter sums to zero). The {@link #next()}/{@link #value()} methods keep
+ * the contract of {@code Counter} instead: the counter returns <i>N</i> on the
+ * first invocation of {@code next()}, so that {@code value()} is always one
+ * less than {@code sum()}. When multiple threads
+ * invoke {@code next()} concurrently, the returned values are not guaranteed
+ * to be unique; {@link cz.auderis.tools.math.AtomicSequence} should be used
+ * when unique identifiers are required.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class ConcurrentCounter {
+
+	/**
+	 * Number of {@code long} slots occupied by a single cell; the cells are spaced
+	 * so that each of them resides in a separate cache line.
+	 */
+	private static final int CELL_SPACING = 8;
+	private static final int MAX_STRIPES = 64;
+
+	private final AtomicLongArray cells;
+	private final int stripeMask;
+	private final long base;
+
+	/**
+	 * Creates a new counter whose sum is zero; the first value returned
+	 * by {@link #next()} will be zero as well.
+	 */
+	public ConcurrentCounter() {
+		this(0L);
+	}
+
+	/**
+	 * Creates a new counter whose sum is equal to {@code initial}; the first
+	 * value returned by {@link #next()} will be equal to {@code initial} as well.
+	 *
+	 * @param initial the initial value
+	 */
+	public ConcurrentCounter(long initial) {
+		this(initial, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a new counter with explicitly specified level of concurrency.
+	 * The number of stripes is rounded up to the nearest power of two
+	 * (up to 64).
+	 *
+	 * @param initial the initial value
+	 * @param stripes expected number of concurrently updating threads
+	 * @throws java.lang.IllegalArgumentException if {@code stripes} is not positive
+	 */
+	public ConcurrentCounter(long initial, int stripes) {
+		if (stripes <= 0) {
+			throw new IllegalArgumentException("number of stripes must be positive");
+		}
+		int stripeCount = 1;
+		while ((stripeCount < stripes) && (stripeCount < MAX_STRIPES)) {
+			stripeCount <<= 1;
+		}
+		this.stripeMask = stripeCount - 1;
+		this.cells = new AtomicLongArray(stripeCount * CELL_SPACING);
+		this.base = initial;
+	}
+
+	/**
+	 * Increments the counter by one.
+	 */
+	public void increment() {
+		add(1L);
+	}
+
+	/**
+	 * Decrements the counter by one.
+	 */
+	public void decrement() {
+		add(-1L);
+	}
+
+	/**
+	 * Adds the given value to the counter.
+	 *
+	 * @param delta the increment (may be negative)
+	 */
+	public void add(long delta) {
+		final int stripe = homeStripe();
+		final int index = stripe * CELL_SPACING;
+		final long current = cells.get(index);
+		if (!cells.compareAndSet(index, current, current + delta)) {
+			// Contention detected - use a neighbouring cell instead of spinning
+			final int altIndex = ((stripe + 1) & stripeMask) * CELL_SPACING;
+			cells.getAndAdd(altIndex, delta);
+		}
+	}
+
+	/**
+	 * Increments the counter and returns its new value. This method corresponds
+	 * to {@link cz.auderis.tools.math.Counter#next()}; under concurrent
+	 * modification, the result is not guaranteed to be unique.
+	 *
+	 * @return counter value after the increment
+	 */
+	public int next() {
+		add(1L);
+		return value();
+	}
+
+	/**
+	 * Returns the current value of the counter in the sense of
+	 * {@link cz.auderis.tools.math.Counter#value()}, i.e. the value most recently
+	 * returned by {@link #next()}. The result is one less than {@link #sum()},
+	 * truncated to {@code int}.
+	 *
+	 * @return the current value
+	 * @see #sum()
+	 */
+	public int value() {
+		return (int) (sum() - 1L);
+	}
+
+	/**
+	 * Returns the sum of the initial value and all updates of the counter.
+	 *
+	 * @return the current sum
+	 */
+	public long sum() {
+		long result = base;
+		final int length = cells.length();
+		for (int i = 0; i < length; i += CELL_SPACING) {
+			result += cells.get(i);
+		}
+		return result;
+	}
+
+	/**
+	 * Resets the counter to its initial state. Updates performed concurrently
+	 * with the reset may be lost.
+	 */
+	public void reset() {
+		final int length = cells.length();
+		for (int i = 0; i < length; i += CELL_SPACING) {
+			cells.set(i, 0L);
+		}
+	}
+
+	/**
+	 * Returns the current sum of the counter and resets it to its initial
+	 * state. Each concurrent update is accounted either in the returned sum
+	 * or in the sum after the reset.
+	 *
+	 * @return counter sum before the reset
+	 */
+	public long sumThenReset() {
+		long result = base;
+		final int length = cells.length();
+		for (int i = 0; i < length; i += CELL_SPACING) {
+			result += cells.getAndSet(i, 0L);
+		}
+		return result;
+	}
+
+	private int homeStripe() {
+		long h = Thread.currentThread().getId();
+		h ^= (h >>> 33);
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= (h >>> 33);
+		return ((int) h) & stripeMask;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder str = new StringBuilder("ConcurrentCounter[");
+		str.append(sum());
+		str.append(", stripes=").append(stripeMask + 1);
+		str.append(']');
+		return str.toString();
+	}
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2015 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.math;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-safe collection of named {@link cz.auderis.tools.math.ConcurrentCounter}s.
+ * Counters are created on demand, so that independent components may share
+ * a counter just by using the same name.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class CounterRegistry {
+
+	private final ConcurrentMap<String, ConcurrentCounter> counters;
+
+	/**
+	 * Creates a new empty registry.
+	 */
+	public CounterRegistry() {
+		this.counters = new ConcurrentHashMap<String, ConcurrentCounter>();
+	}
+
+	/**
+	 * Returns the counter registered under the given name. If there is no such counter,
+	 * a new one (with initial value 0) is created and registered.
+	 *
+	 * @param name name of the counter
+	 * @return counter registered under the name
+	 * @throws java.lang.NullPointerException if {@code name} is {@code null}
+	 */
+	public ConcurrentCounter getCounter(String name) {
+		if (null == name) {
+			throw new NullPointerException();
+		}
+		ConcurrentCounter counter = counters.get(name);
+		if (null == counter) {
+			final ConcurrentCounter newCounter = new ConcurrentCounter();
+			counter = counters.putIfAbsent(name, newCounter);
+			if (null == counter) {
+				counter = newCounter;
+			}
+		}
+		return counter;
+	}
+
+	/**
+	 * Returns the counter registered under the given name, without creating it.
+	 *
+	 * @param name name of the counter
+	 * @return counter registered under the name or {@code null}
+	 * @throws java.lang.NullPointerException if {@code name} is {@code null}
+	 */
+	public ConcurrentCounter findCounter(String name) {
+		if (null == name) {
+			throw new NullPointerException();
+		}
+		return counters.get(name);
+	}
+
+	/**
+	 * Removes the counter from the registry.
+	 *
+	 * @param name name of the counter
+	 * @return {@code true} if the counter was registered
+	 * @throws java.lang.NullPointerException if {@code name} is {@code null}
+	 */
+	public boolean removeCounter(String name) {
+		if (null == name) {
+			throw new NullPointerException();
+		}
+		return null != counters.remove(name);
+	}
+
+	/**
+	 * Returns names of all registered counters.
+	 *
+	 * @return unmodifiable set of counter names
+	 */
+	public Set<String> getCounterNames() {
+		return Collections.unmodifiableSet(counters.keySet());
+	}
+
+	/**
+	 * Returns values of all registered counters, sorted by counter names.
+	 *
+	 * @return map of counter values
+	 */
+	public SortedMap<String, Long> snapshot() {
+		final SortedMap<String, Long> result = new TreeMap<String, Long>();
+		for (Map.Entry<String, ConcurrentCounter> entry : counters.entrySet()) {
+			result.put(entry.getKey(), entry.getValue().sum());
+		}
+		return result;
+	}
+
+	/**
+	 * Resets all registered counters to their initial states.
+	 */
+	public void resetAll() {
+		for (ConcurrentCounter counter : counters.values()) {
+			counter.reset();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "CounterRegistry" + snapshot();
+	}
+
+}
@@ -17,6 +17,18 @@ package cz.auderis.tools.math.combination;
 
 import java.util.BitSet;
 
+/**
+ * Generates combinations in Chase's sequence (Knuth, TAOCP 7.2.1.3, Algorithm C),
+ * in which consecutive combinations differ by a move of a single item.
+ *
+ * <p>The sequence has no ranking function comparable to the one of the lexicographic
+ * order, so {@link #skip(long)} steps through all the skipped combinations and the
+ * iterator cannot be split into ranges. Use {@link cz.auderis.tools.math.combination.AbstractLexicographicCombinationIterator}
+ * when a random access to the combinations is needed.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
 public abstract class AbstractChaseSequenceCombinationIterator<T> extends AbstractCombinationIterator<T> {
 
 	private final transient BitSet w;
@@ -23,7 +23,8 @@ public abstract class AbstractCombinationIterator<T> implements CombinationItera
 	protected final int itemCount;
 	protected final int combinationSize;
 	protected final BitSet combinationBits;
-	private transient boolean moreCombinations;
+	protected transient boolean moreCombinations;
+	private transient boolean cursorPlaced;
 
 	protected abstract T createCombination();
 	protected abstract BitSet createCombinationBitSet();
@@ -52,11 +53,13 @@ public abstract class AbstractCombinationIterator<T> implements CombinationItera
 
 	@Override
 	public boolean hasNext() {
+		releaseCursor();
 		return moreCombinations;
 	}
 
 	@Override
 	public void reset() {
+		cursorPlaced = false;
 		if ((combinationSize <= 0) || (combinationSize > itemCount)) {
 			moreCombinations = false;
 			return;
@@ -66,16 +69,110 @@ public abstract class AbstractCombinationIterator<T> implements CombinationItera
 
 	@Override
 	public T next() {
+		releaseCursor();
 		if (!moreCombinations) {
 			throw new NoSuchElementException();
 		}
 		final T result = createCombination();
+		stepForward();
+		return result;
+	}
+
+	@Override
+	public long skip(long count) {
+		if (count < 0L) {
+			throw new IllegalArgumentException("invalid skip count");
+		}
+		releaseCursor();
+		long skipped = 0L;
+		while ((skipped < count) && moreCombinations) {
+			stepForward();
+			++skipped;
+		}
+		return skipped;
+	}
+
+	@Override
+	public boolean advance() {
+		if (cursorPlaced) {
+			stepForward();
+		}
+		cursorPlaced = moreCombinations;
+		return cursorPlaced;
+	}
+
+	@Override
+	public int currentIndices(int[] indices) {
+		if (null == indices) {
+			throw new NullPointerException();
+		} else if (!cursorPlaced) {
+			throw new IllegalStateException("no current combination");
+		} else if (indices.length < combinationSize) {
+			throw new IllegalArgumentException("index array too small");
+		}
+		fillCurrentIndices(indices);
+		return combinationSize;
+	}
+
+	@Override
+	public long forEachCombination(IntArrayConsumer consumer) {
+		if (null == consumer) {
+			throw new NullPointerException();
+		}
+		releaseCursor();
+		final int[] indices = new int[combinationSize];
+		long count = 0L;
+		while (moreCombinations) {
+			fillCurrentIndices(indices);
+			consumer.accept(indices);
+			stepForward();
+			++count;
+		}
+		return count;
+	}
+
+	/**
+	 * Stores ascending item indices of the current combination into the array,
+	 * which is guaranteed to have sufficient length. The default implementation
+	 * reads them from {@link #combinationBits}; subclasses that keep the state
+	 * elsewhere must override this method.
+	 *
+	 * @param indices target array
+	 */
+	protected void fillCurrentIndices(int[] indices) {
+		int j = 0;
+		for (int i = combinationBits.nextSetBit(0); i >= 0; i = combinationBits.nextSetBit(i + 1)) {
+			indices[j++] = i;
+		}
+	}
+
+	/**
+	 * Checks whether the cursor was placed on a combination by {@link #advance()}.
+	 *
+	 * @return {@code true} if there is a current combination
+	 */
+	protected final boolean isCursorPlaced() {
+		return cursorPlaced;
+	}
+
+	/**
+	 * Finishes the step that was postponed by {@link #advance()}, so that the state
+	 * represents the combination that will be returned by the next call of {@link #next()}.
+	 * Methods that access {@link #moreCombinations} directly must invoke this method first.
+	 */
+	protected final void releaseCursor() {
+		if (cursorPlaced) {
+			cursorPlaced = false;
+			stepForward();
+		}
+	}
+
+	protected final void stepForward() {
 		if (combinationSize == itemCount) {
 			moreCombinations = false;
 		} else {
 			moreCombinations = prepareNextCombination();
 		}
-		return result;
 	}
 
 	@Override
@@ -0,0 +1,275 @@
+/*
+ * Copyright 2015 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.auderis.tools.math.combination;
+
+/**
+ * Generates all permutations of items using Heap's algorithm. Subsequent
+ * permutations differ by a single swap of two items, which makes the algorithm
+ * suitable for problems where the evaluation of a permutation can be updated
+ * incrementally.
+ *
+ * <p>The swap counters of the algorithm form a number in the factorial number system,
+ * which is incremented by every step; its value is the rank of the permutation
+ * in the order of Heap's algorithm. A permutation is unranked by replaying
+ * the net effects of complete runs over fewer items, so that the iterator can
+ * {@link #skip(long) skip} directly to an arbitrary position and, like
+ * {@link cz.auderis.tools.math.combination.AbstractLexicographicPermutationIterator},
+ * hand over the first half of the remaining range to a new iterator using {@link #trySplit()}.
+ */
+public abstract class AbstractHeapPermutationIterator<T> extends AbstractPermutationIterator<T> {
+
+	private final transient int[] swapCounters;
+	private final transient boolean rankingSupported;
+	private final transient long rangeLimit;
+	private transient long rangeStart;
+	private transient int level;
+	// Net effects of complete runs over the first i items, created on first use
+	private transient int[][] runEffects;
+	private transient int[] rankBuffer;
+
+	/**
+	 * Rank of the permutation that will be returned by the next call of {@link #next()}
+	 */
+	protected transient long position;
+
+	protected AbstractHeapPermutationIterator(int itemCount) {
+		super(itemCount, itemCount);
+		this.swapCounters = new int[itemCount];
+		long total;
+		boolean rankable;
+		try {
+			total = Permutations.count(itemCount, itemCount);
+			rankable = true;
+		} catch (ArithmeticException e) {
+			// Too many permutations to be ranked, only sequential iteration is possible
+			total = Long.MAX_VALUE;
+			rankable = false;
+		}
+		this.rankingSupported = rankable;
+		this.rangeLimit = total;
+		this.rangeStart = 0L;
+		reset();
+	}
+
+	/**
+	 * Creates an iterator that is restricted to permutations with ranks
+	 * from range {@code [fromRank, toRank)}.
+	 *
+	 * @param itemCount total number of items
+	 * @param fromRank rank of the first permutation (inclusive)
+	 * @param toRank rank of the last permutation (exclusive)
+	 * @throws java.lang.IllegalArgumentException if the range is invalid
+	 * @throws java.lang.ArithmeticException if the number of permutations does not fit into {@code long}
+	 */
+	protected AbstractHeapPermutationIterator(int itemCount, long fromRank, long toRank) {
+		super(itemCount, itemCount);
+		this.swapCounters = new int[itemCount];
+		final long total = Permutations.count(itemCount, itemCount);
+		if ((fromRank < 0L) || (fromRank > toRank) || (toRank > total)) {
+			throw new IllegalArgumentException("invalid permutation range");
+		}
+		this.rankingSupported = true;
+		this.rangeLimit = toRank;
+		this.rangeStart = fromRank;
+		reset();
+	}
+
+	@Override
+	public String getPermutationType() {
+		return "Heap";
+	}
+
+	@Override
+	public long skip(long count) {
+		if (count < 0L) {
+			throw new IllegalArgumentException("invalid skip count");
+		}
+		releaseCursor();
+		if (!morePermutations || !rankingSupported) {
+			return super.skip(count);
+		}
+		final long remaining = rangeLimit - position;
+		if (count >= remaining) {
+			position = rangeLimit;
+			morePermutations = false;
+			return remaining;
+		} else if (count > 0L) {
+			position += count;
+			seekPermutation(position);
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of permutations that remain to be generated.
+	 *
+	 * @return number of remaining permutations
+	 */
+	public long estimateSize() {
+		releaseCursor();
+		return morePermutations ? rangeLimit - position : 0L;
+	}
+
+	/**
+	 * Splits the remaining permutations into two halves of (almost) equal size.
+	 * The first half is handed over to a new iterator, while this iterator
+	 * continues with the second half. If the remaining range is too small or if
+	 * the splitting is not supported, {@code null} is returned.
+	 *
+	 * @return iterator over the first half of remaining permutations, or {@code null}
+	 * @see #createRangeIterator(long, long)
+	 */
+	public AbstractHeapPermutationIterator<T> trySplit() {
+		releaseCursor();
+		if (!morePermutations || !rankingSupported) {
+			return null;
+		}
+		final long remaining = rangeLimit - position;
+		if (remaining < 2L) {
+			return null;
+		}
+		final long splitRank = position + remaining / 2L;
+		final AbstractHeapPermutationIterator<T> prefixIterator = createRangeIterator(position, splitRank);
+		if (null == prefixIterator) {
+			return null;
+		}
+		rangeStart = splitRank;
+		position = splitRank;
+		seekPermutation(splitRank);
+		return prefixIterator;
+	}
+
+	/**
+	 * Creates a new iterator of the same kind as this instance, restricted to the
+	 * given range of ranks. Subclasses that support {@link #trySplit()} must
+	 * override this method; the default implementation returns {@code null}.
+	 *
+	 * @param fromRank rank of the first permutation (inclusive)
+	 * @param toRank rank of the last permutation (exclusive)
+	 * @return new iterator or {@code null} if splitting is not supported
+	 */
+	protected AbstractHeapPermutationIterator<T> createRangeIterator(long fromRank, long toRank) {
+		return null;
+	}
+
+	@Override
+	protected boolean initialize() {
+		position = rangeStart;
+		if (position >= rangeLimit) {
+			return false;
+		} else if (0L == position) {
+			for (int i = 0; i < itemCount; ++i) {
+				permutation[i] = i;
+				swapCounters[i] = 0;
+			}
+			level = 1;
+		} else {
+			seekPermutation(position);
+		}
+		return true;
+	}
+
+	@Override
+	protected boolean prepareNextPermutation() {
+		++position;
+		if (position >= rangeLimit) {
+			return false;
+		}
+		while (level < itemCount) {
+			final int counter = swapCounters[level];
+			if (counter < level) {
+				final int swapIndex = (0 == (level & 1)) ? 0 : counter;
+				final int item = permutation[swapIndex];
+				permutation[swapIndex] = permutation[level];
+				permutation[level] = item;
+				swapCounters[level] = counter + 1;
+				level = 1;
+				return true;
+			}
+			swapCounters[level] = 0;
+			++level;
+		}
+		return false;
+	}
+
+	/**
+	 * Sets the swap counters to the factorial digits of the rank and builds
+	 * the corresponding permutation. Before the swap number {@code c} at level
+	 * {@code L}, the lower levels have completed {@code c + 1} full runs over
+	 * the first {@code L} items.
+	 */
+	private void seekPermutation(long rank) {
+		if (null == runEffects) {
+			runEffects = createRunEffects(itemCount);
+			rankBuffer = new int[itemCount];
+		}
+		long remainder = rank;
+		for (int i = 1; i < itemCount; ++i) {
+			swapCounters[i] = (int) (remainder % (i + 1));
+			remainder /= (i + 1);
+		}
+		for (int i = 0; i < itemCount; ++i) {
+			permutation[i] = i;
+		}
+		for (int swapLevel = itemCount - 1; swapLevel > 0; --swapLevel) {
+			applySwaps(permutation, swapLevel, swapCounters[swapLevel], runEffects[swapLevel], rankBuffer);
+		}
+		level = 1;
+	}
+
+	/**
+	 * Performs the given number of swaps at the level, each preceded by a complete
+	 * run over the items below the level.
+	 */
+	private static void applySwaps(int[] items, int swapLevel, int swapCount, int[] runEffect, int[] buffer) {
+		for (int counter = 0; counter < swapCount; ++counter) {
+			System.arraycopy(items, 0, buffer, 0, swapLevel);
+			for (int i = 0; i < swapLevel; ++i) {
+				items[i] = buffer[runEffect[i]];
+			}
+			final int swapIndex = (0 == (swapLevel & 1)) ? 0 : counter;
+			final int item = items[swapIndex];
+			items[swapIndex] = items[swapLevel];
+			items[swapLevel] = item;
+		}
+	}
+
+	/**
+	 * Computes net effects of complete runs of the algorithm: after generating
+	 * all permutations of {@code n} items, item at position {@code i} is the one
+	 * that was originally at position {@code effects[n][i]}.
+	 */
+	private static int[][] createRunEffects(int itemCount) {
+		final int[][] effects = new int[Math.max(itemCount, 2)][];
+		effects[1] = new int[] { 0 };
+		final int[] buffer = new int[itemCount];
+		for (int n = 2; n < itemCount; ++n) {
+			final int[] effect = new int[n];
+			for (int i = 0; i < n; ++i) {
+				effect[i] = i;
+			}
+			applySwaps(effect, n - 1, n - 1, effects[n - 1], buffer);
+			// Final run over the lower items, not followed by a swap
+			System.arraycopy(effect, 0, buffer, 0, n - 1);
+			for (int i = 0; i < n - 1; ++i) {
+				effect[i] = buffer[effects[n - 1][i]];
+			}
+			effects[n] = effect;
+		}
+		return effects;
+	}
+
+}
@@ -17,10 +17,66 @@ package cz.auderis.tools.math.combination;
 
 import java.util.BitSet;
 
+/**
+ * Generates combinations in lexicographic order of their (ascending) item indices.
+ *
+ * <p>Every combination has a well-defined rank (see {@link cz.auderis.tools.math.combination.Combinations}),
+ * which allows the iterator to {@link #skip(long) skip} directly to an arbitrary
+ * position and to be restricted to a sub-range of ranks. The method {@link #trySplit()}
+ * follows the protocol of {@code java.util.Spliterator}: it hands over the first
+ * half of the remaining range to a new iterator, so that the combinations can be
+ * processed by several threads.
+ */
 public abstract class AbstractLexicographicCombinationIterator<T> extends AbstractCombinationIterator<T> {
 
+	private final transient boolean rankingSupported;
+	private final transient long rangeLimit;
+	private transient long rangeStart;
+	private transient int[] rankBuffer;
+
+	/**
+	 * Rank of the combination that will be returned by the next call of {@link #next()}
+	 */
+	protected transient long position;
+
 	protected AbstractLexicographicCombinationIterator(int itemCount, int combinationSize) {
 		super(itemCount, combinationSize);
+		long total;
+		boolean rankable;
+		try {
+			total = Combinations.binomial(itemCount, combinationSize);
+			rankable = true;
+		} catch (ArithmeticException e) {
+			// Too many combinations to be ranked, only sequential iteration is possible
+			total = Long.MAX_VALUE;
+			rankable = false;
+		}
+		this.rankingSupported = rankable;
+		this.rangeLimit = total;
+		this.rangeStart = 0L;
+		reset();
+	}
+
+	/**
+	 * Creates an iterator that is restricted to combinations with ranks
+	 * from range {@code [fromRank, toRank)}.
+	 *
+	 * @param itemCount total number of items
+	 * @param combinationSize number of items in a combination
+	 * @param fromRank rank of the first combination (inclusive)
+	 * @param toRank rank of the last combination (exclusive)
+	 * @throws java.lang.IllegalArgumentException if the range is invalid
+	 * @throws java.lang.ArithmeticException if the number of combinations does not fit into {@code long}
+	 */
+	protected AbstractLexicographicCombinationIterator(int itemCount, int combinationSize, long fromRank, long toRank) {
+		super(itemCount, combinationSize);
+		final long total = Combinations.binomial(itemCount, combinationSize);
+		if ((fromRank < 0L) || (fromRank > toRank) || (toRank > total)) {
+			throw new IllegalArgumentException("invalid combination range");
+		}
+		this.rankingSupported = true;
+		this.rangeLimit = toRank;
+		this.rangeStart = fromRank;
 		reset();
 	}
 
@@ -29,6 +85,79 @@ public abstract class AbstractLexicographicCombinationIterator<T> extends Abstra
 		return "Lexi";
 	}
 
+	@Override
+	public long skip(long count) {
+		if (count < 0L) {
+			throw new IllegalArgumentException("invalid skip count");
+		}
+		releaseCursor();
+		if (!moreCombinations || !rankingSupported) {
+			return super.skip(count);
+		}
+		final long remaining = rangeLimit - position;
+		if (count >= remaining) {
+			position = rangeLimit;
+			moreCombinations = false;
+			return remaining;
+		} else if (count > 0L) {
+			position += count;
+			seekCombination(position);
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of combinations that remain to be generated.
+	 *
+	 * @return number of remaining combinations
+	 */
+	public long estimateSize() {
+		releaseCursor();
+		return moreCombinations ? rangeLimit - position : 0L;
+	}
+
+	/**
+	 * Splits the remaining combinations into two halves of (almost) equal size.
+	 * The first half is handed over to a new iterator, while this iterator
+	 * continues with the second half. If the remaining range is too small or if
+	 * the splitting is not supported, {@code null} is returned.
+	 *
+	 * @return iterator over the first half of remaining combinations, or {@code null}
+	 * @see #createRangeIterator(long, long)
+	 */
+	public AbstractLexicographicCombinationIterator<T> trySplit() {
+		releaseCursor();
+		if (!moreCombinations || !rankingSupported) {
+			return null;
+		}
+		final long remaining = rangeLimit - position;
+		if (remaining < 2L) {
+			return null;
+		}
+		final long splitRank = position + remaining / 2L;
+		final AbstractLexicographicCombinationIterator<T> prefixIterator = createRangeIterator(position, splitRank);
+		if (null == prefixIterator) {
+			return null;
+		}
+		rangeStart = splitRank;
+		position = splitRank;
+		seekCombination(splitRank);
+		return prefixIterator;
+	}
+
+	/**
+	 * Creates a new iterator of the same kind as this instance, restricted to the
+	 * given range of ranks. Subclasses that support {@link #trySplit()} must
+	 * override this method; the default implementation returns {@code null}.
+	 *
+	 * @param fromRank rank of the first combination (inclusive)
+	 * @param toRank rank of the last combination (exclusive)
+	 * @return new iterator or {@code null} if splitting is not supported
+	 */
+	protected AbstractLexicographicCombinationIterator<T> createRangeIterator(long fromRank, long toRank) {
+		return null;
+	}
+
 	@Override
 	protected BitSet createCombinationBitSet() {
 		return new BitSet(itemCount);
@@ -36,13 +165,56 @@ public abstract class AbstractLexicographicCombinationIterator<T> extends Abstra
 
 	@Override
 	protected boolean initialize() {
-		combinationBits.set(0, combinationSize);
-		combinationBits.clear(combinationSize, itemCount);
+		position = rangeStart;
+		if (position >= rangeLimit) {
+			return false;
+		} else if (0L == position) {
+			initializeFirstCombination();
+		} else {
+			seekCombination(position);
+		}
 		return true;
 	}
 
 	@Override
 	protected boolean prepareNextCombination() {
+		++position;
+		if (position >= rangeLimit) {
+			return false;
+		}
+		return stepCombination();
+	}
+
+	/**
+	 * Sets up the state for the combination with rank 0.
+	 */
+	protected void initializeFirstCombination() {
+		combinationBits.set(0, combinationSize);
+		combinationBits.clear(combinationSize, itemCount);
+	}
+
+	/**
+	 * Sets up the state for the combination with the given rank.
+	 *
+	 * @param rank rank of the combination
+	 */
+	protected void seekCombination(long rank) {
+		if (null == rankBuffer) {
+			rankBuffer = new int[combinationSize];
+		}
+		Combinations.unrank(rank, itemCount, rankBuffer);
+		combinationBits.clear();
+		for (int index : rankBuffer) {
+			combinationBits.set(index);
+		}
+	}
+
+	/**
+	 * Transforms the state into the lexicographically next combination.
+	 *
+	 * @return {@code false} if there is no next combination
+	 */
+	protected boolean stepCombination() {
 		// L2
 		int j = itemCount - 1;
 		if (0 == j) {
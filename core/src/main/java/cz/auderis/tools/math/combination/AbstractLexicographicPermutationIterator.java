@@ -0,0 +1,194 @@
+/*
+ * Copyright 2015 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.auderis.tools.math.combination;
+
+/**
+ * Generates k-permutations in lexicographic order of their item indices.
+ *
+ * <p>Every permutation has a well-defined rank (see {@link cz.auderis.tools.math.combination.Permutations}),
+ * which allows the iterator to {@link #skip(long) skip} directly to an arbitrary
+ * position and to be restricted to a sub-range of ranks. Like
+ * {@link cz.auderis.tools.math.combination.AbstractLexicographicCombinationIterator},
+ * the iterator can hand over the first half of the remaining range to a new
+ * iterator using {@link #trySplit()}.
+ */
+public abstract class AbstractLexicographicPermutationIterator<T> extends AbstractPermutationIterator<T> {
+
+	private final transient boolean rankingSupported;
+	private final transient long rangeLimit;
+	private transient long rangeStart;
+	private transient int[] rankBuffer;
+
+	/**
+	 * Rank of the permutation that will be returned by the next call of {@link #next()}
+	 */
+	protected transient long position;
+
+	protected AbstractLexicographicPermutationIterator(int itemCount) {
+		this(itemCount, itemCount);
+	}
+
+	protected AbstractLexicographicPermutationIterator(int itemCount, int permutationSize) {
+		super(itemCount, permutationSize);
+		long total;
+		boolean rankable;
+		try {
+			total = Permutations.count(itemCount, permutationSize);
+			rankable = true;
+		} catch (ArithmeticException e) {
+			// Too many permutations to be ranked, only sequential iteration is possible
+			total = Long.MAX_VALUE;
+			rankable = false;
+		}
+		this.rankingSupported = rankable;
+		this.rangeLimit = total;
+		this.rangeStart = 0L;
+		reset();
+	}
+
+	/**
+	 * Creates an iterator that is restricted to permutations with ranks
+	 * from range {@code [fromRank, toRank)}.
+	 *
+	 * @param itemCount total number of items
+	 * @param permutationSize number of items in a permutation
+	 * @param fromRank rank of the first permutation (inclusive)
+	 * @param toRank rank of the last permutation (exclusive)
+	 * @throws java.lang.IllegalArgumentException if the range is invalid
+	 * @throws java.lang.ArithmeticException if the number of permutations does not fit into {@code long}
+	 */
+	protected AbstractLexicographicPermutationIterator(int itemCount, int permutationSize, long fromRank, long toRank) {
+		super(itemCount, permutationSize);
+		final long total = Permutations.count(itemCount, permutationSize);
+		if ((fromRank < 0L) || (fromRank > toRank) || (toRank > total)) {
+			throw new IllegalArgumentException("invalid permutation range");
+		}
+		this.rankingSupported = true;
+		this.rangeLimit = toRank;
+		this.rangeStart = fromRank;
+		reset();
+	}
+
+	@Override
+	public String getPermutationType() {
+		return "Lexi";
+	}
+
+	@Override
+	public long skip(long count) {
+		if (count < 0L) {
+			throw new IllegalArgumentException("invalid skip count");
+		}
+		releaseCursor();
+		if (!morePermutations || !rankingSupported) {
+			return super.skip(count);
+		}
+		final long remaining = rangeLimit - position;
+		if (count >= remaining) {
+			position = rangeLimit;
+			morePermutations = false;
+			return remaining;
+		} else if (count > 0L) {
+			position += count;
+			seekPermutation(position);
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of permutations that remain to be generated.
+	 *
+	 * @return number of remaining permutations
+	 */
+	public long estimateSize() {
+		releaseCursor();
+		return morePermutations ? rangeLimit - position : 0L;
+	}
+
+	/**
+	 * Splits the remaining permutations into two halves of (almost) equal size.
+	 * The first half is handed over to a new iterator, while this iterator
+	 * continues with the second half. If the remaining range is too small or if
+	 * the splitting is not supported, {@code null} is returned.
+	 *
+	 * @return iterator over the first half of remaining permutations, or {@code null}
+	 * @see #createRangeIterator(long, long)
+	 */
+	public AbstractLexicographicPermutationIterator<T> trySplit() {
+		releaseCursor();
+		if (!morePermutations || !rankingSupported) {
+			return null;
+		}
+		final long remaining = rangeLimit - position;
+		if (remaining < 2L) {
+			return null;
+		}
+		final long splitRank = position + remaining / 2L;
+		final AbstractLexicographicPermutationIterator<T> prefixIterator = createRangeIterator(position, splitRank);
+		if (null == prefixIterator) {
+			return null;
+		}
+		rangeStart = splitRank;
+		position = splitRank;
+		seekPermutation(splitRank);
+		return prefixIterator;
+	}
+
+	/**
+	 * Creates a new iterator of the same kind as this instance, restricted to the
+	 * given range of ranks. Subclasses that support {@link #trySplit()} must
+	 * override this method; the default implementation returns {@code null}.
+	 *
+	 * @param fromRank rank of the first permutation (inclusive)
+	 * @param toRank rank of the last permutation (exclusive)
+	 * @return new iterator or {@code null} if splitting is not supported
+	 */
+	protected AbstractLexicographicPermutationIterator<T> createRangeIterator(long fromRank, long toRank) {
+		return null;
+	}
+
+	@Override
+	protected boolean initialize() {
+		position = rangeStart;
+		if (position >= rangeLimit) {
+			return false;
+		} else if (0L == position) {
+			for (int i = 0; i < itemCount; ++i) {
+				permutation[i] = i;
+			}
+		} else {
+			seekPermutation(position);
+		}
+		return true;
+	}
+
+	@Override
+	protected boolean prepareNextPermutation() {
+		++position;
+		if (position >= rangeLimit) {
+			return false;
+		}
+		return Permutations.nextPermutation(permutation, permutationSize);
+	}
+
+	private void seekPermutation(long rank) {
+		if (null == rankBuffer) {
+			rankBuffer = new int[itemCount];
+		}
+		Permutations.unrank(rank, itemCount, permutationSize, permutation, rankBuffer);
+	}
+
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2015 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.auderis.tools.math.combination;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Common base of permutation iterators. The current permutation is kept in array
+ * {@link #permutation}, which holds all item indices; its first
+ * {@link #permutationSize} elements form the current (k-)permutation.
+ */
+public abstract class AbstractPermutationIterator<T> implements PermutationIterator<T> {
+
+	protected final int itemCount;
+	protected final int permutationSize;
+	protected final int[] permutation;
+	protected transient boolean morePermutations;
+	private transient boolean cursorPlaced;
+
+	protected abstract T createPermutation();
+	protected abstract boolean initialize();
+	protected abstract boolean prepareNextPermutation();
+
+	protected AbstractPermutationIterator(int itemCount, int permutationSize) {
+		if (itemCount < 0) {
+			throw new IllegalArgumentException("invalid item count");
+		}
+		this.itemCount = itemCount;
+		this.permutationSize = permutationSize;
+		this.permutation = new int[itemCount];
+	}
+
+	@Override
+	public int getItemCount() {
+		return itemCount;
+	}
+
+	@Override
+	public int getPermutationSize() {
+		return permutationSize;
+	}
+
+	public String getPermutationType() {
+		return "";
+	}
+
+	@Override
+	public boolean hasNext() {
+		releaseCursor();
+		return morePermutations;
+	}
+
+	@Override
+	public void reset() {
+		cursorPlaced = false;
+		if ((permutationSize <= 0) || (permutationSize > itemCount)) {
+			morePermutations = false;
+			return;
+		}
+		morePermutations = initialize();
+	}
+
+	@Override
+	public T next() {
+		releaseCursor();
+		if (!morePermutations) {
+			throw new NoSuchElementException();
+		}
+		final T result = createPermutation();
+		morePermutations = prepareNextPermutation();
+		return result;
+	}
+
+	@Override
+	public long skip(long count) {
+		if (count < 0L) {
+			throw new IllegalArgumentException("invalid skip count");
+		}
+		releaseCursor();
+		long skipped = 0L;
+		while ((skipped < count) && morePermutations) {
+			morePermutations = prepareNextPermutation();
+			++skipped;
+		}
+		return skipped;
+	}
+
+	@Override
+	public boolean advance() {
+		if (cursorPlaced) {
+			morePermutations = prepareNextPermutation();
+		}
+		cursorPlaced = morePermutations;
+		return cursorPlaced;
+	}
+
+	@Override
+	public int currentIndices(int[] indices) {
+		if (null == indices) {
+			throw new NullPointerException();
+		} else if (!cursorPlaced) {
+			throw new IllegalStateException("no current permutation");
+		} else if (indices.length < permutationSize) {
+			throw new IllegalArgumentException("index array too small");
+		}
+		System.arraycopy(permutation, 0, indices, 0, permutationSize);
+		return permutationSize;
+	}
+
+	@Override
+	public long forEachPermutation(IntArrayConsumer consumer) {
+		if (null == consumer) {
+			throw new NullPointerException();
+		}
+		releaseCursor();
+		final int[] indices = new int[permutationSize];
+		long count = 0L;
+		while (morePermutations) {
+			System.arraycopy(permutation, 0, indices, 0, permutationSize);
+			consumer.accept(indices);
+			morePermutations = prepareNextPermutation();
+			++count;
+		}
+		return count;
+	}
+
+	/**
+	 * Finishes the step that was postponed by {@link #advance()}, so that the state
+	 * represents the permutation that will be returned by the next call of {@link #next()}.
+	 * Methods that access {@link #morePermutations} directly must invoke this method first.
+	 */
+	protected final void releaseCursor() {
+		if (cursorPlaced) {
+			cursorPlaced = false;
+			morePermutations = prepareNextPermutation();
+		}
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder str = new StringBuilder("Permutation(N=");
+		str.append(itemCount);
+		str.append(", K=");
+		str.append(permutationSize);
+		final String type = getPermutationType();
+		if ((null != type) && !type.isEmpty()) {
+			str.append(", type=");
+			str.append(type);
+		}
+		str.append(')');
+		return str.toString();
+	}
+
+}
@@ -1,28 +1,221 @@
+/*
+ * Copyright 2015 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
 package cz.auderis.tools.math.combination;
 
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over all sub-masks of a 64-bit mask that have exactly the requested
+ * number of bits set.
+ *
+ * <p>As the whole state fits into a single {@code long}, the iterator does not
+ * use the {@link java.util.BitSet} of its superclass. The combinations are
+ * stepped in a compact form where item {@code i} occupies bit {@code n-1-i},
+ * so the lexicographic successor of a combination is the next lower number
+ * with the same number of bits set. It is computed by Gosper's hack applied
+ * to the complement of the state. The result is scattered into the positions
+ * of the mask bits using byte-wise lookup tables (a software equivalent of
+ * the PDEP instruction).
+ *
+ * <p>Method {@link #nextLong()} provides the sub-masks without boxing.
+ */
 public class BitMaskCombinationIterator extends AbstractLexicographicCombinationIterator<Long> {
 
-	private final long[] bitArray;
+	private static final int DEPOSIT_CHUNK_BITS = 8;
+	private static final int DEPOSIT_CHUNK_MASK = (1 << DEPOSIT_CHUNK_BITS) - 1;
+
+	private final long mask;
+	private final long overflowBits;
+	private final long[][] depositTable;
+	private long compactState;
+	private int[] rankBuffer;
 
 	public BitMaskCombinationIterator(long mask, int combinationBits) {
 		super(Long.bitCount(mask), combinationBits);
+		this.mask = mask;
 		final int maskBits = getItemCount();
-		this.bitArray = new long[maskBits];
-		long value = mask;
-		for (int i=0; i<maskBits; ++i) {
-			final long bit = Long.lowestOneBit(value);
-			bitArray[i] = bit;
-			value ^= bit;
+		this.overflowBits = (maskBits < Long.SIZE) ? -(1L << maskBits) : 0L;
+		this.depositTable = createDepositTable(mask, maskBits);
+	}
+
+	/**
+	 * Creates an iterator restricted to the sub-masks with from range {@code [fromRank, toRank)}.
+	 *
+	 * @param mask the mask
+	 * @param combinationBits number of bits in sub-masks
+	 * @param fromRank rank of the first sub-mask (inclusive)
+	 * @param toRank rank of the last sub-mask (exclusive)
+	 * @throws java.lang.IllegalArgumentException if the range is invalid
+	 */
+	public BitMaskCombinationIterator(long mask, int combinationBits, long fromRank, long toRank) {
+		super(Long.bitCount(mask), combinationBits, fromRank, toRank);
+		this.mask = mask;
+		final int maskBits = getItemCount();
+		this.overflowBits = (maskBits < Long.SIZE) ? -(1L << maskBits) : 0L;
+		this.depositTable = createDepositTable(mask, maskBits);
+	}
+
+	/**
+	 * Returns the mask from which the sub-masks are selected.
+	 *
+	 * @return the mask
+	 */
+	public long getMask() {
+		return mask;
+	}
+
+	@Override
+	public String getCombinationType() {
+		return "Gosper";
+	}
+
+	@Override
+	public BitMaskCombinationIterator trySplit() {
+		return (BitMaskCombinationIterator) super.trySplit();
+	}
+
+	/**
+	 * Returns the next sub-mask. This method is equivalent to {@link #next()},
+	 * but it avoids boxing of the result.
+	 *
+	 * @return next sub-mask
+	 * @throws java.util.NoSuchElementException if there are no more sub-masks
+	 */
+	public long nextLong() {
+		releaseCursor();
+		if (!moreCombinations) {
+			throw new NoSuchElementException();
 		}
+		final long result = deposit(compactState);
+		stepForward();
+		return result;
+	}
+
+	/**
+	 * Returns the sub-mask under the cursor placed by {@link #advance()}.
+	 *
+	 * @return current sub-mask
+	 * @throws java.lang.IllegalStateException if the cursor is not placed on a sub-mask
+	 */
+	public long currentMask() {
+		if (!isCursorPlaced()) {
+			throw new IllegalStateException("no current combination");
+		}
+		return deposit(compactState);
 	}
 
 	@Override
 	protected Long createCombination() {
+		return deposit(compactState);
+	}
+
+	@Override
+	protected BitMaskCombinationIterator createRangeIterator(long fromRank, long toRank) {
+		return new BitMaskCombinationIterator(mask, combinationSize, fromRank, toRank);
+	}
+
+	@Override
+	protected void fillCurrentIndices(int[] indices) {
+		// Item index i is stored at bit (itemCount - 1 - i)
+		long state = compactState;
+		int j = 0;
+		while (0L != state) {
+			final int bit = Long.SIZE - 1 - Long.numberOfLeadingZeros(state);
+			indices[j++] = itemCount - 1 - bit;
+			state ^= 1L << bit;
+		}
+	}
+
+	@Override
+	protected void initializeFirstCombination() {
+		// Items 0 .. combinationSize-1 occupy the highest bits of the state
+		if (0 == combinationSize) {
+			compactState = 0L;
+		} else {
+			compactState = -1L >>> (Long.SIZE - combinationSize) << (itemCount - combinationSize);
+		}
+	}
+
+	@Override
+	protected void seekCombination(long rank) {
+		if (null == rankBuffer) {
+			rankBuffer = new int[combinationSize];
+		}
+		Combinations.unrank(rank, itemCount, rankBuffer);
+		long state = 0L;
+		for (int index : rankBuffer) {
+			state |= 1L << (itemCount - 1 - index);
+		}
+		compactState = state;
+	}
+
+	@Override
+	protected boolean stepCombination() {
+		// Next lower number with the same number of bits set is the complement
+		// of the next higher number (Gosper's hack) of the complement
+		final long x = ~(compactState | overflowBits);
+		final long lowestBit = x & -x;
+		final long ripple = x + lowestBit;
+		if (0L == ripple) {
+			// Overflow of 64-bit value
+			return false;
+		}
+		final long ones = ((ripple ^ x) >>> 2) >>> Long.numberOfTrailingZeros(lowestBit);
+		final long nextState = ripple | ones;
+		if (0L != (nextState & overflowBits)) {
+			return false;
+		}
+		compactState = ~nextState & ~overflowBits;
+		return true;
+	}
+
+	private long deposit(long compactValue) {
 		long result = 0L;
-		for (int i = combinationBits.nextSetBit(0); i >= 0; i = combinationBits.nextSetBit(i+1)) {
-			result |= bitArray[i];
+		long value = compactValue;
+		for (int chunk = 0; 0L != value; ++chunk) {
+			result |= depositTable[chunk][(int) value & DEPOSIT_CHUNK_MASK];
+			value >>>= DEPOSIT_CHUNK_BITS;
 		}
 		return result;
 	}
 
+	private static long[][] createDepositTable(long mask, int maskBits) {
+		// Bit i of the compact state stands for item (maskBits - 1 - i),
+		// i.e. for the (maskBits - 1 - i)-th lowest bit of the mask
+		final long[] bitArray = new long[maskBits];
+		long value = mask;
+		for (int i=maskBits-1; i>=0; --i) {
+			final long bit = Long.lowestOneBit(value);
+			bitArray[i] = bit;
+			value ^= bit;
+		}
+		final int chunkCount = (maskBits + DEPOSIT_CHUNK_BITS - 1) / DEPOSIT_CHUNK_BITS;
+		final long[][] table = new long[chunkCount][1 << DEPOSIT_CHUNK_BITS];
+		for (int chunk = 0; chunk < chunkCount; ++chunk) {
+			final long[] chunkTable = table[chunk];
+			final int chunkStart = chunk * DEPOSIT_CHUNK_BITS;
+			for (int pattern = 1; pattern <= DEPOSIT_CHUNK_MASK; ++pattern) {
+				// Reuse the value for pattern without its lowest bit
+				final int lowestBit = Integer.numberOfTrailingZeros(pattern);
+				final int bitIndex = chunkStart + lowestBit;
+				final long bit = (bitIndex < maskBits) ? bitArray[bitIndex] : 0L;
+				chunkTable[pattern] = chunkTable[pattern & (pattern - 1)] | bit;
+			}
+		}
+		return table;
+	}
+
 }
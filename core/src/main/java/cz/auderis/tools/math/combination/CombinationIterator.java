@@ -28,4 +28,49 @@ public interface CombinationIterator<T> extends Iterator<T> {
 
 	void reset();
 
+	/**
+	 * Skips the given number of combinations, as if {@link #next()} was invoked
+	 * {@code count} times. If there are fewer combinations remaining, the iterator
+	 * is exhausted.
+	 *
+	 * @param count number of combinations to skip
+	 * @return number of combinations actually skipped
+	 * @throws java.lang.IllegalArgumentException if {@code count} is negative
+	 */
+	long skip(long count);
+
+	/**
+	 * Moves the cursor to the next combination, which then becomes accessible using
+	 * {@link #currentIndices(int[])}. The first call places the cursor on the combination
+	 * that would be returned by {@link #next()}. Unlike {@code next()}, this method does
+	 * not create any objects.
+	 *
+	 * @return {@code true} if the cursor was placed on a combination, {@code false}
+	 * if there are no more combinations
+	 */
+	boolean advance();
+
+	/**
+	 * Stores ascending item indices of the combination under the cursor
+	 * into the provided array.
+	 *
+	 * @param indices target array, its length must be at least {@link #getCombinationSize()}
+	 * @return number of stored indices
+	 * @throws java.lang.NullPointerException if {@code indices} is {@code null}
+	 * @throws java.lang.IllegalArgumentException if the array is too small
+	 * @throws java.lang.IllegalStateException if the cursor is not placed on a combination
+	 */
+	int currentIndices(int[] indices);
+
+	/**
+	 * Passes item indices of all remaining combinations to the consumer. The same
+	 * array instance is used for all combinations, therefore the consumer must not
+	 * modify it or keep a reference to it. The iterator is exhausted afterwards.
+	 *
+	 * @param consumer receiver of combinations
+	 * @return number of processed combinations
+	 * @throws java.lang.NullPointerException if {@code consumer} is {@code null}
+	 */
+	long forEachCombination(IntArrayConsumer consumer);
+
 }
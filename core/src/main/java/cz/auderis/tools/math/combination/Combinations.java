@@ -0,0 +1,231 @@
+/*
+ * Copyright 2015 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.auderis.tools.math.combination;
+
+/**
+ * Utility methods for counting, ranking and unranking of k-combinations.
+ *
+ * <p>A combination is represented by an ascending array of item indices
+ * from range {@code [0, itemCount)}. The lexicographic rank corresponds
+ * to the order in which {@link cz.auderis.tools.math.combination.AbstractLexicographicCombinationIterator}
+ * generates the combinations, the colexicographic rank corresponds to the
+ * combinatorial number system (i.e. to the ascending order of combinations
+ * encoded as bit masks).
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public final class Combinations {
+
+	/**
+	 * Computes the binomial coefficient C(n, k), i.e. the number of k-combinations
+	 * of n items. If {@code k} is negative or greater than {@code n}, the result is zero.
+	 *
+	 * @param n number of items
+	 * @param k combination size
+	 * @return number of combinations
+	 * @throws java.lang.IllegalArgumentException if {@code n} is negative
+	 * @throws java.lang.ArithmeticException if the result does not fit into {@code long}
+	 */
+	public static long binomial(int n, int k) {
+		if (n < 0) {
+			throw new IllegalArgumentException("invalid item count");
+		} else if ((k < 0) || (k > n)) {
+			return 0L;
+		}
+		final int effectiveK = Math.min(k, n - k);
+		long result = 1L;
+		for (int i = 1; i <= effectiveK; ++i) {
+			// result * (n - effectiveK + i) is always divisible by i
+			final long factor = n - effectiveK + i;
+			final long divisorGcd = gcd(result, i);
+			final long reducedResult = result / divisorGcd;
+			final long reducedFactor = factor / (i / divisorGcd);
+			if (reducedResult > Long.MAX_VALUE / reducedFactor) {
+				throw new ArithmeticException("binomial coefficient C(" + n + "," + k + ") overflow");
+			}
+			result = reducedResult * reducedFactor;
+		}
+		return result;
+	}
+
+	/**
+	 * Computes the lexicographic rank of the combination.
+	 *
+	 * @param indices ascending item indices of the combination
+	 * @param itemCount total number of items
+	 * @return lexicographic rank
+	 * @throws java.lang.NullPointerException if {@code indices} is {@code null}
+	 * @throws java.lang.IllegalArgumentException if the indices do not represent a valid combination
+	 * @throws java.lang.ArithmeticException if the total number of combinations does not fit into {@code long}
+	 */
+	public static long rank(int[] indices, int itemCount) {
+		if (null == indices) {
+			throw new NullPointerException();
+		}
+		final int size = indices.length;
+		checkCombination(indices, size, itemCount);
+		long result = 0L;
+		int start = 0;
+		for (int i = 0; i < size; ++i) {
+			// Combinations preceding indices[i] at this position:
+			// sum of C(n-1-x, t) for x in [start, indices[i]) = C(n-start, t+1) - C(n-indices[i], t+1)
+			final int j = size - i;
+			result += binomial(itemCount - start, j) - binomial(itemCount - indices[i], j);
+			start = indices[i] + 1;
+		}
+		return result;
+	}
+
+	/**
+	 * Stores the combination with the given lexicographic rank into {@code indices}.
+	 * The length of the array determines the combination size. Every index is found
+	 * by a binary search, so the method evaluates O(k log n) binomial coefficients.
+	 *
+	 * @param rank lexicographic rank
+	 * @param itemCount total number of items
+	 * @param indices target array for ascending item indices
+	 * @throws java.lang.NullPointerException if {@code indices} is {@code null}
+	 * @throws java.lang.IllegalArgumentException if the rank is out of range
+	 * @throws java.lang.ArithmeticException if the total number of combinations does not fit into {@code long}
+	 */
+	public static void unrank(long rank, int itemCount, int[] indices) {
+		if (null == indices) {
+			throw new NullPointerException();
+		}
+		final int size = indices.length;
+		if ((rank < 0L) || (rank >= binomial(itemCount, size))) {
+			throw new IllegalArgumentException("rank out of range");
+		}
+		long remaining = rank;
+		int start = 0;
+		for (int i = 0; i < size; ++i) {
+			// Find the highest index c such that the number of combinations preceding c
+			// at this position, C(n-start, j) - C(n-c, j), does not exceed the remaining rank
+			final int j = size - i;
+			final long total = binomial(itemCount - start, j);
+			int low = start;
+			int high = itemCount - j;
+			while (low < high) {
+				final int middle = (low + high + 1) >>> 1;
+				if (total - binomial(itemCount - middle, j) <= remaining) {
+					low = middle;
+				} else {
+					high = middle - 1;
+				}
+			}
+			indices[i] = low;
+			remaining -= total - binomial(itemCount - low, j);
+			start = low + 1;
+		}
+	}
+
+	/**
+	 * Computes the colexicographic rank of the combination, which is its
+	 * representation in the combinatorial number system.
+	 *
+	 * @param indices ascending item indices of the combination
+	 * @return colexicographic rank
+	 * @throws java.lang.NullPointerException if {@code indices} is {@code null}
+	 * @throws java.lang.ArithmeticException if the rank does not fit into {@code long}
+	 */
+	public static long colexRank(int[] indices) {
+		if (null == indices) {
+			throw new NullPointerException();
+		}
+		long result = 0L;
+		for (int i = 0; i < indices.length; ++i) {
+			result += binomial(indices[i], i + 1);
+		}
+		return result;
+	}
+
+	/**
+	 * Stores the combination with the given colexicographic rank into {@code indices}.
+	 * The length of the array determines the combination size.
+	 *
+	 * @param rank colexicographic rank
+	 * @param itemCount total number of items
+	 * @param indices target array for ascending item indices
+	 * @throws java.lang.NullPointerException if {@code indices} is {@code null}
+	 * @throws java.lang.IllegalArgumentException if the rank is out of range
+	 * @throws java.lang.ArithmeticException if the total number of combinations does not fit into {@code long}
+	 */
+	public static void colexUnrank(long rank, int itemCount, int[] indices) {
+		if (null == indices) {
+			throw new NullPointerException();
+		}
+		final int size = indices.length;
+		if ((rank < 0L) || (rank >= binomial(itemCount, size))) {
+			throw new IllegalArgumentException("rank out of range");
+		}
+		long remaining = rank;
+		int candidate = itemCount - 1;
+		for (int i = size - 1; i >= 0; --i) {
+			final int j = i + 1;
+			long count = binomial(candidate, j);
+			while (count > remaining) {
+				count = lowerBinomial(count, candidate, j);
+				--candidate;
+			}
+			indices[i] = candidate;
+			remaining -= count;
+			--candidate;
+		}
+	}
+
+	/**
+	 * Computes C(m-1, j) from the value of C(m, j) without risk of overflow.
+	 */
+	static long lowerBinomial(long binomialValue, int m, int j) {
+		if ((m <= j) || (0L == binomialValue)) {
+			return 0L;
+		}
+		// C(m-1, j) = C(m, j) * (m - j) / m
+		final long divisorGcd = gcd(binomialValue, m);
+		return (binomialValue / divisorGcd) * ((m - j) / (m / divisorGcd));
+	}
+
+	private static long gcd(long a, long b) {
+		long x = a;
+		long y = b;
+		while (0L != y) {
+			final long t = x % y;
+			x = y;
+			y = t;
+		}
+		return x;
+	}
+
+	private static void checkCombination(int[] indices, int size, int itemCount) {
+		if (size > itemCount) {
+			throw new IllegalArgumentException("combination too large");
+		}
+		int previous = -1;
+		for (int i = 0; i < size; ++i) {
+			final int index = indices[i];
+			if ((index <= previous) || (index >= itemCount)) {
+				throw new IllegalArgumentException("invalid combination indices");
+			}
+			previous = index;
+		}
+	}
+
+	private Combinations() {
+		throw new AssertionError();
+	}
+
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2015 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.auderis.tools.math.combination;
+
+/**
+ * Receiver of item indices produced by
+ * {@link cz.auderis.tools.math.combination.CombinationIterator#forEachCombination(IntArrayConsumer)}.
+ */
+public interface IntArrayConsumer {
+
+	/**
+	 * Processes a single combination. The array is owned by the caller and
+	 * it is reused for subsequent combinations.
+	 *
+	 * @param indices ascending item indices
+	 */
+	void accept(int[] indices);
+
+}
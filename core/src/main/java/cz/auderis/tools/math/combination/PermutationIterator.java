@@ -0,0 +1,77 @@
+/*
+ * Copyright 2015 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.auderis.tools.math.combination;
+
+import java.util.Iterator;
+
+/**
+ * Interface representing a specific iterator that iterates over permutations
+ * or k-permutations (i.e. ordered selections of {@link #getPermutationSize()} items
+ * out of {@link #getItemCount()} items).
+ */
+public interface PermutationIterator<T> extends Iterator<T> {
+
+	int getItemCount();
+
+	int getPermutationSize();
+
+	void reset();
+
+	/**
+	 * Skips the given number of permutations, as if {@link #next()} was invoked
+	 * {@code count} times. If there are fewer permutations remaining, the iterator
+	 * is exhausted.
+	 *
+	 * @param count number of permutations to skip
+	 * @return number of permutations actually skipped
+	 * @throws java.lang.IllegalArgumentException if {@code count} is negative
+	 */
+	long skip(long count);
+
+	/**
+	 * Moves the cursor to the next permutation, which then becomes accessible using
+	 * {@link #currentIndices(int[])}. The first call places the cursor on the permutation
+	 * that would be returned by {@link #next()}. Unlike {@code next()}, this method does
+	 * not create any objects.
+	 *
+	 * @return {@code true} if the cursor was placed on a permutation, {@code false}
+	 * if there are no more permutations
+	 */
+	boolean advance();
+
+	/**
+	 * Stores item indices of the permutation under the cursor into the provided array.
+	 *
+	 * @param indices target array, its length must be at least {@link #getPermutationSize()}
+	 * @return number of stored indices
+	 * @throws java.lang.NullPointerException if {@code indices} is {@code null}
+	 * @throws java.lang.IllegalArgumentException if the array is too small
+	 * @throws java.lang.IllegalStateException if the cursor is not placed on a permutation
+	 */
+	int currentIndices(int[] indices);
+
+	/**
+	 * Passes item indices of all remaining permutations to the consumer. The same
+	 * array instance is used for all permutations, therefore the consumer must not
+	 * modify it or keep a reference to it. The iterator is exhausted afterwards.
+	 *
+	 * @param consumer receiver of permutations
+	 * @return number of processed permutations
+	 * @throws java.lang.NullPointerException if {@code consumer} is {@code null}
+	 */
+	long forEachPermutation(IntArrayConsumer consumer);
+
+}
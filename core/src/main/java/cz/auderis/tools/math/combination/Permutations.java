@@ -0,0 +1,227 @@
+/*
+ * Copyright 2015 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.auderis.tools.math.combination;
+
+/**
+ * Utility methods for counting, stepping, ranking and unranking of permutations
+ * and k-permutations.
+ *
+ * <p>A k-permutation of {@code itemCount} items is represented by an array of
+ * {@code k} distinct item indices from range {@code [0, itemCount)}. The rank
+ * corresponds to the lexicographic order of such arrays, which is also the order
+ * in which {@link cz.auderis.tools.math.combination.AbstractLexicographicPermutationIterator}
+ * generates them.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public final class Permutations {
+
+	/**
+	 * Computes the number of k-permutations of n items, i.e. the falling factorial
+	 * {@code n! / (n-k)!}. If {@code k} is negative or greater than {@code n},
+	 * the result is zero.
+	 *
+	 * @param n number of items
+	 * @param k permutation size
+	 * @return number of permutations
+	 * @throws java.lang.IllegalArgumentException if {@code n} is negative
+	 * @throws java.lang.ArithmeticException if the result does not fit into {@code long}
+	 */
+	public static long count(int n, int k) {
+		if (n < 0) {
+			throw new IllegalArgumentException("invalid item count");
+		} else if ((k < 0) || (k > n)) {
+			return 0L;
+		}
+		long result = 1L;
+		for (int factor = n - k + 1; factor <= n; ++factor) {
+			if (result > Long.MAX_VALUE / factor) {
+				throw new ArithmeticException("permutation count P(" + n + "," + k + ") overflow");
+			}
+			result *= factor;
+		}
+		return result;
+	}
+
+	/**
+	 * Transforms the array into the lexicographically next permutation of its elements.
+	 * The elements need not be distinct. If the array already holds the last
+	 * permutation (i.e. it is sorted in descending order), it is left unchanged.
+	 *
+	 * @param values array to be permuted
+	 * @return {@code false} if there is no next permutation
+	 * @throws java.lang.NullPointerException if {@code values} is {@code null}
+	 */
+	public static boolean nextPermutation(int[] values) {
+		if (null == values) {
+			throw new NullPointerException();
+		}
+		final int last = values.length - 1;
+		int pivot = last - 1;
+		while ((pivot >= 0) && (values[pivot] >= values[pivot + 1])) {
+			--pivot;
+		}
+		if (pivot < 0) {
+			return false;
+		}
+		final int pivotValue = values[pivot];
+		int successor = last;
+		while (values[successor] <= pivotValue) {
+			--successor;
+		}
+		values[pivot] = values[successor];
+		values[successor] = pivotValue;
+		reverse(values, pivot + 1, last);
+		return true;
+	}
+
+	/**
+	 * Transforms the first {@code k} elements of the array into the lexicographically
+	 * next k-permutation of all its elements. The array must hold the remaining
+	 * elements in its tail {@code [k, length)} in ascending order; this invariant
+	 * is kept by the method. If there is no next k-permutation, the array
+	 * ends up in an undefined order.
+	 *
+	 * @param values array holding the k-permutation followed by the remaining elements
+	 * @param k size of the permutation
+	 * @return {@code false} if there is no next k-permutation
+	 * @throws java.lang.NullPointerException if {@code values} is {@code null}
+	 * @throws java.lang.IllegalArgumentException if {@code k} is out of range
+	 */
+	public static boolean nextPermutation(int[] values, int k) {
+		if (null == values) {
+			throw new NullPointerException();
+		} else if ((k < 0) || (k > values.length)) {
+			throw new IllegalArgumentException("invalid permutation size");
+		}
+		// With descending tail, the next full permutation changes the prefix
+		reverse(values, k, values.length - 1);
+		return nextPermutation(values);
+	}
+
+	/**
+	 * Computes the lexicographic rank of the k-permutation.
+	 *
+	 * @param indices distinct item indices of the k-permutation
+	 * @param itemCount total number of items
+	 * @return lexicographic rank
+	 * @throws java.lang.NullPointerException if {@code indices} is {@code null}
+	 * @throws java.lang.IllegalArgumentException if the indices do not represent a valid permutation
+	 * @throws java.lang.ArithmeticException if the total number of permutations does not fit into {@code long}
+	 */
+	public static long rank(int[] indices, int itemCount) {
+		if (null == indices) {
+			throw new NullPointerException();
+		}
+		final int size = indices.length;
+		if (size > itemCount) {
+			throw new IllegalArgumentException("permutation too large");
+		} else if (0 == size) {
+			return 0L;
+		}
+		final boolean[] used = new boolean[itemCount];
+		long blockSize = count(itemCount, size) / itemCount;
+		long result = 0L;
+		for (int i = 0; i < size; ++i) {
+			final int index = indices[i];
+			if ((index < 0) || (index >= itemCount) || used[index]) {
+				throw new IllegalArgumentException("invalid permutation indices");
+			}
+			int digit = 0;
+			for (int j = 0; j < index; ++j) {
+				if (!used[j]) {
+					++digit;
+				}
+			}
+			used[index] = true;
+			result += digit * blockSize;
+			if (i < size - 1) {
+				blockSize /= itemCount - i - 1;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Stores the k-permutation with the given lexicographic rank into {@code indices}.
+	 * The length of the array determines the permutation size.
+	 *
+	 * @param rank lexicographic rank
+	 * @param itemCount total number of items
+	 * @param indices target array for item indices
+	 * @throws java.lang.NullPointerException if {@code indices} is {@code null}
+	 * @throws java.lang.IllegalArgumentException if the rank is out of range
+	 * @throws java.lang.ArithmeticException if the total number of permutations does not fit into {@code long}
+	 */
+	public static void unrank(long rank, int itemCount, int[] indices) {
+		if (null == indices) {
+			throw new NullPointerException();
+		}
+		final int size = indices.length;
+		if ((rank < 0L) || (rank >= count(itemCount, size))) {
+			throw new IllegalArgumentException("rank out of range");
+		}
+		unrank(rank, itemCount, size, indices, new int[itemCount]);
+	}
+
+	/**
+	 * Stores the k-permutation with the given rank into the first {@code size} elements
+	 * of {@code target}; if the target is long enough, the unused items follow
+	 * in ascending order. The rank is not checked.
+	 */
+	static void unrank(long rank, int itemCount, int size, int[] target, int[] workBuffer) {
+		for (int i = 0; i < itemCount; ++i) {
+			workBuffer[i] = i;
+		}
+		if (0 == size) {
+			System.arraycopy(workBuffer, 0, target, 0, Math.min(itemCount, target.length));
+			return;
+		}
+		long remaining = rank;
+		long blockSize = count(itemCount, size) / itemCount;
+		int freeCount = itemCount;
+		for (int i = 0; i < size; ++i) {
+			final int digit = (int) (remaining / blockSize);
+			remaining %= blockSize;
+			target[i] = workBuffer[digit];
+			--freeCount;
+			System.arraycopy(workBuffer, digit + 1, workBuffer, digit, freeCount - digit);
+			if (i < size - 1) {
+				blockSize /= itemCount - i - 1;
+			}
+		}
+		final int tailLength = Math.min(freeCount, target.length - size);
+		System.arraycopy(workBuffer, 0, target, size, tailLength);
+	}
+
+	private static void reverse(int[] values, int from, int to) {
+		int i = from;
+		int j = to;
+		while (i < j) {
+			final int value = values[i];
+			values[i] = values[j];
+			values[j] = value;
+			++i;
+			--j;
+		}
+	}
+
+	private Permutations() {
+		throw new AssertionError();
+	}
+
+}
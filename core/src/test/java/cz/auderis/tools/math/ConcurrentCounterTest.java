@@ -0,0 +1,111 @@
+package cz.auderis.tools.math;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentCounterTest {
+
+	private static final int THREAD_COUNT = 8;
+	private static final int ITERATIONS = 20000;
+
+	@Test
+	public void shouldKeepCounterContract() throws Exception {
+		// Given
+		final Counter counter = new Counter(5);
+		final ConcurrentCounter concurrentCounter = new ConcurrentCounter(5);
+		// When + Then
+		assertThat("initial value", concurrentCounter.value(), is(counter.value()));
+		for (int i = 0; i < 10; ++i) {
+			assertThat("next value", concurrentCounter.next(), is(counter.next()));
+			assertThat("current value", concurrentCounter.value(), is(counter.value()));
+		}
+		assertThat("sum", concurrentCounter.sum(), is(15L));
+	}
+
+	@Test
+	public void shouldCountConcurrentIncrements() throws Exception {
+		// Given
+		final ConcurrentCounter counter = new ConcurrentCounter(0L, 4);
+		// When
+		runConcurrently(new Runnable() {
+			@Override
+			public void run() {
+				for (int i = 0; i < ITERATIONS; ++i) {
+					counter.increment();
+				}
+			}
+		});
+		// Then
+		assertThat("final value", counter.sum(), is(THREAD_COUNT * (long) ITERATIONS));
+		assertThat("value before reset", counter.sumThenReset(), is(THREAD_COUNT * (long) ITERATIONS));
+		assertThat("value after reset", counter.sum(), is(0L));
+	}
+
+	@Test
+	public void shouldGenerateUniqueSequenceValues() throws Exception {
+		// Given
+		final AtomicSequence sequence = new AtomicSequence(100L, 16);
+		final Set<Long> values = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+		// When
+		runConcurrently(new Runnable() {
+			@Override
+			public void run() {
+				for (int i = 0; i < ITERATIONS; ++i) {
+					values.add(sequence.next());
+				}
+			}
+		});
+		// Then
+		assertThat("value count", values.size(), is(THREAD_COUNT * ITERATIONS));
+		for (Long value : values) {
+			assertTrue("value out of range", (value >= 100L) && (value < sequence.getReservedLimit()));
+		}
+	}
+
+	@Test
+	public void shouldShareNamedCounters() throws Exception {
+		// Given
+		final CounterRegistry registry = new CounterRegistry();
+		// When
+		final ConcurrentCounter counter = registry.getCounter("requests");
+		counter.add(42L);
+		// Then
+		assertThat("same instance", registry.getCounter("requests"), sameInstance(counter));
+		assertThat("snapshot value", registry.snapshot().get("requests"), is(42L));
+		assertTrue("counter removed", registry.removeCounter("requests"));
+		assertThat("counter count", registry.getCounterNames().size(), is(0));
+	}
+
+	private static void runConcurrently(final Runnable task) throws InterruptedException {
+		final CountDownLatch startSignal = new CountDownLatch(1);
+		final Thread[] threads = new Thread[THREAD_COUNT];
+		for (int i = 0; i < THREAD_COUNT; ++i) {
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						startSignal.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					task.run();
+				}
+			});
+			threads[i].start();
+		}
+		startSignal.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+	}
+
+}
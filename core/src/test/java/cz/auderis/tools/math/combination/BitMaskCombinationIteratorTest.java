@@ -117,4 +117,50 @@ public class BitMaskCombinationIteratorTest {
 		assertThat("bad mask count", count, is(5984));
 	}
 
-}
\ No newline at end of file
+	@Test
+	public void shouldCreateLexicographicPrimitiveSubmasks() throws Exception {
+		final long mask = 0xA35C7093B1452DFFL;
+		final int submaskSize = 3;
+		final int maskBits = Long.bitCount(mask);
+		final long[] maskBitArray = new long[maskBits];
+		long value = mask;
+		for (int i=0; i<maskBits; ++i) {
+			maskBitArray[i] = Long.lowestOneBit(value);
+			value ^= maskBitArray[i];
+		}
+		final BitMaskCombinationIterator combinator = new BitMaskCombinationIterator(mask, submaskSize);
+		final int[] indices = new int[submaskSize];
+		int count = 0;
+		while (combinator.hasNext()) {
+			final long submask = combinator.nextLong();
+			Combinations.unrank(count, maskBits, indices);
+			long expected = 0L;
+			for (int index : indices) {
+				expected |= maskBitArray[index];
+			}
+			assertThat("submask not in lexicographic order", submask, is(expected));
+			++count;
+		}
+		assertThat("bad mask count", count, is(5984));
+	}
+
+	@Test
+	public void shouldCreateSubmasksOfFullMask() throws Exception {
+		final Set<Long> combinations = new HashSet<Long>();
+		final BitMaskCombinationIterator combinator = new BitMaskCombinationIterator(-1L, 63);
+		while (combinator.hasNext()) {
+			final long submask = combinator.nextLong();
+			assertTrue(String.format("redundant combination %016X", submask), combinations.add(submask));
+		}
+		assertThat("bad mask count", combinations.size(), is(64));
+		for (int i=0; i<Long.SIZE; ++i) {
+			assertTrue("combination missing", combinations.contains(~(1L << i)));
+		}
+		final BitMaskCombinationIterator fullCombinator = new BitMaskCombinationIterator(-1L, 64);
+		assertThat("full mask", fullCombinator.nextLong(), is(-1L));
+		assertThat("single full mask", fullCombinator.hasNext(), is(false));
+		fullCombinator.reset();
+		assertThat("full mask after reset", fullCombinator.nextLong(), is(-1L));
+	}
+
+}
@@ -0,0 +1,77 @@
+package cz.auderis.tools.math.combination;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class CombinationCursorTest {
+
+	@Test
+	public void shouldProvideSameCombinationsAsNext() throws Exception {
+		// Given
+		final CombinationRankingTest.IndexCombinationIterator reference = new CombinationRankingTest.IndexCombinationIterator(11, 4);
+		final CombinationRankingTest.IndexCombinationIterator cursor = new CombinationRankingTest.IndexCombinationIterator(11, 4);
+		final int[] indices = new int[4];
+		// When + Then
+		while (cursor.advance()) {
+			assertThat("index count", cursor.currentIndices(indices), is(4));
+			assertThat("current combination", indices, is(reference.next()));
+		}
+		assertThat("reference exhausted", reference.hasNext(), is(false));
+		assertThat("cursor exhausted", cursor.hasNext(), is(false));
+	}
+
+	@Test
+	public void shouldMixCursorAndNext() throws Exception {
+		// Given
+		final BitMaskCombinationIterator reference = new BitMaskCombinationIterator(0xF0F0L, 3);
+		final BitMaskCombinationIterator iterator = new BitMaskCombinationIterator(0xF0F0L, 3);
+		// When + Then
+		assertThat("first advance", iterator.advance(), is(true));
+		assertThat("first mask", iterator.currentMask(), is(reference.nextLong()));
+		assertThat("next after advance", iterator.nextLong(), is(reference.nextLong()));
+		assertThat("second advance", iterator.advance(), is(true));
+		assertThat("second mask", iterator.currentMask(), is(reference.nextLong()));
+		assertThat("remaining count", iterator.estimateSize(), is(reference.estimateSize()));
+	}
+
+	@Test
+	public void shouldReportBitMaskIndices() throws Exception {
+		// Given
+		final BitMaskCombinationIterator iterator = new BitMaskCombinationIterator(0xFFL, 3);
+		final int[] indices = new int[3];
+		// When
+		iterator.skip(5L);
+		iterator.advance();
+		iterator.currentIndices(indices);
+		// Then
+		assertThat("compact mask", iterator.currentMask(), is(0x83L));
+		assertThat("indices", indices, is(new int[] { 0, 1, 7 }));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void shouldRejectIndicesWithoutCursor() throws Exception {
+		final BitMaskCombinationIterator iterator = new BitMaskCombinationIterator(0xFFL, 3);
+		iterator.currentIndices(new int[3]);
+	}
+
+	@Test
+	public void shouldVisitAllCombinationsOf40Items() throws Exception {
+		// Given
+		final BitMaskCombinationIterator iterator = new BitMaskCombinationIterator(0xFFFFFFFFFFL, 8);
+		final long[] indexSum = new long[1];
+		// When
+		final long count = iterator.forEachCombination(new IntArrayConsumer() {
+			@Override
+			public void accept(int[] indices) {
+				indexSum[0] += indices[7];
+			}
+		});
+		// Then
+		assertThat("combination count", count, is(Combinations.binomial(40, 8)));
+		assertThat("sum of highest indices", indexSum[0], is(8L * Combinations.binomial(41, 9) - Combinations.binomial(40, 8)));
+		assertThat("exhausted", iterator.hasNext(), is(false));
+	}
+
+}
@@ -0,0 +1,178 @@
+package cz.auderis.tools.math.combination;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class CombinationRankingTest {
+
+	@Test
+	public void shouldComputeBinomialCoefficients() throws Exception {
+		assertThat(Combinations.binomial(10, 3), is(120L));
+		assertThat(Combinations.binomial(40, 8), is(76904685L));
+		assertThat(Combinations.binomial(64, 32), is(1832624140942590534L));
+		assertThat(Combinations.binomial(5, 7), is(0L));
+	}
+
+	@Test(expected = ArithmeticException.class)
+	public void shouldDetectBinomialOverflow() throws Exception {
+		Combinations.binomial(100, 50);
+	}
+
+	@Test
+	public void shouldRankCombinationsInIterationOrder() throws Exception {
+		// Given
+		final IndexCombinationIterator iterator = new IndexCombinationIterator(13, 5);
+		final int[] unranked = new int[5];
+		long expectedRank = 0L;
+		// When + Then
+		while (iterator.hasNext()) {
+			final int[] combination = iterator.next();
+			assertThat("lexicographic rank", Combinations.rank(combination, 13), is(expectedRank));
+			Combinations.unrank(expectedRank, 13, unranked);
+			assertThat("unranked combination", unranked, is(combination));
+			++expectedRank;
+		}
+		assertThat("combination count", expectedRank, is(Combinations.binomial(13, 5)));
+	}
+
+	@Test
+	public void shouldRankCombinationsOfManyItems() throws Exception {
+		// Given
+		final int itemCount = 2000000;
+		final long total = Combinations.binomial(itemCount, 3);
+		final int[] combination = new int[3];
+		// When
+		Combinations.unrank(total - 1L, itemCount, combination);
+		// Then
+		assertThat("last combination", combination, is(new int[] { itemCount - 3, itemCount - 2, itemCount - 1 }));
+		for (long rank = 0L; rank < total; rank += total / 997L) {
+			Combinations.unrank(rank, itemCount, combination);
+			assertThat("rank of unranked combination", Combinations.rank(combination, itemCount), is(rank));
+		}
+	}
+
+	@Test
+	public void shouldUnrankColexicographicCombinations() throws Exception {
+		final int[] combination = new int[4];
+		final long total = Combinations.binomial(12, 4);
+		for (long rank = 0L; rank < total; ++rank) {
+			Combinations.colexUnrank(rank, 12, combination);
+			assertThat("colex rank", Combinations.colexRank(combination), is(rank));
+		}
+	}
+
+	@Test
+	public void shouldSkipCombinations() throws Exception {
+		// Given
+		final IndexCombinationIterator sequential = new IndexCombinationIterator(20, 6);
+		final IndexCombinationIterator skipping = new IndexCombinationIterator(20, 6);
+		for (int i = 0; i < 1000; ++i) {
+			sequential.next();
+		}
+		// When
+		final long skipped = skipping.skip(1000L);
+		// Then
+		assertThat("skip count", skipped, is(1000L));
+		assertThat("combination after skip", skipping.next(), is(sequential.next()));
+		assertThat("remaining count", skipping.estimateSize(), is(Combinations.binomial(20, 6) - 1001L));
+		assertThat("skip beyond end", skipping.skip(Long.MAX_VALUE), is(Combinations.binomial(20, 6) - 1001L));
+		assertThat("exhausted", skipping.hasNext(), is(false));
+	}
+
+	@Test
+	public void shouldSplitCombinationRange() throws Exception {
+		// Given
+		final List<IndexCombinationIterator> parts = new ArrayList<IndexCombinationIterator>();
+		parts.add(new IndexCombinationIterator(16, 5));
+		// When
+		for (int round = 0; round < 3; ++round) {
+			final List<IndexCombinationIterator> newParts = new ArrayList<IndexCombinationIterator>();
+			for (IndexCombinationIterator part : parts) {
+				final IndexCombinationIterator prefix = (IndexCombinationIterator) part.trySplit();
+				assertThat("split part", prefix, notNullValue());
+				newParts.add(prefix);
+				newParts.add(part);
+			}
+			parts.clear();
+			parts.addAll(newParts);
+		}
+		// Then
+		final Set<List<Integer>> combinations = new HashSet<List<Integer>>();
+		long previousRank = -1L;
+		for (IndexCombinationIterator part : parts) {
+			while (part.hasNext()) {
+				final int[] combination = part.next();
+				final long rank = Combinations.rank(combination, 16);
+				assertThat("consecutive ranks", rank, is(previousRank + 1L));
+				previousRank = rank;
+				assertTrue("duplicate combination", combinations.add(asList(combination)));
+			}
+		}
+		assertThat("combination count", (long) combinations.size(), is(Combinations.binomial(16, 5)));
+	}
+
+	@Test
+	public void shouldSplitBitMaskCombinations() throws Exception {
+		// Given
+		final long mask = 0x0F0F0F0F0FL;
+		final BitMaskCombinationIterator first = new BitMaskCombinationIterator(mask, 7);
+		final BitMaskCombinationIterator reference = new BitMaskCombinationIterator(mask, 7);
+		// When
+		final BitMaskCombinationIterator prefix = first.trySplit();
+		// Then
+		assertThat("prefix size", prefix.estimateSize() + first.estimateSize(), is(Combinations.binomial(20, 7)));
+		while (prefix.hasNext()) {
+			assertThat("prefix sub-mask", prefix.nextLong(), is(reference.nextLong()));
+		}
+		while (first.hasNext()) {
+			assertThat("suffix sub-mask", first.nextLong(), is(reference.nextLong()));
+		}
+		assertThat("reference exhausted", reference.hasNext(), is(false));
+		assertThat("no split of exhausted iterator", first.trySplit(), nullValue());
+	}
+
+	private static List<Integer> asList(int[] values) {
+		final List<Integer> result = new ArrayList<Integer>(values.length);
+		for (int value : values) {
+			result.add(value);
+		}
+		return result;
+	}
+
+	static final class IndexCombinationIterator extends AbstractLexicographicCombinationIterator<int[]> {
+
+		IndexCombinationIterator(int itemCount, int combinationSize) {
+			super(itemCount, combinationSize);
+		}
+
+		IndexCombinationIterator(int itemCount, int combinationSize, long fromRank, long toRank) {
+			super(itemCount, combinationSize, fromRank, toRank);
+		}
+
+		@Override
+		protected int[] createCombination() {
+			final int[] result = new int[combinationSize];
+			int j = 0;
+			for (int i = combinationBits.nextSetBit(0); i >= 0; i = combinationBits.nextSetBit(i + 1)) {
+				result[j++] = i;
+			}
+			return result;
+		}
+
+		@Override
+		protected IndexCombinationIterator createRangeIterator(long fromRank, long toRank) {
+			return new IndexCombinationIterator(itemCount, combinationSize, fromRank, toRank);
+		}
+	}
+
+}
@@ -0,0 +1,230 @@
+package cz.auderis.tools.math.combination;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class PermutationIteratorTest {
+
+	@Test
+	public void shouldCountPermutations() throws Exception {
+		assertThat(Permutations.count(5, 5), is(120L));
+		assertThat(Permutations.count(10, 3), is(720L));
+		assertThat(Permutations.count(20, 20), is(2432902008176640000L));
+		assertThat(Permutations.count(3, 4), is(0L));
+	}
+
+	@Test(expected = ArithmeticException.class)
+	public void shouldDetectPermutationCountOverflow() throws Exception {
+		Permutations.count(21, 21);
+	}
+
+	@Test
+	public void shouldGenerateMinimalChangePermutations() throws Exception {
+		// Given
+		final IndexHeapPermutationIterator iterator = new IndexHeapPermutationIterator(6);
+		final Set<List<Integer>> permutations = new HashSet<List<Integer>>();
+		int[] previous = null;
+		// When + Then
+		while (iterator.hasNext()) {
+			final int[] permutation = iterator.next();
+			assertTrue("duplicate permutation", permutations.add(asList(permutation)));
+			if (null != previous) {
+				int differences = 0;
+				for (int i = 0; i < permutation.length; ++i) {
+					if (permutation[i] != previous[i]) {
+						++differences;
+					}
+				}
+				assertThat("single swap", differences, is(2));
+			}
+			previous = permutation;
+		}
+		assertThat("permutation count", (long) permutations.size(), is(Permutations.count(6, 6)));
+	}
+
+	@Test
+	public void shouldGenerateLexicographicKPermutations() throws Exception {
+		// Given
+		final IndexLexicographicPermutationIterator iterator = new IndexLexicographicPermutationIterator(7, 3);
+		final int[] unranked = new int[3];
+		long expectedRank = 0L;
+		int[] previous = null;
+		// When + Then
+		while (iterator.hasNext()) {
+			final int[] permutation = iterator.next();
+			if (null != previous) {
+				assertTrue("ascending order", compare(previous, permutation) < 0);
+			}
+			assertThat("lexicographic rank", Permutations.rank(permutation, 7), is(expectedRank));
+			Permutations.unrank(expectedRank, 7, unranked);
+			assertThat("unranked permutation", unranked, is(permutation));
+			previous = permutation;
+			++expectedRank;
+		}
+		assertThat("permutation count", expectedRank, is(Permutations.count(7, 3)));
+	}
+
+	@Test
+	public void shouldStepPermutationsWithRepeatedValues() throws Exception {
+		// Given
+		final int[] values = { 1, 1, 2, 2 };
+		int count = 1;
+		// When
+		while (Permutations.nextPermutation(values)) {
+			++count;
+		}
+		// Then
+		assertThat("distinct arrangements", count, is(6));
+		assertThat("last arrangement", values, is(new int[] { 2, 2, 1, 1 }));
+	}
+
+	@Test
+	public void shouldSkipAndSplitPermutations() throws Exception {
+		// Given
+		final IndexLexicographicPermutationIterator reference = new IndexLexicographicPermutationIterator(8, 5);
+		final IndexLexicographicPermutationIterator iterator = new IndexLexicographicPermutationIterator(8, 5);
+		reference.skip(100L);
+		for (int i = 0; i < 100; ++i) {
+			reference.next();
+		}
+		// When
+		assertThat("skip count", iterator.skip(200L), is(200L));
+		final IndexLexicographicPermutationIterator prefix = (IndexLexicographicPermutationIterator) iterator.trySplit();
+		// Then
+		assertThat("split part", prefix, notNullValue());
+		final int[] indices = new int[5];
+		while (prefix.advance()) {
+			prefix.currentIndices(indices);
+			assertThat("prefix permutation", indices, is(reference.next()));
+		}
+		while (iterator.hasNext()) {
+			assertThat("suffix permutation", iterator.next(), is(reference.next()));
+		}
+		assertThat("reference exhausted", reference.hasNext(), is(false));
+	}
+
+	@Test
+	public void shouldSkipHeapPermutationsToEveryRank() throws Exception {
+		for (int itemCount = 1; itemCount <= 6; ++itemCount) {
+			// Given
+			final IndexHeapPermutationIterator reference = new IndexHeapPermutationIterator(itemCount);
+			long rank = 0L;
+			// When + Then
+			while (reference.hasNext()) {
+				final IndexHeapPermutationIterator iterator = new IndexHeapPermutationIterator(itemCount);
+				assertThat("skip count", iterator.skip(rank), is(rank));
+				assertThat("remaining", iterator.estimateSize(), is(Permutations.count(itemCount, itemCount) - rank));
+				assertThat("permutation " + rank + " of " + itemCount, iterator.next(), is(reference.next()));
+				++rank;
+			}
+		}
+	}
+
+	@Test
+	public void shouldSplitHeapPermutations() throws Exception {
+		// Given
+		final IndexHeapPermutationIterator reference = new IndexHeapPermutationIterator(8);
+		final IndexHeapPermutationIterator iterator = new IndexHeapPermutationIterator(8);
+		reference.skip(1000L);
+		// When
+		assertThat("skip count", iterator.skip(1000L), is(1000L));
+		final IndexHeapPermutationIterator prefix = (IndexHeapPermutationIterator) iterator.trySplit();
+		// Then
+		assertThat("split part", prefix, notNullValue());
+		assertThat("prefix size", prefix.estimateSize(), is((Permutations.count(8, 8) - 1000L) / 2L));
+		while (prefix.hasNext()) {
+			assertThat("prefix permutation", prefix.next(), is(reference.next()));
+		}
+		while (iterator.hasNext()) {
+			assertThat("suffix permutation", iterator.next(), is(reference.next()));
+		}
+		assertThat("reference exhausted", reference.hasNext(), is(false));
+	}
+
+	@Test
+	public void shouldVisitPermutationsWithoutCopying() throws Exception {
+		// Given
+		final IndexHeapPermutationIterator iterator = new IndexHeapPermutationIterator(9);
+		final long[] checksum = new long[1];
+		// When
+		final long count = iterator.forEachPermutation(new IntArrayConsumer() {
+			@Override
+			public void accept(int[] indices) {
+				checksum[0] += indices[0];
+			}
+		});
+		// Then
+		assertThat("permutation count", count, is(Permutations.count(9, 9)));
+		assertThat("index sum at first position", checksum[0], is(Permutations.count(8, 8) * 36L));
+	}
+
+	private static int compare(int[] a, int[] b) {
+		for (int i = 0; i < a.length; ++i) {
+			if (a[i] != b[i]) {
+				return (a[i] < b[i]) ? -1 : 1;
+			}
+		}
+		return 0;
+	}
+
+	private static List<Integer> asList(int[] values) {
+		final List<Integer> result = new ArrayList<Integer>(values.length);
+		for (int value : values) {
+			result.add(value);
+		}
+		return result;
+	}
+
+	static final class IndexHeapPermutationIterator extends AbstractHeapPermutationIterator<int[]> {
+
+		IndexHeapPermutationIterator(int itemCount) {
+			super(itemCount);
+		}
+
+		IndexHeapPermutationIterator(int itemCount, long fromRank, long toRank) {
+			super(itemCount, fromRank, toRank);
+		}
+
+		@Override
+		protected int[] createPermutation() {
+			return Arrays.copyOf(permutation, permutationSize);
+		}
+
+		@Override
+		protected IndexHeapPermutationIterator createRangeIterator(long fromRank, long toRank) {
+			return new IndexHeapPermutationIterator(itemCount, fromRank, toRank);
+		}
+	}
+
+	static final class IndexLexicographicPermutationIterator extends AbstractLexicographicPermutationIterator<int[]> {
+
+		IndexLexicographicPermutationIterator(int itemCount, int permutationSize) {
+			super(itemCount, permutationSize);
+		}
+
+		IndexLexicographicPermutationIterator(int itemCount, int permutationSize, long fromRank, long toRank) {
+			super(itemCount, permutationSize, fromRank, toRank);
+		}
+
+		@Override
+		protected int[] createPermutation() {
+			return Arrays.copyOf(permutation, permutationSize);
+		}
+
+		@Override
+		protected IndexLexicographicPermutationIterator createRangeIterator(long fromRank, long toRank) {
+			return new IndexLexicographicPermutationIterator(itemCount, permutationSize, fromRank, toRank);
+		}
+	}
+
+}
@@ -0,0 +1,1519 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.collection;
+
+import cz.auderis.tools.time.TimeProvider;
+import cz.auderis.tools.time.TimeProviders;
+import cz.auderis.tools.time.timeout.Timeout;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe cache with bounded number of entries. Unlike {@link cz.auderis.tools.collection.SimpleCache},
+ * values are held by strong references and the memory consumption is controlled by the capacity;
+ * when it is exceeded, entries are evicted according to the selected {@link cz.auderis.tools.collection.EvictionPolicy}.
+ *
+ * <p>The cache is split into independently locked segments, the capacity is distributed
+ * evenly among them. Individual entries may be given a {@link cz.auderis.tools.time.timeout.Timeout}
+ * with the same semantics as in {@code SimpleCache}: an entry whose timeout has expired
+ * is not available any more.
+ *
+ * <p>Besides that, cache-wide expiration policies may be configured using
+ * {@link #expireAfterWrite(long, java.util.concurrent.TimeUnit)} and
+ * {@link #expireAfterAccess(long, java.util.concurrent.TimeUnit)}. Deadlines of all
+ * entries are tracked by a hierarchical timing wheel driven by the cache
+ * {@link cz.auderis.tools.time.TimeProvider}, so that expired entries are removed
+ * proactively, even if they are never read again. The removal is performed in batches
+ * during write operations and by {@link #cleanUp()}, with a precision of about one second.
+ *
+ * <p>Method {@link #getOrCompute(Object, CacheLoader)} loads missing values; concurrent requests
+ * for the same key wait for a single load. With {@link #refreshAhead(int, CacheLoader, java.util.concurrent.Executor)},
+ * values that approach their expiration are reloaded asynchronously, while the
+ * readers are still served the current value.
+ *
+ * <p>An optional off-heap tier (see {@link #withOffHeapTier(OffHeapStorage, ValueCodec)})
+ * receives values that are evicted because of the capacity; such values are encoded
+ * into an {@link cz.auderis.tools.collection.OffHeapStorage} and promoted back into
+ * the heap when they are accessed again.
+ *
+ * <p>Hits, misses, load times and removals are recorded by a {@link cz.auderis.tools.collection.CacheStatsRecorder},
+ * see {@link #getStats()}.
+ *
+ * @param <K> type of keys
+ * @param <V> type of values
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class BoundedCache<K, V> {
+
+	/**
+	 * Number of segments used when not specified explicitly
+	 */
+	public static final int DEFAULT_SEGMENT_COUNT = 16;
+
+	private static final int MAX_SEGMENT_COUNT = 1 << 16;
+	private static final int SEGMENT_HASH_SHIFT = 16;
+
+	private final int capacity;
+	private final EvictionPolicy evictionPolicy;
+	private final Segment<K, V>[] segments;
+	private final int segmentMask;
+	private final CacheStatsRecorder stats;
+	private volatile TimeProvider timeProvider;
+	private volatile long expireAfterWriteMillis;
+	private volatile long expireAfterAccessMillis;
+	private volatile RefreshAhead<K, V> refreshAhead;
+	private volatile OffHeapTier<V> offHeapTier;
+	private final AtomicLong refreshCount;
+
+	/**
+	 * Creates a new cache.
+	 *
+	 * @param capacity maximal number of entries
+	 * @param evictionPolicy eviction policy
+	 * @param segmentCount requested number of segments, it is rounded down to a power of two
+	 *                     and it never exceeds the capacity
+	 * @throws java.lang.NullPointerException if {@code evictionPolicy} is {@code null}
+	 * @throws java.lang.IllegalArgumentException if the capacity or segment count is not positive
+	 */
+	protected BoundedCache(int capacity, EvictionPolicy evictionPolicy, int segmentCount) {
+		if (null == evictionPolicy) {
+			throw new NullPointerException();
+		} else if (capacity <= 0) {
+			throw new IllegalArgumentException("invalid cache capacity");
+		} else if (segmentCount <= 0) {
+			throw new IllegalArgumentException("invalid segment count");
+		}
+		this.capacity = capacity;
+		this.evictionPolicy = evictionPolicy;
+		this.stats = new CacheStatsRecorder();
+		this.refreshCount = new AtomicLong();
+		this.timeProvider = TimeProviders.systemClock();
+		final int effectiveSegmentCount = Integer.highestOneBit(Math.min(Math.min(segmentCount, capacity), MAX_SEGMENT_COUNT));
+		this.segments = newSegmentArray(effectiveSegmentCount);
+		this.segmentMask = effectiveSegmentCount - 1;
+		final int baseCapacity = capacity / effectiveSegmentCount;
+		final int extraCapacity = capacity % effectiveSegmentCount;
+		for (int i = 0; i < effectiveSegmentCount; ++i) {
+			final int segmentCapacity = baseCapacity + ((i < extraCapacity) ? 1 : 0);
+			segments[i] = new Segment<K, V>(this, segmentCapacity);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <K, V> Segment<K, V>[] newSegmentArray(int length) {
+		return (Segment<K, V>[]) new Segment<?, ?>[length];
+	}
+
+	/**
+	 * Creates a new cache with {@link cz.auderis.tools.collection.EvictionPolicy#TINY_LFU} eviction policy.
+	 *
+	 * @param capacity maximal number of entries
+	 * @param <K> type of keys
+	 * @param <V> type of values
+	 * @return new cache
+	 * @throws java.lang.IllegalArgumentException if the capacity is not positive
+	 */
+	public static <K, V> BoundedCache<K, V> newInstance(int capacity) {
+		return new BoundedCache<K, V>(capacity, EvictionPolicy.TINY_LFU, DEFAULT_SEGMENT_COUNT);
+	}
+
+	/**
+	 * Creates a new cache.
+	 *
+	 * @param capacity maximal number of entries
+	 * @param evictionPolicy eviction policy
+	 * @param <K> type of keys
+	 * @param <V> type of values
+	 * @return new cache
+	 * @throws java.lang.NullPointerException if {@code evictionPolicy} is {@code null}
+	 * @throws java.lang.IllegalArgumentException if the capacity is not positive
+	 */
+	public static <K, V> BoundedCache<K, V> newInstance(int capacity, EvictionPolicy evictionPolicy) {
+		return new BoundedCache<K, V>(capacity, evictionPolicy, DEFAULT_SEGMENT_COUNT);
+	}
+
+	/**
+	 * Creates a new cache.
+	 *
+	 * @param capacity maximal number of entries
+	 * @param evictionPolicy eviction policy
+	 * @param segmentCount requested number of independently locked segments
+	 * @param <K> type of keys
+	 * @param <V> type of values
+	 * @return new cache
+	 * @throws java.lang.NullPointerException if {@code evictionPolicy} is {@code null}
+	 * @throws java.lang.IllegalArgumentException if the capacity or segment count is not positive
+	 */
+	public static <K, V> BoundedCache<K, V> newInstance(int capacity, EvictionPolicy evictionPolicy, int segmentCount) {
+		return new BoundedCache<K, V>(capacity, evictionPolicy, segmentCount);
+	}
+
+	/**
+	 * Returns the maximal number of entries.
+	 *
+	 * @return cache capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns the eviction policy.
+	 *
+	 * @return eviction policy
+	 */
+	public EvictionPolicy getEvictionPolicy() {
+		return evictionPolicy;
+	}
+
+	/**
+	 * Returns the source of time used for expiration policies and timing wheel.
+	 *
+	 * @return time provider
+	 */
+	public TimeProvider getTimeProvider() {
+		return timeProvider;
+	}
+
+	/**
+	 * Sets the source of time used for expiration policies and timing wheel.
+	 * This method should be invoked before the cache is used.
+	 *
+	 * @param timeProvider time provider
+	 * @return this cache
+	 * @throws java.lang.NullPointerException if {@code timeProvider} is {@code null}
+	 */
+	public BoundedCache<K, V> withTimeProvider(TimeProvider timeProvider) {
+		if (null == timeProvider) {
+			throw new NullPointerException();
+		}
+		this.timeProvider = timeProvider;
+		return this;
+	}
+
+	/**
+	 * Sets the cache to expire entries after the given time elapses since the value
+	 * was stored. Zero duration disables this policy. The setting applies to
+	 * values stored after this call.
+	 *
+	 * @param duration time to live of entries
+	 * @param unit unit of duration
+	 * @return this cache
+	 * @throws java.lang.NullPointerException if {@code unit} is {@code null}
+	 * @throws java.lang.IllegalArgumentException if the duration is negative
+	 */
+	public BoundedCache<K, V> expireAfterWrite(long duration, TimeUnit unit) {
+		this.expireAfterWriteMillis = toPolicyMillis(duration, unit);
+		return this;
+	}
+
+	/**
+	 * Sets the cache to expire entries after the given time elapses since the value
+	 * was stored or last read. Zero duration disables this policy. The setting applies to
+	 * values stored or read after this call.
+	 *
+	 * @param duration time to idle of entries
+	 * @param unit unit of duration
+	 * @return this cache
+	 * @throws java.lang.NullPointerException if {@code unit} is {@code null}
+	 * @throws java.lang.IllegalArgumentException if the duration is negative
+	 */
+	public BoundedCache<K, V> expireAfterAccess(long duration, TimeUnit unit) {
+		this.expireAfterAccessMillis = toPolicyMillis(duration, unit);
+		return this;
+	}
+
+	/**
+	 * Enables refresh-ahead loading. When an entry is read and the remaining part of its
+	 * lifetime (given by its timeout or by expiration policies) drops to the threshold,
+	 * a reload of the value is submitted to the executor; the current value is still
+	 * returned. At most one reload of an entry runs at a time. When the reload succeeds,
+	 * the value is replaced and the entry lifetime starts anew; when it fails, the current
+	 * value is kept until it expires.
+	 *
+	 * <p>The loader is used by {@link #refresh(Object)} as well.
+	 *
+	 * @param remainingPercent threshold of remaining lifetime in percent, from range 0 to
+	 *                         {@link cz.auderis.tools.time.timeout.Timeout#MAX_PERCENT}
+	 * @param loader loader of refreshed values
+	 * @param executor executor that runs the reloads
+	 * @return this cache
+	 * @throws java.lang.NullPointerException if {@code loader} or {@code executor} is {@code null}
+	 * @throws java.lang.IllegalArgumentException if the threshold is out of range
+	 */
+	public BoundedCache<K, V> refreshAhead(int remainingPercent, CacheLoader<? super K, ? extends V> loader, Executor executor) {
+		if ((null == loader) || (null == executor)) {
+			throw new NullPointerException();
+		} else if ((remainingPercent < 0) || (remainingPercent > Timeout.MAX_PERCENT)) {
+			throw new IllegalArgumentException("invalid refresh threshold");
+		}
+		this.refreshAhead = new RefreshAhead<K, V>(remainingPercent, loader, executor);
+		return this;
+	}
+
+	/**
+	 * Enables the off-heap tier. Values evicted because the capacity was exceeded are
+	 * encoded by the codec and stored into the off-heap storage, together with their
+	 * expiration deadlines; keys and timeouts remain on the heap. When such an entry is
+	 * accessed, its value is decoded and promoted back into the heap; spilled entries
+	 * that time out are removed from the storage. When the storage is full, the least
+	 * recently spilled values of the affected segment are discarded, as long as they
+	 * occupy chunks large enough for the new value. A spilled entry is counted as evicted
+	 * only when it is discarded from the storage. {@code null} values and values longer than {@link OffHeapStorage#getSlabSize()}
+	 * are not spilled.
+	 *
+	 * <p>This method should be invoked before the cache is used.
+	 *
+	 * @param storage off-heap storage
+	 * @param codec codec of values
+	 * @return this cache
+	 * @throws java.lang.NullPointerException if {@code storage} or {@code codec} is {@code null}
+	 */
+	public BoundedCache<K, V> withOffHeapTier(OffHeapStorage storage, ValueCodec<V> codec) {
+		if ((null == storage) || (null == codec)) {
+			throw new NullPointerException();
+		}
+		this.offHeapTier = new OffHeapTier<V>(storage, codec);
+		return this;
+	}
+
+	/**
+	 * Removes all entries whose deadline has passed. The same maintenance is performed
+	 * by write operations on the affected segment; this method is meant to be invoked
+	 * periodically when the cache is mostly read.
+	 */
+	public void cleanUp() {
+		final long now = timeProvider.getTimeInMillis();
+		for (Segment<K, V> segment : segments) {
+			segment.cleanUp(now);
+		}
+	}
+
+	/**
+	 * Stores the value. If there already is an entry for the key, its timeout
+	 * is kept and restarted.
+	 *
+	 * @param key the key
+	 * @param value the value, may be {@code null}
+	 * @throws java.lang.NullPointerException if {@code key} is {@code null}
+	 */
+	public void put(K key, V value) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		final int hash = hash(key);
+		segmentFor(hash).put(key, hash, value, null, false);
+	}
+
+	/**
+	 * Stores the value together with the timeout, which is (re)started.
+	 *
+	 * @param key the key
+	 * @param value the value, may be {@code null}
+	 * @param t timeout of the entry, {@code null} means the entry does not expire
+	 * @throws java.lang.NullPointerException if {@code key} is {@code null}
+	 */
+	public void putWithTimeout(K key, V value, Timeout t) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		final int hash = hash(key);
+		segmentFor(hash).put(key, hash, value, t, true);
+	}
+
+	/**
+	 * Returns the value for the key. If there is no available entry, {@code null} is returned
+	 * and an expired entry is removed.
+	 *
+	 * @param key the key
+	 * @return the value or {@code null}
+	 * @throws java.lang.NullPointerException if {@code key} is {@code null}
+	 */
+	public V get(K key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		stats.recordAccess(key);
+		final int hash = hash(key);
+		return segmentFor(hash).get(key, hash);
+	}
+
+	/**
+	 * Returns the value for the key. If there is no available entry, the value is computed
+	 * by the loader and stored into the cache. When several threads request the same missing
+	 * key at the same time, the loader is invoked only once and the other threads wait for
+	 * its result.
+	 *
+	 * <p>Runtime exceptions and errors thrown by the loader are propagated unchanged,
+	 * checked exceptions are wrapped in {@link java.util.concurrent.ExecutionException}.
+	 * When the load fails, nothing is stored.
+	 *
+	 * @param key the key
+	 * @param loader the loader of missing values
+	 * @return the value
+	 * @throws java.lang.NullPointerException if {@code key} or {@code loader} is {@code null}
+	 * @throws java.util.concurrent.ExecutionException if the loader has thrown a checked exception
+	 */
+	public V getOrCompute(K key, CacheLoader<? super K, ? extends V> loader) throws ExecutionException {
+		if ((null == key) || (null == loader)) {
+			throw new NullPointerException();
+		}
+		stats.recordAccess(key);
+		final int hash = hash(key);
+		return segmentFor(hash).getOrCompute(key, hash, loader);
+	}
+
+	/**
+	 * Checks whether there is an entry for the key, regardless of its availability.
+	 *
+	 * @param key the key
+	 * @return {@code true} if the entry exists
+	 * @throws java.lang.NullPointerException if {@code key} is {@code null}
+	 */
+	public boolean hasKey(K key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		final int hash = hash(key);
+		return segmentFor(hash).hasKey(key);
+	}
+
+	/**
+	 * Removes the entry for the key. A pending load of the key is abandoned,
+	 * i.e. its result will not be stored.
+	 *
+	 * @param key the key
+	 * @throws java.lang.NullPointerException if {@code key} is {@code null}
+	 */
+	public void remove(K key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		final int hash = hash(key);
+		segmentFor(hash).remove(key);
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	public void clear() {
+		for (Segment<K, V> segment : segments) {
+			segment.clear();
+		}
+	}
+
+	/**
+	 * Checks whether there is an entry for the key that has not expired.
+	 *
+	 * @param key the key
+	 * @return {@code true} if the value is available
+	 * @throws java.lang.NullPointerException if {@code key} is {@code null}
+	 */
+	public boolean isAvailable(K key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		final int hash = hash(key);
+		return segmentFor(hash).isAvailable(key);
+	}
+
+	/**
+	 * Checks whether there is an entry for the key with expired timeout.
+	 *
+	 * @param key the key
+	 * @return {@code true} if the entry exists and it has expired
+	 * @throws java.lang.NullPointerException if {@code key} is {@code null}
+	 */
+	public boolean isExpired(K key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		final int hash = hash(key);
+		return segmentFor(hash).isExpired(key);
+	}
+
+	/**
+	 * Refreshes the entry for the key. If refresh-ahead loading is enabled, the value
+	 * is reloaded asynchronously (unless a reload is already running) and the entry
+	 * lifetime starts anew when the reload succeeds. Otherwise the timeout of the entry
+	 * is restarted and the deadlines given by expiration policies are renewed
+	 * as if the value was stored again.
+	 *
+	 * @param key the key
+	 * @throws java.lang.NullPointerException if {@code key} is {@code null}
+	 */
+	public void refresh(K key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		final int hash = hash(key);
+		segmentFor(hash).refresh(key);
+	}
+
+	/**
+	 * Returns the number of entries held on the heap, including the expired ones that
+	 * were not removed yet.
+	 *
+	 * @return number of entries
+	 */
+	public int size() {
+		int result = 0;
+		for (Segment<K, V> segment : segments) {
+			result += segment.size();
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of entries whose values are held in the off-heap tier.
+	 *
+	 * @return number of off-heap entries
+	 */
+	public int offHeapSize() {
+		int result = 0;
+		for (Segment<K, V> segment : segments) {
+			result += segment.offHeapSize();
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of lookups that found an available entry.
+	 *
+	 * @return hit count
+	 */
+	public long getHitCount() {
+		return stats.getHitCount();
+	}
+
+	/**
+	 * Returns the number of lookups that did not find an available entry.
+	 *
+	 * @return miss count
+	 */
+	public long getMissCount() {
+		return stats.getMissCount();
+	}
+
+	/**
+	 * Returns the number of entries that were evicted because the capacity was exceeded.
+	 *
+	 * @return eviction count
+	 */
+	public long getEvictionCount() {
+		return stats.getRemovalCount(RemovalCause.SIZE);
+	}
+
+	/**
+	 * Returns the number of values that were successfully reloaded by refresh-ahead loading.
+	 *
+	 * @return refresh count
+	 */
+	public long getRefreshCount() {
+		return refreshCount.get();
+	}
+
+	/**
+	 * Returns the number of entries that were removed because they expired.
+	 *
+	 * @return expiration count
+	 */
+	public long getExpirationCount() {
+		return stats.getRemovalCount(RemovalCause.EXPIRED);
+	}
+
+	/**
+	 * Returns the recorder of cache statistics, which may be used to enable
+	 * hot key tracking or to register a JMX bean.
+	 *
+	 * @return statistics recorder
+	 */
+	public CacheStatsRecorder getStatsRecorder() {
+		return stats;
+	}
+
+	/**
+	 * Returns a snapshot of cache statistics. Entries removed because the capacity
+	 * was exceeded are reported with cause {@link cz.auderis.tools.collection.RemovalCause#SIZE},
+	 * even if their values were moved into the off-heap tier.
+	 *
+	 * @return statistics snapshot
+	 */
+	public CacheStats getStats() {
+		return stats.snapshot();
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder str = new StringBuilder("BoundedCache(");
+		str.append(evictionPolicy);
+		str.append(", size=").append(size());
+		str.append(", capacity=").append(capacity);
+		str.append(')');
+		return str.toString();
+	}
+
+	private Segment<K, V> segmentFor(int hash) {
+		return segments[(hash >>> SEGMENT_HASH_SHIFT) & segmentMask];
+	}
+
+	private static long toPolicyMillis(long duration, TimeUnit unit) {
+		if (null == unit) {
+			throw new NullPointerException();
+		} else if (duration < 0L) {
+			throw new IllegalArgumentException("invalid expiration duration");
+		}
+		final long millis = unit.toMillis(duration);
+		return ((0L == millis) && (0L != duration)) ? 1L : millis;
+	}
+
+	static long deadline(long time, long duration) {
+		final long result = time + duration;
+		return (result < time) ? Long.MAX_VALUE : result;
+	}
+
+	private static int hash(Object key) {
+		// Spread the bits, as segments are selected by higher bits
+		final int h = key.hashCode() * 0x9e3779b9;
+		return h ^ (h >>> 16);
+	}
+
+	static final class Node<K, V> {
+		static final byte WINDOW = 0;
+		static final byte PROBATION = 1;
+		static final byte PROTECTED = 2;
+
+		final K key;
+		final int hash;
+		V value;
+		Timeout timeout;
+		byte queue;
+		Node<K, V> prev;
+		Node<K, V> next;
+		long writeTime;
+		long policyDeadline;
+		long wheelTime;
+		boolean refreshing;
+		long address;
+		int length;
+		Node<K, V> timerPrev;
+		Node<K, V> timerNext;
+
+		Node(K key, int hash, V value, Timeout timeout) {
+			this.key = key;
+			this.hash = hash;
+			this.value = value;
+			this.timeout = timeout;
+			this.policyDeadline = Long.MAX_VALUE;
+		}
+
+		boolean isExpired(long now) {
+			return (now >= policyDeadline) || ((null != timeout) && timeout.isExpired());
+		}
+	}
+
+	/**
+	 * Doubly-linked list of nodes, the links are stored directly in the nodes.
+	 */
+	static final class NodeDeque<K, V> {
+		Node<K, V> first;
+		Node<K, V> last;
+		int size;
+
+		void addLast(Node<K, V> node) {
+			node.prev = last;
+			node.next = null;
+			if (null == last) {
+				first = node;
+			} else {
+				last.next = node;
+			}
+			last = node;
+			++size;
+		}
+
+		void remove(Node<K, V> node) {
+			final Node<K, V> prev = node.prev;
+			final Node<K, V> next = node.next;
+			if (null == prev) {
+				first = next;
+			} else {
+				prev.next = next;
+			}
+			if (null == next) {
+				last = prev;
+			} else {
+				next.prev = prev;
+			}
+			node.prev = null;
+			node.next = null;
+			--size;
+		}
+
+		void moveToLast(Node<K, V> node) {
+			if (node != last) {
+				remove(node);
+				addLast(node);
+			}
+		}
+
+		void clear() {
+			first = null;
+			last = null;
+			size = 0;
+		}
+	}
+
+	static final class Segment<K, V> extends ReentrantLock implements TimerWheel.ExpirationHandler<K, V> {
+		private static final long serialVersionUID = 1L;
+		private static final int LFU_SAMPLE_SIZE = 8;
+		private static final int WINDOW_PERCENT = 1;
+		private static final int PROTECTED_PERCENT = 80;
+
+		private final BoundedCache<K, V> cache;
+		private final int capacity;
+		private final int windowCapacity;
+		private final int protectedCapacity;
+		private final EvictionPolicy policy;
+		private final Map<K, Node<K, V>> map;
+		private final NodeDeque<K, V> window;
+		private final NodeDeque<K, V> probation;
+		private final NodeDeque<K, V> protectedNodes;
+		private final FrequencySketch sketch;
+		private Map<K, FutureTask<V>> pendingLoads;
+		private TimerWheel<K, V> timerWheel;
+		private Map<K, Node<K, V>> spilled;
+		private NodeDeque<K, V> spilledNodes;
+		private long currentTime;
+
+		Segment(BoundedCache<K, V> cache, int capacity) {
+			this.cache = cache;
+			this.capacity = capacity;
+			this.policy = cache.evictionPolicy;
+			this.map = new HashMap<K, Node<K, V>>();
+			this.window = new NodeDeque<K, V>();
+			this.probation = new NodeDeque<K, V>();
+			this.protectedNodes = new NodeDeque<K, V>();
+			if (EvictionPolicy.TINY_LFU == policy) {
+				this.windowCapacity = Math.max(1, capacity * WINDOW_PERCENT / 100);
+				this.protectedCapacity = (capacity - windowCapacity) * PROTECTED_PERCENT / 100;
+			} else {
+				this.windowCapacity = 0;
+				this.protectedCapacity = 0;
+			}
+			this.sketch = (EvictionPolicy.LRU != policy) ? new FrequencySketch(capacity) : null;
+		}
+
+		V get(K key, int hash) {
+			final RefreshAhead<K, V> refresh = cache.refreshAhead;
+			final V result;
+			boolean refreshNeeded = false;
+			lock();
+			try {
+				final Node<K, V> node = lookupNode(key);
+				if (null == node) {
+					cache.stats.recordMiss();
+					return null;
+				}
+				final long now = readTime();
+				if (node.isExpired(now)) {
+					expireNode(node);
+					cache.stats.recordMiss();
+					return null;
+				}
+				recordAccess(node);
+				recordRead(node, now);
+				cache.stats.recordHit();
+				result = node.value;
+				if ((null != refresh) && refresh.isNeeded(node, now)) {
+					node.refreshing = true;
+					refreshNeeded = true;
+				}
+			} finally {
+				unlock();
+			}
+			if (refreshNeeded) {
+				submitRefresh(key, refresh);
+			}
+			return result;
+		}
+
+		V getOrCompute(K key, int hash, CacheLoader<? super K, ? extends V> loader) throws ExecutionException {
+			final RefreshAhead<K, V> refresh = cache.refreshAhead;
+			final FutureTask<V> loadTask;
+			final boolean loadOwner;
+			V hitValue = null;
+			boolean hit = false;
+			boolean refreshNeeded = false;
+			lock();
+			try {
+				final Node<K, V> node = lookupNode(key);
+				if (null != node) {
+					final long now = readTime();
+					if (!node.isExpired(now)) {
+						recordAccess(node);
+						recordRead(node, now);
+						cache.stats.recordHit();
+						hitValue = node.value;
+						hit = true;
+						if ((null != refresh) && refresh.isNeeded(node, now)) {
+							node.refreshing = true;
+							refreshNeeded = true;
+						}
+					} else {
+						expireNode(node);
+					}
+				}
+				if (hit) {
+					loadTask = null;
+					loadOwner = false;
+				} else {
+					cache.stats.recordMiss();
+					if (null == pendingLoads) {
+						pendingLoads = new HashMap<K, FutureTask<V>>(4);
+					}
+					final FutureTask<V> pendingTask = pendingLoads.get(key);
+					if (null != pendingTask) {
+						loadTask = pendingTask;
+						loadOwner = false;
+					} else {
+						loadTask = new FutureTask<V>(new LoadCall<K, V>(key, loader));
+						pendingLoads.put(key, loadTask);
+						loadOwner = true;
+					}
+				}
+			} finally {
+				unlock();
+			}
+			if (hit) {
+				if (refreshNeeded) {
+					submitRefresh(key, refresh);
+				}
+				return hitValue;
+			}
+			long loadTime = 0L;
+			if (loadOwner) {
+				final long loadStart = System.nanoTime();
+				loadTask.run();
+				loadTime = System.nanoTime() - loadStart;
+			}
+			try {
+				final V value = waitForLoad(loadTask);
+				if (loadOwner) {
+					cache.stats.recordLoadSuccess(loadTime);
+					completeLoad(key, hash, loadTask, value, true);
+				}
+				return value;
+			} catch (ExecutionException e) {
+				if (loadOwner) {
+					cache.stats.recordLoadFailure(loadTime);
+					completeLoad(key, hash, loadTask, null, false);
+				}
+				final Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				} else if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw e;
+			}
+		}
+
+		void put(K key, int hash, V value, Timeout timeout, boolean replaceTimeout) {
+			lock();
+			try {
+				final long now = readTime();
+				if (null != pendingLoads) {
+					// Explicitly stored value supersedes a pending load
+					pendingLoads.remove(key);
+				}
+				discardSpilled(key);
+				Node<K, V> node = map.get(key);
+				if (null != node) {
+					// Explicitly stored value supersedes a running refresh
+					node.refreshing = false;
+					node.value = value;
+					if (replaceTimeout) {
+						node.timeout = timeout;
+					}
+					recordAccess(node);
+				} else {
+					node = new Node<K, V>(key, hash, value, timeout);
+					map.put(key, node);
+					recordInsertion(node);
+				}
+				if (null != node.timeout) {
+					node.timeout.restart();
+				}
+				recordWrite(node, now);
+				// Expired entries are removed first, so that they are not retained at the expense of live entries
+				expireEntries(now);
+				evictIfNeeded();
+			} finally {
+				unlock();
+			}
+		}
+
+		boolean hasKey(K key) {
+			lock();
+			try {
+				return map.containsKey(key) || ((null != spilled) && spilled.containsKey(key));
+			} finally {
+				unlock();
+			}
+		}
+
+		void remove(K key) {
+			lock();
+			try {
+				if (null != pendingLoads) {
+					pendingLoads.remove(key);
+				}
+				if (discardSpilled(key)) {
+					cache.stats.recordRemoval(RemovalCause.EXPLICIT);
+				}
+				final Node<K, V> node = map.get(key);
+				if (null != node) {
+					removeNode(node);
+					cache.stats.recordRemoval(RemovalCause.EXPLICIT);
+				}
+			} finally {
+				unlock();
+			}
+		}
+
+		void clear() {
+			lock();
+			try {
+				cache.stats.recordRemovals(RemovalCause.EXPLICIT, map.size());
+				map.clear();
+				window.clear();
+				probation.clear();
+				protectedNodes.clear();
+				if (null != pendingLoads) {
+					pendingLoads.clear();
+				}
+				if (null != sketch) {
+					sketch.clear();
+				}
+				if (null != timerWheel) {
+					timerWheel.clear();
+				}
+				if (null != spilled) {
+					cache.stats.recordRemovals(RemovalCause.EXPLICIT, spilled.size());
+					while (null != spilledNodes.first) {
+						discardSpilledNode(spilledNodes.first);
+					}
+				}
+			} finally {
+				unlock();
+			}
+		}
+
+		boolean isAvailable(K key) {
+			lock();
+			try {
+				final Node<K, V> node = findNode(key);
+				return (null != node) && !node.isExpired(readTime());
+			} finally {
+				unlock();
+			}
+		}
+
+		boolean isExpired(K key) {
+			lock();
+			try {
+				final Node<K, V> node = findNode(key);
+				return (null != node) && node.isExpired(readTime());
+			} finally {
+				unlock();
+			}
+		}
+
+		void refresh(K key) {
+			final RefreshAhead<K, V> refresh = cache.refreshAhead;
+			boolean refreshNeeded = false;
+			lock();
+			try {
+				final Node<K, V> node = lookupNode(key);
+				if (null == node) {
+					return;
+				} else if (null != refresh) {
+					refreshNeeded = !node.refreshing;
+					node.refreshing = true;
+				} else {
+					if (null != node.timeout) {
+						node.timeout.restart();
+					}
+					recordWrite(node, readTime());
+				}
+			} finally {
+				unlock();
+			}
+			if (refreshNeeded) {
+				submitRefresh(key, refresh);
+			}
+		}
+
+		void completeRefresh(K key, V value, boolean successful) {
+			lock();
+			try {
+				final Node<K, V> node = map.get(key);
+				if ((null == node) || !node.refreshing) {
+					// The entry was removed or replaced in the meantime
+					return;
+				}
+				node.refreshing = false;
+				if (successful) {
+					final long now = readTime();
+					node.value = value;
+					if (null != node.timeout) {
+						node.timeout.restart();
+					}
+					recordWrite(node, now);
+					cache.refreshCount.incrementAndGet();
+					expireEntries(now);
+				}
+			} finally {
+				unlock();
+			}
+		}
+
+		void cleanUp(long now) {
+			lock();
+			try {
+				currentTime = now;
+				expireEntries(now);
+			} finally {
+				unlock();
+			}
+		}
+
+		int size() {
+			lock();
+			try {
+				return map.size();
+			} finally {
+				unlock();
+			}
+		}
+
+		int offHeapSize() {
+			lock();
+			try {
+				return (null != spilled) ? spilled.size() : 0;
+			} finally {
+				unlock();
+			}
+		}
+
+		@Override
+		public boolean expire(Node<K, V> node) {
+			if (node.isExpired(currentTime)) {
+				if ((null != spilled) && (spilled.get(node.key) == node)) {
+					discardSpilledNode(node);
+					cache.stats.recordRemoval(RemovalCause.EXPIRED);
+				} else {
+					expireNode(node);
+				}
+				return true;
+			}
+			// The timeout was restarted or it uses a different clock
+			node.wheelTime = findDeadline(node, currentTime);
+			return false;
+		}
+
+		private void submitRefresh(K key, RefreshAhead<K, V> refresh) {
+			try {
+				refresh.executor.execute(new RefreshTask<K, V>(this, key, refresh.loader));
+			} catch (RejectedExecutionException e) {
+				completeRefresh(key, null, false);
+			}
+		}
+
+		private void completeLoad(K key, int hash, FutureTask<V> loadTask, V value, boolean successful) {
+			lock();
+			try {
+				if ((null == pendingLoads) || (pendingLoads.get(key) != loadTask)) {
+					// The load was abandoned by put(), remove() or clear()
+					return;
+				}
+				pendingLoads.remove(key);
+				if (successful) {
+					final long now = readTime();
+					final Node<K, V> node = new Node<K, V>(key, hash, value, null);
+					final Node<K, V> oldNode = map.get(key);
+					if (null != oldNode) {
+						removeNode(oldNode);
+					}
+					discardSpilled(key);
+					map.put(key, node);
+					recordInsertion(node);
+					recordWrite(node, now);
+					expireEntries(now);
+					evictIfNeeded();
+				}
+			} finally {
+				unlock();
+			}
+		}
+
+		private long readTime() {
+			currentTime = cache.timeProvider.getTimeInMillis();
+			return currentTime;
+		}
+
+		private void recordWrite(Node<K, V> node, long now) {
+			node.writeTime = now;
+			final long writeLimit = cache.expireAfterWriteMillis;
+			final long accessLimit = cache.expireAfterAccessMillis;
+			long deadline = Long.MAX_VALUE;
+			if (writeLimit > 0L) {
+				deadline = deadline(now, writeLimit);
+			}
+			if (accessLimit > 0L) {
+				deadline = Math.min(deadline, deadline(now, accessLimit));
+			}
+			node.policyDeadline = deadline;
+			scheduleExpiration(node, now);
+		}
+
+		private void recordRead(Node<K, V> node, long now) {
+			final long accessLimit = cache.expireAfterAccessMillis;
+			if (accessLimit <= 0L) {
+				return;
+			}
+			final long writeLimit = cache.expireAfterWriteMillis;
+			long deadline = deadline(now, accessLimit);
+			if (writeLimit > 0L) {
+				deadline = Math.min(deadline, deadline(node.writeTime, writeLimit));
+			}
+			node.policyDeadline = deadline;
+			scheduleExpiration(node, now);
+		}
+
+		private void scheduleExpiration(Node<K, V> node, long now) {
+			final long deadline = findDeadline(node, now);
+			if (Long.MAX_VALUE == deadline) {
+				if (null != timerWheel) {
+					timerWheel.deschedule(node);
+				}
+				return;
+			} else if (null == timerWheel) {
+				timerWheel = new TimerWheel<K, V>(now);
+			}
+			node.wheelTime = deadline;
+			timerWheel.schedule(node);
+		}
+
+		private void expireEntries(long now) {
+			if (null != timerWheel) {
+				timerWheel.advance(now, this);
+			}
+		}
+
+		private static <K, V> long findDeadline(Node<K, V> node, long now) {
+			long deadline = node.policyDeadline;
+			final Timeout timeout = node.timeout;
+			if (null != timeout) {
+				final Long remaining = timeout.getRemainingMillis();
+				if (null != remaining) {
+					deadline = Math.min(deadline, deadline(now, remaining));
+				}
+			}
+			return deadline;
+		}
+
+		private void recordInsertion(Node<K, V> node) {
+			if (null != sketch) {
+				sketch.increment(node.hash);
+			}
+			if (EvictionPolicy.TINY_LFU == policy) {
+				node.queue = Node.WINDOW;
+				window.addLast(node);
+			} else {
+				node.queue = Node.PROBATION;
+				probation.addLast(node);
+			}
+		}
+
+		private void recordAccess(Node<K, V> node) {
+			if (null != sketch) {
+				sketch.increment(node.hash);
+			}
+			switch (node.queue) {
+				case Node.WINDOW:
+					window.moveToLast(node);
+					break;
+				case Node.PROBATION:
+					if (EvictionPolicy.TINY_LFU == policy) {
+						// Repeated access promotes the entry into the protected area
+						probation.remove(node);
+						node.queue = Node.PROTECTED;
+						protectedNodes.addLast(node);
+						if (protectedNodes.size > protectedCapacity) {
+							final Node<K, V> demoted = protectedNodes.first;
+							protectedNodes.remove(demoted);
+							demoted.queue = Node.PROBATION;
+							probation.addLast(demoted);
+						}
+					} else {
+						probation.moveToLast(node);
+					}
+					break;
+				case Node.PROTECTED:
+					protectedNodes.moveToLast(node);
+					break;
+				default:
+					throw new IllegalStateException();
+			}
+		}
+
+		private void evictIfNeeded() {
+			evictIfNeeded(null);
+		}
+
+		/**
+		 * Evicts entries exceeding the capacity; the retained node is never selected as a victim.
+		 */
+		private void evictIfNeeded(Node<K, V> retained) {
+			switch (policy) {
+				case LRU:
+					while (map.size() > capacity) {
+						evictNode(skipRetained(probation.first, retained));
+					}
+					break;
+				case LFU:
+					while (map.size() > capacity) {
+						evictNode(selectLeastFrequent(retained));
+					}
+					break;
+				case TINY_LFU:
+					evictTinyLfu(retained);
+					break;
+				default:
+					throw new IllegalStateException();
+			}
+		}
+
+		private Node<K, V> selectLeastFrequent(Node<K, V> retained) {
+			Node<K, V> victim = skipRetained(probation.first, retained);
+			int victimFrequency = sketch.frequency(victim.hash);
+			Node<K, V> node = skipRetained(victim.next, retained);
+			for (int i = 1; (i < LFU_SAMPLE_SIZE) && (null != node) && (victimFrequency > 0); ++i) {
+				final int frequency = sketch.frequency(node.hash);
+				if (frequency < victimFrequency) {
+					victim = node;
+					victimFrequency = frequency;
+				}
+				node = skipRetained(node.next, retained);
+			}
+			return victim;
+		}
+
+		private static <K, V> Node<K, V> skipRetained(Node<K, V> node, Node<K, V> retained) {
+			return ((null != node) && (node == retained)) ? node.next : node;
+		}
+
+		private void evictTinyLfu(Node<K, V> retained) {
+			Node<K, V> candidate = null;
+			while (window.size > windowCapacity) {
+				candidate = window.first;
+				window.remove(candidate);
+				candidate.queue = Node.PROBATION;
+				probation.addLast(candidate);
+			}
+			while (map.size() > capacity) {
+				Node<K, V> victim = skipRetained(probation.first, retained);
+				if (null == victim) {
+					victim = skipRetained(protectedNodes.first, retained);
+				}
+				if ((null == candidate) || (victim == candidate)) {
+					evictNode(victim);
+					candidate = null;
+				} else if ((candidate == retained) || (sketch.frequency(candidate.hash) > sketch.frequency(victim.hash))) {
+					evictNode(victim);
+				} else {
+					evictNode(candidate);
+					candidate = null;
+				}
+			}
+		}
+
+		private void evictNode(Node<K, V> node) {
+			removeNode(node);
+			final OffHeapTier<V> tier = cache.offHeapTier;
+			if ((null == tier) || (null == node.value) || !spill(node, tier)) {
+				// A spilled entry remains in the cache, it is counted when it is discarded
+				cache.stats.recordRemoval(RemovalCause.SIZE);
+			}
+		}
+
+		/**
+		 * Returns the node for the key, promoting it from the off-heap tier if necessary.
+		 */
+		private Node<K, V> lookupNode(K key) {
+			final Node<K, V> node = map.get(key);
+			if ((null != node) || (null == spilled)) {
+				return node;
+			}
+			final Node<K, V> spilledNode = spilled.get(key);
+			if (null == spilledNode) {
+				return null;
+			}
+			final long now = readTime();
+			if (spilledNode.isExpired(now)) {
+				// Expired values are not promoted back into the heap
+				discardSpilledNode(spilledNode);
+				cache.stats.recordRemoval(RemovalCause.EXPIRED);
+				return null;
+			}
+			final OffHeapTier<V> tier = cache.offHeapTier;
+			final V value;
+			try {
+				value = tier.codec.decode(tier.storage.read(spilledNode.address, spilledNode.length));
+			} finally {
+				discardSpilledNode(spilledNode);
+			}
+			spilledNode.value = value;
+			map.put(key, spilledNode);
+			recordInsertion(spilledNode);
+			scheduleExpiration(spilledNode, now);
+			// The promoted node is being accessed, so it must not be evicted again
+			evictIfNeeded(spilledNode);
+			return spilledNode;
+		}
+
+		/**
+		 * Returns the node for the key without promoting it from the off-heap tier.
+		 */
+		private Node<K, V> findNode(K key) {
+			final Node<K, V> node = map.get(key);
+			if ((null != node) || (null == spilled)) {
+				return node;
+			}
+			return spilled.get(key);
+		}
+
+		/**
+		 * Stores the value of an evicted node into the off-heap tier.
+		 *
+		 * @return {@code true} if the node was spilled
+		 */
+		private boolean spill(Node<K, V> node, OffHeapTier<V> tier) {
+			final ByteBuffer data = tier.codec.encode(node.value);
+			final int length = data.remaining();
+			if (length > tier.storage.getSlabSize()) {
+				return false;
+			}
+			if (null == spilled) {
+				spilled = new HashMap<K, Node<K, V>>();
+				spilledNodes = new NodeDeque<K, V>();
+			}
+			long address = tier.storage.allocate(length);
+			if (OffHeapStorage.NO_ADDRESS == address) {
+				// Only values whose chunks are large enough are discarded to make room
+				final int chunkLength = OffHeapStorage.chunkLength(length);
+				Node<K, V> candidate = spilledNodes.first;
+				while ((OffHeapStorage.NO_ADDRESS == address) && (null != candidate)) {
+					final Node<K, V> next = candidate.next;
+					if (OffHeapStorage.chunkLength(candidate.length) >= chunkLength) {
+						discardSpilledNode(candidate);
+						cache.stats.recordRemoval(RemovalCause.SIZE);
+						address = tier.storage.allocate(length);
+					}
+					candidate = next;
+				}
+				if (OffHeapStorage.NO_ADDRESS == address) {
+					return false;
+				}
+			}
+			tier.storage.write(address, data);
+			node.address = address;
+			node.length = length;
+			node.value = null;
+			node.refreshing = false;
+			spilled.put(node.key, node);
+			spilledNodes.addLast(node);
+			// Spilled values keep their timeouts
+			scheduleExpiration(node, currentTime);
+			return true;
+		}
+
+		private boolean discardSpilled(K key) {
+			if (null != spilled) {
+				final Node<K, V> spilledNode = spilled.get(key);
+				if (null != spilledNode) {
+					discardSpilledNode(spilledNode);
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private void discardSpilledNode(Node<K, V> node) {
+			spilled.remove(node.key);
+			spilledNodes.remove(node);
+			if (null != timerWheel) {
+				timerWheel.deschedule(node);
+			}
+			cache.offHeapTier.storage.free(node.address, node.length);
+		}
+
+		private void expireNode(Node<K, V> node) {
+			removeNode(node);
+			cache.stats.recordRemoval(RemovalCause.EXPIRED);
+		}
+
+		private void removeNode(Node<K, V> node) {
+			map.remove(node.key);
+			dequeOf(node).remove(node);
+			if (null != timerWheel) {
+				timerWheel.deschedule(node);
+			}
+		}
+
+		private NodeDeque<K, V> dequeOf(Node<K, V> node) {
+			switch (node.queue) {
+				case Node.WINDOW:
+					return window;
+				case Node.PROBATION:
+					return probation;
+				case Node.PROTECTED:
+					return protectedNodes;
+				default:
+					throw new IllegalStateException();
+			}
+		}
+
+		private static <V> V waitForLoad(FutureTask<V> loadTask) throws ExecutionException {
+			boolean interrupted = false;
+			try {
+				while (true) {
+					try {
+						return loadTask.get();
+					} catch (InterruptedException e) {
+						interrupted = true;
+					}
+				}
+			} finally {
+				if (interrupted) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+
+	static final class RefreshAhead<K, V> {
+		final int remainingPercent;
+		final CacheLoader<? super K, ? extends V> loader;
+		final Executor executor;
+
+		RefreshAhead(int remainingPercent, CacheLoader<? super K, ? extends V> loader, Executor executor) {
+			this.remainingPercent = remainingPercent;
+			this.loader = loader;
+			this.executor = executor;
+		}
+
+		boolean isNeeded(Node<K, V> node, long now) {
+			if (node.refreshing) {
+				return false;
+			}
+			int remaining = Timeout.MAX_PERCENT;
+			final Timeout timeout = node.timeout;
+			if ((null != timeout) && timeout.isRunning()) {
+				remaining = timeout.getRemainingPercent();
+			}
+			final long deadline = node.policyDeadline;
+			final long lifetime = deadline - node.writeTime;
+			if ((Long.MAX_VALUE != deadline) && (lifetime > 0L)) {
+				final long remainingTime = Math.max(0L, deadline - now);
+				final int policyRemaining = (int) (Timeout.MAX_PERCENT * (double) remainingTime / lifetime);
+				remaining = Math.min(remaining, policyRemaining);
+			}
+			return remaining <= remainingPercent;
+		}
+	}
+
+	static final class OffHeapTier<V> {
+		final OffHeapStorage storage;
+		final ValueCodec<V> codec;
+
+		OffHeapTier(OffHeapStorage storage, ValueCodec<V> codec) {
+			this.storage = storage;
+			this.codec = codec;
+		}
+	}
+
+	static final class RefreshTask<K, V> implements Runnable {
+		private final Segment<K, V> segment;
+		private final K key;
+		private final CacheLoader<? super K, ? extends V> loader;
+
+		RefreshTask(Segment<K, V> segment, K key, CacheLoader<? super K, ? extends V> loader) {
+			this.segment = segment;
+			this.key = key;
+			this.loader = loader;
+		}
+
+		@Override
+		public void run() {
+			final CacheStatsRecorder stats = segment.cache.stats;
+			final long loadStart = System.nanoTime();
+			V value = null;
+			boolean successful = false;
+			try {
+				value = loader.load(key);
+				successful = true;
+				stats.recordLoadSuccess(System.nanoTime() - loadStart);
+			} catch (Exception e) {
+				// The current value is kept until it expires
+				stats.recordLoadFailure(System.nanoTime() - loadStart);
+			} finally {
+				segment.completeRefresh(key, value, successful);
+			}
+		}
+	}
+
+	static final class LoadCall<K, V> implements Callable<V> {
+		private final K key;
+		private final CacheLoader<? super K, ? extends V> loader;
+
+		LoadCall(K key, CacheLoader<? super K, ? extends V> loader) {
+			this.key = key;
+			this.loader = loader;
+		}
+
+		@Override
+		public V call() throws Exception {
+			return loader.load(key);
+		}
+	}
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.collection;
+
+/**
+ * Computes values for cache keys that are not present in the cache.
+ *
+ * @param <K> type of keys
+ * @param <V> type of values
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public interface CacheLoader<K, V> {
+
+	/**
+	 * Computes the value for the given key.
+	 *
+	 * @param key the key, never {@code null}
+	 * @return the value, may be {@code null}
+	 * @throws Exception if the value cannot be computed
+	 */
+	V load(K key) throws Exception;
+
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.collection;
+
+import java.util.List;
+
+/**
+ * Immutable snapshot of cache statistics taken by {@link cz.auderis.tools.collection.CacheStatsRecorder#snapshot()}.
+ *
+ * <p>Load times are summarized by a histogram with logarithmic buckets: bucket {@code i}
+ * (for {@code i > 0}) counts loads that took from 2<sup>i-1</sup> to 2<sup>i</sup>-1 nanoseconds,
+ * bucket 0 counts loads that took no measurable time.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public final class CacheStats {
+
+	private static final RemovalCause[] CAUSES = RemovalCause.values();
+
+	private final long hitCount;
+	private final long missCount;
+	private final long loadSuccessCount;
+	private final long loadFailureCount;
+	private final long totalLoadTime;
+	private final long[] removalCounts;
+	private final long[] loadTimeHistogram;
+	private final List<HotKeySketch.HotKey> hotKeys;
+
+	CacheStats(long hitCount, long missCount, long loadSuccessCount, long loadFailureCount, long totalLoadTime,
+	           long[] removalCounts, long[] loadTimeHistogram, List<HotKeySketch.HotKey> hotKeys) {
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.loadSuccessCount = loadSuccessCount;
+		this.loadFailureCount = loadFailureCount;
+		this.totalLoadTime = totalLoadTime;
+		this.removalCounts = removalCounts;
+		this.loadTimeHistogram = loadTimeHistogram;
+		this.hotKeys = hotKeys;
+	}
+
+	/**
+	 * Returns the number of lookups that found an available entry.
+	 *
+	 * @return hit count
+	 */
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * Returns the number of lookups that did not find an available entry.
+	 *
+	 * @return miss count
+	 */
+	public long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * Returns the total number of lookups.
+	 *
+	 * @return request count
+	 */
+	public long getRequestCount() {
+		return hitCount + missCount;
+	}
+
+	/**
+	 * Returns the ratio of lookups that found an available entry. If there were
+	 * no lookups, the result is 1.
+	 *
+	 * @return hit rate from range [0, 1]
+	 */
+	public double getHitRate() {
+		final long requestCount = getRequestCount();
+		return (0L == requestCount) ? 1.0 : (double) hitCount / requestCount;
+	}
+
+	/**
+	 * Returns the ratio of lookups that did not find an available entry. If there were
+	 * no lookups, the result is 0.
+	 *
+	 * @return miss rate from range [0, 1]
+	 */
+	public double getMissRate() {
+		final long requestCount = getRequestCount();
+		return (0L == requestCount) ? 0.0 : (double) missCount / requestCount;
+	}
+
+	/**
+	 * Returns the number of successful loads of missing values.
+	 *
+	 * @return load success count
+	 */
+	public long getLoadSuccessCount() {
+		return loadSuccessCount;
+	}
+
+	/**
+	 * Returns the number of loads that have thrown an exception.
+	 *
+	 * @return load failure count
+	 */
+	public long getLoadFailureCount() {
+		return loadFailureCount;
+	}
+
+	/**
+	 * Returns the total number of loads.
+	 *
+	 * @return load count
+	 */
+	public long getLoadCount() {
+		return loadSuccessCount + loadFailureCount;
+	}
+
+	/**
+	 * Returns the total time spent by loading, in nanoseconds.
+	 *
+	 * @return total load time
+	 */
+	public long getTotalLoadTime() {
+		return totalLoadTime;
+	}
+
+	/**
+	 * Returns the average time spent by a single load, in nanoseconds.
+	 *
+	 * @return average load penalty or 0 if there were no loads
+	 */
+	public double getAverageLoadPenalty() {
+		final long loadCount = getLoadCount();
+		return (0L == loadCount) ? 0.0 : (double) totalLoadTime / loadCount;
+	}
+
+	/**
+	 * Returns the number of entries removed for the given reason.
+	 *
+	 * @param cause removal cause
+	 * @return removal count
+	 * @throws java.lang.NullPointerException if {@code cause} is {@code null}
+	 */
+	public long getRemovalCount(RemovalCause cause) {
+		if (null == cause) {
+			throw new NullPointerException();
+		}
+		return removalCounts[cause.ordinal()];
+	}
+
+	/**
+	 * Returns the number of entries removed by the cache itself, i.e. for any
+	 * reason except {@link cz.auderis.tools.collection.RemovalCause#EXPLICIT}.
+	 *
+	 * @return eviction count
+	 */
+	public long getEvictionCount() {
+		long result = 0L;
+		for (RemovalCause cause : CAUSES) {
+			if (cause.isEviction()) {
+				result += removalCounts[cause.ordinal()];
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the load time histogram.
+	 *
+	 * @return copy of bucket counts
+	 */
+	public long[] getLoadTimeHistogram() {
+		return loadTimeHistogram.clone();
+	}
+
+	/**
+	 * Returns an upper estimate of the load time percentile, in nanoseconds. The result
+	 * is the upper bound of the histogram bucket which contains the percentile.
+	 *
+	 * @param percentile requested percentile from range [0, 100]
+	 * @return load time percentile or 0 if there were no loads
+	 * @throws java.lang.IllegalArgumentException if {@code percentile} is out of range
+	 */
+	public long getLoadTimePercentile(double percentile) {
+		if (!((percentile >= 0.0) && (percentile <= 100.0))) {
+			throw new IllegalArgumentException("invalid percentile");
+		}
+		long total = 0L;
+		for (long count : loadTimeHistogram) {
+			total += count;
+		}
+		if (0L == total) {
+			return 0L;
+		}
+		final long threshold = Math.max(1L, (long) Math.ceil(total * percentile / 100.0));
+		long cumulative = 0L;
+		for (int i = 0; i < loadTimeHistogram.length; ++i) {
+			cumulative += loadTimeHistogram[i];
+			if (cumulative >= threshold) {
+				return bucketUpperBound(i);
+			}
+		}
+		return Long.MAX_VALUE;
+	}
+
+	/**
+	 * Returns the most frequently accessed keys, ordered by their estimated access counts.
+	 * The list is empty if hot key tracking is not enabled.
+	 *
+	 * @return unmodifiable list of hot keys
+	 */
+	public List<HotKeySketch.HotKey> getHotKeys() {
+		return hotKeys;
+	}
+
+	/**
+	 * Returns the difference between these statistics and an older snapshot,
+	 * i.e. statistics of the interval between the snapshots. Hot keys
+	 * of this snapshot are retained.
+	 *
+	 * @param other older snapshot
+	 * @return statistics of the interval
+	 * @throws java.lang.NullPointerException if {@code other} is {@code null}
+	 */
+	public CacheStats minus(CacheStats other) {
+		if (null == other) {
+			throw new NullPointerException();
+		}
+		final long[] removals = new long[removalCounts.length];
+		for (int i = 0; i < removals.length; ++i) {
+			removals[i] = Math.max(0L, removalCounts[i] - other.removalCounts[i]);
+		}
+		final long[] histogram = new long[loadTimeHistogram.length];
+		for (int i = 0; i < histogram.length; ++i) {
+			histogram[i] = Math.max(0L, loadTimeHistogram[i] - other.loadTimeHistogram[i]);
+		}
+		return new CacheStats(
+				Math.max(0L, hitCount - other.hitCount),
+				Math.max(0L, missCount - other.missCount),
+				Math.max(0L, loadSuccessCount - other.loadSuccessCount),
+				Math.max(0L, loadFailureCount - other.loadFailureCount),
+				Math.max(0L, totalLoadTime - other.totalLoadTime),
+				removals, histogram, hotKeys
+		);
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder str = new StringBuilder("CacheStats(");
+		str.append("hits=").append(hitCount);
+		str.append(", misses=").append(missCount);
+		str.append(", loads=").append(loadSuccessCount);
+		str.append(", loadFailures=").append(loadFailureCount);
+		str.append(", averageLoadPenalty=").append((long) getAverageLoadPenalty());
+		for (RemovalCause cause : CAUSES) {
+			str.append(", ").append(cause.name().toLowerCase()).append('=').append(removalCounts[cause.ordinal()]);
+		}
+		if (!hotKeys.isEmpty()) {
+			str.append(", hotKeys=").append(hotKeys);
+		}
+		str.append(')');
+		return str.toString();
+	}
+
+	static long bucketUpperBound(int bucket) {
+		return (bucket < Long.SIZE - 1) ? (1L << bucket) - 1L : Long.MAX_VALUE;
+	}
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.collection;
+
+/**
+ * Management interface that exposes statistics of a cache through JMX.
+ * Instances are registered by {@link cz.auderis.tools.collection.CacheStatsRecorder#registerMBean(String)}.
+ * Times are given in nanoseconds.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public interface CacheStatsMXBean {
+
+	long getHitCount();
+
+	long getMissCount();
+
+	double getHitRate();
+
+	long getLoadSuccessCount();
+
+	long getLoadFailureCount();
+
+	long getTotalLoadTime();
+
+	double getAverageLoadPenalty();
+
+	long getLoadTimeMedian();
+
+	long getLoadTime99thPercentile();
+
+	long getSizeEvictionCount();
+
+	long getExpirationCount();
+
+	long getCollectedCount();
+
+	long getExplicitRemovalCount();
+
+	/**
+	 * Returns the tracked hot keys in form {@code key=count}, ordered from the most
+	 * frequently accessed. The array is empty if hot key tracking is not enabled.
+	 *
+	 * @return hot keys
+	 */
+	String[] getHotKeys();
+
+	/**
+	 * Resets all statistics.
+	 */
+	void reset();
+
+}
@@ -0,0 +1,395 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.collection;
+
+import cz.auderis.tools.math.ConcurrentCounter;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Collects statistics of a cache: hits, misses, load times and removals broken down
+ * by their causes. Optionally, the most frequently accessed keys are tracked
+ * by a {@link cz.auderis.tools.collection.HotKeySketch}.
+ *
+ * <p>The recorder is thread-safe and it is designed to be left enabled in production:
+ * the counters are striped (see {@link cz.auderis.tools.math.ConcurrentCounter}),
+ * so that concurrent updates do not contend for a single memory location, and the
+ * hot key tracking drops samples instead of waiting for a lock. The values are
+ * aggregated only when a {@link #snapshot()} is taken.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class CacheStatsRecorder {
+
+	/**
+	 * Domain of object names used by {@link #registerMBean(String)}
+	 */
+	public static final String MBEAN_DOMAIN = "cz.auderis.tools.collection";
+
+	private static final RemovalCause[] CAUSES = RemovalCause.values();
+	private static final int HISTOGRAM_BUCKETS = Long.SIZE;
+
+	private final ConcurrentCounter hitCount;
+	private final ConcurrentCounter missCount;
+	private final ConcurrentCounter loadSuccessCount;
+	private final ConcurrentCounter loadFailureCount;
+	private final ConcurrentCounter totalLoadTime;
+	private final ConcurrentCounter[] removalCounts;
+	private final AtomicLongArray loadTimeHistogram;
+	private volatile HotKeySketch hotKeys;
+
+	/**
+	 * Creates a new recorder with hot key tracking disabled.
+	 */
+	public CacheStatsRecorder() {
+		this.hitCount = new ConcurrentCounter();
+		this.missCount = new ConcurrentCounter();
+		this.loadSuccessCount = new ConcurrentCounter();
+		this.loadFailureCount = new ConcurrentCounter();
+		this.totalLoadTime = new ConcurrentCounter();
+		this.removalCounts = new ConcurrentCounter[CAUSES.length];
+		for (int i = 0; i < CAUSES.length; ++i) {
+			removalCounts[i] = new ConcurrentCounter();
+		}
+		this.loadTimeHistogram = new AtomicLongArray(HISTOGRAM_BUCKETS);
+	}
+
+	/**
+	 * Enables tracking of the most frequently accessed keys. Any previously
+	 * tracked keys are discarded.
+	 *
+	 * @param keyCount number of tracked keys, zero disables the tracking
+	 * @throws java.lang.IllegalArgumentException if {@code keyCount} is negative
+	 */
+	public void trackHotKeys(int keyCount) {
+		if (keyCount < 0) {
+			throw new IllegalArgumentException("invalid hot key count");
+		}
+		this.hotKeys = (keyCount > 0) ? new HotKeySketch(keyCount) : null;
+	}
+
+	/**
+	 * Returns the hot key tracker.
+	 *
+	 * @return hot key tracker or {@code null} if the tracking is not enabled
+	 */
+	public HotKeySketch getHotKeySketch() {
+		return hotKeys;
+	}
+
+	/**
+	 * Records a lookup that found an available entry.
+	 */
+	public void recordHit() {
+		hitCount.increment();
+	}
+
+	/**
+	 * Records a lookup that did not find an available entry.
+	 */
+	public void recordMiss() {
+		missCount.increment();
+	}
+
+	/**
+	 * Records an access to the key for the purpose of hot key tracking.
+	 * If the tracking is not enabled, the method does nothing.
+	 *
+	 * @param key accessed key
+	 */
+	public void recordAccess(Object key) {
+		final HotKeySketch sketch = hotKeys;
+		if ((null != sketch) && (null != key)) {
+			sketch.record(key);
+		}
+	}
+
+	/**
+	 * Records a successful load.
+	 *
+	 * @param loadTime duration of the load in nanoseconds
+	 */
+	public void recordLoadSuccess(long loadTime) {
+		loadSuccessCount.increment();
+		recordLoadTime(loadTime);
+	}
+
+	/**
+	 * Records a load that has thrown an exception.
+	 *
+	 * @param loadTime duration of the load in nanoseconds
+	 */
+	public void recordLoadFailure(long loadTime) {
+		loadFailureCount.increment();
+		recordLoadTime(loadTime);
+	}
+
+	/**
+	 * Records a removal of a single entry.
+	 *
+	 * @param cause removal cause
+	 * @throws java.lang.NullPointerException if {@code cause} is {@code null}
+	 */
+	public void recordRemoval(RemovalCause cause) {
+		removalCounts[cause.ordinal()].increment();
+	}
+
+	/**
+	 * Records a removal of several entries.
+	 *
+	 * @param cause removal cause
+	 * @param count number of removed entries
+	 * @throws java.lang.NullPointerException if {@code cause} is {@code null}
+	 */
+	public void recordRemovals(RemovalCause cause, long count) {
+		if (count > 0L) {
+			removalCounts[cause.ordinal()].add(count);
+		}
+	}
+
+	/**
+	 * Returns the current number of hits.
+	 *
+	 * @return hit count
+	 */
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	/**
+	 * Returns the current number of misses.
+	 *
+	 * @return miss count
+	 */
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	/**
+	 * Returns the current number of removals caused by the given reason.
+	 *
+	 * @param cause removal cause
+	 * @return removal count
+	 * @throws java.lang.NullPointerException if {@code cause} is {@code null}
+	 */
+	public long getRemovalCount(RemovalCause cause) {
+		return removalCounts[cause.ordinal()].sum();
+	}
+
+	/**
+	 * Returns a snapshot of the statistics. The counters are read one by one
+	 * without blocking the updates, so the snapshot taken during concurrent
+	 * activity need not be exactly consistent.
+	 *
+	 * @return statistics snapshot
+	 */
+	public CacheStats snapshot() {
+		final long[] removals = new long[CAUSES.length];
+		for (int i = 0; i < removals.length; ++i) {
+			removals[i] = removalCounts[i].sum();
+		}
+		final long[] histogram = new long[HISTOGRAM_BUCKETS];
+		for (int i = 0; i < histogram.length; ++i) {
+			histogram[i] = loadTimeHistogram.get(i);
+		}
+		final HotKeySketch sketch = hotKeys;
+		final List<HotKeySketch.HotKey> hotKeyList = (null != sketch)
+				? Collections.unmodifiableList(sketch.getHotKeys())
+				: Collections.<HotKeySketch.HotKey>emptyList();
+		return new CacheStats(
+				hitCount.sum(), missCount.sum(), loadSuccessCount.sum(), loadFailureCount.sum(), totalLoadTime.sum(),
+				removals, histogram, hotKeyList
+		);
+	}
+
+	/**
+	 * Returns a snapshot with all statistics equal to zero, as reported by caches
+	 * that do not record statistics.
+	 */
+	static CacheStats emptySnapshot() {
+		return new CacheStats(
+				0L, 0L, 0L, 0L, 0L,
+				new long[CAUSES.length], new long[HISTOGRAM_BUCKETS], Collections.<HotKeySketch.HotKey>emptyList()
+		);
+	}
+
+	/**
+	 * Resets all statistics, including the tracked hot keys.
+	 */
+	public void reset() {
+		hitCount.reset();
+		missCount.reset();
+		loadSuccessCount.reset();
+		loadFailureCount.reset();
+		totalLoadTime.reset();
+		for (ConcurrentCounter counter : removalCounts) {
+			counter.reset();
+		}
+		for (int i = 0; i < HISTOGRAM_BUCKETS; ++i) {
+			loadTimeHistogram.set(i, 0L);
+		}
+		final HotKeySketch sketch = hotKeys;
+		if (null != sketch) {
+			sketch.clear();
+		}
+	}
+
+	/**
+	 * Creates a management bean backed by this recorder, which may be registered
+	 * into an arbitrary MBean server.
+	 *
+	 * @return management bean
+	 */
+	public CacheStatsMXBean createMBean() {
+		return new StatsBean(this);
+	}
+
+	/**
+	 * Registers a management bean backed by this recorder into the platform MBean server
+	 * under name {@code cz.auderis.tools.collection:type=CacheStats,name=<name>}.
+	 * The bean should be unregistered using the returned object name when the cache
+	 * is no longer used.
+	 *
+	 * @param name name of the cache
+	 * @return object name of the registered bean
+	 * @throws java.lang.NullPointerException if {@code name} is {@code null}
+	 * @throws javax.management.JMException if the bean cannot be registered, e.g. because
+	 *                                      the name is already in use
+	 */
+	public ObjectName registerMBean(String name) throws JMException {
+		if (null == name) {
+			throw new NullPointerException();
+		}
+		final ObjectName objectName = new ObjectName(MBEAN_DOMAIN + ":type=CacheStats,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(createMBean(), objectName);
+		return objectName;
+	}
+
+	@Override
+	public String toString() {
+		return snapshot().toString();
+	}
+
+	private void recordLoadTime(long loadTime) {
+		final long effectiveTime = Math.max(0L, loadTime);
+		totalLoadTime.add(effectiveTime);
+		final int bucket = Long.SIZE - Long.numberOfLeadingZeros(effectiveTime);
+		loadTimeHistogram.incrementAndGet(Math.min(bucket, HISTOGRAM_BUCKETS - 1));
+	}
+
+	static final class StatsBean implements CacheStatsMXBean {
+		private final CacheStatsRecorder recorder;
+
+		StatsBean(CacheStatsRecorder recorder) {
+			this.recorder = recorder;
+		}
+
+		@Override
+		public long getHitCount() {
+			return recorder.getHitCount();
+		}
+
+		@Override
+		public long getMissCount() {
+			return recorder.getMissCount();
+		}
+
+		@Override
+		public double getHitRate() {
+			final long hits = recorder.getHitCount();
+			final long requests = hits + recorder.getMissCount();
+			return (0L == requests) ? 1.0 : (double) hits / requests;
+		}
+
+		@Override
+		public long getLoadSuccessCount() {
+			return recorder.loadSuccessCount.sum();
+		}
+
+		@Override
+		public long getLoadFailureCount() {
+			return recorder.loadFailureCount.sum();
+		}
+
+		@Override
+		public long getTotalLoadTime() {
+			return recorder.totalLoadTime.sum();
+		}
+
+		@Override
+		public double getAverageLoadPenalty() {
+			final long loads = recorder.loadSuccessCount.sum() + recorder.loadFailureCount.sum();
+			return (0L == loads) ? 0.0 : (double) recorder.totalLoadTime.sum() / loads;
+		}
+
+		@Override
+		public long getLoadTimeMedian() {
+			return recorder.snapshot().getLoadTimePercentile(50.0);
+		}
+
+		@Override
+		public long getLoadTime99thPercentile() {
+			return recorder.snapshot().getLoadTimePercentile(99.0);
+		}
+
+		@Override
+		public long getSizeEvictionCount() {
+			return recorder.getRemovalCount(RemovalCause.SIZE);
+		}
+
+		@Override
+		public long getExpirationCount() {
+			return recorder.getRemovalCount(RemovalCause.EXPIRED);
+		}
+
+		@Override
+		public long getCollectedCount() {
+			return recorder.getRemovalCount(RemovalCause.COLLECTED);
+		}
+
+		@Override
+		public long getExplicitRemovalCount() {
+			return recorder.getRemovalCount(RemovalCause.EXPLICIT);
+		}
+
+		@Override
+		public String[] getHotKeys() {
+			final HotKeySketch sketch = recorder.hotKeys;
+			if (null == sketch) {
+				return new String[0];
+			}
+			final List<HotKeySketch.HotKey> keys = sketch.getHotKeys();
+			final String[] result = new String[keys.size()];
+			for (int i = 0; i < result.length; ++i) {
+				result[i] = keys.get(i).toString();
+			}
+			return result;
+		}
+
+		@Override
+		public void reset() {
+			recorder.reset();
+		}
+	}
+
+}
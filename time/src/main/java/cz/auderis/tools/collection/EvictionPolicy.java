@@ -0,0 +1,49 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.collection;
+
+/**
+ * Strategy used by {@link cz.auderis.tools.collection.BoundedCache} to select
+ * the entry that is discarded when the cache capacity is exceeded.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public enum EvictionPolicy {
+
+	/**
+	 * Least recently used entry is evicted.
+	 */
+	LRU,
+
+	/**
+	 * Least frequently used entry is evicted. The frequency is estimated
+	 * by a periodically aged frequency sketch; the victim is chosen from
+	 * a small sample of least recently used entries.
+	 */
+	LFU,
+
+	/**
+	 * Window TinyLFU: new entries enter a small LRU window; when they leave it,
+	 * they are admitted into the segmented LRU main area only if they are
+	 * used more frequently than the entry that would be evicted instead.
+	 * This policy combines good hit rates for recency-biased and
+	 * frequency-biased workloads and it is resistant to scans.
+	 */
+	TINY_LFU
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.collection;
+
+/**
+ * Count-Min sketch with 4-bit counters that estimates access frequencies of keys.
+ * Sixteen counters are packed into a single {@code long}; each key is mapped to
+ * four counters and its frequency is estimated as their minimum. When the number
+ * of recorded accesses reaches the sample size, all counters are halved, so that
+ * the estimates follow changes of the workload.
+ *
+ * <p>The class is not thread-safe.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+final class FrequencySketch {
+
+	static final int MAX_FREQUENCY = 15;
+
+	private static final long[] SEEDS = {
+			0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+	};
+	private static final long RESET_MASK = 0x7777777777777777L;
+	private static final int SAMPLE_FACTOR = 10;
+
+	private final long[] table;
+	private final int tableMask;
+	private final int sampleSize;
+	private int additions;
+
+	FrequencySketch(int expectedSize) {
+		final int effectiveSize = Math.max(expectedSize, 8);
+		final int tableSize = Integer.highestOneBit(effectiveSize - 1) << 1;
+		this.table = new long[tableSize];
+		this.tableMask = tableSize - 1;
+		this.sampleSize = (effectiveSize <= Integer.MAX_VALUE / SAMPLE_FACTOR)
+				? SAMPLE_FACTOR * effectiveSize
+				: Integer.MAX_VALUE;
+	}
+
+	int frequency(int hash) {
+		int result = MAX_FREQUENCY;
+		for (int i = 0; i < SEEDS.length; ++i) {
+			final long h = mix(hash, i);
+			final int index = (int) (h >>> 32) & tableMask;
+			final int shift = ((int) h & 15) << 2;
+			final int count = (int) (table[index] >>> shift) & MAX_FREQUENCY;
+			if (count < result) {
+				result = count;
+			}
+		}
+		return result;
+	}
+
+	void increment(int hash) {
+		boolean added = false;
+		for (int i = 0; i < SEEDS.length; ++i) {
+			final long h = mix(hash, i);
+			final int index = (int) (h >>> 32) & tableMask;
+			final int shift = ((int) h & 15) << 2;
+			if (((table[index] >>> shift) & MAX_FREQUENCY) < MAX_FREQUENCY) {
+				table[index] += 1L << shift;
+				added = true;
+			}
+		}
+		if (added && (++additions >= sampleSize)) {
+			reset();
+		}
+	}
+
+	void clear() {
+		for (int i = 0; i < table.length; ++i) {
+			table[i] = 0L;
+		}
+		additions = 0;
+	}
+
+	private void reset() {
+		for (int i = 0; i < table.length; ++i) {
+			table[i] = (table[i] >>> 1) & RESET_MASK;
+		}
+		additions >>>= 1;
+	}
+
+	private static long mix(int hash, int depth) {
+		long h = (hash + SEEDS[depth]) * SEEDS[depth];
+		h ^= h >>> 29;
+		h *= 0xbf58476d1ce4e5b9L;
+		return h ^ (h >>> 32);
+	}
+
+}
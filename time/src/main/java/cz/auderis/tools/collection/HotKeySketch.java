@@ -0,0 +1,350 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.collection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Approximate tracker of the most frequently accessed keys. Access frequencies
+ * are estimated by a Count-Min sketch with conservative update; the keys with
+ * the highest estimates are kept in a bounded min-heap, so that a new key replaces
+ * the least frequent tracked key only when its estimate is higher. When the number
+ * of recorded accesses reaches the sample size, all counts are halved, so that
+ * the result reflects the recent workload.
+ *
+ * <p>The tracker is thread-safe. Recording never blocks: when another thread
+ * is updating the sketch at the same time, the access is simply not counted.
+ * The loss of a small fraction of samples does not affect the detection of hot keys,
+ * but it keeps the overhead low enough for permanent use. Note that the tracked keys
+ * are strongly referenced until they are displaced.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public final class HotKeySketch {
+
+	private static final long[] SEEDS = {
+			0x9e3779b97f4a7c15L, 0xbf58476d1ce4e5b9L, 0x94d049bb133111ebL, 0xd6e8feb86659fd93L
+	};
+	private static final int WIDTH_FACTOR = 16;
+	private static final int MIN_WIDTH = 256;
+	private static final int SAMPLE_FACTOR = 10;
+
+	private final int capacity;
+	private final int[][] table;
+	private final int widthMask;
+	private final int sampleSize;
+	private final Map<Object, Candidate> candidates;
+	private final Candidate[] heap;
+	private final ReentrantLock lock;
+	private int heapSize;
+	private int additions;
+
+	/**
+	 * Creates a tracker of the given number of hot keys.
+	 *
+	 * @param capacity maximal number of tracked keys
+	 * @throws java.lang.IllegalArgumentException if {@code capacity} is not positive
+	 */
+	public HotKeySketch(int capacity) {
+		if ((capacity <= 0) || (capacity > (1 << 20))) {
+			throw new IllegalArgumentException("invalid hot key capacity");
+		}
+		this.capacity = capacity;
+		final int width = Math.max(MIN_WIDTH, Integer.highestOneBit(capacity * WIDTH_FACTOR - 1) << 1);
+		this.table = new int[SEEDS.length][width];
+		this.widthMask = width - 1;
+		this.sampleSize = SAMPLE_FACTOR * width;
+		this.candidates = new HashMap<Object, Candidate>(2 * capacity);
+		this.heap = new Candidate[capacity];
+		this.lock = new ReentrantLock();
+	}
+
+	/**
+	 * Returns the maximal number of tracked keys.
+	 *
+	 * @return tracker capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Records an access to the key.
+	 *
+	 * @param key accessed key
+	 * @return {@code true} if the access was recorded, {@code false} if it was dropped
+	 *         because of a concurrent update
+	 * @throws java.lang.NullPointerException if {@code key} is {@code null}
+	 */
+	public boolean record(Object key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		final int hash = key.hashCode();
+		if (!lock.tryLock()) {
+			return false;
+		}
+		try {
+			final int count = increment(hash);
+			offer(key, count);
+			if (++additions >= sampleSize) {
+				age();
+			}
+		} finally {
+			lock.unlock();
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the estimated number of recent accesses to the key. The estimate
+	 * never underestimates the number of recorded accesses since the last aging.
+	 *
+	 * @param key the key
+	 * @return estimated access count
+	 * @throws java.lang.NullPointerException if {@code key} is {@code null}
+	 */
+	public long estimate(Object key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		final int hash = key.hashCode();
+		lock.lock();
+		try {
+			return frequency(hash);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the tracked keys ordered from the most frequently accessed.
+	 *
+	 * @return list of hot keys
+	 */
+	public List<HotKey> getHotKeys() {
+		final List<HotKey> result;
+		lock.lock();
+		try {
+			result = new ArrayList<HotKey>(heapSize);
+			for (int i = 0; i < heapSize; ++i) {
+				result.add(new HotKey(heap[i].key, heap[i].count));
+			}
+		} finally {
+			lock.unlock();
+		}
+		Collections.sort(result, HotKey.DESCENDING_COUNT);
+		return result;
+	}
+
+	/**
+	 * Discards all recorded accesses.
+	 */
+	public void clear() {
+		lock.lock();
+		try {
+			for (int[] row : table) {
+				for (int i = 0; i < row.length; ++i) {
+					row[i] = 0;
+				}
+			}
+			for (int i = 0; i < heapSize; ++i) {
+				heap[i] = null;
+			}
+			heapSize = 0;
+			candidates.clear();
+			additions = 0;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private int frequency(int hash) {
+		int result = Integer.MAX_VALUE;
+		for (int i = 0; i < SEEDS.length; ++i) {
+			final int count = table[i][index(hash, i)];
+			if (count < result) {
+				result = count;
+			}
+		}
+		return result;
+	}
+
+	private int increment(int hash) {
+		// Conservative update: only the minimal counters are raised
+		final int count = frequency(hash);
+		if (Integer.MAX_VALUE == count) {
+			return count;
+		}
+		final int newCount = count + 1;
+		for (int i = 0; i < SEEDS.length; ++i) {
+			final int[] row = table[i];
+			final int index = index(hash, i);
+			if (row[index] < newCount) {
+				row[index] = newCount;
+			}
+		}
+		return newCount;
+	}
+
+	private void offer(Object key, int count) {
+		final Candidate candidate = candidates.get(key);
+		if (null != candidate) {
+			if (count > candidate.count) {
+				candidate.count = count;
+				siftDown(candidate.position);
+			}
+		} else if (heapSize < capacity) {
+			final Candidate newCandidate = new Candidate(key, count);
+			candidates.put(key, newCandidate);
+			heap[heapSize] = newCandidate;
+			newCandidate.position = heapSize;
+			siftUp(heapSize++);
+		} else if (count > heap[0].count) {
+			// Replace the least frequent tracked key
+			final Candidate victim = heap[0];
+			candidates.remove(victim.key);
+			victim.key = key;
+			victim.count = count;
+			candidates.put(key, victim);
+			siftDown(0);
+		}
+	}
+
+	private void age() {
+		for (int[] row : table) {
+			for (int i = 0; i < row.length; ++i) {
+				row[i] >>>= 1;
+			}
+		}
+		// Halving preserves the order, so the heap property holds
+		for (int i = 0; i < heapSize; ++i) {
+			heap[i].count >>>= 1;
+		}
+		additions >>>= 1;
+	}
+
+	private void siftUp(int position) {
+		final Candidate item = heap[position];
+		int i = position;
+		while (i > 0) {
+			final int parent = (i - 1) >>> 1;
+			if (heap[parent].count <= item.count) {
+				break;
+			}
+			place(heap[parent], i);
+			i = parent;
+		}
+		place(item, i);
+	}
+
+	private void siftDown(int position) {
+		final Candidate item = heap[position];
+		final int half = heapSize >>> 1;
+		int i = position;
+		while (i < half) {
+			int child = 2 * i + 1;
+			final int right = child + 1;
+			if ((right < heapSize) && (heap[right].count < heap[child].count)) {
+				child = right;
+			}
+			if (item.count <= heap[child].count) {
+				break;
+			}
+			place(heap[child], i);
+			i = child;
+		}
+		place(item, i);
+	}
+
+	private void place(Candidate item, int position) {
+		heap[position] = item;
+		item.position = position;
+	}
+
+	private int index(int hash, int depth) {
+		long h = (hash + SEEDS[depth]) * SEEDS[depth];
+		h ^= h >>> 31;
+		return (int) (h >>> 32) & widthMask;
+	}
+
+	private static final class Candidate {
+		Object key;
+		int count;
+		int position;
+
+		Candidate(Object key, int count) {
+			this.key = key;
+			this.count = count;
+		}
+	}
+
+	/**
+	 * Frequently accessed key together with its estimated access count.
+	 */
+	public static final class HotKey {
+
+		static final Comparator<HotKey> DESCENDING_COUNT = new Comparator<HotKey>() {
+			@Override
+			public int compare(HotKey o1, HotKey o2) {
+				if (o1.estimatedCount == o2.estimatedCount) {
+					return 0;
+				}
+				return (o1.estimatedCount > o2.estimatedCount) ? -1 : 1;
+			}
+		};
+
+		private final Object key;
+		private final long estimatedCount;
+
+		HotKey(Object key, long estimatedCount) {
+			this.key = key;
+			this.estimatedCount = estimatedCount;
+		}
+
+		/**
+		 * Returns the key.
+		 *
+		 * @return the key
+		 */
+		public Object getKey() {
+			return key;
+		}
+
+		/**
+		 * Returns the estimated number of recent accesses to the key.
+		 *
+		 * @return estimated access count
+		 */
+		public long getEstimatedCount() {
+			return estimatedCount;
+		}
+
+		@Override
+		public String toString() {
+			return key + "=" + estimatedCount;
+		}
+	}
+
+}
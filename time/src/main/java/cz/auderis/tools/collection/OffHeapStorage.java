@@ -0,0 +1,336 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.collection;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Memory outside of the Java heap, used by {@link cz.auderis.tools.collection.BoundedCache}
+ * to hold values that were evicted from the heap.
+ *
+ * <p>The memory is organised into slabs, which are either direct byte buffers or regions
+ * of a memory-mapped file; slabs are created on demand until the capacity is reached.
+ * Slabs are divided into chunks whose sizes are powers of two using the buddy system:
+ * a larger free chunk is split in halves to serve a smaller request, and a released
+ * chunk is merged with its buddy whenever the buddy is free as well, so that free memory
+ * is not locked in a single size class. Free lists are linked through the free chunks
+ * themselves. A value therefore occupies at most twice its encoded length and both
+ * allocation and release take time proportional to the number of size classes.
+ * The largest storable value has the length of a slab.
+ *
+ * <p>Java offers no means to release direct or mapped memory explicitly; the memory is
+ * reclaimed when the storage becomes unreachable. A storage may be shared by several caches.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public final class OffHeapStorage {
+
+	/**
+	 * Slab size used when not specified explicitly (1 MiB)
+	 */
+	public static final int DEFAULT_SLAB_SIZE = 1 << 20;
+
+	static final long NO_ADDRESS = -1L;
+
+	private static final int MIN_CHUNK_SHIFT = 6;
+	private static final int MIN_CHUNK_SIZE = 1 << MIN_CHUNK_SHIFT;
+	private static final int PREV_LINK_OFFSET = 8;
+
+	private final long capacity;
+	private final int slabSize;
+	private final int topSizeClass;
+	private final ByteBuffer[] slabs;
+	private final byte[][] freeChunkClasses;
+	private final long[] freeChunkHeads;
+	private RandomAccessFile mappedFile;
+	private int slabCount;
+	private long usedBytes;
+
+	private OffHeapStorage(long capacity, int slabSize, RandomAccessFile mappedFile) {
+		this.capacity = capacity;
+		this.slabSize = slabSize;
+		this.mappedFile = mappedFile;
+		this.slabs = new ByteBuffer[(int) (capacity / slabSize)];
+		this.freeChunkClasses = new byte[slabs.length][];
+		this.topSizeClass = Integer.numberOfTrailingZeros(slabSize) - MIN_CHUNK_SHIFT;
+		this.freeChunkHeads = new long[topSizeClass + 1];
+		Arrays.fill(freeChunkHeads, NO_ADDRESS);
+	}
+
+	/**
+	 * Creates a storage backed by direct byte buffers.
+	 *
+	 * @param capacity maximal number of bytes, it is rounded down to a multiple of slab size
+	 * @return new storage
+	 * @throws java.lang.IllegalArgumentException if the capacity is smaller than {@link #DEFAULT_SLAB_SIZE}
+	 */
+	public static OffHeapStorage allocateDirect(long capacity) {
+		return allocateDirect(capacity, DEFAULT_SLAB_SIZE);
+	}
+
+	/**
+	 * Creates a storage backed by direct byte buffers.
+	 *
+	 * @param capacity maximal number of bytes, it is rounded down to a multiple of slab size
+	 * @param slabSize size of a slab, it must be a power of two not smaller than 64
+	 * @return new storage
+	 * @throws java.lang.IllegalArgumentException if the slab size is invalid or the capacity is smaller than the slab size
+	 */
+	public static OffHeapStorage allocateDirect(long capacity, int slabSize) {
+		checkSizes(capacity, slabSize);
+		return new OffHeapStorage(capacity, slabSize, null);
+	}
+
+	/**
+	 * Creates a storage backed by a memory-mapped file. The file is created if necessary
+	 * and it grows as the slabs are created.
+	 *
+	 * @param file the file
+	 * @param capacity maximal number of bytes, it is rounded down to a multiple of slab size
+	 * @param slabSize size of a slab, it must be a power of two not smaller than 64
+	 * @return new storage
+	 * @throws java.lang.NullPointerException if {@code file} is {@code null}
+	 * @throws java.lang.IllegalArgumentException if the slab size is invalid or the capacity is smaller than the slab size
+	 * @throws java.io.IOException if the file cannot be opened
+	 */
+	public static OffHeapStorage mapFile(File file, long capacity, int slabSize) throws IOException {
+		if (null == file) {
+			throw new NullPointerException();
+		}
+		checkSizes(capacity, slabSize);
+		return new OffHeapStorage(capacity, slabSize, new RandomAccessFile(file, "rw"));
+	}
+
+	/**
+	 * Returns the maximal number of bytes.
+	 *
+	 * @return capacity
+	 */
+	public long getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns the size of slabs, which is also the maximal length of a stored value.
+	 *
+	 * @return slab size
+	 */
+	public int getSlabSize() {
+		return slabSize;
+	}
+
+	/**
+	 * Returns the number of bytes in slabs that were created so far.
+	 *
+	 * @return allocated bytes
+	 */
+	public synchronized long getAllocatedBytes() {
+		return (long) slabCount * slabSize;
+	}
+
+	/**
+	 * Returns the number of bytes in chunks that hold values.
+	 *
+	 * @return used bytes
+	 */
+	public synchronized long getUsedBytes() {
+		return usedBytes;
+	}
+
+	/**
+	 * Closes the mapped file, if any. The storage must not be used afterwards.
+	 *
+	 * @throws java.io.IOException if the file cannot be closed
+	 */
+	public synchronized void close() throws IOException {
+		for (int i = 0; i < slabCount; ++i) {
+			slabs[i] = null;
+			freeChunkClasses[i] = null;
+		}
+		slabCount = 0;
+		Arrays.fill(freeChunkHeads, NO_ADDRESS);
+		usedBytes = 0L;
+		if (null != mappedFile) {
+			mappedFile.close();
+			mappedFile = null;
+		}
+	}
+
+	/**
+	 * Allocates a chunk for data of the given length. If there is no free chunk
+	 * of the corresponding size class, a larger free chunk is split.
+	 *
+	 * @return address of the chunk or {@link #NO_ADDRESS} if there is no free chunk
+	 */
+	synchronized long allocate(int length) {
+		if ((length < 0) || (length > slabSize)) {
+			return NO_ADDRESS;
+		}
+		final int sizeClass = sizeClassOf(length);
+		int freeClass = sizeClass;
+		while ((freeClass <= topSizeClass) && (NO_ADDRESS == freeChunkHeads[freeClass])) {
+			++freeClass;
+		}
+		final long address;
+		if (freeClass <= topSizeClass) {
+			address = freeChunkHeads[freeClass];
+			removeFreeChunk(freeClass, address);
+		} else if (createSlab()) {
+			freeClass = topSizeClass;
+			address = address(slabCount - 1, 0);
+		} else {
+			return NO_ADDRESS;
+		}
+		// Upper halves of the split chunk become free buddies
+		while (freeClass > sizeClass) {
+			--freeClass;
+			addFreeChunk(freeClass, address + chunkSize(freeClass));
+		}
+		usedBytes += chunkSize(sizeClass);
+		return address;
+	}
+
+	/**
+	 * Releases the chunk and merges it with its free buddies.
+	 */
+	synchronized void free(long address, int length) {
+		int sizeClass = sizeClassOf(length);
+		usedBytes -= chunkSize(sizeClass);
+		final int slabIndex = (int) (address >>> 32);
+		final byte[] chunkClasses = freeChunkClasses[slabIndex];
+		int offset = (int) address;
+		while (sizeClass < topSizeClass) {
+			final int buddyOffset = offset ^ chunkSize(sizeClass);
+			if (chunkClasses[buddyOffset >> MIN_CHUNK_SHIFT] != sizeClass + 1) {
+				break;
+			}
+			removeFreeChunk(sizeClass, address(slabIndex, buddyOffset));
+			offset = Math.min(offset, buddyOffset);
+			++sizeClass;
+		}
+		addFreeChunk(sizeClass, address(slabIndex, offset));
+	}
+
+	/**
+	 * Returns the number of bytes occupied by a value of the given length.
+	 */
+	static int chunkLength(int length) {
+		return chunkSize(sizeClassOf(length));
+	}
+
+	synchronized void write(long address, ByteBuffer data) {
+		final ByteBuffer slab = slabs[(int) (address >>> 32)];
+		slab.clear();
+		slab.position((int) address);
+		slab.put(data);
+	}
+
+	/**
+	 * Returns a buffer whose remaining bytes are the chunk data. The buffer shares
+	 * the memory with the slab, it is valid only until the chunk is released.
+	 */
+	synchronized ByteBuffer read(long address, int length) {
+		final ByteBuffer data = slabs[(int) (address >>> 32)].duplicate();
+		final int offset = (int) address;
+		data.limit(offset + length);
+		data.position(offset);
+		return data.slice().asReadOnlyBuffer();
+	}
+
+	private boolean createSlab() {
+		if (slabCount >= slabs.length) {
+			return false;
+		}
+		final ByteBuffer slab;
+		if (null == mappedFile) {
+			slab = ByteBuffer.allocateDirect(slabSize);
+		} else {
+			try {
+				slab = mappedFile.getChannel().map(FileChannel.MapMode.READ_WRITE, (long) slabCount * slabSize, slabSize);
+			} catch (IOException e) {
+				return false;
+			}
+		}
+		freeChunkClasses[slabCount] = new byte[slabSize >> MIN_CHUNK_SHIFT];
+		slabs[slabCount++] = slab;
+		return true;
+	}
+
+	/**
+	 * Pushes the chunk to the free list of its size class. The list links are
+	 * stored in the first bytes of the chunk; the size class is recorded
+	 * (increased by one) in the chunk class map of the slab.
+	 */
+	private void addFreeChunk(int sizeClass, long address) {
+		final long next = freeChunkHeads[sizeClass];
+		final ByteBuffer slab = slabs[(int) (address >>> 32)];
+		final int offset = (int) address;
+		slab.putLong(offset, next);
+		slab.putLong(offset + PREV_LINK_OFFSET, NO_ADDRESS);
+		if (NO_ADDRESS != next) {
+			slabs[(int) (next >>> 32)].putLong((int) next + PREV_LINK_OFFSET, address);
+		}
+		freeChunkHeads[sizeClass] = address;
+		freeChunkClasses[(int) (address >>> 32)][offset >> MIN_CHUNK_SHIFT] = (byte) (sizeClass + 1);
+	}
+
+	private void removeFreeChunk(int sizeClass, long address) {
+		final ByteBuffer slab = slabs[(int) (address >>> 32)];
+		final int offset = (int) address;
+		final long next = slab.getLong(offset);
+		final long prev = slab.getLong(offset + PREV_LINK_OFFSET);
+		if (NO_ADDRESS == prev) {
+			freeChunkHeads[sizeClass] = next;
+		} else {
+			slabs[(int) (prev >>> 32)].putLong((int) prev, next);
+		}
+		if (NO_ADDRESS != next) {
+			slabs[(int) (next >>> 32)].putLong((int) next + PREV_LINK_OFFSET, prev);
+		}
+		freeChunkClasses[(int) (address >>> 32)][offset >> MIN_CHUNK_SHIFT] = 0;
+	}
+
+	private static int sizeClassOf(int length) {
+		if (length <= MIN_CHUNK_SIZE) {
+			return 0;
+		}
+		return Integer.SIZE - Integer.numberOfLeadingZeros(length - 1) - MIN_CHUNK_SHIFT;
+	}
+
+	private static int chunkSize(int sizeClass) {
+		return MIN_CHUNK_SIZE << sizeClass;
+	}
+
+	private static long address(int slabIndex, int offset) {
+		return ((long) slabIndex << 32) | offset;
+	}
+
+	private static void checkSizes(long capacity, int slabSize) {
+		if ((slabSize < MIN_CHUNK_SIZE) || (0 != (slabSize & (slabSize - 1)))) {
+			throw new IllegalArgumentException("invalid slab size");
+		} else if ((capacity < slabSize) || (capacity / slabSize > Integer.MAX_VALUE)) {
+			throw new IllegalArgumentException("invalid storage capacity");
+		}
+	}
+
+}
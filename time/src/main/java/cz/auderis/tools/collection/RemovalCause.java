@@ -0,0 +1,57 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.collection;
+
+/**
+ * Reason why an entry has left a cache. Used by {@link cz.auderis.tools.collection.CacheStatsRecorder}
+ * to break down the removal counts.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public enum RemovalCause {
+
+	/**
+	 * The entry was removed or replaced explicitly, e.g. by {@code remove()} or {@code clear()}.
+	 */
+	EXPLICIT,
+
+	/**
+	 * The entry was discarded because the cache capacity was exceeded.
+	 */
+	SIZE,
+
+	/**
+	 * The timeout or the expiration deadline of the entry has passed.
+	 */
+	EXPIRED,
+
+	/**
+	 * The value was reclaimed by the garbage collector (i.e. its soft reference was cleared).
+	 */
+	COLLECTED;
+
+	/**
+	 * Checks whether the removal was caused by the cache itself rather than by its user.
+	 *
+	 * @return {@code true} for all causes except {@link #EXPLICIT}
+	 */
+	public boolean isEviction() {
+		return EXPLICIT != this;
+	}
+
+}
@@ -33,6 +33,7 @@ import java.util.Map;
 public class SimpleCache<K, V> {
 
 	private final Map<K, CacheEntry<V>> cache;
+	private CacheStatsRecorder stats;
 
 	/**
 	 * Instantiates a new Simple cache.
@@ -52,6 +53,19 @@ public class SimpleCache<K, V> {
 		return new SimpleCache<K, V>();
 	}
 
+	/**
+	 * Enables recording of cache statistics. Statistics are not recorded by default,
+	 * so that caches that do not report them do not allocate the counters.
+	 *
+	 * @return this cache
+	 */
+	public SimpleCache<K, V> recordStats() {
+		if (null == stats) {
+			stats = new CacheStatsRecorder();
+		}
+		return this;
+	}
+
 	/**
 	 * Put void.
 	 *
@@ -110,13 +124,27 @@ public class SimpleCache<K, V> {
 		if (null == key) {
 			throw new NullPointerException();
 		}
+		final CacheStatsRecorder recorder = stats;
+		if (null != recorder) {
+			recorder.recordAccess(key);
+		}
 		CacheEntry<V> entry = cache.get(key);
 		if (null == entry) {
+			if (null != recorder) {
+				recorder.recordMiss();
+			}
 			return null;
 		} else if (!entry.isAvailable()) {
 			cache.remove(key);
+			if (null != recorder) {
+				recorder.recordRemoval(entry.isTimeoutExpired() ? RemovalCause.EXPIRED : RemovalCause.COLLECTED);
+				recorder.recordMiss();
+			}
 			return null;
 		}
+		if (null != recorder) {
+			recorder.recordHit();
+		}
 		return entry.getValue();
 	}
 
@@ -142,13 +170,18 @@ public class SimpleCache<K, V> {
 		if (null == key) {
 			throw new NullPointerException();
 		}
-		cache.remove(key);
+		if ((null != cache.remove(key)) && (null != stats)) {
+			stats.recordRemoval(RemovalCause.EXPLICIT);
+		}
 	}
 
 	/**
 	 * Clear void.
 	 */
 	public void clear() {
+		if (null != stats) {
+			stats.recordRemovals(RemovalCause.EXPLICIT, cache.size());
+		}
 		cache.clear();
 	}
 
@@ -201,6 +234,32 @@ public class SimpleCache<K, V> {
 		}
 	}
 
+	/**
+	 * Returns the recorder of cache statistics, which may be used to enable
+	 * hot key tracking or to register a JMX bean.
+	 *
+	 * @return statistics recorder or {@code null} if {@link #recordStats()} was not called
+	 */
+	public CacheStatsRecorder getStatsRecorder() {
+		return stats;
+	}
+
+	/**
+	 * Returns a snapshot of cache statistics. Entries found unavailable by {@link #get(Object)}
+	 * are reported as removed with cause {@link cz.auderis.tools.collection.RemovalCause#EXPIRED}
+	 * if their timeout has expired, or {@link cz.auderis.tools.collection.RemovalCause#COLLECTED}
+	 * if their values were reclaimed by the garbage collector. If the statistics
+	 * are not recorded, all values of the snapshot are zero.
+	 *
+	 * @return statistics snapshot
+	 */
+	public CacheStats getStats() {
+		if (null == stats) {
+			return CacheStatsRecorder.emptySnapshot();
+		}
+		return stats.snapshot();
+	}
+
 	/**
 	 * The type Cache entry.
 	 * @param <W>  the type parameter
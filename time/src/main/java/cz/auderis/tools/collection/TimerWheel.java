@@ -0,0 +1,203 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.collection;
+
+import cz.auderis.tools.collection.BoundedCache.Node;
+
+/**
+ * Hierarchical timing wheel that keeps track of cache entry deadlines.
+ *
+ * <p>Each level of the wheel is an array of buckets that cover consecutive
+ * time slots of the same length; the slots of higher levels are longer
+ * (approximately 1 second, 1 minute, 1 hour, 1.5 days and 6 days). An entry
+ * is placed into the finest level that can hold its deadline, which takes
+ * constant time. When the wheel is advanced, the buckets of the passed
+ * slots are emptied: entries whose deadline has come are handed over
+ * to the {@link cz.auderis.tools.collection.TimerWheel.ExpirationHandler},
+ * the other ones cascade into finer levels. Each entry therefore cascades
+ * at most once per level, which keeps the amortised cost of expiration
+ * constant as well. Deadlines are honoured with the precision of the finest
+ * slot, i.e. about one second.
+ *
+ * <p>Entries are linked into the buckets directly using their timer links.
+ * The class is not thread-safe, it is guarded by the lock of the owning segment.
+ *
+ * @param <K> type of keys
+ * @param <V> type of values
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+final class TimerWheel<K, V> {
+
+	private static final int[] BUCKETS = { 64, 64, 32, 4, 1 };
+	private static final int[] SHIFTS = { 10, 16, 22, 27, 29 };
+
+	private final Node<K, V>[][] wheel;
+	private long currentTime;
+
+	/**
+	 * Receiver of entries whose deadline has come.
+	 */
+	interface ExpirationHandler<K, V> {
+
+		/**
+		 * Processes the entry that has reached its deadline. If the entry
+		 * is not removed, the handler may update its deadline, so that it is
+		 * scheduled again.
+		 *
+		 * @param node the entry
+		 * @return {@code true} if the entry was removed
+		 */
+		boolean expire(Node<K, V> node);
+
+	}
+
+	TimerWheel(long startTime) {
+		this.currentTime = startTime;
+		this.wheel = newLevelArray(BUCKETS.length);
+		for (int level = 0; level < BUCKETS.length; ++level) {
+			final Node<K, V>[] buckets = newBucketArray(BUCKETS[level]);
+			for (int i = 0; i < buckets.length; ++i) {
+				final Node<K, V> sentinel = new Node<K, V>(null, 0, null, null);
+				sentinel.timerPrev = sentinel;
+				sentinel.timerNext = sentinel;
+				buckets[i] = sentinel;
+			}
+			wheel[level] = buckets;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <K, V> Node<K, V>[][] newLevelArray(int length) {
+		return (Node<K, V>[][]) new Node<?, ?>[length][];
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <K, V> Node<K, V>[] newBucketArray(int length) {
+		return (Node<K, V>[]) new Node<?, ?>[length];
+	}
+
+	long getCurrentTime() {
+		return currentTime;
+	}
+
+	/**
+	 * Places the entry into the bucket corresponding to its {@link Node#wheelTime}.
+	 * If the entry is already scheduled, it is moved.
+	 */
+	void schedule(Node<K, V> node) {
+		if (null != node.timerNext) {
+			unlink(node);
+		}
+		final Node<K, V> sentinel = findBucket(node.wheelTime);
+		final Node<K, V> last = sentinel.timerPrev;
+		node.timerPrev = last;
+		node.timerNext = sentinel;
+		last.timerNext = node;
+		sentinel.timerPrev = node;
+	}
+
+	void deschedule(Node<K, V> node) {
+		if (null != node.timerNext) {
+			unlink(node);
+		}
+	}
+
+	/**
+	 * Moves the wheel to the given time and processes all buckets
+	 * of the time slots that were passed.
+	 */
+	void advance(long time, ExpirationHandler<K, V> handler) {
+		final long previousTime = currentTime;
+		currentTime = time;
+		if (time <= previousTime) {
+			return;
+		}
+		for (int level = 0; level < SHIFTS.length; ++level) {
+			final long previousTicks = previousTime >> SHIFTS[level];
+			final long currentTicks = time >> SHIFTS[level];
+			if (currentTicks == previousTicks) {
+				break;
+			}
+			expireLevel(level, previousTicks, currentTicks - previousTicks, handler);
+		}
+	}
+
+	void clear() {
+		for (Node<K, V>[] buckets : wheel) {
+			for (Node<K, V> sentinel : buckets) {
+				Node<K, V> node = sentinel.timerNext;
+				while (node != sentinel) {
+					final Node<K, V> next = node.timerNext;
+					node.timerPrev = null;
+					node.timerNext = null;
+					node = next;
+				}
+				sentinel.timerPrev = sentinel;
+				sentinel.timerNext = sentinel;
+			}
+		}
+	}
+
+	private void expireLevel(int level, long previousTicks, long elapsedTicks, ExpirationHandler<K, V> handler) {
+		final Node<K, V>[] buckets = wheel[level];
+		final int mask = buckets.length - 1;
+		final int steps = (int) Math.min(elapsedTicks + 1L, buckets.length);
+		final int start = (int) (previousTicks & mask);
+		for (int i = start; i < start + steps; ++i) {
+			final Node<K, V> sentinel = buckets[i & mask];
+			// Detach the whole bucket first, as its entries may be scheduled into it again
+			Node<K, V> node = sentinel.timerNext;
+			sentinel.timerPrev = sentinel;
+			sentinel.timerNext = sentinel;
+			while (node != sentinel) {
+				final Node<K, V> next = node.timerNext;
+				node.timerPrev = null;
+				node.timerNext = null;
+				if ((node.wheelTime > currentTime) || !handler.expire(node)) {
+					schedule(node);
+				}
+				node = next;
+			}
+		}
+	}
+
+	private Node<K, V> findBucket(long time) {
+		// Deadlines from the past are placed into the current slot
+		final long effectiveTime = Math.max(time, currentTime);
+		final long duration = effectiveTime - currentTime;
+		final int lastLevel = BUCKETS.length - 1;
+		for (int level = 0; level < lastLevel; ++level) {
+			if (duration < (1L << SHIFTS[level + 1])) {
+				final long ticks = effectiveTime >> SHIFTS[level];
+				return wheel[level][(int) ticks & (BUCKETS[level] - 1)];
+			}
+		}
+		return wheel[lastLevel][0];
+	}
+
+	private static <K, V> void unlink(Node<K, V> node) {
+		final Node<K, V> prev = node.timerPrev;
+		final Node<K, V> next = node.timerNext;
+		prev.timerNext = next;
+		next.timerPrev = prev;
+		node.timerPrev = null;
+		node.timerNext = null;
+	}
+
+}
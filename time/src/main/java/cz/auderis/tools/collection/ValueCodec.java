@@ -0,0 +1,52 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.collection;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts values into a binary form and back, so that they can be stored
+ * outside of the Java heap.
+ *
+ * @param <V> type of values
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ * @see cz.auderis.tools.collection.ValueCodecs
+ */
+public interface ValueCodec<V> {
+
+	/**
+	 * Encodes the value. The remaining bytes of the returned buffer represent the value;
+	 * the buffer is consumed before another call of this method.
+	 *
+	 * @param value the value, never {@code null}
+	 * @return buffer with encoded value
+	 */
+	ByteBuffer encode(V value);
+
+	/**
+	 * Decodes the value from the remaining bytes of the buffer. The buffer content
+	 * is valid only during this call, therefore the implementation must not keep
+	 * a reference to it.
+	 *
+	 * @param data encoded value
+	 * @return decoded value
+	 */
+	V decode(ByteBuffer data);
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.collection;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Factory of commonly used {@link cz.auderis.tools.collection.ValueCodec}s.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public final class ValueCodecs {
+
+	/**
+	 * Returns a codec that stores byte arrays unchanged.
+	 *
+	 * @return byte array codec
+	 */
+	public static ValueCodec<byte[]> byteArray() {
+		return ByteArrayCodec.INSTANCE;
+	}
+
+	/**
+	 * Returns a codec that stores strings using the given character set.
+	 *
+	 * @param charset the character set
+	 * @return string codec
+	 * @throws java.lang.NullPointerException if {@code charset} is {@code null}
+	 */
+	public static ValueCodec<String> string(Charset charset) {
+		if (null == charset) {
+			throw new NullPointerException();
+		}
+		return new StringCodec(charset);
+	}
+
+	/**
+	 * Returns a codec that uses Java serialization.
+	 *
+	 * @param <V> type of values
+	 * @return serialization codec
+	 */
+	@SuppressWarnings("unchecked")
+	public static <V extends Serializable> ValueCodec<V> serialized() {
+		return (ValueCodec<V>) SerializationCodec.INSTANCE;
+	}
+
+	static byte[] toByteArray(ByteBuffer data) {
+		final byte[] result = new byte[data.remaining()];
+		data.get(result);
+		return result;
+	}
+
+	enum ByteArrayCodec implements ValueCodec<byte[]> {
+		INSTANCE;
+
+		@Override
+		public ByteBuffer encode(byte[] value) {
+			return ByteBuffer.wrap(value);
+		}
+
+		@Override
+		public byte[] decode(ByteBuffer data) {
+			return toByteArray(data);
+		}
+	}
+
+	static final class StringCodec implements ValueCodec<String> {
+		private final Charset charset;
+
+		StringCodec(Charset charset) {
+			this.charset = charset;
+		}
+
+		@Override
+		public ByteBuffer encode(String value) {
+			return charset.encode(CharBuffer.wrap(value));
+		}
+
+		@Override
+		public String decode(ByteBuffer data) {
+			return charset.decode(data).toString();
+		}
+	}
+
+	@SuppressWarnings("rawtypes")
+	enum SerializationCodec implements ValueCodec {
+		INSTANCE;
+
+		@Override
+		public ByteBuffer encode(Object value) {
+			try {
+				final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				final ObjectOutputStream output = new ObjectOutputStream(bytes);
+				output.writeObject(value);
+				output.close();
+				return ByteBuffer.wrap(bytes.toByteArray());
+			} catch (IOException e) {
+				throw new IllegalArgumentException("value cannot be serialized", e);
+			}
+		}
+
+		@Override
+		public Object decode(ByteBuffer data) {
+			try {
+				final ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(toByteArray(data)));
+				try {
+					return input.readObject();
+				} finally {
+					input.close();
+				}
+			} catch (IOException e) {
+				throw new IllegalStateException("value cannot be deserialized", e);
+			} catch (ClassNotFoundException e) {
+				throw new IllegalStateException("value cannot be deserialized", e);
+			}
+		}
+	}
+
+	private ValueCodecs() {
+		throw new AssertionError();
+	}
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Implementation of {@link cz.auderis.tools.time.TimeProvider} that returns the time
+ * cached in an atomic field instead of consulting the clock on every call. The cached
+ * value is refreshed from the source provider by {@link #update()}; reading the time
+ * is therefore as cheap as a single volatile read.
+ *
+ * <p>This class is meant for event loops and similar designs, where a single thread
+ * updates the time once per iteration and all the timeouts checked during that iteration
+ * share the same value. For a clock updated by a background thread, see
+ * {@link cz.auderis.tools.time.TickingTimeProvider}.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class CachedTimeProvider implements TimeProvider {
+
+	private final TimeProvider source;
+	private final AtomicLong time;
+
+	/**
+	 * Creates a new provider based on the system clock. The cached time
+	 * is initialized to the current time.
+	 */
+	public CachedTimeProvider() {
+		this(TimeProviders.systemClock());
+	}
+
+	/**
+	 * Creates a new provider that caches the time of the given source provider.
+	 * The cached time is initialized to the current time of the source.
+	 *
+	 * @param source source of the time
+	 * @throws java.lang.NullPointerException if {@code source} is {@code null}
+	 */
+	public CachedTimeProvider(TimeProvider source) {
+		if (null == source) {
+			throw new NullPointerException();
+		}
+		this.source = source;
+		this.time = new AtomicLong(source.getTimeInMillis());
+	}
+
+	/**
+	 * Returns the time cached by the last update.
+	 *
+	 * @return cached time given in milliseconds
+	 */
+	@Override
+	public long getTimeInMillis() {
+		return time.get();
+	}
+
+	/**
+	 * Reads the current time of the source provider and publishes it to the readers.
+	 * The cached time never moves backwards, so that readers do not observe the time
+	 * going back when several threads update the value concurrently.
+	 *
+	 * @return the cached time after the update
+	 */
+	public long update() {
+		final long currentTime = source.getTimeInMillis();
+		for (;;) {
+			final long cachedTime = time.get();
+			if (currentTime <= cachedTime) {
+				return cachedTime;
+			} else if (time.compareAndSet(cachedTime, currentTime)) {
+				return currentTime;
+			}
+		}
+	}
+
+	/**
+	 * Returns the provider that supplies the time.
+	 *
+	 * @return source provider
+	 */
+	public TimeProvider getSource() {
+		return source;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder str = new StringBuilder("CachedTimeProvider[t=");
+		str.append(time.get());
+		str.append(']');
+		return str.toString();
+	}
+
+}
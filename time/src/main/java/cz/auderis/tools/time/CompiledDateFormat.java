@@ -0,0 +1,1113 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time;
+
+import cz.auderis.tools.lang.AppendableCharArrayWrapper;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.CharBuffer;
+import java.text.DateFormatSymbols;
+import java.text.FieldPosition;
+import java.text.Format;
+import java.text.ParseException;
+import java.text.ParsePosition;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Immutable and thread-safe date format, intended as a replacement of
+ * {@link cz.auderis.tools.time.ThreadLocalDateFormat}. The pattern syntax is the same
+ * as for {@link java.text.SimpleDateFormat}; the pattern is compiled only once into
+ * a sequence of field writers, which are then shared by all threads. No per-thread
+ * or per-call formatter instances are needed.
+ *
+ * <p>Besides the methods of {@link java.text.Format}, the date may be formatted
+ * directly into an {@link java.lang.Appendable} or into a {@code char} array.
+ * Pattern {@link #ISO_FORMAT_MASK} is handled by a dedicated code path.
+ *
+ * <p>Supported pattern letters are {@code G y M d D E a H k K h m s S z Z}.
+ * Compared to {@link java.text.SimpleDateFormat}, there are a few differences:
+ * <ul>
+ *     <li>numbers are always written and parsed using ASCII digits,</li>
+ *     <li>day of week ({@code E}) is ignored when parsing,</li>
+ *     <li>when parsing time zone names ({@code z}), only the names of the format's
+ *     own time zone and GMT offsets are recognized,</li>
+ *     <li>field positions are not reported.</li>
+ * </ul>
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class CompiledDateFormat extends Format {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Default format template used when default constructor is invoked.
+	 */
+	public static final String ISO_FORMAT_MASK = ThreadLocalDateFormat.ISO_FORMAT_MASK;
+
+	private static final int ISO_LENGTH = 19;
+	private static final long MILLIS_PER_DAY = 86400000L;
+	// First full year of Gregorian calendar, older dates are handled by GregorianCalendar
+	private static final int FIRST_GREGORIAN_YEAR = 1583;
+	private static final long FIRST_GREGORIAN_YEAR_MILLIS = -12212553600000L;
+	private static final int MAX_FAST_YEAR = 999999;
+
+	private final String template;
+	private final Locale locale;
+	private final TimeZone timeZone;
+	private final Field[] fields;
+	private final boolean isoLayout;
+	private final int estimatedLength;
+	private final int centuryStartYear;
+	private final long centuryStartMillis;
+
+	/**
+	 * Creates a new instance using {@link #ISO_FORMAT_MASK} formatting template,
+	 * default locale and default time zone.
+	 */
+	public CompiledDateFormat() {
+		this(ISO_FORMAT_MASK);
+	}
+
+	/**
+	 * Creates a new instance using the provided formatting template, default locale
+	 * and default time zone.
+	 *
+	 * @param template format template
+	 * @throws java.lang.NullPointerException if {@code template} is {@code null}
+	 * @throws java.lang.IllegalArgumentException if the template is invalid
+	 */
+	public CompiledDateFormat(String template) {
+		this(template, null, null);
+	}
+
+	/**
+	 * Creates a new instance using the provided formatting template and locale.
+	 * Default time zone is used.
+	 *
+	 * @param template format template
+	 * @param locale locale to be used, {@code null} means default locale
+	 * @throws java.lang.NullPointerException if {@code template} is {@code null}
+	 * @throws java.lang.IllegalArgumentException if the template is invalid
+	 */
+	public CompiledDateFormat(String template, Locale locale) {
+		this(template, locale, null);
+	}
+
+	/**
+	 * Creates a new instance using the provided formatting template, locale and time zone.
+	 *
+	 * @param template format template
+	 * @param locale locale to be used, {@code null} means default locale
+	 * @param timeZone time zone to be used, {@code null} means default time zone
+	 * @throws java.lang.NullPointerException if {@code template} is {@code null}
+	 * @throws java.lang.IllegalArgumentException if the template is invalid
+	 */
+	public CompiledDateFormat(String template, Locale locale, TimeZone timeZone) {
+		super();
+		if (null == template) {
+			throw new NullPointerException();
+		}
+		this.template = template;
+		this.locale = (null != locale) ? locale : Locale.getDefault();
+		// Time zone is mutable, keep a private copy
+		this.timeZone = (TimeZone) ((null != timeZone) ? timeZone : TimeZone.getDefault()).clone();
+		this.fields = compile(template, this.locale, this.timeZone);
+		this.isoLayout = ISO_FORMAT_MASK.equals(template);
+		int length = 0;
+		for (Field field : fields) {
+			length += field.estimateLength();
+		}
+		this.estimatedLength = length;
+		// Two-digit years are placed into the century starting 80 years ago; like SimpleDateFormat,
+		// the start is computed in the default time zone
+		final GregorianCalendar centuryStart = new GregorianCalendar(this.locale);
+		centuryStart.add(Calendar.YEAR, -80);
+		this.centuryStartYear = centuryStart.get(Calendar.YEAR);
+		this.centuryStartMillis = centuryStart.getTimeInMillis();
+	}
+
+	/**
+	 * Returns the formatting template.
+	 *
+	 * @return formatting template
+	 */
+	public String toPattern() {
+		return template;
+	}
+
+	/**
+	 * Returns the locale used by this format.
+	 *
+	 * @return locale
+	 */
+	public Locale getLocale() {
+		return locale;
+	}
+
+	/**
+	 * Returns a copy of the time zone used by this format.
+	 *
+	 * @return time zone
+	 */
+	public TimeZone getTimeZone() {
+		return (TimeZone) timeZone.clone();
+	}
+
+	/**
+	 * Formats the date given as number of milliseconds since the epoch.
+	 *
+	 * @param millis time to be formatted
+	 * @return formatted date
+	 */
+	public String format(long millis) {
+		final DateFields dateFields = computeFields(millis);
+		if (isIsoCompatible(dateFields)) {
+			final char[] buffer = new char[ISO_LENGTH];
+			writeIso(dateFields, buffer, 0);
+			return new String(buffer);
+		}
+		final StringBuilder result = new StringBuilder(estimatedLength);
+		try {
+			writeFields(dateFields, result);
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Formats the date and appends the result to the target.
+	 *
+	 * @param date date to be formatted
+	 * @param target where the result should be appended
+	 * @throws java.lang.NullPointerException if any of the arguments is {@code null}
+	 * @throws java.io.IOException if the target reports an error
+	 */
+	public void format(Date date, Appendable target) throws IOException {
+		if (null == date) {
+			throw new NullPointerException();
+		}
+		format(date.getTime(), target);
+	}
+
+	/**
+	 * Formats the date given as number of milliseconds since the epoch and appends
+	 * the result to the target.
+	 *
+	 * @param millis time to be formatted
+	 * @param target where the result should be appended
+	 * @throws java.lang.NullPointerException if {@code target} is {@code null}
+	 * @throws java.io.IOException if the target reports an error
+	 */
+	public void format(long millis, Appendable target) throws IOException {
+		if (null == target) {
+			throw new NullPointerException();
+		}
+		final DateFields dateFields = computeFields(millis);
+		if (isIsoCompatible(dateFields)) {
+			final char[] buffer = new char[ISO_LENGTH];
+			writeIso(dateFields, buffer, 0);
+			target.append(CharBuffer.wrap(buffer));
+		} else {
+			writeFields(dateFields, target);
+		}
+	}
+
+	/**
+	 * Formats the date given as number of milliseconds since the epoch into the
+	 * array, starting at the given offset. Characters that do not fit into
+	 * the array are silently dropped.
+	 *
+	 * @param millis time to be formatted
+	 * @param target target array
+	 * @param offset index of the first written character
+	 * @return number of characters written
+	 * @throws java.lang.NullPointerException if {@code target} is {@code null}
+	 * @throws java.lang.IndexOutOfBoundsException if {@code offset} is outside of the array
+	 */
+	public int format(long millis, char[] target, int offset) {
+		if (null == target) {
+			throw new NullPointerException();
+		} else if ((offset < 0) || (offset >= target.length)) {
+			throw new IndexOutOfBoundsException("invalid offset");
+		}
+		final DateFields dateFields = computeFields(millis);
+		if (isIsoCompatible(dateFields) && (offset + ISO_LENGTH <= target.length)) {
+			writeIso(dateFields, target, offset);
+			return ISO_LENGTH;
+		}
+		final AppendableCharArrayWrapper wrapper = new AppendableCharArrayWrapper(target, offset, target.length - offset);
+		try {
+			writeFields(dateFields, wrapper);
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		}
+		return wrapper.getCurrentOffset();
+	}
+
+	@Override
+	public StringBuffer format(Object obj, StringBuffer toAppendTo, FieldPosition pos) {
+		final long millis;
+		if (obj instanceof Date) {
+			millis = ((Date) obj).getTime();
+		} else if (obj instanceof Calendar) {
+			millis = ((Calendar) obj).getTimeInMillis();
+		} else if (obj instanceof Number) {
+			millis = ((Number) obj).longValue();
+		} else {
+			throw new IllegalArgumentException("cannot format given object as a date");
+		}
+		try {
+			format(millis, toAppendTo);
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		}
+		return toAppendTo;
+	}
+
+	/**
+	 * Parses the date from the beginning of the text.
+	 *
+	 * @param source text to be parsed
+	 * @return parsed date
+	 * @throws java.text.ParseException if the beginning of the text cannot be parsed
+	 */
+	public Date parse(String source) throws ParseException {
+		final ParsePosition pos = new ParsePosition(0);
+		final Date result = parse(source, pos);
+		if (null == result) {
+			throw new ParseException("unparseable date: \"" + source + '"', pos.getErrorIndex());
+		}
+		return result;
+	}
+
+	/**
+	 * Parses the date from the text, starting at the given position. On success,
+	 * the index of the position is moved after the last used character. On failure,
+	 * the error index of the position is set.
+	 *
+	 * @param source text to be parsed
+	 * @param pos parse position
+	 * @return parsed date or {@code null} if the text cannot be parsed
+	 * @throws java.lang.NullPointerException if any of the arguments is {@code null}
+	 */
+	public Date parse(String source, ParsePosition pos) {
+		if ((null == source) || (null == pos)) {
+			throw new NullPointerException();
+		}
+		final int start = pos.getIndex();
+		final ParsedFields parsed = new ParsedFields();
+		int index = isoLayout ? parseIso(source, start, parsed) : -1;
+		if (index < 0) {
+			index = start;
+			for (Field field : fields) {
+				final int nextIndex = field.parse(source, index, parsed, this);
+				if (nextIndex < 0) {
+					pos.setErrorIndex(index);
+					return null;
+				}
+				index = nextIndex;
+			}
+		}
+		pos.setIndex(index);
+		long millis = toMillis(parsed);
+		if (parsed.ambiguousYear && (millis < centuryStartMillis)) {
+			// Same two-digit year as the century start, but an earlier instant
+			parsed.year += 100;
+			millis = toMillis(parsed);
+		}
+		return new Date(millis);
+	}
+
+	@Override
+	public Object parseObject(String source, ParsePosition pos) {
+		return parse(source, pos);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		} else if (!(obj instanceof CompiledDateFormat)) {
+			return false;
+		}
+		final CompiledDateFormat other = (CompiledDateFormat) obj;
+		return template.equals(other.template) && locale.equals(other.locale) && timeZone.equals(other.timeZone);
+	}
+
+	@Override
+	public int hashCode() {
+		return template.hashCode() + 31 * locale.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return "CompiledDateFormat[" + template + ", " + locale + ", " + timeZone.getID() + ']';
+	}
+
+	Field[] getFields() {
+		return fields;
+	}
+
+	private void writeFields(DateFields dateFields, Appendable target) throws IOException {
+		for (Field field : fields) {
+			field.format(dateFields, target);
+		}
+	}
+
+	private boolean isIsoCompatible(DateFields dateFields) {
+		// Years with more than 4 digits need the generic path
+		return isoLayout && (dateFields.year <= 9999);
+	}
+
+	private static void writeIso(DateFields f, char[] buffer, int offset) {
+		int i = offset;
+		i = writeDigits(f.year, 4, buffer, i);
+		buffer[i++] = '-';
+		i = writeDigits(f.month, 2, buffer, i);
+		buffer[i++] = '-';
+		i = writeDigits(f.day, 2, buffer, i);
+		buffer[i++] = ' ';
+		i = writeDigits(f.hourOfDay, 2, buffer, i);
+		buffer[i++] = ':';
+		i = writeDigits(f.minute, 2, buffer, i);
+		buffer[i++] = ':';
+		writeDigits(f.second, 2, buffer, i);
+	}
+
+	private static int writeDigits(int value, int digits, char[] buffer, int offset) {
+		int v = value;
+		for (int i = offset + digits - 1; i >= offset; --i) {
+			buffer[i] = (char) ('0' + v % 10);
+			v /= 10;
+		}
+		return offset + digits;
+	}
+
+	private int parseIso(String text, int start, ParsedFields parsed) {
+		if (start + ISO_LENGTH > text.length()) {
+			return -1;
+		}
+		final int year = parseFixedDigits(text, start, 4);
+		final int month = parseFixedDigits(text, start + 5, 2);
+		final int day = parseFixedDigits(text, start + 8, 2);
+		final int hour = parseFixedDigits(text, start + 11, 2);
+		final int minute = parseFixedDigits(text, start + 14, 2);
+		final int second = parseFixedDigits(text, start + 17, 2);
+		if ((year < 0) || (month < 0) || (day < 0) || (hour < 0) || (minute < 0) || (second < 0)
+				|| ('-' != text.charAt(start + 4)) || ('-' != text.charAt(start + 7)) || (' ' != text.charAt(start + 10))
+				|| (':' != text.charAt(start + 13)) || (':' != text.charAt(start + 16))) {
+			return -1;
+		}
+		parsed.year = year;
+		parsed.month = month;
+		parsed.day = day;
+		parsed.hourOfDay = hour;
+		parsed.minute = minute;
+		parsed.second = second;
+		return start + ISO_LENGTH;
+	}
+
+	private static int parseFixedDigits(String text, int start, int digits) {
+		int result = 0;
+		for (int i = start; i < start + digits; ++i) {
+			final int digit = text.charAt(i) - '0';
+			if ((digit < 0) || (digit > 9)) {
+				return -1;
+			}
+			result = 10 * result + digit;
+		}
+		return result;
+	}
+
+	DateFields computeFields(long millis) {
+		final DateFields f = new DateFields();
+		f.millis = millis;
+		f.zoneOffset = timeZone.getOffset(millis);
+		final long localMillis = millis + f.zoneOffset;
+		if (localMillis < FIRST_GREGORIAN_YEAR_MILLIS) {
+			computeCalendarFields(f);
+			return f;
+		}
+		final long days = floorDiv(localMillis, MILLIS_PER_DAY);
+		int timeOfDay = (int) (localMillis - days * MILLIS_PER_DAY);
+		f.millisecond = timeOfDay % 1000;
+		timeOfDay /= 1000;
+		f.second = timeOfDay % 60;
+		timeOfDay /= 60;
+		f.minute = timeOfDay % 60;
+		f.hourOfDay = timeOfDay / 60;
+		// Civil date from day number, see http://howardhinnant.github.io/date_algorithms.html
+		final long z = days + 719468L;
+		final long era = floorDiv(z, 146097L);
+		final int dayOfEra = (int) (z - era * 146097L);
+		final int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		final int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		final int shiftedMonth = (5 * dayOfYear + 2) / 153;
+		f.day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+		f.month = (shiftedMonth < 10) ? shiftedMonth + 3 : shiftedMonth - 9;
+		f.year = (int) (era * 400L) + yearOfEra + ((f.month <= 2) ? 1 : 0);
+		f.era = GregorianCalendar.AD;
+		f.dayOfYear = (int) (days - daysFromCivil(f.year, 1, 1)) + 1;
+		f.dayOfWeek = (int) floorMod(days + 4L, 7L) + Calendar.SUNDAY;
+		return f;
+	}
+
+	private void computeCalendarFields(DateFields f) {
+		final GregorianCalendar calendar = new GregorianCalendar(timeZone, locale);
+		calendar.setTimeInMillis(f.millis);
+		f.era = calendar.get(Calendar.ERA);
+		f.year = calendar.get(Calendar.YEAR);
+		f.month = calendar.get(Calendar.MONTH) + 1;
+		f.day = calendar.get(Calendar.DAY_OF_MONTH);
+		f.dayOfYear = calendar.get(Calendar.DAY_OF_YEAR);
+		f.dayOfWeek = calendar.get(Calendar.DAY_OF_WEEK);
+		f.hourOfDay = calendar.get(Calendar.HOUR_OF_DAY);
+		f.minute = calendar.get(Calendar.MINUTE);
+		f.second = calendar.get(Calendar.SECOND);
+		f.millisecond = calendar.get(Calendar.MILLISECOND);
+	}
+
+	long toMillis(ParsedFields p) {
+		int hourOfDay = p.hourOfDay;
+		if (p.hour12 >= 0) {
+			hourOfDay = p.hour12 + ((p.pm) ? 12 : 0);
+		}
+		final boolean fastPath = (GregorianCalendar.AD == p.era)
+				&& (p.year >= FIRST_GREGORIAN_YEAR) && (p.year <= MAX_FAST_YEAR)
+				&& (p.month >= 1) && (p.month <= 12) && (p.day >= 1) && (p.day <= monthLength(p.year, p.month))
+				&& (p.dayOfYear <= 365) && (hourOfDay < 24) && (p.minute < 60) && (p.second < 60) && (p.millisecond < 1000)
+				&& !p.zoneNameKnown;
+		if (!fastPath) {
+			return toCalendarMillis(p, hourOfDay);
+		}
+		long days = daysFromCivil(p.year, p.month, p.day);
+		if (p.dayOfYear > 0) {
+			days = daysFromCivil(p.year, 1, 1) + p.dayOfYear - 1;
+		}
+		final long localMillis = days * MILLIS_PER_DAY + ((hourOfDay * 60L + p.minute) * 60L + p.second) * 1000L + p.millisecond;
+		if (p.zoneOffsetKnown) {
+			return localMillis - p.zoneOffset;
+		}
+		// Resolve the offset in the same way as GregorianCalendar does (standard time is preferred)
+		long result = localMillis - timeZone.getOffset(localMillis - timeZone.getRawOffset());
+		final int adjustedOffset = timeZone.getOffset(result);
+		if (localMillis - result != adjustedOffset) {
+			result = localMillis - adjustedOffset;
+		}
+		return result;
+	}
+
+	private long toCalendarMillis(ParsedFields p, int hourOfDay) {
+		final GregorianCalendar calendar = new GregorianCalendar(timeZone, locale);
+		calendar.clear();
+		calendar.set(Calendar.ERA, p.era);
+		calendar.set(Calendar.YEAR, p.year);
+		if (p.dayOfYear > 0) {
+			calendar.set(Calendar.DAY_OF_YEAR, p.dayOfYear);
+		} else {
+			calendar.set(Calendar.MONTH, p.month - 1);
+			calendar.set(Calendar.DAY_OF_MONTH, p.day);
+		}
+		calendar.set(Calendar.HOUR_OF_DAY, hourOfDay);
+		calendar.set(Calendar.MINUTE, p.minute);
+		calendar.set(Calendar.SECOND, p.second);
+		calendar.set(Calendar.MILLISECOND, p.millisecond);
+		if (p.zoneOffsetKnown) {
+			calendar.set(Calendar.ZONE_OFFSET, p.zoneOffset);
+			calendar.set(Calendar.DST_OFFSET, 0);
+		} else if (p.zoneNameKnown) {
+			// Raw offset is resolved by the calendar for the local time, which respects its historical changes
+			calendar.set(Calendar.DST_OFFSET, p.zoneDaylightOffset);
+		}
+		return calendar.getTimeInMillis();
+	}
+
+	private static int monthLength(int year, int month) {
+		if (2 == month) {
+			final boolean leapYear = (0 == year % 4) && ((0 != year % 100) || (0 == year % 400));
+			return leapYear ? 29 : 28;
+		}
+		return ((4 == month) || (6 == month) || (9 == month) || (11 == month)) ? 30 : 31;
+	}
+
+	private static long daysFromCivil(int year, int month, int day) {
+		final long y = (month <= 2) ? year - 1L : year;
+		final long era = floorDiv(y, 400L);
+		final int yearOfEra = (int) (y - era * 400L);
+		final int dayOfYear = (153 * ((month > 2) ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097L + dayOfEra - 719468L;
+	}
+
+	private static long floorDiv(long x, long y) {
+		final long q = x / y;
+		return ((x % y != 0L) && ((x ^ y) < 0L)) ? q - 1L : q;
+	}
+
+	private static long floorMod(long x, long y) {
+		return x - floorDiv(x, y) * y;
+	}
+
+	private static Field[] compile(String template, Locale locale, TimeZone timeZone) {
+		final DateFormatSymbols symbols = DateFormatSymbols.getInstance(locale);
+		final List<Field> result = new ArrayList<Field>();
+		final StringBuilder literal = new StringBuilder();
+		final int length = template.length();
+		int i = 0;
+		while (i < length) {
+			final char c = template.charAt(i);
+			if ('\'' == c) {
+				i = readQuoted(template, i + 1, literal);
+			} else if (((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z'))) {
+				int count = 1;
+				while ((i + count < length) && (c == template.charAt(i + count))) {
+					++count;
+				}
+				if (literal.length() > 0) {
+					result.add(new LiteralField(literal.toString()));
+					literal.setLength(0);
+				}
+				result.add(createField(c, count, symbols, locale, timeZone));
+				i += count;
+			} else {
+				literal.append(c);
+				++i;
+			}
+		}
+		if (literal.length() > 0) {
+			result.add(new LiteralField(literal.toString()));
+		}
+		// Numeric fields followed by another numeric field are parsed with fixed width
+		for (int j = 0; j + 1 < result.size(); ++j) {
+			final Field field = result.get(j);
+			if ((field instanceof NumberField) && (result.get(j + 1) instanceof NumberField)) {
+				((NumberField) field).abutting = true;
+			}
+		}
+		return result.toArray(new Field[result.size()]);
+	}
+
+	private static int readQuoted(String template, int start, StringBuilder literal) {
+		final int length = template.length();
+		if ((start < length) && ('\'' == template.charAt(start))) {
+			// Two apostrophes represent a single one
+			literal.append('\'');
+			return start + 1;
+		}
+		int i = start;
+		while (i < length) {
+			final char c = template.charAt(i);
+			if ('\'' == c) {
+				if ((i + 1 < length) && ('\'' == template.charAt(i + 1))) {
+					literal.append('\'');
+					i += 2;
+					continue;
+				}
+				return i + 1;
+			}
+			literal.append(c);
+			++i;
+		}
+		throw new IllegalArgumentException("unterminated quote in date pattern");
+	}
+
+	private static Field createField(char letter, int count, DateFormatSymbols symbols, Locale locale, TimeZone timeZone) {
+		switch (letter) {
+			case 'G':
+				return new TextField(letter, symbols.getEras(), symbols.getEras(), null);
+			case 'M':
+				if (count >= 4) {
+					return new TextField(letter, symbols.getMonths(), symbols.getMonths(), symbols.getShortMonths());
+				} else if (3 == count) {
+					return new TextField(letter, symbols.getShortMonths(), symbols.getMonths(), symbols.getShortMonths());
+				}
+				return new NumberField(letter, count);
+			case 'E':
+				if (count >= 4) {
+					return new TextField(letter, symbols.getWeekdays(), symbols.getWeekdays(), symbols.getShortWeekdays());
+				}
+				return new TextField(letter, symbols.getShortWeekdays(), symbols.getWeekdays(), symbols.getShortWeekdays());
+			case 'a':
+				return new TextField(letter, symbols.getAmPmStrings(), symbols.getAmPmStrings(), null);
+			case 'y':
+			case 'd':
+			case 'D':
+			case 'H':
+			case 'k':
+			case 'K':
+			case 'h':
+			case 'm':
+			case 's':
+			case 'S':
+				return new NumberField(letter, count);
+			case 'Z':
+				return new ZoneOffsetField();
+			case 'z':
+				return new ZoneNameField(count >= 4, locale, timeZone);
+			default:
+				throw new IllegalArgumentException("unsupported pattern letter '" + letter + "'");
+		}
+	}
+
+	static int parseOffset(String text, int start, ParsedFields target) {
+		// Accepts +hhmm, -hhmm, +hh:mm and -hh:mm
+		if (start >= text.length()) {
+			return -1;
+		}
+		final char sign = text.charAt(start);
+		if (('+' != sign) && ('-' != sign)) {
+			return -1;
+		}
+		int i = start + 1;
+		if (i + 2 > text.length()) {
+			return -1;
+		}
+		final int hours = parseFixedDigits(text, i, 2);
+		i += 2;
+		if ((i < text.length()) && (':' == text.charAt(i))) {
+			++i;
+		}
+		if ((hours < 0) || (i + 2 > text.length())) {
+			return -1;
+		}
+		final int minutes = parseFixedDigits(text, i, 2);
+		if ((minutes < 0) || (minutes >= 60)) {
+			return -1;
+		}
+		final int offset = (hours * 60 + minutes) * 60000;
+		target.zoneOffset = ('-' == sign) ? -offset : offset;
+		target.zoneOffsetKnown = true;
+		target.zoneNameKnown = false;
+		return i + 2;
+	}
+
+	static void appendNumber(Appendable target, int value, int minDigits) throws IOException {
+		int digits = 1;
+		for (int limit = 10; (digits < 10) && (value >= limit); limit *= 10) {
+			++digits;
+		}
+		for (int i = digits; i < minDigits; ++i) {
+			target.append('0');
+		}
+		int divisor = 1;
+		for (int i = 1; i < digits; ++i) {
+			divisor *= 10;
+		}
+		int remainder = value;
+		for (; divisor > 0; divisor /= 10) {
+			target.append((char) ('0' + remainder / divisor));
+			remainder %= divisor;
+		}
+	}
+
+	/**
+	 * Calendar fields of a formatted instant.
+	 */
+	static final class DateFields {
+		long millis;
+		int zoneOffset;
+		int era;
+		int year;
+		int month;
+		int day;
+		int dayOfYear;
+		int dayOfWeek;
+		int hourOfDay;
+		int minute;
+		int second;
+		int millisecond;
+	}
+
+	/**
+	 * Calendar fields collected during parsing, with the same defaults as
+	 * {@link java.text.SimpleDateFormat} uses.
+	 */
+	static final class ParsedFields {
+		int era = GregorianCalendar.AD;
+		int year = 1970;
+		boolean ambiguousYear;
+		int month = 1;
+		int day = 1;
+		int dayOfYear;
+		int hourOfDay;
+		int hour12 = -1;
+		boolean pm;
+		int minute;
+		int second;
+		int millisecond;
+		boolean zoneOffsetKnown;
+		int zoneOffset;
+		boolean zoneNameKnown;
+		int zoneDaylightOffset;
+	}
+
+	abstract static class Field implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		abstract void format(DateFields dateFields, Appendable target) throws IOException;
+
+		/**
+		 * Returns index following the parsed text or a negative value on failure.
+		 */
+		abstract int parse(String text, int start, ParsedFields target, CompiledDateFormat owner);
+
+		abstract int estimateLength();
+
+		int getMillisecondWidth() {
+			return 0;
+		}
+	}
+
+	static final class LiteralField extends Field {
+		private static final long serialVersionUID = 1L;
+		private final String text;
+
+		LiteralField(String text) {
+			this.text = text;
+		}
+
+		@Override
+		void format(DateFields dateFields, Appendable target) throws IOException {
+			target.append(text);
+		}
+
+		@Override
+		int parse(String source, int start, ParsedFields target, CompiledDateFormat owner) {
+			return source.startsWith(text, start) ? start + text.length() : -1;
+		}
+
+		@Override
+		int estimateLength() {
+			return text.length();
+		}
+	}
+
+	static final class NumberField extends Field {
+		private static final long serialVersionUID = 1L;
+		private static final int MAX_PARSED_DIGITS = 9;
+		private final char letter;
+		private final int count;
+		boolean abutting;
+
+		NumberField(char letter, int count) {
+			this.letter = letter;
+			this.count = count;
+		}
+
+		@Override
+		void format(DateFields f, Appendable target) throws IOException {
+			switch (letter) {
+				case 'y':
+					if (2 == count) {
+						appendNumber(target, f.year % 100, 2);
+					} else {
+						appendNumber(target, f.year, count);
+					}
+					break;
+				case 'M':
+					appendNumber(target, f.month, count);
+					break;
+				case 'd':
+					appendNumber(target, f.day, count);
+					break;
+				case 'D':
+					appendNumber(target, f.dayOfYear, count);
+					break;
+				case 'H':
+					appendNumber(target, f.hourOfDay, count);
+					break;
+				case 'k':
+					appendNumber(target, (0 == f.hourOfDay) ? 24 : f.hourOfDay, count);
+					break;
+				case 'K':
+					appendNumber(target, f.hourOfDay % 12, count);
+					break;
+				case 'h':
+					appendNumber(target, (0 == f.hourOfDay % 12) ? 12 : f.hourOfDay % 12, count);
+					break;
+				case 'm':
+					appendNumber(target, f.minute, count);
+					break;
+				case 's':
+					appendNumber(target, f.second, count);
+					break;
+				case 'S':
+					appendNumber(target, f.millisecond, count);
+					break;
+				default:
+					throw new AssertionError(letter);
+			}
+		}
+
+		@Override
+		int parse(String text, int start, ParsedFields target, CompiledDateFormat owner) {
+			final int maxDigits = abutting ? count : MAX_PARSED_DIGITS;
+			final int length = text.length();
+			int value = 0;
+			int i = start;
+			while ((i < length) && (i - start < maxDigits)) {
+				final int digit = text.charAt(i) - '0';
+				if ((digit < 0) || (digit > 9)) {
+					break;
+				}
+				value = 10 * value + digit;
+				++i;
+			}
+			if (i == start) {
+				return -1;
+			}
+			switch (letter) {
+				case 'y':
+					if ((count <= 2) && (2 == i - start)) {
+						// Two-digit year is placed into the century starting 80 years ago
+						final int centuryStart = owner.centuryStartYear;
+						value += centuryStart - centuryStart % 100;
+						if (value < centuryStart) {
+							value += 100;
+						}
+						// The year of century start is resolved after the instant is known
+						target.ambiguousYear = (value == centuryStart);
+					} else {
+						target.ambiguousYear = false;
+					}
+					target.year = value;
+					break;
+				case 'M':
+					target.month = value;
+					break;
+				case 'd':
+					target.day = value;
+					break;
+				case 'D':
+					target.dayOfYear = value;
+					break;
+				case 'H':
+					target.hourOfDay = value;
+					break;
+				case 'k':
+					target.hourOfDay = (24 == value) ? 0 : value;
+					break;
+				case 'K':
+					target.hour12 = value;
+					break;
+				case 'h':
+					target.hour12 = (12 == value) ? 0 : value;
+					break;
+				case 'm':
+					target.minute = value;
+					break;
+				case 's':
+					target.second = value;
+					break;
+				case 'S':
+					target.millisecond = value;
+					break;
+				default:
+					throw new AssertionError(letter);
+			}
+			return i;
+		}
+
+		@Override
+		int estimateLength() {
+			return Math.max(count, 2);
+		}
+
+		@Override
+		int getMillisecondWidth() {
+			return ('S' == letter) ? count : 0;
+		}
+	}
+
+	static final class TextField extends Field {
+		private static final long serialVersionUID = 1L;
+		private final char letter;
+		private final String[] names;
+		private final String[] parseNames;
+		private final String[] alternativeParseNames;
+
+		TextField(char letter, String[] names, String[] parseNames, String[] alternativeParseNames) {
+			this.letter = letter;
+			this.names = names;
+			this.parseNames = parseNames;
+			this.alternativeParseNames = alternativeParseNames;
+		}
+
+		@Override
+		void format(DateFields f, Appendable target) throws IOException {
+			final int index;
+			switch (letter) {
+				case 'G':
+					index = f.era;
+					break;
+				case 'M':
+					index = f.month - 1;
+					break;
+				case 'E':
+					index = f.dayOfWeek;
+					break;
+				case 'a':
+					index = (f.hourOfDay < 12) ? Calendar.AM : Calendar.PM;
+					break;
+				default:
+					throw new AssertionError(letter);
+			}
+			target.append(names[index]);
+		}
+
+		@Override
+		int parse(String text, int start, ParsedFields target, CompiledDateFormat owner) {
+			int bestIndex = -1;
+			int bestLength = 0;
+			for (String[] nameArray : new String[][] { parseNames, alternativeParseNames }) {
+				if (null == nameArray) {
+					continue;
+				}
+				for (int i = 0; i < nameArray.length; ++i) {
+					final String name = nameArray[i];
+					final int nameLength = name.length();
+					if ((nameLength > bestLength) && text.regionMatches(true, start, name, 0, nameLength)) {
+						bestIndex = i;
+						bestLength = nameLength;
+					}
+				}
+			}
+			if (bestIndex < 0) {
+				return -1;
+			}
+			switch (letter) {
+				case 'G':
+					target.era = bestIndex;
+					break;
+				case 'M':
+					target.month = bestIndex + 1;
+					break;
+				case 'E':
+					// Day of week is implied by the date
+					break;
+				case 'a':
+					// Applies only to 12-hour fields
+					target.pm = (Calendar.PM == bestIndex);
+					break;
+				default:
+					throw new AssertionError(letter);
+			}
+			return start + bestLength;
+		}
+
+		@Override
+		int estimateLength() {
+			return 10;
+		}
+	}
+
+	static final class ZoneOffsetField extends Field {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		void format(DateFields f, Appendable target) throws IOException {
+			int offsetMinutes = f.zoneOffset / 60000;
+			if (offsetMinutes < 0) {
+				target.append('-');
+				offsetMinutes = -offsetMinutes;
+			} else {
+				target.append('+');
+			}
+			appendNumber(target, offsetMinutes / 60, 2);
+			appendNumber(target, offsetMinutes % 60, 2);
+		}
+
+		@Override
+		int parse(String text, int start, ParsedFields target, CompiledDateFormat owner) {
+			return parseOffset(text, start, target);
+		}
+
+		@Override
+		int estimateLength() {
+			return 5;
+		}
+	}
+
+	static final class ZoneNameField extends Field {
+		private static final long serialVersionUID = 1L;
+		private static final String GMT = "GMT";
+		private final String standardName;
+		private final String daylightName;
+		private final int rawOffset;
+		private final int daylightSavings;
+		private final TimeZone timeZone;
+
+		ZoneNameField(boolean longNames, Locale locale, TimeZone timeZone) {
+			final int style = longNames ? TimeZone.LONG : TimeZone.SHORT;
+			this.standardName = timeZone.getDisplayName(false, style, locale);
+			this.daylightName = timeZone.getDisplayName(true, style, locale);
+			this.rawOffset = timeZone.getRawOffset();
+			this.daylightSavings = timeZone.getDSTSavings();
+			this.timeZone = timeZone;
+		}
+
+		@Override
+		void format(DateFields f, Appendable target) throws IOException {
+			final boolean daylight = (f.zoneOffset != rawOffset) && timeZone.inDaylightTime(new Date(f.millis));
+			target.append(daylight ? daylightName : standardName);
+		}
+
+		@Override
+		int parse(String text, int start, ParsedFields target, CompiledDateFormat owner) {
+			if (text.regionMatches(true, start, GMT, 0, GMT.length())) {
+				final int offsetEnd = parseOffset(text, start + GMT.length(), target);
+				if (offsetEnd >= 0) {
+					return offsetEnd;
+				}
+				target.zoneOffset = 0;
+				target.zoneOffsetKnown = true;
+				target.zoneNameKnown = false;
+				return start + GMT.length();
+			}
+			// Like SimpleDateFormat, the name determines only the daylight saving offset;
+			// raw offset of the zone is resolved for the parsed local time
+			final boolean daylightMatch = text.regionMatches(true, start, daylightName, 0, daylightName.length());
+			final boolean standardMatch = text.regionMatches(true, start, standardName, 0, standardName.length());
+			final boolean daylight = daylightMatch && (!standardMatch || (daylightName.length() > standardName.length()));
+			if (!daylight && !standardMatch) {
+				return parseOffset(text, start, target);
+			}
+			final boolean sameNames = daylightMatch && standardMatch && (daylightName.length() == standardName.length());
+			target.zoneOffsetKnown = false;
+			// If the names are the same or the zone no longer uses daylight saving time, the zone decides
+			target.zoneNameKnown = !sameNames && !(daylight && (0 == daylightSavings));
+			target.zoneDaylightOffset = daylight ? daylightSavings : 0;
+			return start + (daylight ? daylightName.length() : standardName.length());
+		}
+
+		@Override
+		int estimateLength() {
+			return Math.max(standardName.length(), daylightName.length());
+		}
+	}
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrent cache of {@link cz.auderis.tools.time.SimpleDurationFormat} instances
+ * keyed by locale. Lookups do not take any lock. The number of cached formats is
+ * bounded; when a new format exceeds the capacity, the least recently used
+ * format is evicted.
+ *
+ * <p>Recency is tracked by epochs: every insertion and every lookup of an entry
+ * that is not the most recent one advances the epoch counter and stamps the entry
+ * with the new value, so no two entries share a stamp. Repeated lookups of the
+ * most recent entry do not write to shared counters.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+final class DurationFormatCache {
+
+	private final ConcurrentMap<Locale, Entry> entries;
+	private final AtomicLong epoch;
+	private volatile int capacity;
+
+	DurationFormatCache(int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("invalid cache capacity");
+		}
+		this.entries = new ConcurrentHashMap<Locale, Entry>();
+		this.epoch = new AtomicLong();
+		this.capacity = capacity;
+	}
+
+	int getCapacity() {
+		return capacity;
+	}
+
+	void setCapacity(int newCapacity) {
+		if (newCapacity < 0) {
+			throw new IllegalArgumentException("invalid cache capacity");
+		}
+		this.capacity = newCapacity;
+		evictExcessEntries(null);
+	}
+
+	int size() {
+		return entries.size();
+	}
+
+	boolean contains(Locale locale) {
+		return entries.containsKey(locale);
+	}
+
+	/**
+	 * Returns the cached format for the locale. If there is none, a new format
+	 * is created and cached.
+	 */
+	SimpleDurationFormat get(Locale locale) {
+		final Entry entry = entries.get(locale);
+		if (null != entry) {
+			entry.touch(epoch);
+			return entry.format;
+		}
+		final SimpleDurationFormat newFormat = new SimpleDurationFormat.LocalizedDurationFormat(locale);
+		if (0 == capacity) {
+			return newFormat;
+		}
+		final Entry newEntry = new Entry(newFormat, epoch.incrementAndGet());
+		final Entry existingEntry = entries.putIfAbsent(locale, newEntry);
+		if (null != existingEntry) {
+			// Another thread was faster
+			existingEntry.touch(epoch);
+			return existingEntry.format;
+		}
+		evictExcessEntries(locale);
+		return newFormat;
+	}
+
+	void clear() {
+		entries.clear();
+	}
+
+	private void evictExcessEntries(Locale protectedLocale) {
+		while (entries.size() > capacity) {
+			Map.Entry<Locale, Entry> victim = null;
+			for (Map.Entry<Locale, Entry> candidate : entries.entrySet()) {
+				if (candidate.getKey().equals(protectedLocale)) {
+					continue;
+				} else if ((null == victim) || (candidate.getValue().stamp < victim.getValue().stamp)) {
+					victim = candidate;
+				}
+			}
+			if (null == victim) {
+				break;
+			}
+			entries.remove(victim.getKey(), victim.getValue());
+		}
+	}
+
+	static final class Entry {
+		final SimpleDurationFormat format;
+		volatile long stamp;
+
+		Entry(SimpleDurationFormat format, long stamp) {
+			this.format = format;
+			this.stamp = stamp;
+		}
+
+		void touch(AtomicLong epoch) {
+			if (stamp != epoch.get()) {
+				stamp = epoch.incrementAndGet();
+			}
+		}
+	}
+
+}
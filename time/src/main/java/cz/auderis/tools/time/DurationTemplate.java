@@ -0,0 +1,274 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.text.ChoiceFormat;
+import java.text.DecimalFormat;
+import java.text.Format;
+import java.text.MessageFormat;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Precompiled form of a {@link java.text.MessageFormat} template with a single
+ * numeric argument, as used by the localization resources of
+ * {@link cz.auderis.tools.time.SimpleDurationFormat}. The template is split into
+ * literal, number and choice parts once, so that formatting of a value writes
+ * the characters directly into the target without parsing the pattern,
+ * boxing the value or creating intermediate strings.
+ *
+ * <p>The output is identical to {@code MessageFormat.format(template, value)}.
+ * Unusual templates (e.g. with explicit number patterns) are supported through
+ * a fallback that delegates to the original sub-format.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+abstract class DurationTemplate implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Placeholder that does not appear in templates, used to locate the arguments
+	 */
+	private static final String ARGUMENT_MARK = "\uE000";
+
+	/**
+	 * Numbers below this limit are formatted without grouping separators by any locale;
+	 * they are written as ASCII digits if the locale uses them
+	 */
+	private static final long PLAIN_NUMBER_LIMIT = 1000L;
+
+	/**
+	 * Appends the template with the value substituted for the argument to the target.
+	 *
+	 * @param value argument value, must not be negative
+	 * @param target target of formatting
+	 * @throws java.io.IOException if appending to the target fails
+	 */
+	abstract void appendTo(long value, Appendable target) throws IOException;
+
+	/**
+	 * Compiles the template.
+	 *
+	 * @param template template in {@link java.text.MessageFormat} syntax
+	 * @return compiled template
+	 * @throws java.lang.IllegalArgumentException if the template is not valid
+	 */
+	static DurationTemplate compile(String template) {
+		final MessageFormat messageFormat = new MessageFormat(template);
+		if (messageFormat.getFormatsByArgumentIndex().length > 1) {
+			// Arguments other than the first one are not supported, keep the original behavior
+			return new GenericTemplate(messageFormat);
+		}
+		final Format[] formats = messageFormat.getFormats();
+		messageFormat.setFormats(new Format[formats.length]);
+		final String marked = messageFormat.format(new Object[] { ARGUMENT_MARK });
+		final List<DurationTemplate> parts = new ArrayList<DurationTemplate>(2 * formats.length + 1);
+		int literalStart = 0;
+		for (Format format : formats) {
+			final int markPosition = marked.indexOf(ARGUMENT_MARK, literalStart);
+			if (markPosition > literalStart) {
+				parts.add(new Literal(marked.substring(literalStart, markPosition)));
+			}
+			parts.add(compileArgument(format));
+			literalStart = markPosition + ARGUMENT_MARK.length();
+		}
+		if (literalStart < marked.length()) {
+			parts.add(new Literal(marked.substring(literalStart)));
+		}
+		if (1 == parts.size()) {
+			return parts.get(0);
+		}
+		return new Sequence(parts.toArray(new DurationTemplate[parts.size()]));
+	}
+
+	private static DurationTemplate compileArgument(Format format) {
+		if (null == format) {
+			return new PlainNumber();
+		} else if (format instanceof ChoiceFormat) {
+			final ChoiceFormat choiceFormat = (ChoiceFormat) format;
+			final Object[] choices = choiceFormat.getFormats();
+			final DurationTemplate[] compiledChoices = new DurationTemplate[choices.length];
+			for (int i = 0; i < choices.length; ++i) {
+				final String choice = String.valueOf(choices[i]);
+				// MessageFormat processes the chosen text recursively only if it contains an argument
+				compiledChoices[i] = (choice.indexOf('{') >= 0) ? compile(choice) : new Literal(choice);
+			}
+			return new Choice(choiceFormat.getLimits(), compiledChoices);
+		}
+		return new FormattedNumber(format);
+	}
+
+	static void appendDigits(long value, Appendable target) throws IOException {
+		if (value < 10L) {
+			target.append((char) ('0' + value));
+			return;
+		}
+		long divisor = 10L;
+		while (divisor <= value / 10L) {
+			divisor *= 10L;
+		}
+		long remainder = value;
+		while (divisor > 0L) {
+			final long digit = remainder / divisor;
+			target.append((char) ('0' + digit));
+			remainder -= digit * divisor;
+			divisor /= 10L;
+		}
+	}
+
+	static final class Literal extends DurationTemplate {
+		private static final long serialVersionUID = 1L;
+		private final String text;
+
+		Literal(String text) {
+			this.text = text;
+		}
+
+		@Override
+		void appendTo(long value, Appendable target) throws IOException {
+			target.append(text);
+		}
+	}
+
+	/**
+	 * Argument without explicit format, which {@code MessageFormat} formats
+	 * by the number format of the default locale
+	 */
+	static final class PlainNumber extends DurationTemplate {
+		private static final long serialVersionUID = 1L;
+
+		// Default locale for which the ASCII digits flag was determined
+		private static volatile PlainDigits plainDigits;
+
+		@Override
+		void appendTo(long value, Appendable target) throws IOException {
+			if ((value >= 0L) && (value < PLAIN_NUMBER_LIMIT) && hasPlainDigits()) {
+				appendDigits(value, target);
+			} else {
+				target.append(NumberFormat.getInstance().format(value));
+			}
+		}
+
+		private static boolean hasPlainDigits() {
+			final Locale locale = Locale.getDefault();
+			PlainDigits digits = plainDigits;
+			if ((null == digits) || !digits.locale.equals(locale)) {
+				digits = new PlainDigits(locale, NumberFormat.getInstance());
+				plainDigits = digits;
+			}
+			return digits.ascii;
+		}
+	}
+
+	/**
+	 * Determines whether small numbers are formatted by the number format
+	 * of the locale as ASCII digits without any prefix or suffix
+	 */
+	static final class PlainDigits {
+		final Locale locale;
+		final boolean ascii;
+
+		PlainDigits(Locale locale, NumberFormat format) {
+			this.locale = locale;
+			if (format instanceof DecimalFormat) {
+				final DecimalFormat decimalFormat = (DecimalFormat) format;
+				this.ascii = ('0' == decimalFormat.getDecimalFormatSymbols().getZeroDigit())
+						&& decimalFormat.getPositivePrefix().isEmpty()
+						&& decimalFormat.getPositiveSuffix().isEmpty()
+						&& (decimalFormat.getMinimumIntegerDigits() <= 1);
+			} else {
+				this.ascii = false;
+			}
+		}
+	}
+
+	static final class FormattedNumber extends DurationTemplate {
+		private static final long serialVersionUID = 1L;
+		private final Format format;
+
+		FormattedNumber(Format format) {
+			this.format = format;
+		}
+
+		@Override
+		void appendTo(long value, Appendable target) throws IOException {
+			synchronized (format) {
+				target.append(format.format(value));
+			}
+		}
+	}
+
+	static final class Choice extends DurationTemplate {
+		private static final long serialVersionUID = 1L;
+		private final double[] limits;
+		private final DurationTemplate[] choices;
+
+		Choice(double[] limits, DurationTemplate[] choices) {
+			this.limits = limits;
+			this.choices = choices;
+		}
+
+		@Override
+		void appendTo(long value, Appendable target) throws IOException {
+			// Same selection as ChoiceFormat.format(double)
+			final double number = value;
+			int i = 0;
+			while ((i < limits.length) && (number >= limits[i])) {
+				++i;
+			}
+			choices[Math.max(i - 1, 0)].appendTo(value, target);
+		}
+	}
+
+	static final class Sequence extends DurationTemplate {
+		private static final long serialVersionUID = 1L;
+		private final DurationTemplate[] parts;
+
+		Sequence(DurationTemplate[] parts) {
+			this.parts = parts;
+		}
+
+		@Override
+		void appendTo(long value, Appendable target) throws IOException {
+			for (DurationTemplate part : parts) {
+				part.appendTo(value, target);
+			}
+		}
+	}
+
+	static final class GenericTemplate extends DurationTemplate {
+		private static final long serialVersionUID = 1L;
+		private final MessageFormat format;
+
+		GenericTemplate(MessageFormat format) {
+			this.format = format;
+		}
+
+		@Override
+		void appendTo(long value, Appendable target) throws IOException {
+			synchronized (format) {
+				target.append(format.format(new Object[] { value }));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Implementation of {@link cz.auderis.tools.time.NanoTimeProvider} that provides time
+ * that is constant; the time is changed exclusively by invoking appropriate methods.
+ * This is the nanosecond counterpart of {@link cz.auderis.tools.time.ManualTimeProvider}.
+ *
+ * <p>Notice that the nanosecond value may be negative - the class makes no checks
+ * in this regard. The millisecond time is rounded towards negative infinity.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class ManualNanoTimeProvider implements NanoTimeProvider, Serializable {
+	private static final long serialVersionUID = 1L;
+	static final long NANOS_PER_MILLI = 1000000L;
+
+	protected final AtomicLong time;
+
+	/**
+	 * Instantiates a new manual time provider that is initialized
+	 * to the current system time.
+	 */
+	public ManualNanoTimeProvider() {
+		this(TimeProviders.systemNanoClock().getTimeInNanos());
+	}
+
+	/**
+	 * Instantiates a new manual time provider that is initialized
+	 * to the provided start time specified as nanoseconds.
+	 *
+	 * @param startTime the start time given in nanoseconds
+	 */
+	public ManualNanoTimeProvider(long startTime) {
+		time = new AtomicLong(startTime);
+	}
+
+	@Override
+	public long getTimeInNanos() {
+		return time.get();
+	}
+
+	@Override
+	public long getTimeInMillis() {
+		return toMillis(getTimeInNanos());
+	}
+
+	/**
+	 * Changes the time of this {@code TimeProvider} to the new value given in nanoseconds.
+	 *
+	 * @param nanos new time given in nanoseconds
+	 * @return the current instance
+	 */
+	public ManualNanoTimeProvider setTimeInNanos(long nanos) {
+		time.set(nanos);
+		return this;
+	}
+
+	/**
+	 * Changes the time of this {@code TimeProvider} by the specified increment
+	 * specified in nanoseconds.
+	 *
+	 * <p>The increment may be negative.
+	 *
+	 * @param incrementNanos the increment given in nanoseconds
+	 * @return the current instance
+	 */
+	public ManualNanoTimeProvider step(long incrementNanos) {
+		time.addAndGet(incrementNanos);
+		return this;
+	}
+
+	/**
+	 * Changes the time of this {@code TimeProvider} by the specified increment.
+	 *
+	 * <p>The increment may be negative.
+	 *
+	 * @param increment the increment
+	 * @param unit time unit of the increment
+	 * @return the current instance
+	 * @throws java.lang.NullPointerException if {@code unit} is {@code null}
+	 */
+	public ManualNanoTimeProvider step(long increment, TimeUnit unit) {
+		if (null == unit) {
+			throw new NullPointerException();
+		}
+		time.addAndGet(unit.toNanos(increment));
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder str = new StringBuilder("NanoTimeProvider[");
+		str.append("t=").append(time.get());
+		str.append("ns, mode=manual]");
+		return str.toString();
+	}
+
+	static long toMillis(long nanos) {
+		final long millis = nanos / NANOS_PER_MILLI;
+		return ((nanos < 0L) && (millis * NANOS_PER_MILLI != nanos)) ? millis - 1L : millis;
+	}
+
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time;
+
+/**
+ * Extension of {@link cz.auderis.tools.time.TimeProvider} that provides time
+ * with nanosecond precision. Like {@link System#nanoTime()}, the nanosecond time
+ * need not be related to any notion of wall-clock time and it is meaningful only
+ * when differences of two readings are computed; such differences should be
+ * computed by subtraction (i.e. {@code t1 - t0 > 0}, not {@code t1 > t0})
+ * to cope with numerical overflow.
+ *
+ * <p>The millisecond time returned by {@link #getTimeInMillis()} must correspond
+ * to the nanosecond time.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public interface NanoTimeProvider extends TimeProvider {
+
+	/**
+	 * Gets current time in nanoseconds. The mechanism used to obtain the time value
+	 * depends on implementation.
+	 *
+	 * @return time given in nanoseconds
+	 */
+	long getTimeInNanos();
+
+}
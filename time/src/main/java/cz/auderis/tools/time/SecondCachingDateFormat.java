@@ -0,0 +1,265 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Date format optimized for formatting of many timestamps that fall within
+ * the same second, such as timestamps of log records. The formatted text of the
+ * most recent second is cached; when the next timestamp belongs to the same
+ * second, the cached text is reused and only millisecond digits (if present in
+ * the pattern) are written.
+ *
+ * <p>The cache is a single slot holding an immutable snapshot, so that all threads
+ * share it without locking. When threads race on a change of second, each of them
+ * may format the new second on its own, and the last written snapshot is kept.
+ *
+ * <p>Millisecond fields must be written with at least 3 digits (e.g. {@code SSS}),
+ * otherwise the length of text would vary within a second. For patterns that
+ * do not satisfy this condition, the cache is not used and all requests are
+ * delegated to the underlying {@link cz.auderis.tools.time.CompiledDateFormat}.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public final class SecondCachingDateFormat {
+
+	private static final long MILLIS_PER_SECOND = 1000L;
+	private static final int[] NO_OFFSETS = new int[0];
+
+	private final CompiledDateFormat format;
+	private final boolean cacheable;
+	private volatile SecondSlot slot;
+
+	/**
+	 * Creates a new instance that caches results of the given format.
+	 *
+	 * @param format underlying format
+	 * @throws java.lang.NullPointerException if {@code format} is {@code null}
+	 */
+	public SecondCachingDateFormat(CompiledDateFormat format) {
+		if (null == format) {
+			throw new NullPointerException();
+		}
+		this.format = format;
+		boolean canCache = true;
+		for (CompiledDateFormat.Field field : format.getFields()) {
+			final int width = field.getMillisecondWidth();
+			if ((width > 0) && (width < 3)) {
+				canCache = false;
+				break;
+			}
+		}
+		this.cacheable = canCache;
+	}
+
+	/**
+	 * Creates a new instance using {@link cz.auderis.tools.time.CompiledDateFormat#ISO_FORMAT_MASK}
+	 * formatting template, default locale and default time zone.
+	 */
+	public SecondCachingDateFormat() {
+		this(new CompiledDateFormat());
+	}
+
+	/**
+	 * Returns the underlying format.
+	 *
+	 * @return underlying format
+	 */
+	public CompiledDateFormat getFormat() {
+		return format;
+	}
+
+	/**
+	 * Returns {@code true} if the pattern of the underlying format allows caching.
+	 *
+	 * @return {@code true} if the cache is used
+	 */
+	public boolean isCacheable() {
+		return cacheable;
+	}
+
+	/**
+	 * Formats the date.
+	 *
+	 * @param date date to be formatted
+	 * @return formatted date
+	 * @throws java.lang.NullPointerException if {@code date} is {@code null}
+	 */
+	public String format(Date date) {
+		if (null == date) {
+			throw new NullPointerException();
+		}
+		return format(date.getTime());
+	}
+
+	/**
+	 * Formats the date given as number of milliseconds since the epoch. If the pattern
+	 * does not contain milliseconds, repeated calls within the same second return
+	 * the same string instance.
+	 *
+	 * @param millis time to be formatted
+	 * @return formatted date
+	 */
+	public String format(long millis) {
+		if (!cacheable) {
+			return format.format(millis);
+		}
+		final SecondSlot currentSlot = getSlot(millis);
+		if (0 == currentSlot.millisOffsets.length) {
+			return currentSlot.textString;
+		}
+		final char[] buffer = currentSlot.text.clone();
+		currentSlot.writeMillis(millisOfSecond(millis), buffer, 0);
+		return new String(buffer);
+	}
+
+	/**
+	 * Formats the date given as number of milliseconds since the epoch into the array,
+	 * starting at the given offset. Characters that do not fit into the array are
+	 * silently dropped.
+	 *
+	 * @param millis time to be formatted
+	 * @param target target array
+	 * @param offset index of the first written character
+	 * @return number of characters written
+	 * @throws java.lang.NullPointerException if {@code target} is {@code null}
+	 * @throws java.lang.IndexOutOfBoundsException if {@code offset} is outside of the array
+	 */
+	public int format(long millis, char[] target, int offset) {
+		if (null == target) {
+			throw new NullPointerException();
+		} else if ((offset < 0) || (offset >= target.length)) {
+			throw new IndexOutOfBoundsException("invalid offset");
+		}
+		if (!cacheable) {
+			return format.format(millis, target, offset);
+		}
+		final SecondSlot currentSlot = getSlot(millis);
+		final int length = currentSlot.text.length;
+		if (offset + length > target.length) {
+			return format.format(millis, target, offset);
+		}
+		System.arraycopy(currentSlot.text, 0, target, offset, length);
+		currentSlot.writeMillis(millisOfSecond(millis), target, offset);
+		return length;
+	}
+
+	/**
+	 * Formats the date given as number of milliseconds since the epoch and appends
+	 * the result to the target.
+	 *
+	 * @param millis time to be formatted
+	 * @param target where the result should be appended
+	 * @throws java.lang.NullPointerException if {@code target} is {@code null}
+	 * @throws java.io.IOException if the target reports an error
+	 */
+	public void format(long millis, Appendable target) throws IOException {
+		if (null == target) {
+			throw new NullPointerException();
+		}
+		if (!cacheable) {
+			format.format(millis, target);
+			return;
+		}
+		final SecondSlot currentSlot = getSlot(millis);
+		if (0 == currentSlot.millisOffsets.length) {
+			target.append(currentSlot.textString);
+			return;
+		}
+		final char[] buffer = currentSlot.text.clone();
+		currentSlot.writeMillis(millisOfSecond(millis), buffer, 0);
+		target.append(CharBuffer.wrap(buffer));
+	}
+
+	private SecondSlot getSlot(long millis) {
+		final long second = floorDiv(millis, MILLIS_PER_SECOND);
+		SecondSlot currentSlot = slot;
+		if ((null == currentSlot) || (second != currentSlot.second)) {
+			currentSlot = createSlot(second);
+			slot = currentSlot;
+		}
+		return currentSlot;
+	}
+
+	private SecondSlot createSlot(long second) {
+		final CompiledDateFormat.DateFields dateFields = format.computeFields(second * MILLIS_PER_SECOND);
+		final StringBuilder text = new StringBuilder();
+		int[] millisOffsets = NO_OFFSETS;
+		int[] millisWidths = NO_OFFSETS;
+		try {
+			for (CompiledDateFormat.Field field : format.getFields()) {
+				final int width = field.getMillisecondWidth();
+				if (width > 0) {
+					final int count = millisOffsets.length;
+					millisOffsets = Arrays.copyOf(millisOffsets, count + 1);
+					millisWidths = Arrays.copyOf(millisWidths, count + 1);
+					millisOffsets[count] = text.length();
+					millisWidths[count] = width;
+				}
+				field.format(dateFields, text);
+			}
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		}
+		return new SecondSlot(second, text.toString(), millisOffsets, millisWidths);
+	}
+
+	private static int millisOfSecond(long millis) {
+		return (int) (millis - floorDiv(millis, MILLIS_PER_SECOND) * MILLIS_PER_SECOND);
+	}
+
+	private static long floorDiv(long x, long y) {
+		final long q = x / y;
+		return ((x % y != 0L) && ((x ^ y) < 0L)) ? q - 1L : q;
+	}
+
+	/**
+	 * Formatted text of a single second, with positions of millisecond fields
+	 */
+	static final class SecondSlot {
+		final long second;
+		final String textString;
+		final char[] text;
+		final int[] millisOffsets;
+		final int[] millisWidths;
+
+		SecondSlot(long second, String textString, int[] millisOffsets, int[] millisWidths) {
+			this.second = second;
+			this.textString = textString;
+			this.text = textString.toCharArray();
+			this.millisOffsets = millisOffsets;
+			this.millisWidths = millisWidths;
+		}
+
+		void writeMillis(int millis, char[] target, int offset) {
+			for (int i = 0; i < millisOffsets.length; ++i) {
+				int value = millis;
+				final int start = offset + millisOffsets[i];
+				for (int j = start + millisWidths[i] - 1; j >= start; --j) {
+					target[j] = (char) ('0' + value % 10);
+					value /= 10;
+				}
+			}
+		}
+	}
+
+}
@@ -18,9 +18,7 @@ package cz.auderis.tools.time;
 
 import java.io.IOException;
 import java.io.Serializable;
-import java.text.MessageFormat;
 import java.util.EnumMap;
-import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.MissingResourceException;
@@ -89,19 +87,47 @@ public abstract class SimpleDurationFormat implements Serializable {
 		if (null == locale) {
 			throw new NullPointerException();
 		}
-		SimpleDurationFormat result;
-		synchronized (FORMAT_CACHE) {
-			result = FORMAT_CACHE.get(locale);
-			if ((null == result) && (locale.equals(Locale.getDefault()) || FORMAT_CACHE.size() < CACHE_CAPACITY)) {
-				result = new LocalizedDurationFormat(locale);
-				FORMAT_CACHE.put(locale, result);
-			}
+		return FORMAT_CACHE.get(locale);
+	}
+
+	/**
+	 * Loads the formats for the given locales into the cache in advance, so that
+	 * the first requests for these locales do not need to look up the localization data.
+	 * Locales listed (comma-separated, e.g. {@code "en_US,cs_CZ"}) in system property
+	 * {@value #PREWARM_LOCALES_PROPERTY} are loaded when this class is initialized.
+	 *
+	 * @param locales locales to be loaded
+	 * @throws java.lang.NullPointerException if {@code locales} or any of its elements is {@code null}
+	 */
+	public static void prewarm(Locale... locales) {
+		if (null == locales) {
+			throw new NullPointerException();
 		}
-		if (null == result) {
-			// Create formatter that is not cached
-			result = new LocalizedDurationFormat(locale);
+		for (Locale locale : locales) {
+			getInstance(locale);
 		}
-		return result;
+	}
+
+	/**
+	 * Returns the maximal number of formats held in the cache used by {@link #getInstance(java.util.Locale)}.
+	 *
+	 * @return cache capacity
+	 */
+	public static int getCacheCapacity() {
+		return FORMAT_CACHE.getCapacity();
+	}
+
+	/**
+	 * Changes the maximal number of cached formats. When the cache is full, the least
+	 * recently used format is evicted. Zero capacity disables the caching. The initial
+	 * capacity is {@value #DEFAULT_CACHE_CAPACITY}, unless specified by system property
+	 * {@value #CACHE_CAPACITY_PROPERTY}.
+	 *
+	 * @param capacity new cache capacity
+	 * @throws java.lang.IllegalArgumentException if {@code capacity} is negative
+	 */
+	public static void setCacheCapacity(int capacity) {
+		FORMAT_CACHE.setCapacity(capacity);
 	}
 
 	/**
@@ -235,10 +261,34 @@ public abstract class SimpleDurationFormat implements Serializable {
 			TimeUnit.MINUTES,
 			TimeUnit.SECONDS };
 
+	/**
+	 * Lengths of {@link #DURATION_UNITS} in milliseconds.
+	 */
+	static final long[] DURATION_UNIT_MILLIS = {
+			TimeUnit.DAYS.toMillis(1L),
+			TimeUnit.HOURS.toMillis(1L),
+			TimeUnit.MINUTES.toMillis(1L),
+			TimeUnit.SECONDS.toMillis(1L) };
+
+	/**
+	 * Default number of cached formats
+	 */
+	public static final int DEFAULT_CACHE_CAPACITY = 32;
+
+	/**
+	 * Name of system property that specifies the number of cached formats
+	 */
+	public static final String CACHE_CAPACITY_PROPERTY = "cz.auderis.tools.time.SimpleDurationFormat.cacheCapacity";
+
+	/**
+	 * Name of system property with comma-separated locales whose formats
+	 * are loaded into the cache in advance
+	 */
+	public static final String PREWARM_LOCALES_PROPERTY = "cz.auderis.tools.time.SimpleDurationFormat.locales";
+
 	protected static final Map<TimeUnit, String> LABEL_BY_UNIT;
 
-	private static final int CACHE_CAPACITY = 4;
-	private static final Map<Locale, SimpleDurationFormat> FORMAT_CACHE;
+	private static final DurationFormatCache FORMAT_CACHE;
 
 	static {
 		LABEL_BY_UNIT = new EnumMap<TimeUnit, String>(TimeUnit.class);
@@ -247,21 +297,58 @@ public abstract class SimpleDurationFormat implements Serializable {
 		LABEL_BY_UNIT.put(TimeUnit.MINUTES, "minutes");
 		LABEL_BY_UNIT.put(TimeUnit.SECONDS, "seconds");
 		LABEL_BY_UNIT.put(TimeUnit.MILLISECONDS, "milliseconds");
-		FORMAT_CACHE = new HashMap<Locale, SimpleDurationFormat>();
+		FORMAT_CACHE = new DurationFormatCache(getConfiguredCacheCapacity());
+		final String prewarmedLocales = System.getProperty(PREWARM_LOCALES_PROPERTY);
+		if (null != prewarmedLocales) {
+			for (String localeSpec : prewarmedLocales.split(",")) {
+				prewarmFormat(localeSpec);
+			}
+		}
+	}
+
+	/**
+	 * Returns the cache capacity given by the system property; an invalid value
+	 * is ignored, so that the class can always be initialized.
+	 */
+	private static int getConfiguredCacheCapacity() {
+		final Integer capacity = Integer.getInteger(CACHE_CAPACITY_PROPERTY);
+		if ((null == capacity) || (capacity.intValue() < 0)) {
+			return DEFAULT_CACHE_CAPACITY;
+		}
+		return capacity.intValue();
+	}
+
+	/**
+	 * Loads the format of the locale into the cache. Malformed specifications
+	 * and locales whose resources cannot be loaded are skipped.
+	 */
+	private static void prewarmFormat(String localeSpec) {
+		final String[] localeParts = localeSpec.trim().split("[_-]", 3);
+		if (localeParts[0].isEmpty()) {
+			return;
+		}
+		final String country = (localeParts.length > 1) ? localeParts[1] : "";
+		final String variant = (localeParts.length > 2) ? localeParts[2] : "";
+		try {
+			FORMAT_CACHE.get(new Locale(localeParts[0], country, variant));
+		} catch (RuntimeException e) {
+			// The format will be loaded on first use, with the error reported to the caller
+		}
 	}
 
 	static class LocalizedDurationFormat extends SimpleDurationFormat {
 		private static final long serialVersionUID = 1L;
 
 		private static final String SPACE = "\u0020";
-		private final Map<TimeUnit, String> templateByUnit;
+		// Compiled templates indexed in the same way as DURATION_UNITS, null for unused units
+		private final DurationTemplate[] templates;
 		private String separator;
 		private String zeroTime;
-		private TimeUnit leastDefinedUnit;
+		private int leastDefinedIndex;
 
 		protected LocalizedDurationFormat(Locale locale) {
 			super();
-			templateByUnit = new EnumMap<TimeUnit, String>(TimeUnit.class);
+			templates = new DurationTemplate[DURATION_UNITS.length];
 			loadResources(locale);
 		}
 
@@ -278,13 +365,14 @@ public abstract class SimpleDurationFormat implements Serializable {
 			}
 			long remainingMillis = millis;
 			String partSeparator = null;
-			for (TimeUnit durationUnit : DURATION_UNITS) {
-				final String template = templateByUnit.get(durationUnit);
+			for (int i = 0; i <= leastDefinedIndex; ++i) {
+				final DurationTemplate template = templates[i];
 				if (null == template) {
 					continue;
 				}
-				final long duration = durationUnit.convert(remainingMillis, TimeUnit.MILLISECONDS);
-				if ((null == partSeparator) && (duration < 2L) && (durationUnit != leastDefinedUnit)) {
+				final long unitMillis = DURATION_UNIT_MILLIS[i];
+				final long duration = remainingMillis / unitMillis;
+				if ((null == partSeparator) && (duration < 2L) && (i != leastDefinedIndex)) {
 					// The formatting did not started yet and the value for the leading part is too small
 					continue;
 				} else if (null != partSeparator) {
@@ -292,10 +380,9 @@ public abstract class SimpleDurationFormat implements Serializable {
 				} else {
 					partSeparator = separator;
 				}
-				final String unitPart = MessageFormat.format(template, duration);
-				target.append(unitPart);
-				remainingMillis -= durationUnit.toMillis(duration);
-				if ((0 == remainingMillis) || (durationUnit == leastDefinedUnit)) {
+				template.appendTo(duration, target);
+				remainingMillis -= duration * unitMillis;
+				if (0 == remainingMillis) {
 					break;
 				}
 			}
@@ -320,22 +407,23 @@ public abstract class SimpleDurationFormat implements Serializable {
 			final ResourceBundle res = findBundle(locale);
 			separator = getResourceString(res, DurationFormatResource.PART_SEPARATOR_KEY, SPACE);
 			zeroTime = getResourceString(res, DurationFormatResource.ZERO_TIME_KEY, DurationFormatResource.ZERO_TIME_KEY);
-			leastDefinedUnit = null;
-			for (TimeUnit timeUnit : DURATION_UNITS) {
+			leastDefinedIndex = -1;
+			for (int i = 0; i < DURATION_UNITS.length; ++i) {
+				final TimeUnit timeUnit = DURATION_UNITS[i];
 				final String resourceKey = LABEL_BY_UNIT.get(timeUnit);
 				String template = getResourceString(res, resourceKey, null);
 				if (null == template) {
 					template = "{0} " + resourceKey;
 				}
 				final boolean unitIsUsed = !template.trim().isEmpty();
-				final boolean isLastUnit = (timeUnit == DURATION_UNITS[DURATION_UNITS.length - 1]);
+				final boolean isLastUnit = (i == DURATION_UNITS.length - 1);
 				if (unitIsUsed) {
-					templateByUnit.put(timeUnit, template);
-					leastDefinedUnit = timeUnit;
-				} else if ((null == leastDefinedUnit) &&  isLastUnit) {
+					templates[i] = DurationTemplate.compile(template);
+					leastDefinedIndex = i;
+				} else if ((-1 == leastDefinedIndex) &&  isLastUnit) {
 					// No templates were defined at all - need fallback template
-					templateByUnit.put(timeUnit, "{0} " + resourceKey);
-					leastDefinedUnit = timeUnit;
+					templates[i] = DurationTemplate.compile("{0} " + resourceKey);
+					leastDefinedIndex = i;
 				}
 			}
 		}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time;
+
+/**
+ * Manual nanosecond time provider that advances its time by a fixed step
+ * whenever the time is read. This is the nanosecond counterpart
+ * of {@link cz.auderis.tools.time.SteppingTimeProvider}.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class SteppingNanoTimeProvider extends ManualNanoTimeProvider {
+	private static final long serialVersionUID = 1L;
+	private static final String ERR_ILLEGAL_STEP = "invalid time step value";
+
+	protected volatile long step;
+
+	public SteppingNanoTimeProvider(long startTime) {
+		this(startTime, 1L);
+	}
+
+	public SteppingNanoTimeProvider(long startTime, long stepNanos) {
+		super(startTime);
+		if (stepNanos < 0L) {
+			throw new IllegalArgumentException(ERR_ILLEGAL_STEP);
+		}
+		this.step = stepNanos;
+	}
+
+	@Override
+	public long getTimeInNanos() {
+		return time.getAndAdd(step);
+	}
+
+	public long getTimeStep() {
+		return step;
+	}
+
+	public void setTimeStep(long newStep) {
+		if (newStep < 0L) {
+			throw new IllegalArgumentException(ERR_ILLEGAL_STEP);
+		}
+		this.step = newStep;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder str = new StringBuilder("SteppingNanoTimeProvider[t=");
+		str.append(time.get());
+		str.append("ns, delta=").append(step);
+		str.append("ns]");
+		return str.toString();
+	}
+
+}
@@ -28,6 +28,9 @@ import java.util.Locale;
  * in concurrent, multi-threaded environments. This class serves as a thin wrapper
  * that delegates formatting and parsing tasks to thread-local instances.
  *
+ * <p>Each thread using the format holds its own formatter instance. When many threads
+ * are involved, consider using the immutable {@link cz.auderis.tools.time.CompiledDateFormat}.
+ *
  * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
  * @version 1.0
  */
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Cached clock whose time is updated periodically by a background daemon thread.
+ * Reading the time costs a single volatile read, at the price of a coarser
+ * resolution: the returned value lags behind the real time by at most
+ * the resolution (plus the scheduling delay of the ticker thread).
+ *
+ * <p>The ticker thread runs until {@link #stop()} is invoked. Shared instances are
+ * available through {@link cz.auderis.tools.time.TimeProviders#cachedClock(long, java.util.concurrent.TimeUnit)}.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class TickingTimeProvider extends CachedTimeProvider {
+
+	private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+	private final long resolutionNanos;
+	private final Thread ticker;
+	private volatile boolean running;
+
+	/**
+	 * Creates a new provider based on the system clock and starts its ticker thread.
+	 *
+	 * @param resolution interval between the updates
+	 * @param unit time unit of the resolution
+	 * @throws java.lang.NullPointerException if {@code unit} is {@code null}
+	 * @throws java.lang.IllegalArgumentException if the resolution is shorter than one millisecond
+	 */
+	public TickingTimeProvider(long resolution, TimeUnit unit) {
+		this(TimeProviders.systemClock(), resolution, unit);
+	}
+
+	/**
+	 * Creates a new provider that caches the time of the given source provider
+	 * and starts its ticker thread.
+	 *
+	 * @param source source of the time
+	 * @param resolution interval between the updates
+	 * @param unit time unit of the resolution
+	 * @throws java.lang.NullPointerException if {@code source} or {@code unit} is {@code null}
+	 * @throws java.lang.IllegalArgumentException if the resolution is shorter than one millisecond
+	 */
+	public TickingTimeProvider(TimeProvider source, long resolution, TimeUnit unit) {
+		super(source);
+		if (null == unit) {
+			throw new NullPointerException();
+		} else if (unit.toMillis(resolution) < 1L) {
+			throw new IllegalArgumentException("clock resolution must be at least 1 ms");
+		}
+		this.resolutionNanos = unit.toNanos(resolution);
+		this.running = true;
+		this.ticker = new Thread(new Ticker(), "TimeProvider-ticker-" + THREAD_COUNTER.incrementAndGet());
+		ticker.setDaemon(true);
+		ticker.start();
+	}
+
+	/**
+	 * Returns the interval between the updates.
+	 *
+	 * @param unit requested time unit
+	 * @return clock resolution
+	 * @throws java.lang.NullPointerException if {@code unit} is {@code null}
+	 */
+	public long getResolution(TimeUnit unit) {
+		return unit.convert(resolutionNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Checks whether the ticker thread is still updating the time.
+	 *
+	 * @return {@code true} if the provider has not been stopped
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Stops the ticker thread. The time remains frozen at the last published value,
+	 * unless {@link #update()} is invoked explicitly.
+	 */
+	public void stop() {
+		running = false;
+		LockSupport.unpark(ticker);
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder str = new StringBuilder("TickingTimeProvider[t=");
+		str.append(getTimeInMillis());
+		str.append(", resolution=").append(TimeUnit.NANOSECONDS.toMillis(resolutionNanos)).append("ms");
+		if (!running) {
+			str.append(", stopped");
+		}
+		str.append(']');
+		return str.toString();
+	}
+
+	private final class Ticker implements Runnable {
+		@Override
+		public void run() {
+			while (running) {
+				LockSupport.parkNanos(this, resolutionNanos);
+				update();
+			}
+		}
+	}
+
+}
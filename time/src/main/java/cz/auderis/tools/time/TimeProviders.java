@@ -17,6 +17,8 @@
 package cz.auderis.tools.time;
 
 import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -25,6 +27,8 @@ import java.util.concurrent.TimeUnit;
  */
 public final class TimeProviders {
 
+	private static final ConcurrentMap<Long, SharedClock> CACHED_CLOCKS = new ConcurrentHashMap<Long, SharedClock>();
+
 	/**
 	 * Obtains a {@link cz.auderis.tools.time.TimeProvider} that is based
 	 * on system clock.
@@ -36,6 +40,69 @@ public final class TimeProviders {
 		return ProviderImpl.SYSTEM;
 	}
 
+	/**
+	 * Obtains a {@link cz.auderis.tools.time.NanoTimeProvider} that is based
+	 * on system clock. This is the same instance as returned by {@link #systemClock()},
+	 * which does not lose the nanosecond precision.
+	 *
+	 * @return real-time clock time provider with nanosecond precision
+	 * @see System#nanoTime()
+	 */
+	public static NanoTimeProvider systemNanoClock() {
+		return ProviderImpl.SYSTEM;
+	}
+
+	/**
+	 * Obtains a coarse-grained system clock, whose time is cached in a volatile field
+	 * and updated by a background daemon thread with the given resolution. Reading
+	 * the time of such a provider is much cheaper than reading the system clock,
+	 * which matters when timeouts are checked at a very high rate.
+	 *
+	 * <p>The providers are shared: all calls with the same resolution (rounded to
+	 * milliseconds) return the same instance, so that there is only a single ticker
+	 * thread per resolution. The returned providers are read-only views of the
+	 * shared clocks, which cannot be stopped or updated by the callers.
+	 *
+	 * @param resolution interval between the updates of the cached time
+	 * @param unit time unit of the resolution
+	 * @return cached clock time provider
+	 * @throws java.lang.NullPointerException if {@code unit} is {@code null}
+	 * @throws java.lang.IllegalArgumentException if the resolution is shorter than one millisecond
+	 * @see cz.auderis.tools.time.TickingTimeProvider
+	 */
+	public static TimeProvider cachedClock(long resolution, TimeUnit unit) {
+		if (null == unit) {
+			throw new NullPointerException();
+		}
+		final long resolutionMillis = unit.toMillis(resolution);
+		if (resolutionMillis < 1L) {
+			throw new IllegalArgumentException("clock resolution must be at least 1 ms");
+		}
+		final Long key = resolutionMillis;
+		SharedClock clock = CACHED_CLOCKS.get(key);
+		if (null == clock) {
+			synchronized (CACHED_CLOCKS) {
+				clock = CACHED_CLOCKS.get(key);
+				if (null == clock) {
+					clock = new SharedClock(new TickingTimeProvider(resolutionMillis, TimeUnit.MILLISECONDS));
+					CACHED_CLOCKS.put(key, clock);
+				}
+			}
+		}
+		return clock;
+	}
+
+	/**
+	 * Returns a new system clock provider whose time is cached and changes only
+	 * when the caller invokes {@link cz.auderis.tools.time.CachedTimeProvider#update()}.
+	 * This is suitable for event loops, which update the time once per iteration.
+	 *
+	 * @return new instance of caller-updated time provider
+	 */
+	public static CachedTimeProvider updatableClock() {
+		return new CachedTimeProvider(systemClock());
+	}
+
 	/**
 	 * Returns a new instance of {@link cz.auderis.tools.time.ManualTimeProvider},
 	 * that is initialized to the current system time.
@@ -65,10 +132,31 @@ public final class TimeProviders {
 		throw new AssertionError();
 	}
 
+	/**
+	 * Read-only view of a shared {@code TickingTimeProvider}
+	 */
+	static final class SharedClock implements TimeProvider {
+		private final TickingTimeProvider clock;
+
+		SharedClock(TickingTimeProvider clock) {
+			this.clock = clock;
+		}
+
+		@Override
+		public long getTimeInMillis() {
+			return clock.getTimeInMillis();
+		}
+
+		@Override
+		public String toString() {
+			return clock.toString();
+		}
+	}
+
 	/**
 	 * This enum provides safe singleton instances of {@code TimeProvider}
 	 */
-	static enum ProviderImpl implements TimeProvider {
+	static enum ProviderImpl implements NanoTimeProvider {
 		/**
 		 * {@code TimeProvider} based on {@link System#nanoTime()} real-time
 		 * clock.
@@ -78,6 +166,11 @@ public final class TimeProviders {
 			public long getTimeInMillis() {
 				return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
 			}
+
+			@Override
+			public long getTimeInNanos() {
+				return System.nanoTime();
+			}
 		}
 	}
 
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time.rate;
+
+import cz.auderis.tools.time.TimeProvider;
+import cz.auderis.tools.time.timeout.Timeout;
+
+/**
+ * Base of rate limiter implementations. Subclasses provide a single non-blocking
+ * operation that either acquires the permits or reports how long the caller
+ * should wait before the next attempt; blocking acquisition is built on top of it.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+abstract class AbstractRateLimiter implements RateLimiter {
+
+	protected static final long NANOS_PER_MILLI = 1000000L;
+	protected static final long NANOS_PER_SECOND = 1000000000L;
+
+	/**
+	 * Default waiting strategy based on {@link Thread#sleep(long)}.
+	 */
+	static final Sleeper THREAD_SLEEPER = new Sleeper() {
+		@Override
+		public void sleep(long millis) throws InterruptedException {
+			Thread.sleep(millis);
+		}
+	};
+
+	protected final TimeProvider clock;
+	protected final int capacity;
+	protected final long timeBase;
+	private volatile Sleeper sleeper;
+
+	protected AbstractRateLimiter(TimeProvider clock, int capacity) {
+		if (null == clock) {
+			throw new NullPointerException();
+		} else if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be positive");
+		}
+		this.clock = clock;
+		this.capacity = capacity;
+		this.timeBase = clock.getTimeInMillis();
+		this.sleeper = THREAD_SLEEPER;
+	}
+
+	@Override
+	public int getCapacity() {
+		return capacity;
+	}
+
+	@Override
+	public boolean tryAcquire() {
+		return 0L == tryAcquireOrGetWait(1);
+	}
+
+	@Override
+	public boolean tryAcquire(int permits) {
+		checkPermits(permits);
+		return 0L == tryAcquireOrGetWait(permits);
+	}
+
+	@Override
+	public boolean acquire(int permits, Timeout timeout) throws InterruptedException {
+		if (null == timeout) {
+			throw new NullPointerException();
+		}
+		checkPermits(permits);
+		timeout.startIfNotRunning();
+		for (;;) {
+			final long waitMillis = tryAcquireOrGetWait(permits);
+			if (0L == waitMillis) {
+				return true;
+			}
+			final Long remainingMillis = timeout.getRemainingMillis();
+			if (timeout.isElapsed() || (null == remainingMillis) || (remainingMillis < waitMillis)) {
+				return false;
+			}
+			if (!pause(waitMillis)) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Acquires the permits if they are available.
+	 *
+	 * @param permits number of permits, already validated
+	 * @return zero if the permits were acquired, otherwise the number of milliseconds
+	 * (at least 1) after which the next attempt may succeed
+	 */
+	protected abstract long tryAcquireOrGetWait(int permits);
+
+	/**
+	 * Waits for the given time using the current {@link Sleeper}. If the clock of the limiter
+	 * did not advance during the wait, it is not driven by real time (e.g. it is
+	 * a {@link cz.auderis.tools.time.ManualTimeProvider}) and waiting for it would
+	 * never end; the caller should give up in such case.
+	 *
+	 * @param waitMillis time to wait in milliseconds
+	 * @return {@code true} if the clock advanced during the wait
+	 * @throws InterruptedException if the waiting thread is interrupted
+	 */
+	protected final boolean pause(long waitMillis) throws InterruptedException {
+		final long startTime = clock.getTimeInMillis();
+		sleeper.sleep(waitMillis);
+		return clock.getTimeInMillis() != startTime;
+	}
+
+	/**
+	 * Replaces the waiting strategy of blocking acquisition, so that tests can drive
+	 * a manual clock instead of sleeping.
+	 */
+	void setSleeper(Sleeper sleeper) {
+		if (null == sleeper) {
+			throw new NullPointerException();
+		}
+		this.sleeper = sleeper;
+	}
+
+	/**
+	 * Returns current time in nanoseconds relative to the creation of the limiter.
+	 */
+	protected final long currentNanos() {
+		return (clock.getTimeInMillis() - timeBase) * NANOS_PER_MILLI;
+	}
+
+	protected static long intervalNanos(double permitsPerSecond) {
+		if (!(permitsPerSecond > 0.0) || Double.isInfinite(permitsPerSecond)) {
+			throw new IllegalArgumentException("invalid rate");
+		}
+		final long interval = Math.round(NANOS_PER_SECOND / permitsPerSecond);
+		return Math.max(interval, 1L);
+	}
+
+	protected static long nanosToWaitMillis(long nanos) {
+		final long millis = (nanos + NANOS_PER_MILLI - 1L) / NANOS_PER_MILLI;
+		return Math.max(millis, 1L);
+	}
+
+	protected final void checkPermits(int permits) {
+		if ((permits < 1) || (permits > capacity)) {
+			throw new IllegalArgumentException("invalid number of permits");
+		}
+	}
+
+	/**
+	 * Strategy used by blocking acquisition to wait for permits.
+	 */
+	interface Sleeper {
+
+		void sleep(long millis) throws InterruptedException;
+
+	}
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time.rate;
+
+import cz.auderis.tools.time.TimeProvider;
+import cz.auderis.tools.time.timeout.Timeout;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Leaky bucket used as a queue: permits leave the bucket at a constant rate,
+ * so that the acquisitions are spread evenly in time and no bursts are allowed.
+ * Method {@link #acquire(int, cz.auderis.tools.time.timeout.Timeout)} reserves
+ * a slot in the queue and waits until the slot is reached; at most
+ * {@code capacity} permits may be queued. Method {@link #tryAcquire(int)}
+ * succeeds only if the queue is empty.
+ *
+ * <p>The only state is the time when the queue becomes empty, stored in
+ * a single {@link java.util.concurrent.atomic.AtomicLong}.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+class LeakyBucketLimiter extends AbstractRateLimiter {
+
+	private final long intervalNanos;
+	private final long maxQueueNanos;
+	private final AtomicLong queueEndTime;
+
+	LeakyBucketLimiter(int capacity, double permitsPerSecond, TimeProvider clock) {
+		super(clock, capacity);
+		this.intervalNanos = intervalNanos(permitsPerSecond);
+		this.maxQueueNanos = capacity * intervalNanos;
+		this.queueEndTime = new AtomicLong(Long.MIN_VALUE);
+	}
+
+	@Override
+	protected long tryAcquireOrGetWait(int permits) {
+		final long now = currentNanos();
+		final long increment = permits * intervalNanos;
+		for (;;) {
+			final long queueEnd = queueEndTime.get();
+			if (queueEnd > now) {
+				return nanosToWaitMillis(queueEnd - now);
+			} else if (queueEndTime.compareAndSet(queueEnd, now + increment)) {
+				return 0L;
+			}
+		}
+	}
+
+	@Override
+	public boolean acquire(int permits, Timeout timeout) throws InterruptedException {
+		if (null == timeout) {
+			throw new NullPointerException();
+		}
+		checkPermits(permits);
+		timeout.startIfNotRunning();
+		final long increment = permits * intervalNanos;
+		long slotTime;
+		long reservedQueueEnd;
+		for (;;) {
+			final long now = currentNanos();
+			final long queueEnd = queueEndTime.get();
+			slotTime = Math.max(queueEnd, now);
+			final long delay = slotTime - now;
+			final Long remainingMillis = timeout.getRemainingMillis();
+			if (delay + increment > maxQueueNanos) {
+				// Queue is full, wait until there is space or the timeout elapses
+				final long waitMillis = nanosToWaitMillis(delay + increment - maxQueueNanos);
+				if (timeout.isElapsed() || (null == remainingMillis) || (remainingMillis < waitMillis)) {
+					return false;
+				} else if (!pause(waitMillis)) {
+					return false;
+				}
+			} else if ((delay > 0L) && (timeout.isElapsed() || (null == remainingMillis) || (remainingMillis * NANOS_PER_MILLI < delay))) {
+				return false;
+			} else {
+				reservedQueueEnd = slotTime + increment;
+				if (queueEndTime.compareAndSet(queueEnd, reservedQueueEnd)) {
+					break;
+				}
+			}
+		}
+		// Slot is reserved, wait until it is reached
+		long remainingNanos = slotTime - currentNanos();
+		while (remainingNanos > 0L) {
+			final boolean paused;
+			try {
+				paused = pause(nanosToWaitMillis(remainingNanos));
+			} catch (InterruptedException e) {
+				queueEndTime.compareAndSet(reservedQueueEnd, slotTime);
+				throw e;
+			}
+			if (!paused) {
+				// Release the reservation unless other slots were reserved after it
+				queueEndTime.compareAndSet(reservedQueueEnd, slotTime);
+				return false;
+			}
+			remainingNanos = slotTime - currentNanos();
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "LeakyBucketLimiter[capacity=" + capacity + ", interval=" + intervalNanos + "ns]";
+	}
+
+}
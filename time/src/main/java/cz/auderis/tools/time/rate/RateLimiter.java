@@ -0,0 +1,68 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time.rate;
+
+import cz.auderis.tools.time.timeout.Timeout;
+
+/**
+ * Limits the rate at which permits may be acquired. The permits do not need
+ * to be returned; they represent units of work (requests, bytes etc.) that
+ * are allowed to proceed.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public interface RateLimiter {
+
+	/**
+	 * Acquires a single permit if it is available immediately.
+	 *
+	 * @return {@code true} if the permit was acquired
+	 */
+	boolean tryAcquire();
+
+	/**
+	 * Acquires the given number of permits if they are available immediately.
+	 * Either all permits are acquired or none.
+	 *
+	 * @param permits number of permits
+	 * @return {@code true} if the permits were acquired
+	 * @throws java.lang.IllegalArgumentException if {@code permits} is not positive or exceeds the capacity of the limiter
+	 */
+	boolean tryAcquire(int permits);
+
+	/**
+	 * Acquires the given number of permits, waiting until they become available
+	 * or until the timeout elapses. Timeout that is not running is started.
+	 *
+	 * @param permits number of permits
+	 * @param timeout limit of waiting
+	 * @return {@code true} if the permits were acquired, {@code false} if the timeout elapsed
+	 * @throws java.lang.NullPointerException if {@code timeout} is {@code null}
+	 * @throws java.lang.IllegalArgumentException if {@code permits} is not positive or exceeds the capacity of the limiter
+	 * @throws java.lang.InterruptedException if the thread is interrupted while waiting
+	 */
+	boolean acquire(int permits, Timeout timeout) throws InterruptedException;
+
+	/**
+	 * Returns the maximal number of permits that may be acquired at once.
+	 *
+	 * @return capacity of the limiter
+	 */
+	int getCapacity();
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time.rate;
+
+import cz.auderis.tools.time.TimeProvider;
+import cz.auderis.tools.time.TimeProviders;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Factory methods for {@link cz.auderis.tools.time.rate.RateLimiter} implementations.
+ * All limiters are thread-safe, and their non-blocking operations are lock-free.
+ * When driven by {@link cz.auderis.tools.time.ManualTimeProvider} or
+ * {@link cz.auderis.tools.time.SteppingTimeProvider}, their decisions are deterministic.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public final class RateLimiters {
+
+	private static final String INVALID_RATE = "invalid rate";
+
+	/**
+	 * Creates a token bucket that is refilled at the given rate and allows
+	 * bursts of up to {@code capacity} permits.
+	 *
+	 * @param capacity maximal number of stored permits
+	 * @param permitsPerSecond refill rate
+	 * @return rate limiter
+	 * @throws java.lang.IllegalArgumentException if any of the arguments is not positive
+	 */
+	public static RateLimiter tokenBucket(int capacity, double permitsPerSecond) {
+		return tokenBucketWithProvider(capacity, permitsPerSecond, TimeProviders.systemClock());
+	}
+
+	public static RateLimiter tokenBucketWithProvider(int capacity, double permitsPerSecond, TimeProvider provider) {
+		if (null == provider) {
+			throw new NullPointerException();
+		} else if (!(permitsPerSecond > 0.0)) {
+			throw new IllegalArgumentException(INVALID_RATE);
+		}
+		return new TokenBucketLimiter(capacity, permitsPerSecond, provider);
+	}
+
+	/**
+	 * Creates a leaky bucket that spreads permits evenly at the given rate,
+	 * with at most {@code capacity} permits waiting in the queue.
+	 *
+	 * @param capacity maximal number of queued permits
+	 * @param permitsPerSecond leak rate
+	 * @return rate limiter
+	 * @throws java.lang.IllegalArgumentException if any of the arguments is not positive
+	 */
+	public static RateLimiter leakyBucket(int capacity, double permitsPerSecond) {
+		return leakyBucketWithProvider(capacity, permitsPerSecond, TimeProviders.systemClock());
+	}
+
+	public static RateLimiter leakyBucketWithProvider(int capacity, double permitsPerSecond, TimeProvider provider) {
+		if (null == provider) {
+			throw new NullPointerException();
+		} else if (!(permitsPerSecond > 0.0)) {
+			throw new IllegalArgumentException(INVALID_RATE);
+		}
+		return new LeakyBucketLimiter(capacity, permitsPerSecond, provider);
+	}
+
+	/**
+	 * Creates a limiter that allows at most {@code limit} permits within any
+	 * time window of the given length.
+	 *
+	 * @param limit maximal number of permits within the window
+	 * @param window length of the window
+	 * @param windowUnit time unit of window length
+	 * @return rate limiter
+	 * @throws java.lang.NullPointerException if {@code windowUnit} is {@code null}
+	 * @throws java.lang.IllegalArgumentException if {@code limit} or {@code window} is not positive
+	 */
+	public static RateLimiter slidingWindow(int limit, long window, TimeUnit windowUnit) {
+		return slidingWindowWithProvider(limit, window, windowUnit, TimeProviders.systemClock());
+	}
+
+	public static RateLimiter slidingWindowWithProvider(int limit, long window, TimeUnit windowUnit, TimeProvider provider) {
+		if (null == windowUnit) {
+			throw new NullPointerException();
+		} else if (null == provider) {
+			throw new NullPointerException();
+		}
+		return new SlidingWindowLogLimiter(limit, windowUnit.toMillis(window), provider);
+	}
+
+	private RateLimiters() {
+		throw new AssertionError();
+	}
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time.rate;
+
+import cz.auderis.tools.time.TimeProvider;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Limiter that allows at most {@code capacity} permits within any time window
+ * of the given length. Unlike the bucket algorithms, the limit is exact: the time
+ * of every acquired permit is recorded in a ring buffer of size {@code capacity},
+ * and new permits are granted only if the records they would overwrite are older
+ * than the window.
+ *
+ * <p>Permits are claimed by a compare-and-set of the ring head, the records are
+ * written afterwards. Each record carries the number of the ring lap in which it
+ * was written; a record from an older lap than expected belongs to a claim that
+ * has not been written yet, and the acquisition then conservatively fails.
+ * Records are written by compare-and-set and never replace a record of the same
+ * or a later lap, so that a stalled writer cannot overwrite newer records.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+class SlidingWindowLogLimiter extends AbstractRateLimiter {
+
+	private static final int LAP_BITS = 20;
+	private static final long LAP_MASK = (1L << LAP_BITS) - 1L;
+
+	private final long windowMillis;
+	private final AtomicLong head;
+	private final AtomicLongArray records;
+
+	SlidingWindowLogLimiter(int capacity, long windowMillis, TimeProvider clock) {
+		super(clock, capacity);
+		if (windowMillis <= 0L) {
+			throw new IllegalArgumentException("invalid window length");
+		}
+		this.windowMillis = windowMillis;
+		this.head = new AtomicLong(0L);
+		this.records = new AtomicLongArray(capacity);
+		// Initial records are expired and belong to lap -1
+		final long initialRecord = record(-windowMillis, -1L);
+		for (int i = 0; i < capacity; ++i) {
+			records.set(i, initialRecord);
+		}
+	}
+
+	@Override
+	protected long tryAcquireOrGetWait(int permits) {
+		final long now = clock.getTimeInMillis() - timeBase;
+		for (;;) {
+			final long currentHead = head.get();
+			// The newest of the records to be overwritten decides
+			final long lastIndex = currentHead + permits - 1L;
+			final long lastRecord = records.get((int) (lastIndex % capacity));
+			final long expectedLap = (lastIndex / capacity - 1L) & LAP_MASK;
+			if ((lastRecord & LAP_MASK) != expectedLap) {
+				// Claimed by another thread, but not written yet
+				return 1L;
+			}
+			final long recordTime = lastRecord >> LAP_BITS;
+			if (recordTime > now - windowMillis) {
+				return recordTime + windowMillis - now;
+			} else if (head.compareAndSet(currentHead, currentHead + permits)) {
+				for (long i = currentHead; i <= lastIndex; ++i) {
+					writeRecord(i, now);
+				}
+				return 0L;
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "SlidingWindowLogLimiter[capacity=" + capacity + ", window=" + windowMillis + "ms]";
+	}
+
+	private void writeRecord(long index, long time) {
+		final int slot = (int) (index % capacity);
+		final long lap = index / capacity;
+		final long newRecord = record(time, lap);
+		for (;;) {
+			final long oldRecord = records.get(slot);
+			// Signed difference of laps modulo LAP_MASK + 1
+			final long lapDifference = ((oldRecord - lap) << (Long.SIZE - LAP_BITS)) >> (Long.SIZE - LAP_BITS);
+			if (lapDifference >= 0L) {
+				// The writer stalled and the slot already holds a record of the same or a later lap
+				return;
+			} else if (records.compareAndSet(slot, oldRecord, newRecord)) {
+				return;
+			}
+		}
+	}
+
+	private static long record(long time, long lap) {
+		return (time << LAP_BITS) | (lap & LAP_MASK);
+	}
+
+}
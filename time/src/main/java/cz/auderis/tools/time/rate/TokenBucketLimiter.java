@@ -0,0 +1,71 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time.rate;
+
+import cz.auderis.tools.time.TimeProvider;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket that holds up to {@code capacity} permits and is refilled at
+ * a constant rate; bursts of up to {@code capacity} permits are allowed.
+ *
+ * <p>The bucket is implemented as the equivalent generic cell rate algorithm (GCRA):
+ * instead of the number of tokens, only the theoretical arrival time of the next
+ * permit is stored in a single {@link java.util.concurrent.atomic.AtomicLong}.
+ * An acquisition is one read of the clock and one compare-and-set; there is no
+ * background refill.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+class TokenBucketLimiter extends AbstractRateLimiter {
+
+	private final long intervalNanos;
+	private final long burstToleranceNanos;
+	private final AtomicLong arrivalTime;
+
+	TokenBucketLimiter(int capacity, double permitsPerSecond, TimeProvider clock) {
+		super(clock, capacity);
+		this.intervalNanos = intervalNanos(permitsPerSecond);
+		this.burstToleranceNanos = capacity * intervalNanos;
+		// Bucket is full at the beginning
+		this.arrivalTime = new AtomicLong(-burstToleranceNanos);
+	}
+
+	@Override
+	protected long tryAcquireOrGetWait(int permits) {
+		final long now = currentNanos();
+		final long increment = permits * intervalNanos;
+		for (;;) {
+			final long currentArrival = arrivalTime.get();
+			final long newArrival = Math.max(currentArrival, now) + increment;
+			final long allowedAt = newArrival - burstToleranceNanos;
+			if (allowedAt > now) {
+				return nanosToWaitMillis(allowedAt - now);
+			} else if (arrivalTime.compareAndSet(currentArrival, newArrival)) {
+				return 0L;
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "TokenBucketLimiter[capacity=" + capacity + ", interval=" + intervalNanos + "ns]";
+	}
+
+}
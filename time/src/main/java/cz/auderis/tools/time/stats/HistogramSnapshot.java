@@ -0,0 +1,163 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time.stats;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Immutable snapshot of a log-linear histogram. Snapshots with the same layout
+ * (precision and value range) may be merged.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public final class HistogramSnapshot implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final LogLinearLayout layout;
+	private final long[] counts;
+	private final long totalCount;
+
+	HistogramSnapshot(LogLinearLayout layout, long[] counts) {
+		this.layout = layout;
+		this.counts = counts;
+		long total = 0L;
+		for (long count : counts) {
+			total += count;
+		}
+		this.totalCount = total;
+	}
+
+	/**
+	 * Returns the number of recorded values.
+	 *
+	 * @return number of values
+	 */
+	public long getTotalCount() {
+		return totalCount;
+	}
+
+	/**
+	 * Returns the value below or at which the given percentage of recorded values lies.
+	 * The result is the highest value equivalent (within the histogram precision)
+	 * to the exact percentile.
+	 *
+	 * @param percentile percentile in range {@code [0, 100]}, e.g. {@code 99.9}
+	 * @return value at the percentile, or {@code 0} if the histogram is empty
+	 * @throws java.lang.IllegalArgumentException if the percentile is out of range
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (!(percentile >= 0.0) || (percentile > 100.0)) {
+			throw new IllegalArgumentException("invalid percentile");
+		} else if (0L == totalCount) {
+			return 0L;
+		}
+		final long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0 * totalCount));
+		long cumulative = 0L;
+		for (int i = 0; i < counts.length; ++i) {
+			cumulative += counts[i];
+			if (cumulative >= rank) {
+				return valueOf(i);
+			}
+		}
+		return valueOf(counts.length - 1);
+	}
+
+	/**
+	 * Returns the median of recorded values.
+	 *
+	 * @return value at 50th percentile
+	 */
+	public long getMedian() {
+		return getValueAtPercentile(50.0);
+	}
+
+	/**
+	 * Returns the (approximate) maximum of recorded values.
+	 *
+	 * @return maximal value, or {@code 0} if the histogram is empty
+	 */
+	public long getMaxValue() {
+		for (int i = counts.length - 1; i >= 0; --i) {
+			if (0L != counts[i]) {
+				return valueOf(i);
+			}
+		}
+		return 0L;
+	}
+
+	/**
+	 * Returns the (approximate) mean of recorded values.
+	 *
+	 * @return mean value, or {@code 0} if the histogram is empty
+	 */
+	public double getMean() {
+		if (0L == totalCount) {
+			return 0.0;
+		}
+		double sum = 0.0;
+		for (int i = 0; i < counts.length; ++i) {
+			if (0L != counts[i]) {
+				final double midpoint = (layout.lowerBound(i) + (double) valueOf(i)) / 2.0;
+				sum += midpoint * counts[i];
+			}
+		}
+		return sum / totalCount;
+	}
+
+	/**
+	 * Creates a snapshot that contains values of both this and the other snapshot.
+	 *
+	 * @param other snapshot to be merged
+	 * @return merged snapshot
+	 * @throws java.lang.NullPointerException if {@code other} is {@code null}
+	 * @throws java.lang.IllegalArgumentException if the snapshots have different layouts
+	 */
+	public HistogramSnapshot merge(HistogramSnapshot other) {
+		if (null == other) {
+			throw new NullPointerException();
+		} else if (!layout.equals(other.layout)) {
+			throw new IllegalArgumentException("incompatible histograms");
+		}
+		final long[] mergedCounts = Arrays.copyOf(counts, counts.length);
+		for (int i = 0; i < mergedCounts.length; ++i) {
+			mergedCounts[i] += other.counts[i];
+		}
+		return new HistogramSnapshot(layout, mergedCounts);
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder str = new StringBuilder("HistogramSnapshot[count=");
+		str.append(totalCount);
+		if (totalCount > 0L) {
+			str.append(", p50=").append(getValueAtPercentile(50.0));
+			str.append(", p99=").append(getValueAtPercentile(99.0));
+			str.append(", p999=").append(getValueAtPercentile(99.9));
+			str.append(", max=").append(getMaxValue());
+		}
+		str.append(']');
+		return str.toString();
+	}
+
+	private long valueOf(int index) {
+		return Math.min(layout.upperBound(index), layout.getMaxValue());
+	}
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time.stats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of non-negative values (typically latencies) with bounded relative
+ * error, in the manner of HdrHistogram. Values are mapped to log-linear buckets
+ * (see {@link #LogLinearHistogram(int, long)}), so that the memory footprint
+ * depends only on the precision and on the value range.
+ *
+ * <p>Recording is lock-free and does not allocate. Recorded values usually fall
+ * into a few buckets, so the buckets are striped over up to eight arrays (depending
+ * on the number of processors) to reduce contention of recording threads. Unlike
+ * the buckets of {@link cz.auderis.tools.time.stats.RollingHistogram}, the arrays
+ * are never cleared while recording, so the striping costs only memory.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class LogLinearHistogram {
+
+	private static final int MAX_STRIPES = 8;
+
+	private final LogLinearLayout layout;
+	private final int bucketCount;
+	private final int stripeMask;
+	private final AtomicLongArray counts;
+
+	/**
+	 * Creates a new histogram.
+	 *
+	 * @param precisionBits number of bits of precision (1 to 10); the relative error
+	 * of recorded values is at most {@code 2^-precisionBits}
+	 * @param maxValue highest tracked value; higher values are recorded as this value
+	 * @throws java.lang.IllegalArgumentException if any of the arguments is out of range
+	 */
+	public LogLinearHistogram(int precisionBits, long maxValue) {
+		this.layout = new LogLinearLayout(precisionBits, maxValue);
+		this.bucketCount = layout.getBucketCount();
+		int stripeCount = 1;
+		final int processors = Runtime.getRuntime().availableProcessors();
+		while ((stripeCount < processors) && (stripeCount < MAX_STRIPES)) {
+			stripeCount <<= 1;
+		}
+		this.stripeMask = stripeCount - 1;
+		this.counts = new AtomicLongArray(stripeCount * bucketCount);
+	}
+
+	/**
+	 * Records a value.
+	 *
+	 * @param value recorded value
+	 * @throws java.lang.IllegalArgumentException if {@code value} is negative
+	 */
+	public void recordValue(long value) {
+		final int index = layout.indexOf(value);
+		counts.getAndIncrement(homeStripe() * bucketCount + index);
+	}
+
+	/**
+	 * Records a value that occurred repeatedly.
+	 *
+	 * @param value recorded value
+	 * @param count number of occurrences
+	 * @throws java.lang.IllegalArgumentException if {@code value} is negative
+	 */
+	public void recordValue(long value, long count) {
+		final int index = layout.indexOf(value);
+		counts.getAndAdd(homeStripe() * bucketCount + index, count);
+	}
+
+	/**
+	 * Returns a snapshot of recorded values.
+	 *
+	 * @return histogram snapshot
+	 */
+	public HistogramSnapshot snapshot() {
+		final long[] result = new long[bucketCount];
+		for (int stripe = 0; stripe <= stripeMask; ++stripe) {
+			final int stripeStart = stripe * bucketCount;
+			for (int i = 0; i < bucketCount; ++i) {
+				result[i] += counts.get(stripeStart + i);
+			}
+		}
+		return new HistogramSnapshot(layout, result);
+	}
+
+	/**
+	 * Forgets all recorded values. Values recorded concurrently may be lost.
+	 */
+	public void reset() {
+		for (int i = 0; i < counts.length(); ++i) {
+			counts.set(i, 0L);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "LogLinearHistogram" + snapshot().toString().substring("HistogramSnapshot".length());
+	}
+
+	private int homeStripe() {
+		long h = Thread.currentThread().getId();
+		h ^= (h >>> 33);
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= (h >>> 33);
+		return ((int) h) & stripeMask;
+	}
+
+}
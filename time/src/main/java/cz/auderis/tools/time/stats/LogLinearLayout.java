@@ -0,0 +1,118 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time.stats;
+
+import java.io.Serializable;
+
+/**
+ * Mapping of values to buckets of a log-linear histogram. Values below
+ * {@code 2^precisionBits} have their own buckets; every higher power-of-two
+ * range is divided into {@code 2^precisionBits} linear sub-buckets, so that
+ * the relative error of recorded values is at most {@code 2^-precisionBits}.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+final class LogLinearLayout implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+	private static final int MAX_PRECISION_BITS = 10;
+
+	private final int precisionBits;
+	private final long subBucketCount;
+	private final long maxValue;
+	private final int bucketCount;
+
+	LogLinearLayout(int precisionBits, long maxValue) {
+		if ((precisionBits < 1) || (precisionBits > MAX_PRECISION_BITS)) {
+			throw new IllegalArgumentException("invalid histogram precision");
+		} else if (maxValue < 1L) {
+			throw new IllegalArgumentException("invalid maximal histogram value");
+		}
+		this.precisionBits = precisionBits;
+		this.subBucketCount = 1L << precisionBits;
+		this.maxValue = maxValue;
+		this.bucketCount = rawIndexOf(maxValue) + 1;
+	}
+
+	int getPrecisionBits() {
+		return precisionBits;
+	}
+
+	long getMaxValue() {
+		return maxValue;
+	}
+
+	int getBucketCount() {
+		return bucketCount;
+	}
+
+	/**
+	 * Returns the bucket index of the value; values above the maximum fall
+	 * into the last bucket.
+	 */
+	int indexOf(long value) {
+		if (value < 0L) {
+			throw new IllegalArgumentException("value must not be negative");
+		} else if (value >= maxValue) {
+			return bucketCount - 1;
+		}
+		return rawIndexOf(value);
+	}
+
+	long lowerBound(int index) {
+		if (index < subBucketCount) {
+			return index;
+		}
+		final int shift = (index >> precisionBits) - 1;
+		final long mantissa = subBucketCount + (index & (subBucketCount - 1L));
+		return mantissa << shift;
+	}
+
+	long upperBound(int index) {
+		if (index < subBucketCount) {
+			return index;
+		}
+		final int shift = (index >> precisionBits) - 1;
+		return lowerBound(index) + (1L << shift) - 1L;
+	}
+
+	private int rawIndexOf(long value) {
+		if (value < subBucketCount) {
+			return (int) value;
+		}
+		final int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - precisionBits;
+		return ((shift + 1) << precisionBits) + (int) ((value >>> shift) - subBucketCount);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		} else if (!(obj instanceof LogLinearLayout)) {
+			return false;
+		}
+		final LogLinearLayout other = (LogLinearLayout) obj;
+		return (precisionBits == other.precisionBits) && (maxValue == other.maxValue);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * precisionBits + (int) (maxValue ^ (maxValue >>> 32));
+	}
+
+}
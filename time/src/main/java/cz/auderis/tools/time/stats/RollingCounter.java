@@ -0,0 +1,152 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time.stats;
+
+import cz.auderis.tools.time.TimeProvider;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counter of events within a sliding time window. The window is divided into
+ * buckets; events older than the window are forgotten one bucket at a time.
+ * Recording is lock-free and does not allocate.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class RollingCounter {
+
+	private final TimeBucketRing ring;
+
+	/**
+	 * Creates a new counter.
+	 *
+	 * @param bucketLength length of a single bucket
+	 * @param unit time unit of bucket length
+	 * @param bucketCount number of buckets in the window
+	 * @param clock source of time
+	 * @throws java.lang.NullPointerException if {@code unit} or {@code clock} is {@code null}
+	 * @throws java.lang.IllegalArgumentException if bucket length or count is not positive
+	 */
+	public RollingCounter(long bucketLength, TimeUnit unit, int bucketCount, TimeProvider clock) {
+		if (null == unit) {
+			throw new NullPointerException();
+		}
+		this.ring = new TimeBucketRing(clock, unit.toMillis(bucketLength), bucketCount, 1, true);
+	}
+
+	/**
+	 * Creates a counter with window of 1 second, divided into 10 buckets.
+	 *
+	 * @param clock source of time
+	 * @return new counter
+	 */
+	public static RollingCounter perSecond(TimeProvider clock) {
+		return new RollingCounter(100L, TimeUnit.MILLISECONDS, 10, clock);
+	}
+
+	/**
+	 * Creates a counter with window of 1 minute, divided into 60 buckets.
+	 *
+	 * @param clock source of time
+	 * @return new counter
+	 */
+	public static RollingCounter perMinute(TimeProvider clock) {
+		return new RollingCounter(1L, TimeUnit.SECONDS, 60, clock);
+	}
+
+	/**
+	 * Creates a counter with window of 1 hour, divided into 60 buckets.
+	 *
+	 * @param clock source of time
+	 * @return new counter
+	 */
+	public static RollingCounter perHour(TimeProvider clock) {
+		return new RollingCounter(1L, TimeUnit.MINUTES, 60, clock);
+	}
+
+	/**
+	 * Records a single event.
+	 */
+	public void increment() {
+		ring.add(0, 1L);
+	}
+
+	/**
+	 * Records the given number of events.
+	 *
+	 * @param delta number of events
+	 */
+	public void add(long delta) {
+		ring.add(0, delta);
+	}
+
+	/**
+	 * Returns the number of events within the window.
+	 *
+	 * @return number of events
+	 */
+	public long sum() {
+		return sum(ring.getBucketCount());
+	}
+
+	/**
+	 * Returns the number of events within the given number of most recent buckets
+	 * (including the current, incomplete one).
+	 *
+	 * @param recentBuckets number of buckets
+	 * @return number of events
+	 */
+	public long sum(int recentBuckets) {
+		final long[] result = new long[1];
+		ring.collect(recentBuckets, result);
+		return result[0];
+	}
+
+	/**
+	 * Returns the average rate of events within the window.
+	 *
+	 * @param unit time unit of the rate
+	 * @return number of events per unit of time
+	 */
+	public double getRate(TimeUnit unit) {
+		final double windowMillis = ring.getBucketMillis() * (double) ring.getBucketCount();
+		return sum() * (unit.toMillis(1L) / windowMillis);
+	}
+
+	/**
+	 * Returns the length of the window.
+	 *
+	 * @return window length in milliseconds
+	 */
+	public long getWindowMillis() {
+		return ring.getBucketMillis() * ring.getBucketCount();
+	}
+
+	/**
+	 * Forgets all recorded events.
+	 */
+	public void reset() {
+		ring.clear();
+	}
+
+	@Override
+	public String toString() {
+		return "RollingCounter[" + sum() + " in " + getWindowMillis() + "ms]";
+	}
+
+}
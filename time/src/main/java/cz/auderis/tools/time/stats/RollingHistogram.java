@@ -0,0 +1,110 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time.stats;
+
+import cz.auderis.tools.time.TimeProvider;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Log-linear histogram (see {@link cz.auderis.tools.time.stats.LogLinearHistogram})
+ * of values recorded within a sliding time window. The window is divided
+ * into buckets, each holding its own histogram; values older than the window
+ * are forgotten one bucket at a time.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class RollingHistogram {
+
+	private final LogLinearLayout layout;
+	private final TimeBucketRing ring;
+
+	/**
+	 * Creates a new histogram.
+	 *
+	 * @param precisionBits number of bits of precision (1 to 10)
+	 * @param maxValue highest tracked value
+	 * @param bucketLength length of a single time bucket
+	 * @param unit time unit of bucket length
+	 * @param bucketCount number of buckets in the window
+	 * @param clock source of time
+	 * @throws java.lang.NullPointerException if {@code unit} or {@code clock} is {@code null}
+	 * @throws java.lang.IllegalArgumentException if any of the numeric arguments is out of range
+	 */
+	public RollingHistogram(int precisionBits, long maxValue, long bucketLength, TimeUnit unit, int bucketCount, TimeProvider clock) {
+		if (null == unit) {
+			throw new NullPointerException();
+		}
+		this.layout = new LogLinearLayout(precisionBits, maxValue);
+		this.ring = new TimeBucketRing(clock, unit.toMillis(bucketLength), bucketCount, layout.getBucketCount(), false);
+	}
+
+	/**
+	 * Records a value.
+	 *
+	 * @param value recorded value
+	 * @throws java.lang.IllegalArgumentException if {@code value} is negative
+	 */
+	public void recordValue(long value) {
+		ring.add(layout.indexOf(value), 1L);
+	}
+
+	/**
+	 * Returns a snapshot of values recorded within the window.
+	 *
+	 * @return histogram snapshot
+	 */
+	public HistogramSnapshot snapshot() {
+		return snapshot(ring.getBucketCount());
+	}
+
+	/**
+	 * Returns a snapshot of values recorded within the given number of most recent
+	 * buckets (including the current, incomplete one).
+	 *
+	 * @param recentBuckets number of buckets
+	 * @return histogram snapshot
+	 */
+	public HistogramSnapshot snapshot(int recentBuckets) {
+		final long[] counts = new long[layout.getBucketCount()];
+		ring.collect(recentBuckets, counts);
+		return new HistogramSnapshot(layout, counts);
+	}
+
+	/**
+	 * Returns the length of the window.
+	 *
+	 * @return window length in milliseconds
+	 */
+	public long getWindowMillis() {
+		return ring.getBucketMillis() * ring.getBucketCount();
+	}
+
+	/**
+	 * Forgets all recorded values.
+	 */
+	public void reset() {
+		ring.clear();
+	}
+
+	@Override
+	public String toString() {
+		return "RollingHistogram" + snapshot().toString().substring("HistogramSnapshot".length());
+	}
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time.stats;
+
+import cz.auderis.tools.time.TimeProvider;
+
+/**
+ * Set of rolling counters that track the same events within windows of
+ * 1 second, 1 minute and 1 hour.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class RollingRates {
+
+	private final RollingCounter secondCounter;
+	private final RollingCounter minuteCounter;
+	private final RollingCounter hourCounter;
+
+	/**
+	 * Creates a new set of counters.
+	 *
+	 * @param clock source of time
+	 * @throws java.lang.NullPointerException if {@code clock} is {@code null}
+	 */
+	public RollingRates(TimeProvider clock) {
+		this.secondCounter = RollingCounter.perSecond(clock);
+		this.minuteCounter = RollingCounter.perMinute(clock);
+		this.hourCounter = RollingCounter.perHour(clock);
+	}
+
+	/**
+	 * Records a single event.
+	 */
+	public void increment() {
+		add(1L);
+	}
+
+	/**
+	 * Records the given number of events.
+	 *
+	 * @param delta number of events
+	 */
+	public void add(long delta) {
+		secondCounter.add(delta);
+		minuteCounter.add(delta);
+		hourCounter.add(delta);
+	}
+
+	/**
+	 * Returns the number of events within the last second.
+	 *
+	 * @return number of events
+	 */
+	public long getLastSecond() {
+		return secondCounter.sum();
+	}
+
+	/**
+	 * Returns the number of events within the last minute.
+	 *
+	 * @return number of events
+	 */
+	public long getLastMinute() {
+		return minuteCounter.sum();
+	}
+
+	/**
+	 * Returns the number of events within the last hour.
+	 *
+	 * @return number of events
+	 */
+	public long getLastHour() {
+		return hourCounter.sum();
+	}
+
+	public RollingCounter getSecondCounter() {
+		return secondCounter;
+	}
+
+	public RollingCounter getMinuteCounter() {
+		return minuteCounter;
+	}
+
+	public RollingCounter getHourCounter() {
+		return hourCounter;
+	}
+
+	/**
+	 * Forgets all recorded events.
+	 */
+	public void reset() {
+		secondCounter.reset();
+		minuteCounter.reset();
+		hourCounter.reset();
+	}
+
+	@Override
+	public String toString() {
+		return "RollingRates[second=" + getLastSecond() + ", minute=" + getLastMinute() + ", hour=" + getLastHour() + ']';
+	}
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time.stats;
+
+import cz.auderis.tools.time.TimeProvider;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Ring of time buckets, each holding a fixed number of {@code long} values.
+ * This is the sliding window pattern of {@link cz.auderis.tools.collection.CircularQueue}
+ * applied to time: the bucket for the current time is found arithmetically,
+ * and when the ring wraps around, the outdated bucket is cleared and reused.
+ *
+ * <p>Values of narrow buckets, such as those of counters, may be striped over
+ * several cells (see {@link cz.auderis.tools.math.ConcurrentCounter}) to reduce
+ * contention of recording threads. Wide buckets, such as those of histograms,
+ * are not striped. A bucket is cleared whenever it is reused, so striping of wide
+ * buckets would multiply both the memory of the whole ring and the work of the
+ * thread that clears the bucket.
+ *
+ * <p>Recording does not allocate and does not take locks. Only a thread that
+ * arrives while a bucket is being cleared yields until the clearing is finished.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+final class TimeBucketRing {
+
+	private static final int CELL_SPACING = 8;
+	private static final int MAX_STRIPES = 16;
+	private static final long UNUSED_BUCKET = Long.MIN_VALUE;
+	private static final long CLEARED_BUCKET = Long.MIN_VALUE + 1L;
+
+	private final TimeProvider clock;
+	private final long bucketMillis;
+	private final int bucketCount;
+	private final int width;
+	private final int stripeStride;
+	private final int stripeMask;
+	private final int bucketStride;
+	private final AtomicLongArray bucketNumbers;
+	private final AtomicLongArray values;
+
+	TimeBucketRing(TimeProvider clock, long bucketMillis, int bucketCount, int width, boolean striped) {
+		if (null == clock) {
+			throw new NullPointerException();
+		} else if (bucketMillis <= 0L) {
+			throw new IllegalArgumentException("invalid bucket length");
+		} else if (bucketCount < 1) {
+			throw new IllegalArgumentException("invalid bucket count");
+		}
+		this.clock = clock;
+		this.bucketMillis = bucketMillis;
+		this.bucketCount = bucketCount;
+		this.width = width;
+		int stripeCount = 1;
+		final int processors = striped ? Runtime.getRuntime().availableProcessors() : 1;
+		while ((stripeCount < processors) && (stripeCount < MAX_STRIPES)) {
+			stripeCount <<= 1;
+		}
+		this.stripeMask = stripeCount - 1;
+		this.stripeStride = striped ? Math.max(width, CELL_SPACING) : width;
+		this.bucketStride = stripeCount * stripeStride;
+		this.bucketNumbers = new AtomicLongArray(bucketCount);
+		for (int i = 0; i < bucketCount; ++i) {
+			bucketNumbers.set(i, UNUSED_BUCKET);
+		}
+		this.values = new AtomicLongArray(bucketCount * bucketStride);
+	}
+
+	long getBucketMillis() {
+		return bucketMillis;
+	}
+
+	int getBucketCount() {
+		return bucketCount;
+	}
+
+	/**
+	 * Adds the delta to the value at the given offset of the current bucket.
+	 */
+	void add(int offset, long delta) {
+		final int bucket = currentBucket(clock.getTimeInMillis());
+		values.getAndAdd(bucket * bucketStride + homeStripe() * stripeStride + offset, delta);
+	}
+
+	/**
+	 * Adds values of the most recent buckets to the target array.
+	 *
+	 * @param recentBuckets number of buckets (including the current one) to be collected
+	 * @param target array of length equal to bucket width
+	 */
+	void collect(int recentBuckets, long[] target) {
+		final long currentNumber = floorDiv(clock.getTimeInMillis(), bucketMillis);
+		final long oldestNumber = currentNumber - Math.min(recentBuckets, bucketCount) + 1L;
+		for (int bucket = 0; bucket < bucketCount; ++bucket) {
+			final long number = bucketNumbers.get(bucket);
+			if ((number < oldestNumber) || (number > currentNumber)) {
+				continue;
+			}
+			final int bucketStart = bucket * bucketStride;
+			for (int stripe = 0; stripe <= stripeMask; ++stripe) {
+				final int stripeStart = bucketStart + stripe * stripeStride;
+				for (int i = 0; i < width; ++i) {
+					target[i] += values.get(stripeStart + i);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Clears all buckets. Values recorded concurrently may be lost.
+	 */
+	void clear() {
+		for (int bucket = 0; bucket < bucketCount; ++bucket) {
+			bucketNumbers.set(bucket, UNUSED_BUCKET);
+		}
+		for (int i = 0; i < values.length(); ++i) {
+			values.set(i, 0L);
+		}
+	}
+
+	private int currentBucket(long time) {
+		final long number = floorDiv(time, bucketMillis);
+		final int bucket = (int) (number - floorDiv(number, bucketCount) * bucketCount);
+		for (;;) {
+			final long storedNumber = bucketNumbers.get(bucket);
+			if (storedNumber >= number) {
+				// Current bucket, or a newer one when the time of caller is delayed
+				return bucket;
+			} else if (CLEARED_BUCKET == storedNumber) {
+				Thread.yield();
+			} else if (bucketNumbers.compareAndSet(bucket, storedNumber, CLEARED_BUCKET)) {
+				final int bucketStart = bucket * bucketStride;
+				for (int i = bucketStart; i < bucketStart + bucketStride; ++i) {
+					values.set(i, 0L);
+				}
+				bucketNumbers.set(bucket, number);
+				return bucket;
+			}
+		}
+	}
+
+	private int homeStripe() {
+		if (0 == stripeMask) {
+			return 0;
+		}
+		long h = Thread.currentThread().getId();
+		h ^= (h >>> 33);
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= (h >>> 33);
+		return ((int) h) & stripeMask;
+	}
+
+	private static long floorDiv(long x, long y) {
+		final long q = x / y;
+		return ((x % y != 0L) && ((x ^ y) < 0L)) ? q - 1L : q;
+	}
+
+}
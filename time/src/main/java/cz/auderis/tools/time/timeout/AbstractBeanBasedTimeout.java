@@ -69,6 +69,18 @@ public abstract class AbstractBeanBasedTimeout implements BeanBasedTimeout, Seri
 		}
 	}
 
+	/**
+	 * Checks whether there is a listener interested in changes of the property, so that
+	 * implementations may skip the preparation of events that nobody would receive.
+	 *
+	 * @param propertyName name of the property
+	 * @return {@code true} if there is at least one listener for the property
+	 */
+	protected boolean hasPropertyChangeListeners(String propertyName) {
+		final PropertyChangeSupport support = beanSupport;
+		return (null != support) && support.hasListeners(propertyName);
+	}
+
 	protected void firePropertyChange(String propertyName, int oldValue, int newValue) {
 		if (null != beanSupport) {
 			beanSupport.firePropertyChange(propertyName, oldValue, newValue);
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time.timeout;
+
+/**
+ * Randomization applied to durations of {@link cz.auderis.tools.time.timeout.BackoffTimeout}.
+ * Randomized durations prevent many clients that failed at the same moment
+ * from retrying in synchronized waves.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public enum BackoffJitter {
+
+	/**
+	 * Duration is exactly {@code min(cap, base * factor^n)}
+	 */
+	NONE,
+
+	/**
+	 * Duration is chosen uniformly from range {@code [0, min(cap, base * factor^n)]}
+	 */
+	FULL,
+
+	/**
+	 * Half of the exponential duration is kept, the other half is chosen
+	 * uniformly at random
+	 */
+	EQUAL,
+
+	/**
+	 * Duration is chosen uniformly from range {@code [base, previous * factor]}
+	 * and limited by the cap; it depends on the previous duration rather
+	 * than on the expiration count
+	 */
+	DECORRELATED
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time.timeout;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Small pseudo-random generator (SplitMix64) used for jitter of backoff timeouts.
+ * Every timeout owns its generator, so that no synchronization between clients
+ * is involved; the seeds of the generators are drawn from a shared sequence,
+ * which makes the streams of different timeouts independent.
+ *
+ * <p>Instances are not thread-safe, the owner must guard access.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+final class BackoffRandom implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	private static final AtomicLong SEED_SEQUENCE = new AtomicLong(mix64(System.currentTimeMillis()) ^ mix64(System.nanoTime()));
+
+	private long state;
+
+	BackoffRandom(long seed) {
+		this.state = seed;
+	}
+
+	/**
+	 * Returns a seed for a new generator from the shared seed sequence.
+	 */
+	static long newSeed() {
+		return mix64(SEED_SEQUENCE.getAndAdd(GOLDEN_GAMMA));
+	}
+
+	long nextLong() {
+		state += GOLDEN_GAMMA;
+		return mix64(state);
+	}
+
+	/**
+	 * Returns a value from range {@code [min, max]}. Both bounds must be non-negative.
+	 */
+	long nextLong(long min, long max) {
+		if (max <= min) {
+			return min;
+		}
+		final long range = max - min + 1L;
+		return min + (nextLong() >>> 1) % range;
+	}
+
+	private static long mix64(long value) {
+		long z = value;
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+}
@@ -0,0 +1,384 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time.timeout;
+
+import cz.auderis.tools.time.TimeProvider;
+
+/**
+ * Counting timeout whose duration grows exponentially with the number of expirations,
+ * as used for retries of failed operations. The duration of a period is computed
+ * directly from the expiration count, as {@code min(cap, base * factor^count)},
+ * and optionally randomized according to the {@link cz.auderis.tools.time.timeout.BackoffJitter}
+ * policy.
+ *
+ * <p>Expirations are counted in the same way as by {@link cz.auderis.tools.time.timeout.Timeouts#counting(Timeout)},
+ * i.e. an elapsed period is counted once, when it is observed by {@link #isElapsed()},
+ * {@link #restart()} or {@link #restartIfElapsed()}. A restart of a period that has not
+ * elapsed yet (e.g. after a successful operation) keeps the count; use
+ * {@link #resetExpirationCount()} to return to the base duration.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class BackoffTimeout extends AbstractBeanBasedTimeout implements CountingTimeout {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final String ERR_TIMEOUT_NOT_RUNNING = "timeout not running";
+	private static final long PREC_SCALE = 1024L;
+
+	private final long baseMillis;
+	private final double factor;
+	private final long capMillis;
+	private final BackoffJitter jitter;
+	private final TimeProvider clock;
+	private final BackoffRandom random;
+	private volatile boolean running;
+	private volatile long startTime;
+	private volatile long timeout;
+	private int expirationCount;
+	private boolean expirationCounted;
+	private boolean durationOutdated;
+
+	BackoffTimeout(long baseMillis, double factor, long capMillis, BackoffJitter jitter, TimeProvider clock, long seed) {
+		super();
+		if ((null == jitter) || (null == clock)) {
+			throw new NullPointerException();
+		} else if (baseMillis <= 0L) {
+			throw new IllegalArgumentException("base duration must be positive");
+		} else if (!(factor >= 1.0) || Double.isInfinite(factor)) {
+			throw new IllegalArgumentException("invalid backoff factor");
+		} else if (capMillis < baseMillis) {
+			throw new IllegalArgumentException("cap must not be lower than base duration");
+		}
+		this.baseMillis = baseMillis;
+		this.factor = factor;
+		this.capMillis = capMillis;
+		this.jitter = jitter;
+		this.clock = clock;
+		this.random = new BackoffRandom(seed);
+		this.timeout = computeDuration(0, baseMillis);
+	}
+
+	/**
+	 * Returns the duration of the first period.
+	 *
+	 * @return base duration in milliseconds
+	 */
+	public long getBaseTimeout() {
+		return baseMillis;
+	}
+
+	/**
+	 * Returns the upper limit of the duration.
+	 *
+	 * @return maximal duration in milliseconds
+	 */
+	public long getMaxTimeout() {
+		return capMillis;
+	}
+
+	/**
+	 * Returns the jitter policy.
+	 *
+	 * @return jitter policy
+	 */
+	public BackoffJitter getJitter() {
+		return jitter;
+	}
+
+	@Override
+	public long getTimeout() {
+		return timeout;
+	}
+
+	@Override
+	public BackoffTimeout setTimeout(long millis) {
+		throw new UnsupportedOperationException("cannot change backoff timeout");
+	}
+
+	@Override
+	public BackoffTimeout start() {
+		if (running) {
+			throw new IllegalStateException("timeout is already running");
+		}
+		startFromBase();
+		return this;
+	}
+
+	@Override
+	public BackoffTimeout startIfNotRunning() {
+		if (!running) {
+			startFromBase();
+		}
+		return this;
+	}
+
+	@Override
+	public BackoffTimeout stop() {
+		boolean wasRunning;
+		synchronized (this) {
+			wasRunning = running;
+			countIfElapsed(clock.getTimeInMillis());
+			running = false;
+		}
+		if (wasRunning && hasPropertyChangeListeners(PROPERTY_RUNNING)) {
+			firePropertyChange(PROPERTY_RUNNING, true, false);
+		}
+		return this;
+	}
+
+	/**
+	 * Restarts the timeout. If the current period has elapsed, it is counted
+	 * and the new period uses the next (longer) duration.
+	 *
+	 * @return this timeout
+	 */
+	@Override
+	public BackoffTimeout restart() {
+		final boolean wasRunning;
+		final long oldTimeout;
+		final long newTimeout;
+		synchronized (this) {
+			wasRunning = running;
+			oldTimeout = timeout;
+			final long currentTime = clock.getTimeInMillis();
+			countIfElapsed(currentTime);
+			if (durationOutdated) {
+				timeout = computeDuration(expirationCount, oldTimeout);
+			}
+			newTimeout = timeout;
+			startTime = currentTime;
+			expirationCounted = false;
+			durationOutdated = false;
+			running = true;
+		}
+		fireRestart(wasRunning, oldTimeout, newTimeout);
+		return this;
+	}
+
+	@Override
+	public boolean restartIfElapsed() {
+		if (!running) {
+			startIfNotRunning();
+			return true;
+		}
+		final long oldTimeout;
+		final long newTimeout;
+		synchronized (this) {
+			final long currentTime = clock.getTimeInMillis();
+			if (running && (currentTime < startTime + timeout)) {
+				return false;
+			}
+			oldTimeout = timeout;
+			countIfElapsed(currentTime);
+			timeout = computeDuration(expirationCount, oldTimeout);
+			newTimeout = timeout;
+			startTime = currentTime;
+			expirationCounted = false;
+			durationOutdated = false;
+			running = true;
+		}
+		fireRestart(true, oldTimeout, newTimeout);
+		return true;
+	}
+
+	@Override
+	public void expireNow() {
+		synchronized (this) {
+			if (!running) {
+				throw new IllegalStateException(ERR_TIMEOUT_NOT_RUNNING);
+			}
+			startTime = clock.getTimeInMillis() - timeout;
+		}
+		if (hasPropertyChangeListeners(PROPERTY_ELAPSED)) {
+			firePropertyChange(PROPERTY_ELAPSED, false, true);
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+
+	@Override
+	public boolean isElapsed() {
+		if (!running) {
+			return false;
+		}
+		final long currentTime = clock.getTimeInMillis();
+		if (currentTime < startTime + timeout) {
+			return false;
+		}
+		synchronized (this) {
+			countIfElapsed(currentTime);
+		}
+		return true;
+	}
+
+	@Override
+	public boolean isExpired() {
+		return isElapsed();
+	}
+
+	@Override
+	public int getRemainingPercent() {
+		final long currentTime = clock.getTimeInMillis();
+		final long diff;
+		final long tmout;
+		synchronized (this) {
+			if (!running) {
+				throw new IllegalStateException(ERR_TIMEOUT_NOT_RUNNING);
+			}
+			tmout = timeout;
+			diff = startTime + tmout - currentTime;
+		}
+		if (diff >= tmout) {
+			return MAX_PERCENT;
+		} else if (diff <= 0L) {
+			return 0;
+		}
+		final long percent = ((100 * PREC_SCALE * diff) / tmout + (PREC_SCALE / 2)) / PREC_SCALE;
+		return (int) percent;
+	}
+
+	@Override
+	public Long getRemainingMillis() {
+		final long currentTime = clock.getTimeInMillis();
+		final long remaining;
+		synchronized (this) {
+			if (!running) {
+				return null;
+			}
+			remaining = startTime + timeout - currentTime;
+		}
+		return (remaining > 0L) ? remaining : 0L;
+	}
+
+	@Override
+	public boolean isFirstRun() {
+		synchronized (this) {
+			return 0 == expirationCount;
+		}
+	}
+
+	@Override
+	public int getExpirationCount() {
+		synchronized (this) {
+			countIfElapsed(clock.getTimeInMillis());
+			return expirationCount;
+		}
+	}
+
+	/**
+	 * Resets the expiration count, so that the next period (after restart)
+	 * uses the base duration again. The current period is not affected.
+	 *
+	 * @return this timeout
+	 */
+	@Override
+	public BackoffTimeout resetExpirationCount() {
+		synchronized (this) {
+			expirationCount = 0;
+			durationOutdated = true;
+		}
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder str = new StringBuilder("BackoffTimeout[");
+		str.append(running ? "running" : "idle");
+		str.append(", timeout=").append(timeout).append("ms");
+		str.append(", base=").append(baseMillis).append("ms");
+		str.append(", factor=").append(factor);
+		str.append(", cap=").append(capMillis).append("ms");
+		str.append(", jitter=").append(jitter);
+		str.append(']');
+		return str.toString();
+	}
+
+	/**
+	 * Computes the duration of period after the given number of expirations.
+	 * Must be called with the monitor of this timeout held, as it uses the random generator.
+	 */
+	long computeDuration(int count, long previousDuration) {
+		final double exponential = baseMillis * Math.pow(factor, count);
+		final long duration = (exponential < capMillis) ? (long) exponential : capMillis;
+		switch (jitter) {
+			case NONE:
+				return duration;
+			case FULL:
+				return random.nextLong(0L, duration);
+			case EQUAL:
+				return duration / 2L + random.nextLong(0L, duration - duration / 2L);
+			case DECORRELATED:
+				if (0 == count) {
+					return baseMillis;
+				}
+				final double upperBound = previousDuration * factor;
+				final long limit = (upperBound < capMillis) ? (long) upperBound : capMillis;
+				return random.nextLong(baseMillis, Math.max(baseMillis, limit));
+			default:
+				throw new AssertionError(jitter);
+		}
+	}
+
+	private void startFromBase() {
+		final boolean started;
+		final long oldTimeout;
+		final long newTimeout;
+		synchronized (this) {
+			started = !running;
+			oldTimeout = timeout;
+			if (started) {
+				expirationCount = 0;
+				expirationCounted = false;
+				durationOutdated = false;
+				timeout = computeDuration(0, baseMillis);
+				startTime = clock.getTimeInMillis();
+				running = true;
+			}
+			newTimeout = timeout;
+		}
+		if (started) {
+			fireRestart(false, oldTimeout, newTimeout);
+		}
+	}
+
+	/**
+	 * Counts the current period if it has elapsed and was not counted yet.
+	 * Must be called with the monitor of this timeout held.
+	 */
+	private void countIfElapsed(long currentTime) {
+		if (running && !expirationCounted && (currentTime >= startTime + timeout)) {
+			++expirationCount;
+			expirationCounted = true;
+			durationOutdated = true;
+		}
+	}
+
+	private void fireRestart(boolean wasRunning, long oldTimeout, long newTimeout) {
+		if (hasPropertyChangeListeners(PROPERTY_RUNNING)) {
+			firePropertyChange(PROPERTY_RUNNING, wasRunning, true);
+		}
+		if ((oldTimeout != newTimeout) && hasPropertyChangeListeners(PROPERTY_TIMEOUT)) {
+			firePropertyChange(PROPERTY_TIMEOUT, oldTimeout, newTimeout);
+		}
+	}
+
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time.timeout;
+
+/**
+ * Callback invoked by {@link cz.auderis.tools.time.timeout.TimeoutScheduler}
+ * when a scheduled timeout expires.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public interface ExpirationListener {
+
+	/**
+	 * Invoked from the scheduler thread when the timeout has expired. The implementation
+	 * should return quickly; long-running reactions should be handed over to another thread.
+	 *
+	 * @param timeout expired timeout
+	 */
+	void timeoutExpired(Timeout timeout);
+
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time.timeout;
+
+import cz.auderis.tools.time.TimeProvider;
+
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timeout whose state transitions are performed without locks. The running flag
+ * and the start time are packed into a single {@link java.util.concurrent.atomic.AtomicLong}
+ * (the flag occupies the lowest bit), so that every transition is a single
+ * compare-and-set and the readers always observe a consistent pair of values.
+ * Property change events are prepared only if there are listeners registered.
+ *
+ * <p>The start time must fit into 62 bits, which holds for all practical clocks.
+ */
+class LockFreeTimeoutImpl extends AbstractBeanBasedTimeout implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final String ERR_TIMEOUT_NEGATIVE = "timeout must not be negative";
+	private static final String ERR_TIMEOUT_NOT_RUNNING = "timeout not running";
+	private static final long RUNNING_BIT = 1L;
+	private static final long PREC_SCALE = 1024L;
+	private static final AtomicInteger TIMEOUT_ID_SEQUENCE = new AtomicInteger(1);
+
+	private final int id;
+	private final TimeProvider clock;
+	private final AtomicLong state;
+	private volatile long timeout;
+
+	LockFreeTimeoutImpl(long millis, TimeProvider clock) {
+		super();
+		if (millis < 0L) {
+			throw new IllegalArgumentException(ERR_TIMEOUT_NEGATIVE);
+		} else if (null == clock) {
+			throw new NullPointerException();
+		}
+		this.id = TIMEOUT_ID_SEQUENCE.getAndIncrement();
+		this.clock = clock;
+		this.state = new AtomicLong(0L);
+		this.timeout = millis;
+	}
+
+	@Override
+	public long getTimeout() {
+		return timeout;
+	}
+
+	@Override
+	public LockFreeTimeoutImpl setTimeout(long millis) {
+		if (millis < 0L) {
+			throw new IllegalArgumentException(ERR_TIMEOUT_NEGATIVE);
+		} else if (isRunning(state.get())) {
+			throw new IllegalStateException("cannot change running timeout");
+		}
+		final long oldMillis = this.timeout;
+		this.timeout = millis;
+		if (hasPropertyChangeListeners(PROPERTY_TIMEOUT)) {
+			firePropertyChange(PROPERTY_TIMEOUT, oldMillis, millis);
+		}
+		return this;
+	}
+
+	@Override
+	public LockFreeTimeoutImpl start() {
+		final long newState = runningState(clock.getTimeInMillis());
+		long currentState;
+		do {
+			currentState = state.get();
+			if (isRunning(currentState)) {
+				throw new IllegalStateException("timeout is already running");
+			}
+		} while (!state.compareAndSet(currentState, newState));
+		fireRunningChange(false);
+		return this;
+	}
+
+	@Override
+	public LockFreeTimeoutImpl startIfNotRunning() {
+		final long newState = runningState(clock.getTimeInMillis());
+		long currentState;
+		do {
+			currentState = state.get();
+			if (isRunning(currentState)) {
+				return this;
+			}
+		} while (!state.compareAndSet(currentState, newState));
+		fireRunningChange(false);
+		return this;
+	}
+
+	@Override
+	public LockFreeTimeoutImpl stop() {
+		long currentState;
+		do {
+			currentState = state.get();
+			if (!isRunning(currentState)) {
+				return this;
+			}
+		} while (!state.compareAndSet(currentState, currentState & ~RUNNING_BIT));
+		if (hasPropertyChangeListeners(PROPERTY_RUNNING)) {
+			firePropertyChange(PROPERTY_RUNNING, true, false);
+		}
+		return this;
+	}
+
+	@Override
+	public LockFreeTimeoutImpl restart() {
+		final long oldState = state.getAndSet(runningState(clock.getTimeInMillis()));
+		fireRunningChange(isRunning(oldState));
+		return this;
+	}
+
+	@Override
+	public boolean restartIfElapsed() {
+		long currentState;
+		long currentTime;
+		do {
+			currentState = state.get();
+			currentTime = clock.getTimeInMillis();
+			if (isRunning(currentState) && (currentTime < startTime(currentState) + timeout)) {
+				// No need for restart
+				return false;
+			}
+		} while (!state.compareAndSet(currentState, runningState(currentTime)));
+		fireRunningChange(isRunning(currentState));
+		return true;
+	}
+
+	@Override
+	public void expireNow() {
+		final long currentTime = clock.getTimeInMillis();
+		long currentState;
+		do {
+			currentState = state.get();
+			if (!isRunning(currentState)) {
+				throw new IllegalStateException(ERR_TIMEOUT_NOT_RUNNING);
+			}
+		} while (!state.compareAndSet(currentState, runningState(currentTime - timeout)));
+		if (hasPropertyChangeListeners(PROPERTY_ELAPSED)) {
+			firePropertyChange(PROPERTY_ELAPSED, false, true);
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return isRunning(state.get());
+	}
+
+	@Override
+	public boolean isElapsed() {
+		final long currentState = state.get();
+		if (!isRunning(currentState)) {
+			return false;
+		}
+		return clock.getTimeInMillis() >= startTime(currentState) + timeout;
+	}
+
+	@Override
+	public int getRemainingPercent() {
+		final long currentState = state.get();
+		if (!isRunning(currentState)) {
+			throw new IllegalStateException(ERR_TIMEOUT_NOT_RUNNING);
+		}
+		final long tmout = this.timeout;
+		final long diff = startTime(currentState) + tmout - clock.getTimeInMillis();
+		if (diff >= tmout) {
+			return MAX_PERCENT;
+		} else if (diff <= 0L) {
+			return 0;
+		}
+		final long percent = ((100 * PREC_SCALE * diff) / tmout + (PREC_SCALE / 2)) / PREC_SCALE;
+		return (int) percent;
+	}
+
+	@Override
+	public Long getRemainingMillis() {
+		final long currentState = state.get();
+		if (!isRunning(currentState)) {
+			return null;
+		}
+		final long remaining = startTime(currentState) + timeout - clock.getTimeInMillis();
+		return (remaining > 0L) ? remaining : 0L;
+	}
+
+	@Override
+	public boolean isExpired() {
+		return isElapsed();
+	}
+
+	@Override
+	public int hashCode() {
+		return 107 ^ Objects.hash(clock) ^ id;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		} else if ((null == obj) || !(obj instanceof LockFreeTimeoutImpl)) {
+			return false;
+		}
+		final LockFreeTimeoutImpl other = (LockFreeTimeoutImpl) obj;
+		if (!Objects.equals(this.clock, other.clock)) {
+			return false;
+		} else if (this.state.get() != other.state.get()) {
+			return false;
+		} else if (this.timeout != other.timeout) {
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		final long currentState = state.get();
+		final StringBuilder str = new StringBuilder("Timeout[");
+		if (isRunning(currentState)) {
+			str.append("running since ").append(startTime(currentState));
+		} else {
+			str.append("idle");
+		}
+		str.append(", timeout=").append(timeout).append("ms]");
+		return str.toString();
+	}
+
+	private void fireRunningChange(boolean oldRunning) {
+		if (hasPropertyChangeListeners(PROPERTY_RUNNING)) {
+			firePropertyChange(PROPERTY_RUNNING, oldRunning, true);
+		}
+	}
+
+	private static boolean isRunning(long state) {
+		return 0L != (state & RUNNING_BIT);
+	}
+
+	private static long startTime(long state) {
+		return state >> 1;
+	}
+
+	private static long runningState(long startTime) {
+		return (startTime << 1) | RUNNING_BIT;
+	}
+
+}
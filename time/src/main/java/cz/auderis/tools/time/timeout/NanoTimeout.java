@@ -0,0 +1,69 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time.timeout;
+
+/**
+ * Timeout that keeps its duration and remaining time with nanosecond precision.
+ * The methods inherited from {@link cz.auderis.tools.time.timeout.Timeout} work
+ * with milliseconds as usual; the additional methods provide the full precision,
+ * which is needed for sub-millisecond deadlines.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public interface NanoTimeout extends BeanBasedTimeout {
+
+	/**
+	 * Provides the total timeout time in nanoseconds. Notice that this is configurable value, not a remaining time.
+	 *
+	 * @return nanoseconds representing total timeout duration
+	 */
+	long getTimeoutNanos();
+
+	/**
+	 * Sets the total timeout time in nanoseconds.
+	 *
+	 * @param nanos timeout duration in nanoseconds
+	 * @return the timeout
+	 * @throws java.lang.IllegalArgumentException if {@code nanos} is negative
+	 * @throws java.lang.IllegalStateException if the timeout is running
+	 */
+	NanoTimeout setTimeoutNanos(long nanos);
+
+	/**
+	 * Gets the remaining time in nanoseconds.
+	 *
+	 * @return remaining nanoseconds, 0 if the timeout has elapsed or -1 if it is not running
+	 */
+	long getRemainingNanos();
+
+	@Override
+	NanoTimeout setTimeout(long millis);
+
+	@Override
+	NanoTimeout start();
+
+	@Override
+	NanoTimeout startIfNotRunning();
+
+	@Override
+	NanoTimeout stop();
+
+	@Override
+	NanoTimeout restart();
+
+}
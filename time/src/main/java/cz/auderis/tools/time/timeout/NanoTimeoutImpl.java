@@ -0,0 +1,333 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time.timeout;
+
+import cz.auderis.tools.time.NanoTimeProvider;
+
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Nanosecond counterpart of {@code TimeoutWithProviderImpl}. The start time and the duration
+ * are kept in nanoseconds, so that the elapsed check requires just a subtraction
+ * and a comparison; the subtraction also makes the check immune to numerical
+ * overflow of the clock value.
+ */
+class NanoTimeoutImpl extends AbstractBeanBasedTimeout implements NanoTimeout, Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final String ERR_TIMEOUT_NEGATIVE = "timeout must not be negative";
+	private static final String ERR_TIMEOUT_NOT_RUNNING = "timeout not running";
+	private static final long NANOS_PER_MILLI = 1000000L;
+	private static final AtomicInteger TIMEOUT_ID_SEQUENCE = new AtomicInteger(1);
+
+	private final int id;
+	private final NanoTimeProvider clock;
+	private final ReadWriteLock mutex;
+	private volatile boolean running;
+	private volatile long timeout;
+	private volatile long startTime;
+
+	NanoTimeoutImpl(long nanos, NanoTimeProvider clock) {
+		super();
+		if (nanos < 0L) {
+			throw new IllegalArgumentException(ERR_TIMEOUT_NEGATIVE);
+		} else if (null == clock) {
+			throw new NullPointerException();
+		}
+		this.id = TIMEOUT_ID_SEQUENCE.getAndIncrement();
+		this.clock = clock;
+		this.mutex = new ReentrantReadWriteLock();
+		this.timeout = nanos;
+	}
+
+	@Override
+	public long getTimeout() {
+		return timeout / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public long getTimeoutNanos() {
+		return timeout;
+	}
+
+	@Override
+	public NanoTimeoutImpl setTimeout(long millis) {
+		if (millis < 0L) {
+			throw new IllegalArgumentException(ERR_TIMEOUT_NEGATIVE);
+		} else if (millis > Long.MAX_VALUE / NANOS_PER_MILLI) {
+			throw new IllegalArgumentException("timeout too long");
+		}
+		return setTimeoutNanos(millis * NANOS_PER_MILLI);
+	}
+
+	@Override
+	public NanoTimeoutImpl setTimeoutNanos(long nanos) {
+		if (nanos < 0L) {
+			throw new IllegalArgumentException(ERR_TIMEOUT_NEGATIVE);
+		} else if (running) {
+			throw new IllegalStateException("cannot change running timeout");
+		}
+		mutex.writeLock().lock();
+		final long oldMillis = getTimeout();
+		try {
+			this.timeout = nanos;
+		} finally {
+			mutex.writeLock().unlock();
+		}
+		firePropertyChange(PROPERTY_TIMEOUT, oldMillis, getTimeout());
+		return this;
+	}
+
+	@Override
+	public NanoTimeoutImpl start() {
+		final long currentTime = clock.getTimeInNanos();
+		if (running) {
+			throw new IllegalStateException("timeout is already running");
+		}
+		mutex.writeLock().lock();
+		try {
+			if (!running) {
+				running = true;
+				startTime = currentTime;
+			}
+		} finally {
+			mutex.writeLock().unlock();
+		}
+		firePropertyChange(PROPERTY_RUNNING, false, true);
+		return this;
+	}
+
+	@Override
+	public NanoTimeoutImpl startIfNotRunning() {
+		final long currentTime = clock.getTimeInNanos();
+		if (running) {
+			return this;
+		}
+		mutex.writeLock().lock();
+		try {
+			if (!running) {
+				running = true;
+				startTime = currentTime;
+			}
+		} finally {
+			mutex.writeLock().unlock();
+		}
+		firePropertyChange(PROPERTY_RUNNING, false, true);
+		return this;
+	}
+
+	@Override
+	public NanoTimeoutImpl stop() {
+		if (running) {
+			mutex.writeLock().lock();
+			try {
+				running = false;
+			} finally {
+				mutex.writeLock().unlock();
+			}
+			firePropertyChange(PROPERTY_RUNNING, true, false);
+		}
+		return this;
+	}
+
+	@Override
+	public NanoTimeoutImpl restart() {
+		final long currentTime = clock.getTimeInNanos();
+		mutex.writeLock().lock();
+		final boolean oldRunning = running;
+		try {
+			running = true;
+			startTime = currentTime;
+		} finally {
+			mutex.writeLock().unlock();
+		}
+		firePropertyChange(PROPERTY_RUNNING, oldRunning, true);
+		return this;
+	}
+
+	@Override
+	public boolean restartIfElapsed() {
+		long currentTime = clock.getTimeInNanos();
+		if (running && (currentTime - startTime < timeout)) {
+			// No need for restart
+			return false;
+		}
+		mutex.writeLock().lock();
+		final boolean oldRunning = running;
+		boolean restarted = false;
+		try {
+			currentTime = clock.getTimeInNanos();
+			if (!running || (currentTime - startTime >= timeout)) {
+				running = true;
+				startTime = currentTime;
+				restarted = true;
+			}
+		} finally {
+			mutex.writeLock().unlock();
+		}
+		firePropertyChange(PROPERTY_RUNNING, oldRunning, true);
+		return restarted;
+	}
+
+	@Override
+	public void expireNow() {
+		final long currentTime = clock.getTimeInNanos();
+		mutex.writeLock().lock();
+		try {
+			if (running) {
+				startTime = currentTime - timeout;
+			} else {
+				throw new IllegalStateException(ERR_TIMEOUT_NOT_RUNNING);
+			}
+		} finally {
+			mutex.writeLock().unlock();
+		}
+		firePropertyChange(PROPERTY_ELAPSED, false, true);
+	}
+
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+
+	@Override
+	public boolean isElapsed() {
+		if (!running) {
+			return false;
+		}
+		final boolean mutexAcquired = mutex.readLock().tryLock();
+		try {
+			return clock.getTimeInNanos() - startTime >= timeout;
+		} finally {
+			if (mutexAcquired) {
+				mutex.readLock().unlock();
+			}
+		}
+	}
+
+	@Override
+	public int getRemainingPercent() {
+		if (!running) {
+			throw new IllegalStateException(ERR_TIMEOUT_NOT_RUNNING);
+		}
+		final long currentTime = clock.getTimeInNanos();
+		final long diff;
+		final long tmout;
+		final boolean mutexAcquired = mutex.readLock().tryLock();
+		try {
+			if (!running) {
+				throw new IllegalStateException(ERR_TIMEOUT_NOT_RUNNING);
+			}
+			tmout = this.timeout;
+			diff = tmout - (currentTime - startTime);
+		} finally {
+			if (mutexAcquired) {
+				mutex.readLock().unlock();
+			}
+		}
+		if (diff >= tmout) {
+			return MAX_PERCENT;
+		} else if (diff <= 0L) {
+			return 0;
+		}
+		// Nanosecond values are too large for scaled integer arithmetic
+		return (int) Math.round(MAX_PERCENT * ((double) diff / tmout));
+	}
+
+	@Override
+	public long getRemainingNanos() {
+		final long currentTime = clock.getTimeInNanos();
+		if (!running) {
+			return -1L;
+		}
+		final boolean mutexAcquired = mutex.readLock().tryLock();
+		try {
+			if (!running) {
+				return -1L;
+			}
+			final long remaining = timeout - (currentTime - startTime);
+			return (remaining > 0L) ? remaining : 0L;
+		} finally {
+			if (mutexAcquired) {
+				mutex.readLock().unlock();
+			}
+		}
+	}
+
+	/**
+	 * Gets the remaining time rounded up to whole milliseconds, so that a timeout
+	 * with any time left never reports zero.
+	 *
+	 * @return remaining milliseconds or {@code null} if the timeout is not running
+	 */
+	@Override
+	public Long getRemainingMillis() {
+		final long remaining = getRemainingNanos();
+		if (remaining < 0L) {
+			return null;
+		}
+		return (remaining + NANOS_PER_MILLI - 1L) / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public boolean isExpired() {
+		return isRunning() ? isElapsed() : false;
+	}
+
+	@Override
+	public int hashCode() {
+		return 103 ^ Objects.hash(clock) ^ id;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		} else if ((null == obj) || !(obj instanceof NanoTimeoutImpl)) {
+			return false;
+		}
+		final NanoTimeoutImpl other = (NanoTimeoutImpl) obj;
+		if (!Objects.equals(this.clock, other.clock)) {
+			return false;
+		} else if (this.running != other.running) {
+			return false;
+		} else if (this.timeout != other.timeout) {
+			return false;
+		} else if (this.startTime != other.startTime) {
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder str = new StringBuilder("NanoTimeout[");
+		if (running) {
+			str.append("remaining=").append(getRemainingNanos()).append("ns");
+		} else {
+			str.append("idle");
+		}
+		str.append(", timeout=").append(timeout).append("ns]");
+		return str.toString();
+	}
+
+}
@@ -0,0 +1,387 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time.timeout;
+
+import cz.auderis.tools.time.TimeProvider;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timeout whose duration follows a schedule of stages, e.g. a back-off schedule
+ * of a connection. Each stage has a duration and a number of repeats; when the timeout
+ * is restarted after it has elapsed, the schedule advances by one step, and after
+ * the configured number of repeats the next stage is used. After the last stage,
+ * the schedule either stays on the last stage or (if it is cyclic) continues with
+ * the first stage.
+ *
+ * <p>This is a compact alternative to {@link cz.auderis.tools.time.timeout.SwitchingTimeout}.
+ * The stage table is kept in primitive arrays and the whole mutable state (running flag,
+ * step number and start time) is packed into a single {@link java.util.concurrent.atomic.AtomicLong},
+ * so that all transitions are single compare-and-set operations and no nested timeout
+ * objects or locks are involved. The expiration time is computed arithmetically from
+ * the stored start time and the duration of the current stage.
+ *
+ * <p>The start time is stored relatively to the time of creation of the timeout
+ * using 40 bits, which is sufficient for about 17 years of continuous operation.
+ * The total number of steps in the schedule (the sum of repeats) is limited
+ * to {@value #MAX_STEPS}.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class ScheduleTimeout extends AbstractBeanBasedTimeout {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Maximal total number of steps (sum of repeats of all stages)
+	 */
+	public static final int MAX_STEPS = (1 << 23) - 1;
+
+	private static final String ERR_TIMEOUT_NOT_RUNNING = "timeout not running";
+	private static final long RUNNING_BIT = 1L;
+	private static final int STEP_SHIFT = 1;
+	private static final long STEP_MASK = MAX_STEPS;
+	private static final int TIME_SHIFT = 24;
+	private static final long PREC_SCALE = 1024L;
+
+	private final long[] stageDurations;
+	private final int[] stageEnds;
+	private final int totalSteps;
+	private final boolean cyclic;
+	private final TimeProvider clock;
+	private final long timeBase;
+	private final AtomicLong state;
+
+	ScheduleTimeout(long[] durationMillis, int[] repeats, boolean cyclic, TimeProvider clock) {
+		super();
+		if ((null == durationMillis) || (null == repeats) || (null == clock)) {
+			throw new NullPointerException();
+		} else if ((0 == durationMillis.length) || (durationMillis.length != repeats.length)) {
+			throw new IllegalArgumentException("invalid stage table");
+		}
+		final int stageCount = durationMillis.length;
+		this.stageDurations = Arrays.copyOf(durationMillis, stageCount);
+		this.stageEnds = new int[stageCount];
+		long steps = 0L;
+		for (int i = 0; i < stageCount; ++i) {
+			if (stageDurations[i] < 0L) {
+				throw new IllegalArgumentException("timeout must not be negative");
+			} else if (repeats[i] < 1) {
+				throw new IllegalArgumentException("repeat count must be positive");
+			}
+			steps += repeats[i];
+			if (steps > MAX_STEPS) {
+				throw new IllegalArgumentException("too many steps in schedule");
+			}
+			stageEnds[i] = (int) steps;
+		}
+		this.totalSteps = (int) steps;
+		this.cyclic = cyclic;
+		this.clock = clock;
+		this.timeBase = clock.getTimeInMillis();
+		this.state = new AtomicLong(0L);
+	}
+
+	/**
+	 * Returns the number of stages in the schedule.
+	 *
+	 * @return number of stages
+	 */
+	public int getStageCount() {
+		return stageDurations.length;
+	}
+
+	/**
+	 * Returns the index of the current stage.
+	 *
+	 * @return index of the current stage
+	 */
+	public int getStageIndex() {
+		return stageOf(step(state.get()));
+	}
+
+	/**
+	 * Returns the number of elapsed periods that were followed by a restart since
+	 * the schedule was started. For non-cyclic schedules, the value does not grow beyond
+	 * the total number of steps; for cyclic schedules it wraps to zero when the cycle
+	 * is completed.
+	 *
+	 * @return number of steps taken in the schedule
+	 */
+	public int getExpirationCount() {
+		return step(state.get());
+	}
+
+	/**
+	 * Returns the time (as given by the time provider) when the current period expires.
+	 *
+	 * @return expiration time or {@code -1} if the timeout is not running
+	 */
+	public long getExpirationTime() {
+		final long currentState = state.get();
+		if (!isRunning(currentState)) {
+			return -1L;
+		}
+		return expirationTime(currentState);
+	}
+
+	@Override
+	public long getTimeout() {
+		return stageDurations[stageOf(step(state.get()))];
+	}
+
+	@Override
+	public ScheduleTimeout setTimeout(long millis) {
+		throw new UnsupportedOperationException("cannot change schedule timeout");
+	}
+
+	@Override
+	public ScheduleTimeout start() {
+		final long newState = encode(clock.getTimeInMillis(), 0, true);
+		long currentState;
+		do {
+			currentState = state.get();
+			if (isRunning(currentState)) {
+				throw new IllegalStateException("timeout is already running");
+			}
+		} while (!state.compareAndSet(currentState, newState));
+		fireChanges(currentState, newState);
+		return this;
+	}
+
+	@Override
+	public ScheduleTimeout startIfNotRunning() {
+		final long newState = encode(clock.getTimeInMillis(), 0, true);
+		long currentState;
+		do {
+			currentState = state.get();
+			if (isRunning(currentState)) {
+				return this;
+			}
+		} while (!state.compareAndSet(currentState, newState));
+		fireChanges(currentState, newState);
+		return this;
+	}
+
+	@Override
+	public ScheduleTimeout stop() {
+		long currentState;
+		do {
+			currentState = state.get();
+			if (!isRunning(currentState)) {
+				return this;
+			}
+		} while (!state.compareAndSet(currentState, currentState & ~RUNNING_BIT));
+		if (hasPropertyChangeListeners(PROPERTY_RUNNING)) {
+			firePropertyChange(PROPERTY_RUNNING, true, false);
+		}
+		return this;
+	}
+
+	/**
+	 * Stops the timeout and moves the schedule back to the first stage.
+	 *
+	 * @return this timeout
+	 */
+	public ScheduleTimeout reset() {
+		final long oldState = state.getAndSet(0L);
+		fireChanges(oldState, 0L);
+		return this;
+	}
+
+	/**
+	 * Restarts the timeout. If the current period has elapsed, the schedule advances
+	 * by one step. A stopped timeout continues with its current step.
+	 *
+	 * @return this timeout
+	 */
+	@Override
+	public ScheduleTimeout restart() {
+		long currentState;
+		long newState;
+		do {
+			currentState = state.get();
+			final long currentTime = clock.getTimeInMillis();
+			int step = step(currentState);
+			if (isRunning(currentState) && (currentTime >= expirationTime(currentState))) {
+				step = nextStep(step);
+			}
+			newState = encode(currentTime, step, true);
+		} while (!state.compareAndSet(currentState, newState));
+		fireChanges(currentState, newState);
+		return this;
+	}
+
+	/**
+	 * Restarts the timeout if it has elapsed, advancing the schedule by one step.
+	 * A timeout that is not running is started from the first stage.
+	 *
+	 * @return {@code true} if the timeout was (re)started
+	 */
+	@Override
+	public boolean restartIfElapsed() {
+		long currentState;
+		long newState;
+		do {
+			currentState = state.get();
+			final long currentTime = clock.getTimeInMillis();
+			if (!isRunning(currentState)) {
+				newState = encode(currentTime, 0, true);
+			} else if (currentTime >= expirationTime(currentState)) {
+				newState = encode(currentTime, nextStep(step(currentState)), true);
+			} else {
+				return false;
+			}
+		} while (!state.compareAndSet(currentState, newState));
+		fireChanges(currentState, newState);
+		return true;
+	}
+
+	@Override
+	public void expireNow() {
+		long currentState;
+		long newState;
+		do {
+			currentState = state.get();
+			if (!isRunning(currentState)) {
+				throw new IllegalStateException(ERR_TIMEOUT_NOT_RUNNING);
+			}
+			final int step = step(currentState);
+			newState = encode(clock.getTimeInMillis() - stageDurations[stageOf(step)], step, true);
+		} while (!state.compareAndSet(currentState, newState));
+		if (hasPropertyChangeListeners(PROPERTY_ELAPSED)) {
+			firePropertyChange(PROPERTY_ELAPSED, false, true);
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return isRunning(state.get());
+	}
+
+	@Override
+	public boolean isElapsed() {
+		final long currentState = state.get();
+		if (!isRunning(currentState)) {
+			return false;
+		}
+		return clock.getTimeInMillis() >= expirationTime(currentState);
+	}
+
+	@Override
+	public boolean isExpired() {
+		return isElapsed();
+	}
+
+	@Override
+	public int getRemainingPercent() {
+		final long currentState = state.get();
+		if (!isRunning(currentState)) {
+			throw new IllegalStateException(ERR_TIMEOUT_NOT_RUNNING);
+		}
+		final long tmout = stageDurations[stageOf(step(currentState))];
+		final long diff = expirationTime(currentState) - clock.getTimeInMillis();
+		if (diff >= tmout) {
+			return MAX_PERCENT;
+		} else if (diff <= 0L) {
+			return 0;
+		}
+		final long percent = ((100 * PREC_SCALE * diff) / tmout + (PREC_SCALE / 2)) / PREC_SCALE;
+		return (int) percent;
+	}
+
+	@Override
+	public Long getRemainingMillis() {
+		final long currentState = state.get();
+		if (!isRunning(currentState)) {
+			return null;
+		}
+		final long remaining = expirationTime(currentState) - clock.getTimeInMillis();
+		return (remaining > 0L) ? remaining : 0L;
+	}
+
+	@Override
+	public String toString() {
+		final long currentState = state.get();
+		final int currentStage = stageOf(step(currentState));
+		final StringBuilder str = new StringBuilder("ScheduleTimeout[");
+		int stageStart = 0;
+		for (int i = 0; i < stageDurations.length; ++i) {
+			if (i > 0) {
+				str.append(", ");
+			}
+			if (currentStage == i) {
+				str.append('*');
+			}
+			str.append(stageDurations[i]).append("ms x").append(stageEnds[i] - stageStart);
+			stageStart = stageEnds[i];
+		}
+		if (cyclic) {
+			str.append(", cyclic");
+		}
+		str.append(isRunning(currentState) ? ", running]" : ", idle]");
+		return str.toString();
+	}
+
+	private int nextStep(int step) {
+		if (cyclic) {
+			return (step + 1 < totalSteps) ? step + 1 : 0;
+		}
+		return (step < totalSteps) ? step + 1 : totalSteps;
+	}
+
+	private int stageOf(int step) {
+		if (step >= totalSteps) {
+			// Schedule exhausted, the last stage is kept
+			return stageEnds.length - 1;
+		}
+		final int index = Arrays.binarySearch(stageEnds, step);
+		// Step equal to the end of a stage belongs to the next stage
+		return (index >= 0) ? index + 1 : -index - 1;
+	}
+
+	private long expirationTime(long state) {
+		return timeBase + (state >> TIME_SHIFT) + stageDurations[stageOf(step(state))];
+	}
+
+	private long encode(long startTime, int step, boolean running) {
+		final long relativeStart = startTime - timeBase;
+		return (relativeStart << TIME_SHIFT) | ((long) step << STEP_SHIFT) | (running ? RUNNING_BIT : 0L);
+	}
+
+	private void fireChanges(long oldState, long newState) {
+		if (hasPropertyChangeListeners(PROPERTY_RUNNING)) {
+			firePropertyChange(PROPERTY_RUNNING, isRunning(oldState), isRunning(newState));
+		}
+		if (hasPropertyChangeListeners(PROPERTY_TIMEOUT)) {
+			final long oldTimeout = stageDurations[stageOf(step(oldState))];
+			final long newTimeout = stageDurations[stageOf(step(newState))];
+			firePropertyChange(PROPERTY_TIMEOUT, oldTimeout, newTimeout);
+		}
+	}
+
+	private static boolean isRunning(long state) {
+		return 0L != (state & RUNNING_BIT);
+	}
+
+	private static int step(long state) {
+		return (int) ((state >>> STEP_SHIFT) & STEP_MASK);
+	}
+
+}
@@ -0,0 +1,496 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time.timeout;
+
+import cz.auderis.tools.time.TimeProvider;
+import cz.auderis.tools.time.TimeProviders;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Scheduler that detects expirations of timeouts proactively, instead of relying
+ * on the callers to poll {@link Timeout#isExpired()}. Scheduled timeouts are
+ * kept in a hashed timing wheel that is driven by a single daemon thread;
+ * when the deadline of a timeout passes, the registered
+ * {@link cz.auderis.tools.time.timeout.ExpirationListener} is invoked from that thread.
+ *
+ * <p>Scheduling and cancellation are O(1) operations that do not block: new and cancelled
+ * registrations are passed to the scheduler thread through lock-free queues and the
+ * wheel itself is touched only by the scheduler thread. Hundreds of thousands of
+ * concurrently scheduled timeouts are therefore handled without contention.
+ * The price is the precision of the deadlines, which is given by the tick duration.
+ *
+ * <p>When the deadline of a scheduled timeout is reached, the timeout is consulted again:
+ * if it has been restarted in the meantime, it is rescheduled according to its
+ * remaining time; if it has been stopped, the registration is dropped without
+ * notification. Because the expiration is checked by {@link Timeout#isExpired()},
+ * timeouts decorated by {@link cz.auderis.tools.time.timeout.TimeoutPropertyDecorator}
+ * fire their {@code elapsed} property change events on time as well.
+ *
+ * <p>An exception thrown by a listener, a trigger or a timeout does not affect the other
+ * registrations; the failed registration is dropped and the exception is passed to
+ * the handler set by {@link #setExceptionHandler(Thread.UncaughtExceptionHandler)}.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class TimeoutScheduler {
+
+	/**
+	 * Tick duration (in milliseconds) used when not specified explicitly
+	 */
+	public static final long DEFAULT_TICK_MILLIS = 10L;
+
+	/**
+	 * Number of wheel buckets used when not specified explicitly
+	 */
+	public static final int DEFAULT_WHEEL_SIZE = 512;
+
+	private static final int MAX_WHEEL_SIZE = 1 << 20;
+	private static final int MAX_TRANSFERS_PER_TICK = 100000;
+	private static final long MAX_DELAY = Long.MAX_VALUE / 4L;
+	private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+	private final TimeProvider clock;
+	private final long tickMillis;
+	private final Bucket[] wheel;
+	private final int wheelMask;
+	private final Queue<Registration> pendingRegistrations;
+	private final Queue<Registration> cancelledRegistrations;
+	private final AtomicInteger scheduledCount;
+	private final Thread worker;
+	private final long startTime;
+	private volatile boolean running;
+	private long tick;
+
+	/**
+	 * Creates a scheduler with default tick duration and wheel size, which is based
+	 * on the system clock, and starts its thread.
+	 */
+	public TimeoutScheduler() {
+		this(DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SIZE, TimeProviders.systemClock());
+	}
+
+	/**
+	 * Creates a scheduler and starts its thread.
+	 *
+	 * @param tickDuration precision of the deadlines
+	 * @param unit time unit of the tick duration
+	 * @param wheelSize number of wheel buckets, it is rounded up to a power of two;
+	 *                  the wheel covers {@code wheelSize * tickDuration} in a single revolution
+	 * @param clock source of time
+	 * @throws java.lang.NullPointerException if {@code unit} or {@code clock} is {@code null}
+	 * @throws java.lang.IllegalArgumentException if the tick is shorter than one millisecond
+	 *                                            or if the wheel size is out of range
+	 */
+	public TimeoutScheduler(long tickDuration, TimeUnit unit, int wheelSize, TimeProvider clock) {
+		if ((null == unit) || (null == clock)) {
+			throw new NullPointerException();
+		} else if (unit.toMillis(tickDuration) < 1L) {
+			throw new IllegalArgumentException("tick duration must be at least 1 ms");
+		} else if ((wheelSize <= 0) || (wheelSize > MAX_WHEEL_SIZE)) {
+			throw new IllegalArgumentException("invalid wheel size");
+		}
+		this.clock = clock;
+		this.tickMillis = unit.toMillis(tickDuration);
+		final int effectiveWheelSize = (1 == wheelSize) ? 1 : Integer.highestOneBit(wheelSize - 1) << 1;
+		this.wheel = new Bucket[effectiveWheelSize];
+		for (int i = 0; i < effectiveWheelSize; ++i) {
+			wheel[i] = new Bucket();
+		}
+		this.wheelMask = effectiveWheelSize - 1;
+		this.pendingRegistrations = new ConcurrentLinkedQueue<Registration>();
+		this.cancelledRegistrations = new ConcurrentLinkedQueue<Registration>();
+		this.scheduledCount = new AtomicInteger();
+		this.startTime = clock.getTimeInMillis();
+		this.running = true;
+		this.worker = new Thread(new Worker(), "TimeoutScheduler-" + THREAD_COUNTER.incrementAndGet());
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	/**
+	 * Schedules notification about expiration of a running timeout.
+	 *
+	 * @param timeout the timeout
+	 * @param listener callback invoked when the timeout expires
+	 * @return registration that may be used to cancel the notification
+	 * @throws java.lang.NullPointerException if {@code timeout} or {@code listener} is {@code null}
+	 * @throws java.lang.IllegalStateException if the timeout is not running
+	 *                                         or if the scheduler has been stopped
+	 */
+	public Registration schedule(Timeout timeout, ExpirationListener listener) {
+		if ((null == timeout) || (null == listener)) {
+			throw new NullPointerException();
+		}
+		final Long remaining = timeout.getRemainingMillis();
+		if (null == remaining) {
+			throw new IllegalStateException("timeout not running");
+		}
+		return register(new Registration(this, timeout, listener, null), remaining);
+	}
+
+	/**
+	 * Schedules an expiration of the trigger, i.e. {@link ExpirationTrigger#expireNow()}
+	 * will be invoked after the given delay.
+	 *
+	 * @param trigger the trigger
+	 * @param delay delay of the expiration
+	 * @param unit time unit of the delay
+	 * @return registration that may be used to cancel the expiration
+	 * @throws java.lang.NullPointerException if {@code trigger} or {@code unit} is {@code null}
+	 * @throws java.lang.IllegalStateException if the scheduler has been stopped
+	 */
+	public Registration schedule(ExpirationTrigger trigger, long delay, TimeUnit unit) {
+		if ((null == trigger) || (null == unit)) {
+			throw new NullPointerException();
+		}
+		return register(new Registration(this, null, null, trigger), unit.toMillis(delay));
+	}
+
+	/**
+	 * Returns the number of scheduled registrations that have neither fired
+	 * nor been cancelled.
+	 *
+	 * @return number of scheduled registrations
+	 */
+	public int getScheduledCount() {
+		return scheduledCount.get();
+	}
+
+	/**
+	 * Returns the precision of the deadlines.
+	 *
+	 * @return tick duration in milliseconds
+	 */
+	public long getTickMillis() {
+		return tickMillis;
+	}
+
+	/**
+	 * Checks whether the scheduler thread is running.
+	 *
+	 * @return {@code true} if the scheduler has not been stopped
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Sets the handler of exceptions thrown by listeners, triggers and timeouts
+	 * processed by the scheduler thread. The handler is invoked from the scheduler
+	 * thread. If no handler is set, the exceptions are passed to the uncaught exception
+	 * handler of the thread group, as if they were thrown by the scheduler thread.
+	 *
+	 * @param handler exception handler or {@code null} to use the default handling
+	 */
+	public void setExceptionHandler(Thread.UncaughtExceptionHandler handler) {
+		worker.setUncaughtExceptionHandler(handler);
+	}
+
+	/**
+	 * Stops the scheduler thread. Registrations that have not fired yet are abandoned.
+	 */
+	public void stop() {
+		running = false;
+		LockSupport.unpark(worker);
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder str = new StringBuilder("TimeoutScheduler[");
+		str.append("scheduled=").append(scheduledCount.get());
+		str.append(", tick=").append(tickMillis).append("ms");
+		str.append(", wheel=").append(wheel.length);
+		if (!running) {
+			str.append(", stopped");
+		}
+		str.append(']');
+		return str.toString();
+	}
+
+	private Registration register(Registration registration, long delay) {
+		if (!running) {
+			throw new IllegalStateException("scheduler stopped");
+		}
+		registration.deadline = clock.getTimeInMillis() + Math.min(Math.max(delay, 0L), MAX_DELAY);
+		scheduledCount.incrementAndGet();
+		pendingRegistrations.add(registration);
+		return registration;
+	}
+
+	void cancelled(Registration registration) {
+		scheduledCount.decrementAndGet();
+		cancelledRegistrations.add(registration);
+	}
+
+	// Methods below are invoked exclusively by the scheduler thread
+
+	private void runWheel() {
+		while (running) {
+			final long tickDeadline = startTime + (tick + 1L) * tickMillis;
+			if (!waitUntil(tickDeadline)) {
+				break;
+			}
+			removeCancelled();
+			transferPending();
+			expireBucket(wheel[(int) tick & wheelMask]);
+			++tick;
+		}
+	}
+
+	private boolean waitUntil(long tickDeadline) {
+		while (running) {
+			final long remaining = tickDeadline - clock.getTimeInMillis();
+			if (remaining <= 0L) {
+				return true;
+			}
+			LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(Math.min(remaining, tickMillis)));
+		}
+		return false;
+	}
+
+	private void removeCancelled() {
+		Registration registration;
+		while (null != (registration = cancelledRegistrations.poll())) {
+			if (null != registration.bucket) {
+				registration.bucket.remove(registration);
+			}
+		}
+	}
+
+	private void transferPending() {
+		for (int i = 0; i < MAX_TRANSFERS_PER_TICK; ++i) {
+			final Registration registration = pendingRegistrations.poll();
+			if (null == registration) {
+				break;
+			} else if (Registration.STATE_PENDING == registration.state) {
+				place(registration);
+			}
+		}
+	}
+
+	private void place(Registration registration) {
+		final long deadlineTick = Math.max(0L, (registration.deadline - startTime + tickMillis - 1L) / tickMillis - 1L);
+		// Deadlines that have already passed are processed by the current tick
+		final long effectiveTick = Math.max(deadlineTick, tick);
+		registration.remainingRounds = (effectiveTick - tick) / wheel.length;
+		wheel[(int) effectiveTick & wheelMask].add(registration);
+	}
+
+	private void expireBucket(Bucket bucket) {
+		Registration registration = bucket.head;
+		while (null != registration) {
+			final Registration next = registration.next;
+			if (registration.remainingRounds <= 0L) {
+				bucket.remove(registration);
+				if (Registration.STATE_PENDING == registration.state) {
+					fire(registration);
+				}
+			} else {
+				--registration.remainingRounds;
+			}
+			registration = next;
+		}
+	}
+
+	private void fire(Registration registration) {
+		final Timeout timeout = registration.timeout;
+		if (null == timeout) {
+			if (registration.markFired()) {
+				scheduledCount.decrementAndGet();
+				try {
+					registration.trigger.expireNow();
+				} catch (Throwable e) {
+					reportException(e);
+				}
+			}
+			return;
+		}
+		final boolean expired;
+		final Long remaining;
+		final boolean timeoutRunning;
+		try {
+			expired = timeout.isExpired();
+			remaining = expired ? null : timeout.getRemainingMillis();
+			timeoutRunning = !expired && timeout.isRunning();
+		} catch (Throwable e) {
+			if (registration.markFired()) {
+				scheduledCount.decrementAndGet();
+			}
+			reportException(e);
+			return;
+		}
+		if (expired) {
+			if (registration.markFired()) {
+				scheduledCount.decrementAndGet();
+				try {
+					registration.listener.timeoutExpired(timeout);
+				} catch (Throwable e) {
+					reportException(e);
+				}
+			}
+		} else if ((null != remaining) && timeoutRunning) {
+			// The timeout has been restarted, wait for the new deadline
+			registration.deadline = clock.getTimeInMillis() + Math.min(Math.max(remaining, 1L), MAX_DELAY);
+			place(registration);
+		} else if (registration.markFired()) {
+			// The timeout has been stopped
+			scheduledCount.decrementAndGet();
+		}
+	}
+
+	private void reportException(Throwable e) {
+		try {
+			worker.getUncaughtExceptionHandler().uncaughtException(worker, e);
+		} catch (Throwable handlerException) {
+			// A failing handler must not stop the scheduler
+		}
+	}
+
+	private final class Worker implements Runnable {
+		@Override
+		public void run() {
+			runWheel();
+		}
+	}
+
+	/**
+	 * Doubly-linked list of registrations that share a wheel bucket.
+	 */
+	static final class Bucket {
+		Registration head;
+		Registration tail;
+
+		void add(Registration registration) {
+			registration.bucket = this;
+			registration.prev = tail;
+			registration.next = null;
+			if (null == tail) {
+				head = registration;
+			} else {
+				tail.next = registration;
+			}
+			tail = registration;
+		}
+
+		void remove(Registration registration) {
+			if (this != registration.bucket) {
+				return;
+			}
+			final Registration prev = registration.prev;
+			final Registration next = registration.next;
+			if (null == prev) {
+				head = next;
+			} else {
+				prev.next = next;
+			}
+			if (null == next) {
+				tail = prev;
+			} else {
+				next.prev = prev;
+			}
+			registration.prev = null;
+			registration.next = null;
+			registration.bucket = null;
+		}
+	}
+
+	/**
+	 * Handle of a scheduled expiration.
+	 */
+	public static final class Registration {
+
+		static final int STATE_PENDING = 0;
+		static final int STATE_CANCELLED = 1;
+		static final int STATE_FIRED = 2;
+
+		private static final AtomicIntegerFieldUpdater<Registration> STATE_UPDATER
+				= AtomicIntegerFieldUpdater.newUpdater(Registration.class, "state");
+
+		private final TimeoutScheduler scheduler;
+		final Timeout timeout;
+		final ExpirationListener listener;
+		final ExpirationTrigger trigger;
+		volatile int state;
+		// Fields below are accessed exclusively by the scheduler thread
+		long deadline;
+		long remainingRounds;
+		Bucket bucket;
+		Registration prev;
+		Registration next;
+
+		Registration(TimeoutScheduler scheduler, Timeout timeout, ExpirationListener listener, ExpirationTrigger trigger) {
+			this.scheduler = scheduler;
+			this.timeout = timeout;
+			this.listener = listener;
+			this.trigger = trigger;
+		}
+
+		/**
+		 * Cancels the scheduled expiration.
+		 *
+		 * @return {@code true} if the registration was cancelled, {@code false} if it has
+		 *         already fired or it was cancelled before
+		 */
+		public boolean cancel() {
+			if (!STATE_UPDATER.compareAndSet(this, STATE_PENDING, STATE_CANCELLED)) {
+				return false;
+			}
+			scheduler.cancelled(this);
+			return true;
+		}
+
+		/**
+		 * Checks whether the registration has been cancelled.
+		 *
+		 * @return {@code true} if cancelled
+		 */
+		public boolean isCancelled() {
+			return STATE_CANCELLED == state;
+		}
+
+		/**
+		 * Checks whether the expiration has been processed, i.e. the listener was notified,
+		 * the trigger was expired or the timeout was found stopped.
+		 *
+		 * @return {@code true} if fired
+		 */
+		public boolean isFired() {
+			return STATE_FIRED == state;
+		}
+
+		/**
+		 * Returns the scheduled timeout.
+		 *
+		 * @return timeout or {@code null} if the registration schedules an expiration trigger
+		 */
+		public Timeout getTimeout() {
+			return timeout;
+		}
+
+		boolean markFired() {
+			return STATE_UPDATER.compareAndSet(this, STATE_PENDING, STATE_FIRED);
+		}
+	}
+
+}
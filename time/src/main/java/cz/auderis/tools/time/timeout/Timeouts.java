@@ -16,6 +16,7 @@
 
 package cz.auderis.tools.time.timeout;
 
+import cz.auderis.tools.time.NanoTimeProvider;
 import cz.auderis.tools.time.TimeProvider;
 import cz.auderis.tools.time.TimeProviders;
 
@@ -24,6 +25,7 @@ import java.util.concurrent.TimeUnit;
 public final class Timeouts {
 
 	private static final String INVALID_TIMEOUT = "invalid timeout duration";
+	private static final double DECORRELATED_BACKOFF_FACTOR = 3.0;
 
 	public static Timeout simple(long duration, TimeUnit durationUnit) {
 		if (null == durationUnit) {
@@ -49,6 +51,40 @@ public final class Timeouts {
 		return t;
 	}
 
+	public static BeanBasedTimeout lockFree(long duration, TimeUnit durationUnit) {
+		return lockFreeWithProvider(duration, durationUnit, TimeProviders.systemClock());
+	}
+
+	public static BeanBasedTimeout lockFreeWithProvider(long duration, TimeUnit durationUnit, TimeProvider provider) {
+		if (null == durationUnit) {
+			throw new NullPointerException();
+		} else if (null == provider) {
+			throw new NullPointerException();
+		} else if (duration <= 0L) {
+			throw new IllegalArgumentException(INVALID_TIMEOUT);
+		}
+		final long millis = durationUnit.toMillis(duration);
+		final BeanBasedTimeout t = new LockFreeTimeoutImpl(millis, provider);
+		return t;
+	}
+
+	public static NanoTimeout nanos(long duration, TimeUnit durationUnit) {
+		return nanosWithProvider(duration, durationUnit, TimeProviders.systemNanoClock());
+	}
+
+	public static NanoTimeout nanosWithProvider(long duration, TimeUnit durationUnit, NanoTimeProvider provider) {
+		if (null == durationUnit) {
+			throw new NullPointerException();
+		} else if (null == provider) {
+			throw new NullPointerException();
+		} else if (duration <= 0L) {
+			throw new IllegalArgumentException(INVALID_TIMEOUT);
+		}
+		final long nanos = durationUnit.toNanos(duration);
+		final NanoTimeout t = new NanoTimeoutImpl(nanos, provider);
+		return t;
+	}
+
 	public static CountingTimeout counting(long duration, TimeUnit durationUnit) {
 		if (null == durationUnit) {
 			throw new NullPointerException();
@@ -69,6 +105,53 @@ public final class Timeouts {
 		return t;
 	}
 
+	public static ScheduleTimeout schedule(long[] durations, int[] repeats, TimeUnit durationUnit, boolean cyclic) {
+		return scheduleWithProvider(durations, repeats, durationUnit, cyclic, TimeProviders.systemClock());
+	}
+
+	public static ScheduleTimeout scheduleWithProvider(long[] durations, int[] repeats, TimeUnit durationUnit, boolean cyclic, TimeProvider provider) {
+		if ((null == durations) || (null == repeats)) {
+			throw new NullPointerException();
+		} else if (null == durationUnit) {
+			throw new NullPointerException();
+		} else if (null == provider) {
+			throw new NullPointerException();
+		}
+		final long[] millis = new long[durations.length];
+		for (int i = 0; i < durations.length; ++i) {
+			if (durations[i] <= 0L) {
+				throw new IllegalArgumentException(INVALID_TIMEOUT);
+			}
+			millis[i] = durationUnit.toMillis(durations[i]);
+		}
+		final ScheduleTimeout t = new ScheduleTimeout(millis, repeats, cyclic, provider);
+		return t;
+	}
+
+	public static BackoffTimeout exponentialBackoff(long base, double factor, long cap, TimeUnit durationUnit, BackoffJitter jitter) {
+		return exponentialBackoffWithProvider(base, factor, cap, durationUnit, jitter, TimeProviders.systemClock(), BackoffRandom.newSeed());
+	}
+
+	public static BackoffTimeout exponentialBackoffWithProvider(long base, double factor, long cap, TimeUnit durationUnit, BackoffJitter jitter, TimeProvider provider, long seed) {
+		if (null == durationUnit) {
+			throw new NullPointerException();
+		} else if (null == jitter) {
+			throw new NullPointerException();
+		} else if (null == provider) {
+			throw new NullPointerException();
+		} else if ((base <= 0L) || (cap <= 0L)) {
+			throw new IllegalArgumentException(INVALID_TIMEOUT);
+		}
+		final long baseMillis = durationUnit.toMillis(base);
+		final long capMillis = durationUnit.toMillis(cap);
+		final BackoffTimeout t = new BackoffTimeout(baseMillis, factor, capMillis, jitter, provider, seed);
+		return t;
+	}
+
+	public static BackoffTimeout decorrelatedBackoff(long base, long cap, TimeUnit durationUnit) {
+		return exponentialBackoff(base, DECORRELATED_BACKOFF_FACTOR, cap, durationUnit, BackoffJitter.DECORRELATED);
+	}
+
 	public static Timeout infinite() {
 		final Timeout t = new InfiniteTimeoutImpl();
 		return t;
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.collection;
+
+import cz.auderis.tools.time.ManualTimeProvider;
+import cz.auderis.tools.time.timeout.Timeouts;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class BoundedCacheExpirationTest {
+
+	private ManualTimeProvider clock;
+
+	@Before
+	public void createClock() {
+		clock = new ManualTimeProvider(0L);
+	}
+
+	@Test
+	public void shouldRemoveEntriesExpiredAfterWrite() throws Exception {
+		// Given
+		final BoundedCache<Integer, String> cache = BoundedCache.<Integer, String>newInstance(100, EvictionPolicy.LRU, 4)
+				.withTimeProvider(clock)
+				.expireAfterWrite(10L, TimeUnit.SECONDS);
+		for (int key = 0; key < 50; ++key) {
+			cache.put(key, "value" + key);
+		}
+		// When
+		clock.step(5L, TimeUnit.SECONDS);
+		cache.cleanUp();
+		final int sizeBeforeDeadline = cache.size();
+		clock.step(6L, TimeUnit.SECONDS);
+		cache.cleanUp();
+		// Then
+		assertThat("size before deadline", sizeBeforeDeadline, is(50));
+		assertThat("size after deadline", cache.size(), is(0));
+		assertThat("expiration count", cache.getExpirationCount(), is(50L));
+	}
+
+	@Test
+	public void shouldKeepAccessedEntries() throws Exception {
+		// Given
+		final BoundedCache<String, String> cache = BoundedCache.<String, String>newInstance(10)
+				.withTimeProvider(clock)
+				.expireAfterAccess(10L, TimeUnit.SECONDS);
+		cache.put("a", "A");
+		cache.put("b", "B");
+		// When
+		clock.step(6L, TimeUnit.SECONDS);
+		cache.get("a");
+		clock.step(6L, TimeUnit.SECONDS);
+		cache.cleanUp();
+		// Then
+		assertThat("accessed entry", cache.hasKey("a"), is(true));
+		assertThat("idle entry", cache.hasKey("b"), is(false));
+	}
+
+	@Test
+	public void shouldRemoveEntriesWithExpiredTimeout() throws Exception {
+		// Given
+		final BoundedCache<String, String> cache = BoundedCache.<String, String>newInstance(10).withTimeProvider(clock);
+		cache.putWithTimeout("a", "A", Timeouts.simpleWithProvider(5L, TimeUnit.SECONDS, clock));
+		cache.putWithTimeout("b", "B", Timeouts.simpleWithProvider(5L, TimeUnit.SECONDS, clock));
+		// When
+		clock.step(3L, TimeUnit.SECONDS);
+		cache.refresh("b");
+		clock.step(3L, TimeUnit.SECONDS);
+		cache.cleanUp();
+		final boolean refreshedEntryPresent = cache.hasKey("b");
+		clock.step(3L, TimeUnit.SECONDS);
+		cache.cleanUp();
+		// Then
+		assertThat("expired entry", cache.hasKey("a"), is(false));
+		assertThat("refreshed entry before its deadline", refreshedEntryPresent, is(true));
+		assertThat("refreshed entry after its deadline", cache.hasKey("b"), is(false));
+	}
+
+	@Test
+	public void shouldCascadeLongDeadlines() throws Exception {
+		// Given
+		final BoundedCache<String, String> cache = BoundedCache.<String, String>newInstance(10)
+				.withTimeProvider(clock)
+				.expireAfterWrite(3L, TimeUnit.HOURS);
+		cache.put("key", "value");
+		// When
+		for (int minute = 0; minute < 179; ++minute) {
+			clock.step(1L, TimeUnit.MINUTES);
+			cache.cleanUp();
+		}
+		final boolean presentBeforeDeadline = cache.hasKey("key");
+		clock.step(2L, TimeUnit.MINUTES);
+		cache.cleanUp();
+		// Then
+		assertThat("present before deadline", presentBeforeDeadline, is(true));
+		assertThat("present after deadline", cache.hasKey("key"), is(false));
+	}
+
+	@Test
+	public void shouldExpireEntriesDuringWrites() throws Exception {
+		// Given
+		final BoundedCache<String, String> cache = BoundedCache.<String, String>newInstance(10, EvictionPolicy.LRU, 1)
+				.withTimeProvider(clock)
+				.expireAfterWrite(1L, TimeUnit.MINUTES);
+		cache.put("old", "value");
+		// When
+		clock.step(2L, TimeUnit.MINUTES);
+		cache.put("new", "value");
+		// Then
+		assertThat("expired entry", cache.hasKey("old"), is(false));
+		assertThat("size", cache.size(), is(1));
+	}
+
+	@Test
+	public void shouldRemoveExpiredEntriesBeforeEviction() throws Exception {
+		// Given
+		final BoundedCache<String, String> cache = BoundedCache.<String, String>newInstance(2, EvictionPolicy.LRU, 1)
+				.withTimeProvider(clock);
+		cache.put("live", "L");
+		cache.putWithTimeout("expiring", "E", Timeouts.simpleWithProvider(1L, TimeUnit.SECONDS, clock));
+		// When
+		clock.step(2L, TimeUnit.SECONDS);
+		cache.put("new", "N");
+		// Then
+		assertThat("live entry", cache.hasKey("live"), is(true));
+		assertThat("new entry", cache.hasKey("new"), is(true));
+		assertThat("expired entry", cache.hasKey("expiring"), is(false));
+		assertThat("eviction count", cache.getEvictionCount(), is(0L));
+	}
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.collection;
+
+import cz.auderis.tools.time.ManualTimeProvider;
+import cz.auderis.tools.time.timeout.Timeouts;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class BoundedCacheRefreshTest {
+
+	private ManualTimeProvider clock;
+	private List<Runnable> submittedTasks;
+	private Executor executor;
+	private AtomicInteger loadCount;
+	private CacheLoader<String, String> loader;
+
+	@Before
+	public void prepareEnvironment() {
+		clock = new ManualTimeProvider(0L);
+		submittedTasks = new ArrayList<Runnable>();
+		executor = new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				submittedTasks.add(command);
+			}
+		};
+		loadCount = new AtomicInteger();
+		loader = new CacheLoader<String, String>() {
+			@Override
+			public String load(String key) throws Exception {
+				return key + loadCount.incrementAndGet();
+			}
+		};
+	}
+
+	@Test
+	public void shouldServeStaleValueDuringRefresh() throws Exception {
+		// Given
+		final BoundedCache<String, String> cache = BoundedCache.<String, String>newInstance(10)
+				.withTimeProvider(clock)
+				.expireAfterWrite(10L, TimeUnit.SECONDS)
+				.refreshAhead(30, loader, executor);
+		cache.put("key", "key0");
+		// When
+		clock.step(5L, TimeUnit.SECONDS);
+		final String earlyValue = cache.get("key");
+		final int earlyTasks = submittedTasks.size();
+		clock.step(3L, TimeUnit.SECONDS);
+		final String staleValue = cache.get("key");
+		final String repeatedStaleValue = cache.get("key");
+		// Then
+		assertThat("value before threshold", earlyValue, is("key0"));
+		assertThat("refreshes before threshold", earlyTasks, is(0));
+		assertThat("stale value", staleValue, is("key0"));
+		assertThat("repeated stale value", repeatedStaleValue, is("key0"));
+		assertThat("coalesced refreshes", submittedTasks.size(), is(1));
+		// When
+		submittedTasks.get(0).run();
+		clock.step(5L, TimeUnit.SECONDS);
+		// Then
+		assertThat("refreshed value", cache.get("key"), is("key1"));
+		assertThat("refresh count", cache.getRefreshCount(), is(1L));
+	}
+
+	@Test
+	public void shouldRefreshEntryWithTimeout() throws Exception {
+		// Given
+		final BoundedCache<String, String> cache = BoundedCache.<String, String>newInstance(10)
+				.withTimeProvider(clock)
+				.refreshAhead(50, loader, executor);
+		cache.putWithTimeout("key", "key0", Timeouts.simpleWithProvider(4L, TimeUnit.SECONDS, clock));
+		// When
+		clock.step(3L, TimeUnit.SECONDS);
+		cache.get("key");
+		submittedTasks.get(0).run();
+		clock.step(3L, TimeUnit.SECONDS);
+		// Then
+		assertThat("timeout restarted by refresh", cache.get("key"), is("key1"));
+	}
+
+	@Test
+	public void shouldReloadValueOnExplicitRefresh() throws Exception {
+		// Given
+		final BoundedCache<String, String> cache = BoundedCache.<String, String>newInstance(10)
+				.withTimeProvider(clock)
+				.refreshAhead(10, loader, executor);
+		cache.put("key", "key0");
+		// When
+		cache.refresh("key");
+		cache.refresh("key");
+		// Then
+		assertThat("coalesced refreshes", submittedTasks.size(), is(1));
+		submittedTasks.get(0).run();
+		assertThat("reloaded value", cache.get("key"), is("key1"));
+	}
+
+	@Test
+	public void shouldKeepValueWrittenDuringRefresh() throws Exception {
+		// Given
+		final BoundedCache<String, String> cache = BoundedCache.<String, String>newInstance(10)
+				.withTimeProvider(clock)
+				.refreshAhead(10, loader, executor);
+		cache.put("key", "key0");
+		cache.refresh("key");
+		// When
+		cache.put("key", "explicit");
+		submittedTasks.get(0).run();
+		// Then
+		assertThat("explicit value", cache.get("key"), is("explicit"));
+		assertThat("refresh count", cache.getRefreshCount(), is(0L));
+	}
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.collection;
+
+import cz.auderis.tools.time.ManualTimeProvider;
+import cz.auderis.tools.time.timeout.Timeout;
+import cz.auderis.tools.time.timeout.Timeouts;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class BoundedCacheTest {
+
+	@Test
+	public void shouldEvictLeastRecentlyUsedEntry() throws Exception {
+		// Given
+		final BoundedCache<String, Integer> cache = BoundedCache.newInstance(3, EvictionPolicy.LRU, 1);
+		cache.put("a", 1);
+		cache.put("b", 2);
+		cache.put("c", 3);
+		// When
+		cache.get("a");
+		cache.put("d", 4);
+		// Then
+		assertThat("size", cache.size(), is(3));
+		assertThat("evicted entry", cache.hasKey("b"), is(false));
+		assertThat("recently used entry", cache.get("a"), is(1));
+		assertThat("eviction count", cache.getEvictionCount(), is(1L));
+	}
+
+	@Test
+	public void shouldEvictLeastFrequentlyUsedEntry() throws Exception {
+		// Given
+		final BoundedCache<String, Integer> cache = BoundedCache.newInstance(3, EvictionPolicy.LFU, 1);
+		cache.put("a", 1);
+		cache.put("b", 2);
+		cache.put("c", 3);
+		for (int i = 0; i < 5; ++i) {
+			cache.get("a");
+			cache.get("c");
+		}
+		// When
+		cache.put("d", 4);
+		// Then
+		assertThat("evicted entry", cache.hasKey("b"), is(false));
+		assertThat("frequent entry a", cache.hasKey("a"), is(true));
+		assertThat("frequent entry c", cache.hasKey("c"), is(true));
+	}
+
+	@Test
+	public void shouldProtectFrequentEntriesFromScan() throws Exception {
+		// Given
+		final BoundedCache<Integer, Integer> cache = BoundedCache.newInstance(100, EvictionPolicy.TINY_LFU, 1);
+		for (int key = 0; key < 50; ++key) {
+			cache.put(key, key);
+		}
+		for (int round = 0; round < 5; ++round) {
+			for (int key = 0; key < 50; ++key) {
+				cache.get(key);
+			}
+		}
+		// When
+		for (int key = 1000; key < 1500; ++key) {
+			cache.put(key, key);
+		}
+		// Then
+		int retained = 0;
+		for (int key = 0; key < 50; ++key) {
+			if (cache.hasKey(key)) {
+				++retained;
+			}
+		}
+		assertThat("size", cache.size(), is(100));
+		assertThat("retained hot entries", retained, is(50));
+	}
+
+	@Test
+	public void shouldNeverExceedCapacity() throws Exception {
+		for (EvictionPolicy policy : EvictionPolicy.values()) {
+			// Given
+			final BoundedCache<Integer, Integer> cache = BoundedCache.newInstance(37, policy, 4);
+			// When
+			for (int key = 0; key < 1000; ++key) {
+				cache.put(key % 101, key);
+			}
+			// Then
+			assertThat(policy + " size", cache.size(), lessThanOrEqualTo(37));
+		}
+	}
+
+	@Test
+	public void shouldExpireEntriesWithTimeout() throws Exception {
+		// Given
+		final ManualTimeProvider clock = new ManualTimeProvider(0L);
+		final BoundedCache<String, String> cache = BoundedCache.newInstance(10);
+		final Timeout timeout = Timeouts.simpleWithProvider(100L, TimeUnit.MILLISECONDS, clock);
+		cache.putWithTimeout("key", "value", timeout);
+		// When
+		clock.step(150L);
+		// Then
+		assertThat("expired", cache.isExpired("key"), is(true));
+		assertThat("value", cache.get("key"), nullValue());
+		assertThat("expired entry removed", cache.hasKey("key"), is(false));
+		assertThat("miss count", cache.getMissCount(), is(1L));
+	}
+
+	@Test
+	public void shouldLoadValueOnlyOnce() throws Exception {
+		// Given
+		final BoundedCache<String, Integer> cache = BoundedCache.newInstance(10);
+		final AtomicInteger loadCount = new AtomicInteger();
+		final CountDownLatch loadStarted = new CountDownLatch(1);
+		final CountDownLatch loadRelease = new CountDownLatch(1);
+		final CacheLoader<String, Integer> loader = new CacheLoader<String, Integer>() {
+			@Override
+			public Integer load(String key) throws Exception {
+				loadCount.incrementAndGet();
+				loadStarted.countDown();
+				loadRelease.await();
+				return key.length();
+			}
+		};
+		final Integer[] results = new Integer[4];
+		final Thread[] threads = new Thread[results.length];
+		// When
+		for (int i = 0; i < threads.length; ++i) {
+			final int index = i;
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						results[index] = cache.getOrCompute("four", loader);
+					} catch (ExecutionException e) {
+						throw new IllegalStateException(e);
+					}
+				}
+			});
+			threads[i].start();
+		}
+		loadStarted.await();
+		Thread.sleep(50L);
+		loadRelease.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		// Then
+		assertThat("load count", loadCount.get(), is(1));
+		for (Integer result : results) {
+			assertThat("loaded value", result, is(4));
+		}
+		assertThat("cached value", cache.get("four"), is(4));
+	}
+
+	@Test
+	public void shouldNotStoreFailedLoad() throws Exception {
+		// Given
+		final BoundedCache<String, Integer> cache = BoundedCache.newInstance(10);
+		// When
+		try {
+			cache.getOrCompute("key", new CacheLoader<String, Integer>() {
+				@Override
+				public Integer load(String key) throws Exception {
+					throw new java.io.IOException("unavailable");
+				}
+			});
+			fail("load failure expected");
+		} catch (ExecutionException e) {
+			assertThat("cause", e.getCause().getMessage(), is("unavailable"));
+		}
+		// Then
+		assertThat("stored", cache.hasKey("key"), is(false));
+	}
+
+}
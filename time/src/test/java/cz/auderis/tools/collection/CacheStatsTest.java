@@ -0,0 +1,196 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.collection;
+
+import cz.auderis.tools.time.ManualTimeProvider;
+import cz.auderis.tools.time.timeout.Timeouts;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CacheStatsTest {
+
+	@Test
+	public void shouldNotRecordSimpleCacheStatisticsByDefault() throws Exception {
+		// Given
+		final SimpleCache<String, String> cache = SimpleCache.newInstance();
+		cache.put("a", "A");
+		// When
+		cache.get("a");
+		cache.get("x");
+		cache.remove("a");
+		final CacheStats stats = cache.getStats();
+		// Then
+		assertThat("no recorder", cache.getStatsRecorder(), nullValue());
+		assertThat("hit count", stats.getHitCount(), is(0L));
+		assertThat("miss count", stats.getMissCount(), is(0L));
+		assertThat("explicit count", stats.getRemovalCount(RemovalCause.EXPLICIT), is(0L));
+	}
+
+	@Test
+	public void shouldRecordSimpleCacheStatistics() throws Exception {
+		// Given
+		final ManualTimeProvider clock = new ManualTimeProvider(0L);
+		final SimpleCache<String, String> cache = SimpleCache.<String, String>newInstance().recordStats();
+		cache.put("a", "A");
+		cache.putWithTimeout("b", "B", Timeouts.simpleWithProvider(5L, TimeUnit.SECONDS, clock));
+		cache.put("c", "C");
+		// When
+		cache.get("a");
+		cache.get("a");
+		cache.get("x");
+		clock.step(6L, TimeUnit.SECONDS);
+		cache.get("b");
+		cache.remove("c");
+		cache.clear();
+		final CacheStats stats = cache.getStats();
+		// Then
+		assertThat("hit count", stats.getHitCount(), is(2L));
+		assertThat("miss count", stats.getMissCount(), is(2L));
+		assertThat("hit rate", stats.getHitRate(), is(0.5));
+		assertThat("expired count", stats.getRemovalCount(RemovalCause.EXPIRED), is(1L));
+		assertThat("explicit count", stats.getRemovalCount(RemovalCause.EXPLICIT), is(2L));
+		assertThat("eviction count", stats.getEvictionCount(), is(1L));
+	}
+
+	@Test
+	public void shouldRecordBoundedCacheLoadsAndEvictions() throws Exception {
+		// Given
+		final BoundedCache<Integer, String> cache = BoundedCache.newInstance(10, EvictionPolicy.LRU, 1);
+		final CacheLoader<Integer, String> loader = new CacheLoader<Integer, String>() {
+			@Override
+			public String load(Integer key) throws Exception {
+				if (key < 0) {
+					throw new Exception("negative key");
+				}
+				return "value" + key;
+			}
+		};
+		// When
+		for (int key = 0; key < 15; ++key) {
+			cache.getOrCompute(key, loader);
+		}
+		cache.getOrCompute(14, loader);
+		try {
+			cache.getOrCompute(-1, loader);
+			fail("load failure expected");
+		} catch (ExecutionException e) {
+			// expected
+		}
+		final CacheStats stats = cache.getStats();
+		// Then
+		assertThat("hit count", stats.getHitCount(), is(1L));
+		assertThat("miss count", stats.getMissCount(), is(16L));
+		assertThat("load count", stats.getLoadSuccessCount(), is(15L));
+		assertThat("load failure count", stats.getLoadFailureCount(), is(1L));
+		assertThat("size evictions", stats.getRemovalCount(RemovalCause.SIZE), is(5L));
+		assertThat("eviction count getter", cache.getEvictionCount(), is(5L));
+		long histogramTotal = 0L;
+		for (long count : stats.getLoadTimeHistogram()) {
+			histogramTotal += count;
+		}
+		assertThat("histogram total", histogramTotal, is(16L));
+		assertTrue("percentile order", stats.getLoadTimePercentile(50.0) <= stats.getLoadTimePercentile(100.0));
+	}
+
+	@Test
+	public void shouldComputeStatisticsDifference() throws Exception {
+		// Given
+		final CacheStatsRecorder recorder = new CacheStatsRecorder();
+		recorder.recordHit();
+		recorder.recordMiss();
+		final CacheStats before = recorder.snapshot();
+		// When
+		recorder.recordHit();
+		recorder.recordHit();
+		recorder.recordLoadSuccess(1000L);
+		recorder.recordLoadSuccess(3000L);
+		final CacheStats difference = recorder.snapshot().minus(before);
+		// Then
+		assertThat("hits in interval", difference.getHitCount(), is(2L));
+		assertThat("misses in interval", difference.getMissCount(), is(0L));
+		assertThat("average load penalty", difference.getAverageLoadPenalty(), is(2000.0));
+		assertThat("maximal load time", difference.getLoadTimePercentile(100.0), is(4095L));
+		assertThat("median load time", difference.getLoadTimePercentile(50.0), is(1023L));
+	}
+
+	@Test
+	public void shouldFindHotKeys() throws Exception {
+		// Given
+		final HotKeySketch sketch = new HotKeySketch(3);
+		// When
+		for (int round = 0; round < 100; ++round) {
+			sketch.record("hot1");
+			sketch.record("hot2");
+			if (0 == round % 2) {
+				sketch.record("hot3");
+			}
+			for (int i = 0; i < 20; ++i) {
+				sketch.record("cold" + (round * 20 + i));
+			}
+		}
+		final List<HotKeySketch.HotKey> hotKeys = sketch.getHotKeys();
+		// Then
+		assertThat("hot key count", hotKeys.size(), is(3));
+		final Set<Object> hottest = new HashSet<Object>();
+		hottest.add(hotKeys.get(0).getKey());
+		hottest.add(hotKeys.get(1).getKey());
+		assertThat("hottest keys", hottest, is((Set<Object>) new HashSet<Object>(Arrays.asList("hot1", "hot2"))));
+		assertThat("third key", hotKeys.get(2).getKey(), is((Object) "hot3"));
+		assertTrue("estimate lower bound", sketch.estimate("hot1") >= 100L);
+	}
+
+	@Test
+	public void shouldExposeStatisticsThroughJmx() throws Exception {
+		// Given
+		final BoundedCache<String, String> cache = BoundedCache.newInstance(10);
+		cache.getStatsRecorder().trackHotKeys(2);
+		final ObjectName name = cache.getStatsRecorder().registerMBean("test cache");
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			// When
+			cache.put("a", "A");
+			cache.get("a");
+			cache.get("a");
+			cache.get("b");
+			// Then
+			assertThat("hit count", (Long) server.getAttribute(name, "HitCount"), is(2L));
+			assertThat("miss count", (Long) server.getAttribute(name, "MissCount"), is(1L));
+			final String[] hotKeys = (String[]) server.getAttribute(name, "HotKeys");
+			assertThat("hottest key", hotKeys[0], is("a=2"));
+			server.invoke(name, "reset", null, null);
+			assertThat("hit count after reset", cache.getHitCount(), is(0L));
+		} finally {
+			server.unregisterMBean(name);
+		}
+	}
+
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.collection;
+
+import cz.auderis.tools.time.ManualTimeProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class OffHeapTierTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void shouldReuseReleasedChunks() throws Exception {
+		// Given
+		final OffHeapStorage storage = OffHeapStorage.allocateDirect(4096L, 1024);
+		// When
+		final long first = storage.allocate(100);
+		final long second = storage.allocate(100);
+		storage.free(first, 100);
+		final long third = storage.allocate(120);
+		// Then
+		assertThat("reused chunk", third, is(first));
+		assertThat("distinct chunks", second != first, is(true));
+		assertThat("used bytes", storage.getUsedBytes(), is(256L));
+		assertThat("allocated bytes", storage.getAllocatedBytes(), is(1024L));
+	}
+
+	@Test
+	public void shouldRefuseAllocationBeyondCapacity() throws Exception {
+		// Given
+		final OffHeapStorage storage = OffHeapStorage.allocateDirect(2048L, 1024);
+		// When
+		final long first = storage.allocate(1024);
+		final long second = storage.allocate(600);
+		final long third = storage.allocate(600);
+		// Then
+		assertThat("first slab", first != OffHeapStorage.NO_ADDRESS, is(true));
+		assertThat("second slab", second != OffHeapStorage.NO_ADDRESS, is(true));
+		assertThat("no space left", third, is(OffHeapStorage.NO_ADDRESS));
+		assertThat("oversized value", storage.allocate(2000), is(OffHeapStorage.NO_ADDRESS));
+	}
+
+	@Test
+	public void shouldMergeAndSplitReleasedChunks() throws Exception {
+		// Given
+		final OffHeapStorage storage = OffHeapStorage.allocateDirect(1024L, 1024);
+		final long[] addresses = new long[16];
+		for (int i = 0; i < addresses.length; ++i) {
+			addresses[i] = storage.allocate(64);
+		}
+		// When
+		final long fullSlab = storage.allocate(64);
+		for (final long address : addresses) {
+			storage.free(address, 64);
+		}
+		final long merged = storage.allocate(1024);
+		storage.free(merged, 1024);
+		final long split = storage.allocate(300);
+		final long buddy = storage.allocate(400);
+		// Then
+		assertThat("slab exhausted", fullSlab, is(OffHeapStorage.NO_ADDRESS));
+		assertThat("merged chunk", merged, is(addresses[0]));
+		assertThat("split chunk", split != OffHeapStorage.NO_ADDRESS, is(true));
+		assertThat("buddy chunk", buddy != OffHeapStorage.NO_ADDRESS, is(true));
+		assertThat("used bytes", storage.getUsedBytes(), is(1024L));
+		assertThat("allocated bytes", storage.getAllocatedBytes(), is(1024L));
+	}
+
+	@Test
+	public void shouldSpillAndPromoteValues() throws Exception {
+		// Given
+		final BoundedCache<Integer, String> cache = BoundedCache.<Integer, String>newInstance(10, EvictionPolicy.LRU, 1)
+				.withOffHeapTier(OffHeapStorage.allocateDirect(1L << 20, 4096), ValueCodecs.string(Charset.forName("UTF-8")));
+		// When
+		for (int key = 0; key < 100; ++key) {
+			cache.put(key, "value " + key);
+		}
+		// Then
+		assertThat("heap size", cache.size(), is(10));
+		assertThat("off-heap size", cache.offHeapSize(), is(90));
+		for (int key = 0; key < 100; ++key) {
+			assertThat("value " + key, cache.get(key), is("value " + key));
+		}
+		assertThat("heap size after promotion", cache.size(), is(10));
+		assertThat("off-heap size after promotion", cache.offHeapSize(), is(90));
+		assertThat("hits", cache.getHitCount(), is(100L));
+	}
+
+	@Test
+	public void shouldReturnPromotedValueWithFrequencyBasedEviction() throws Exception {
+		// Given
+		final BoundedCache<Integer, String> cache = BoundedCache.<Integer, String>newInstance(2, EvictionPolicy.LFU, 1)
+				.withOffHeapTier(OffHeapStorage.allocateDirect(1L << 20, 4096), ValueCodecs.string(Charset.forName("UTF-8")));
+		for (int key = 0; key < 100; ++key) {
+			cache.put(key, "value " + key);
+		}
+		for (int i = 0; i < 10; ++i) {
+			cache.get(98);
+			cache.get(99);
+		}
+		// When
+		final String value = cache.get(5);
+		// Then
+		assertThat("promoted value", value, is("value 5"));
+		assertThat("misses", cache.getMissCount(), is(0L));
+		assertThat("heap size", cache.size(), is(2));
+		assertThat("off-heap size", cache.offHeapSize(), is(98));
+	}
+
+	@Test
+	public void shouldNotPromoteExpiredValues() throws Exception {
+		// Given
+		final ManualTimeProvider clock = new ManualTimeProvider(0L);
+		final BoundedCache<Integer, byte[]> cache = BoundedCache.<Integer, byte[]>newInstance(1, EvictionPolicy.LRU, 1)
+				.withTimeProvider(clock)
+				.expireAfterWrite(10L, TimeUnit.SECONDS)
+				.withOffHeapTier(OffHeapStorage.allocateDirect(8192L, 4096), ValueCodecs.byteArray());
+		cache.put(1, new byte[] { 1 });
+		clock.step(5L, TimeUnit.SECONDS);
+		cache.put(2, new byte[] { 2 });
+		// When
+		clock.step(6L, TimeUnit.SECONDS);
+		final byte[] value = cache.get(1);
+		// Then
+		assertThat("expired value", value, nullValue());
+		assertThat("live entry kept on heap", cache.get(2), is(new byte[] { 2 }));
+		assertThat("off-heap size", cache.offHeapSize(), is(0));
+		assertThat("expirations", cache.getExpirationCount(), is(1L));
+		assertThat("evictions", cache.getEvictionCount(), is(0L));
+	}
+
+	@Test
+	public void shouldCountDiscardedSpilledValuesAsEvictions() throws Exception {
+		// Given
+		final BoundedCache<Integer, byte[]> cache = BoundedCache.<Integer, byte[]>newInstance(1, EvictionPolicy.LRU, 1)
+				.withOffHeapTier(OffHeapStorage.allocateDirect(1024L, 1024), ValueCodecs.byteArray());
+		cache.put(1, new byte[600]);
+		cache.put(2, new byte[600]);
+		// When
+		cache.put(3, new byte[600]);
+		// Then
+		assertThat("off-heap size", cache.offHeapSize(), is(1));
+		assertThat("discarded entry", cache.hasKey(1), is(false));
+		assertThat("evictions", cache.getEvictionCount(), is(1L));
+	}
+
+	@Test
+	public void shouldDiscardSpilledValueOnWrite() throws Exception {
+		// Given
+		final BoundedCache<Integer, byte[]> cache = BoundedCache.<Integer, byte[]>newInstance(1, EvictionPolicy.LRU, 1)
+				.withOffHeapTier(OffHeapStorage.allocateDirect(8192L, 4096), ValueCodecs.byteArray());
+		cache.put(1, new byte[] { 1 });
+		cache.put(2, new byte[] { 2 });
+		// When
+		cache.remove(1);
+		// Then
+		assertThat("removed spilled entry", cache.hasKey(1), is(false));
+		assertThat("removed value", cache.get(1), nullValue());
+		assertThat("off-heap size", cache.offHeapSize(), is(0));
+	}
+
+	@Test
+	public void shouldKeepExpirationOfSpilledEntries() throws Exception {
+		// Given
+		final ManualTimeProvider clock = new ManualTimeProvider(0L);
+		final File file = new File(temporaryFolder.getRoot(), "cache.bin");
+		final OffHeapStorage storage = OffHeapStorage.mapFile(file, 65536L, 16384);
+		final BoundedCache<Integer, Integer> cache = BoundedCache.<Integer, Integer>newInstance(1, EvictionPolicy.LRU, 1)
+				.withTimeProvider(clock)
+				.expireAfterWrite(10L, TimeUnit.SECONDS)
+				.withOffHeapTier(storage, ValueCodecs.<Integer>serialized());
+		cache.put(1, 100);
+		cache.put(2, 200);
+		// When
+		clock.step(5L, TimeUnit.SECONDS);
+		final Integer valueBeforeDeadline = cache.get(1);
+		clock.step(6L, TimeUnit.SECONDS);
+		// Then
+		assertThat("value before deadline", valueBeforeDeadline, is(100));
+		assertThat("spilled entry expired", cache.isExpired(2), is(true));
+		assertThat("value after deadline", cache.get(2), nullValue());
+		storage.close();
+	}
+
+	@Test
+	public void shouldRemoveExpiredSpilledEntries() throws Exception {
+		// Given
+		final ManualTimeProvider clock = new ManualTimeProvider(0L);
+		final OffHeapStorage storage = OffHeapStorage.allocateDirect(8192L, 4096);
+		final BoundedCache<Integer, byte[]> cache = BoundedCache.<Integer, byte[]>newInstance(1, EvictionPolicy.LRU, 1)
+				.withTimeProvider(clock)
+				.expireAfterWrite(10L, TimeUnit.SECONDS)
+				.withOffHeapTier(storage, ValueCodecs.byteArray());
+		cache.put(1, new byte[100]);
+		cache.put(2, new byte[100]);
+		// When
+		clock.step(11L, TimeUnit.SECONDS);
+		cache.put(3, new byte[100]);
+		// Then
+		assertThat("off-heap size", cache.offHeapSize(), is(0));
+		assertThat("expirations", cache.getExpirationCount(), is(2L));
+		assertThat("used bytes", storage.getUsedBytes(), is(0L));
+	}
+
+	@Test
+	public void shouldNotDiscardSpilledValuesThatCannotMakeRoom() throws Exception {
+		// Given
+		final BoundedCache<Integer, byte[]> cache = BoundedCache.<Integer, byte[]>newInstance(1, EvictionPolicy.LRU, 1)
+				.withOffHeapTier(OffHeapStorage.allocateDirect(1024L, 1024), ValueCodecs.byteArray());
+		cache.put(1, new byte[] { 1 });
+		cache.put(2, new byte[1000]);
+		// When
+		cache.put(3, new byte[] { 3 });
+		// Then
+		assertThat("off-heap size", cache.offHeapSize(), is(1));
+		assertThat("small value kept", cache.get(1), is(new byte[] { 1 }));
+		assertThat("large value dropped", cache.hasKey(2), is(false));
+	}
+
+}
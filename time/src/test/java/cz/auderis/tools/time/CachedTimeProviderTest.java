@@ -0,0 +1,95 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class CachedTimeProviderTest {
+
+	@Test
+	public void shouldChangeTimeOnlyOnUpdate() throws Exception {
+		// Given
+		final ManualTimeProvider source = new ManualTimeProvider(1000L);
+		final CachedTimeProvider clock = new CachedTimeProvider(source);
+		// When
+		source.step(50L);
+		final long timeBeforeUpdate = clock.getTimeInMillis();
+		clock.update();
+		// Then
+		assertThat("time before update", timeBeforeUpdate, is(1000L));
+		assertThat("time after update", clock.getTimeInMillis(), is(1050L));
+	}
+
+	@Test
+	public void shouldNotMoveCachedTimeBackwards() throws Exception {
+		// Given
+		final ManualTimeProvider source = new ManualTimeProvider(1000L);
+		final CachedTimeProvider clock = new CachedTimeProvider(source);
+		// When
+		source.step(-10L);
+		final long updatedTime = clock.update();
+		// Then
+		assertThat("updated time", updatedTime, is(1000L));
+		assertThat("cached time", clock.getTimeInMillis(), is(1000L));
+	}
+
+	@Test
+	public void shouldUpdateTimeInBackground() throws Exception {
+		// Given
+		final ManualTimeProvider source = new ManualTimeProvider(0L);
+		final TickingTimeProvider clock = new TickingTimeProvider(source, 1L, TimeUnit.MILLISECONDS);
+		try {
+			// When
+			source.setTimeInMillis(500L);
+			final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5L);
+			while ((clock.getTimeInMillis() != 500L) && (System.nanoTime() < deadline)) {
+				Thread.sleep(1L);
+			}
+			// Then
+			assertThat("ticked time", clock.getTimeInMillis(), is(500L));
+		} finally {
+			clock.stop();
+		}
+		assertThat("stopped", clock.isRunning(), is(false));
+	}
+
+	@Test
+	public void shouldShareCachedClocks() throws Exception {
+		// When
+		final TimeProvider clock = TimeProviders.cachedClock(10L, TimeUnit.MILLISECONDS);
+		final long systemTime = TimeProviders.systemClock().getTimeInMillis();
+		// Then
+		assertThat("shared instance", TimeProviders.cachedClock(10L, TimeUnit.MILLISECONDS), sameInstance(clock));
+		assertTrue("time close to system clock", Math.abs(systemTime - clock.getTimeInMillis()) < 1000L);
+	}
+
+	@Test
+	public void shouldNotExposeLifecycleOfCachedClocks() throws Exception {
+		// When
+		final TimeProvider clock = TimeProviders.cachedClock(15L, TimeUnit.MILLISECONDS);
+		// Then
+		assertThat("not updatable", clock instanceof CachedTimeProvider, is(false));
+	}
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time;
+
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class CompiledDateFormatTest {
+
+	private static final TimeZone ZONE = TimeZone.getTimeZone("Europe/Prague");
+	private static final String[] PATTERNS = {
+			CompiledDateFormat.ISO_FORMAT_MASK,
+			"yyyy-MM-dd'T'HH:mm:ss.SSSZ",
+			"EEE, d MMM yyyy hh:mm:ss a z",
+			"EEEE MMMM dd, yy 'at' k:mm:ss.S",
+			"yyyyMMddHHmmss",
+			"D/yyyy G K:mm a zzzz"
+	};
+
+	@Test
+	public void shouldFormatLikeSimpleDateFormat() throws Exception {
+		// Given
+		final Random random = new Random(1234L);
+		for (String pattern : PATTERNS) {
+			final CompiledDateFormat format = new CompiledDateFormat(pattern, Locale.US, ZONE);
+			final SimpleDateFormat reference = new SimpleDateFormat(pattern, Locale.US);
+			reference.setTimeZone(ZONE);
+			for (int i = 0; i < 2000; ++i) {
+				// When
+				final long millis = (random.nextLong() % 20000000000000L) - 6000000000000L;
+				final String result = format.format(millis);
+				// Then
+				assertThat(pattern + " at " + millis, result, is(reference.format(new Date(millis))));
+			}
+		}
+	}
+
+	@Test
+	public void shouldParseFormattedDates() throws Exception {
+		// Given
+		final Random random = new Random(5678L);
+		for (String pattern : PATTERNS) {
+			final CompiledDateFormat format = new CompiledDateFormat(pattern, Locale.US, ZONE);
+			final SimpleDateFormat reference = new SimpleDateFormat(pattern, Locale.US);
+			reference.setTimeZone(ZONE);
+			for (int i = 0; i < 500; ++i) {
+				final long millis = 1000L * (Math.abs(random.nextLong()) % 2000000000L);
+				final String text = format.format(millis);
+				// When
+				final Date parsed = format.parse(text);
+				// Then
+				assertThat(pattern + " for " + text, parsed, is(reference.parse(text)));
+			}
+		}
+	}
+
+	@Test
+	public void shouldParseTwoDigitYearsAroundCenturyStart() throws Exception {
+		// Given
+		final String pattern = "dd.MM.yy HH:mm";
+		final CompiledDateFormat format = new CompiledDateFormat(pattern, Locale.US, ZONE);
+		final SimpleDateFormat reference = new SimpleDateFormat(pattern, Locale.US);
+		reference.setTimeZone(ZONE);
+		final Calendar centuryStart = Calendar.getInstance(ZONE, Locale.US);
+		centuryStart.add(Calendar.YEAR, -80);
+		for (int days = -40; days <= 40; days += 4) {
+			final Calendar date = (Calendar) centuryStart.clone();
+			date.add(Calendar.DAY_OF_MONTH, days);
+			final String text = reference.format(date.getTime());
+			// When
+			final Date parsed = format.parse(text);
+			// Then
+			assertThat(text, parsed, is(reference.parse(text)));
+		}
+	}
+
+	@Test
+	public void shouldParseZoneNamesWithHistoricalOffsets() throws Exception {
+		// Given
+		final String pattern = "yyyy-MM-dd HH:mm z";
+		final TimeZone zone = TimeZone.getTimeZone("Europe/Moscow");
+		final CompiledDateFormat format = new CompiledDateFormat(pattern, Locale.US, zone);
+		final SimpleDateFormat reference = new SimpleDateFormat(pattern, Locale.US);
+		reference.setTimeZone(zone);
+		for (long millis : new long[] { 1275393600000L, 1338552000000L, 1433160000000L }) {
+			final String text = format.format(millis);
+			// When
+			final Date parsed = format.parse(text);
+			// Then
+			assertThat(text, parsed, is(reference.parse(text)));
+			assertThat(text, parsed.getTime(), is(millis));
+		}
+	}
+
+	@Test
+	public void shouldFormatIntoCharArray() throws Exception {
+		// Given
+		final CompiledDateFormat format = new CompiledDateFormat(CompiledDateFormat.ISO_FORMAT_MASK, Locale.US, ZONE);
+		final char[] buffer = new char[25];
+		// When
+		final int length = format.format(1425164400000L, buffer, 3);
+		// Then
+		assertThat("written length", length, is(19));
+		assertThat("written text", new String(buffer, 3, length), is("2015-03-01 00:00:00"));
+	}
+
+	@Test
+	public void shouldFormatIntoAppendable() throws Exception {
+		// Given
+		final CompiledDateFormat format = new CompiledDateFormat("dd.MM.yyyy HH:mm", Locale.US, ZONE);
+		final StringBuilder target = new StringBuilder("Date: ");
+		// When
+		format.format(new Date(1425164400000L), target);
+		// Then
+		assertThat("result", target.toString(), is("Date: 01.03.2015 00:00"));
+	}
+
+	@Test(expected = ParseException.class)
+	public void shouldRejectInvalidText() throws Exception {
+		new CompiledDateFormat().parse("2015-03-01 00:00");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectUnsupportedPattern() throws Exception {
+		new CompiledDateFormat("yyyy-'W'ww");
+	}
+
+}
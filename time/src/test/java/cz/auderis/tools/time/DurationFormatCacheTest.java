@@ -0,0 +1,107 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class DurationFormatCacheTest {
+
+	@Test
+	public void shouldReturnCachedInstance() throws Exception {
+		// Given
+		final DurationFormatCache cache = new DurationFormatCache(4);
+		// When
+		final SimpleDurationFormat first = cache.get(Locale.ENGLISH);
+		final SimpleDurationFormat second = cache.get(Locale.ENGLISH);
+		// Then
+		assertThat("same instance", second, sameInstance(first));
+		assertThat("cache size", cache.size(), is(1));
+	}
+
+	@Test
+	public void shouldEvictLeastRecentlyUsedFormat() throws Exception {
+		// Given
+		final DurationFormatCache cache = new DurationFormatCache(2);
+		cache.get(Locale.ENGLISH);
+		cache.get(Locale.GERMAN);
+		// When
+		cache.get(Locale.ENGLISH);
+		cache.get(Locale.FRENCH);
+		// Then
+		assertThat("cache size", cache.size(), is(2));
+		assertThat("recently used kept", cache.contains(Locale.ENGLISH), is(true));
+		assertThat("least recently used evicted", cache.contains(Locale.GERMAN), is(false));
+		assertThat("new entry kept", cache.contains(Locale.FRENCH), is(true));
+	}
+
+	@Test
+	public void shouldEvictOlderFormatAfterReadingBoth() throws Exception {
+		// Given
+		final DurationFormatCache cache = new DurationFormatCache(2);
+		final DurationFormatCache reversedCache = new DurationFormatCache(2);
+		cache.get(Locale.ENGLISH);
+		cache.get(Locale.GERMAN);
+		reversedCache.get(Locale.GERMAN);
+		reversedCache.get(Locale.ENGLISH);
+		// When
+		cache.get(Locale.ENGLISH);
+		cache.get(Locale.GERMAN);
+		cache.get(Locale.FRENCH);
+		reversedCache.get(Locale.GERMAN);
+		reversedCache.get(Locale.ENGLISH);
+		reversedCache.get(Locale.FRENCH);
+		// Then
+		assertThat("older read evicted", cache.contains(Locale.ENGLISH), is(false));
+		assertThat("newest read kept", cache.contains(Locale.GERMAN), is(true));
+		assertThat("older read evicted (reversed)", reversedCache.contains(Locale.GERMAN), is(false));
+		assertThat("newest read kept (reversed)", reversedCache.contains(Locale.ENGLISH), is(true));
+	}
+
+	@Test
+	public void shouldNotCacheWithZeroCapacity() throws Exception {
+		// Given
+		final DurationFormatCache cache = new DurationFormatCache(0);
+		// When
+		final SimpleDurationFormat first = cache.get(Locale.ENGLISH);
+		final SimpleDurationFormat second = cache.get(Locale.ENGLISH);
+		// Then
+		assertThat("different instances", second, not(sameInstance(first)));
+		assertThat("cache size", cache.size(), is(0));
+	}
+
+	@Test
+	public void shouldShrinkOnCapacityChange() throws Exception {
+		// Given
+		final DurationFormatCache cache = new DurationFormatCache(3);
+		cache.get(Locale.ENGLISH);
+		cache.get(Locale.GERMAN);
+		cache.get(Locale.FRENCH);
+		// When
+		cache.setCapacity(1);
+		// Then
+		assertThat("cache size", cache.size(), is(1));
+		assertThat("most recent entry kept", cache.contains(Locale.FRENCH), is(true));
+	}
+
+}
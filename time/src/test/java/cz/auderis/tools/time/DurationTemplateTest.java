@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time;
+
+import org.junit.Test;
+
+import java.text.MessageFormat;
+import java.util.Locale;
+import java.util.ResourceBundle;
+
+import static org.junit.Assert.assertEquals;
+
+public class DurationTemplateTest {
+
+	private static final String[] TEMPLATES = {
+			"{0} seconds",
+			"{0,choice,0#0 days|1#1 day|1<{0} days}",
+			"'{'literal'}' {0} ''quoted''",
+			"{0,choice,0#none|1#one|1<many '{0}'|10<{0} ({0}) ''x''}",
+			"before {0,number,0000} after",
+			"{0} and {1}",
+			"no argument",
+	};
+
+	@Test
+	public void shouldFormatLikeMessageFormat() throws Exception {
+		for (String template : TEMPLATES) {
+			final DurationTemplate compiled = DurationTemplate.compile(template);
+			for (long value = 0L; value < 2500L; ++value) {
+				assertFormattedLikeMessageFormat(template, compiled, value);
+			}
+			assertFormattedLikeMessageFormat(template, compiled, Long.MAX_VALUE / 3L);
+		}
+	}
+
+	@Test
+	public void shouldCompileLocalizedTemplates() throws Exception {
+		final Locale czechLocale = Locale.forLanguageTag("cs");
+		final ResourceBundle resources = ResourceBundle.getBundle(DurationFormatResource.class.getName(), czechLocale);
+		for (String key : new String[] { "days", "hours", "minutes", "seconds" }) {
+			final String template = resources.getString(key);
+			final DurationTemplate compiled = DurationTemplate.compile(template);
+			for (long value = 0L; value < 200L; ++value) {
+				assertFormattedLikeMessageFormat(template, compiled, value);
+			}
+		}
+	}
+
+	@Test
+	public void shouldFormatNativeDigitsOfDefaultLocale() throws Exception {
+		final Locale originalLocale = Locale.getDefault();
+		try {
+			final DurationTemplate compiled = DurationTemplate.compile(TEMPLATES[0]);
+			for (String languageTag : new String[] { "th-TH-u-nu-thai", "en-US", "ar-EG" }) {
+				Locale.setDefault(Locale.forLanguageTag(languageTag));
+				for (long value = 0L; value < 1200L; ++value) {
+					assertFormattedLikeMessageFormat(TEMPLATES[0], compiled, value);
+				}
+			}
+		} finally {
+			Locale.setDefault(originalLocale);
+		}
+	}
+
+	private static void assertFormattedLikeMessageFormat(String template, DurationTemplate compiled, long value) throws Exception {
+		final StringBuilder result = new StringBuilder();
+		compiled.appendTo(value, result);
+		assertEquals(template + " / " + value, MessageFormat.format(template, value), result.toString());
+	}
+
+}
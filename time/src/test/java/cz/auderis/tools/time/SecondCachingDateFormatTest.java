@@ -0,0 +1,78 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time;
+
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class SecondCachingDateFormatTest {
+
+	private static final TimeZone ZONE = TimeZone.getTimeZone("Europe/Prague");
+
+	@Test
+	public void shouldReuseTextWithinSecond() throws Exception {
+		// Given
+		final SecondCachingDateFormat format = new SecondCachingDateFormat(new CompiledDateFormat(CompiledDateFormat.ISO_FORMAT_MASK, Locale.US, ZONE));
+		// When
+		final String first = format.format(1425164400123L);
+		final String second = format.format(1425164400999L);
+		final String next = format.format(1425164401000L);
+		// Then
+		assertThat("first text", first, is("2015-03-01 00:00:00"));
+		assertThat("cached text", second, sameInstance(first));
+		assertThat("next second", next, is("2015-03-01 00:00:01"));
+	}
+
+	@Test
+	public void shouldPatchMilliseconds() throws Exception {
+		// Given
+		final CompiledDateFormat compiledFormat = new CompiledDateFormat("MMMM d HH:mm:ss.SSS (SSSS) Z", Locale.US, ZONE);
+		final SecondCachingDateFormat format = new SecondCachingDateFormat(compiledFormat);
+		final Random random = new Random(42L);
+		final char[] buffer = new char[64];
+		long millis = 1425164400000L;
+		for (int i = 0; i < 5000; ++i) {
+			// When
+			millis += random.nextInt(400);
+			final String text = format.format(millis);
+			final int length = format.format(millis, buffer, 2);
+			// Then
+			final String expected = compiledFormat.format(millis);
+			assertThat("formatted text", text, is(expected));
+			assertThat("text in array", new String(buffer, 2, length), is(expected));
+		}
+	}
+
+	@Test
+	public void shouldDelegateVariableLengthMilliseconds() throws Exception {
+		// Given
+		final SecondCachingDateFormat format = new SecondCachingDateFormat(new CompiledDateFormat("HH:mm:ss.S", Locale.US, ZONE));
+		// When
+		final String text = format.format(1425164400007L);
+		// Then
+		assertThat("cacheable", format.isCacheable(), is(false));
+		assertThat("formatted text", text, is("00:00:00.7"));
+	}
+
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time.rate;
+
+import cz.auderis.tools.time.ManualTimeProvider;
+import cz.auderis.tools.time.SteppingTimeProvider;
+import cz.auderis.tools.time.timeout.Timeouts;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class RateLimiterTest {
+
+	@Test
+	public void shouldAllowBurstAndRefillTokenBucket() throws Exception {
+		// Given
+		final ManualTimeProvider clock = new ManualTimeProvider(1000L);
+		final RateLimiter limiter = RateLimiters.tokenBucketWithProvider(5, 100.0, clock);
+		// When + Then
+		assertThat("initial burst", limiter.tryAcquire(5), is(true));
+		assertThat("empty bucket", limiter.tryAcquire(), is(false));
+		clock.step(10L);
+		assertThat("single refill", limiter.tryAcquire(), is(true));
+		assertThat("bucket empty again", limiter.tryAcquire(), is(false));
+		clock.step(1000L);
+		assertThat("refilled up to capacity", limiter.tryAcquire(5), is(true));
+		assertThat("no more than capacity", limiter.tryAcquire(), is(false));
+	}
+
+	@Test
+	public void shouldSpreadLeakyBucketPermits() throws Exception {
+		// Given
+		final ManualTimeProvider clock = new ManualTimeProvider(0L);
+		final RateLimiter limiter = RateLimiters.leakyBucketWithProvider(10, 50.0, clock);
+		// When + Then
+		assertThat("first permit", limiter.tryAcquire(), is(true));
+		assertThat("no burst", limiter.tryAcquire(), is(false));
+		clock.step(19L);
+		assertThat("before interval", limiter.tryAcquire(), is(false));
+		clock.step(1L);
+		assertThat("after interval", limiter.tryAcquire(2), is(true));
+		clock.step(20L);
+		assertThat("second permit of batch still pending", limiter.tryAcquire(), is(false));
+		clock.step(20L);
+		assertThat("batch drained", limiter.tryAcquire(), is(true));
+	}
+
+	@Test
+	public void shouldLimitPermitsInSlidingWindow() throws Exception {
+		// Given
+		final ManualTimeProvider clock = new ManualTimeProvider(5000L);
+		final RateLimiter limiter = RateLimiters.slidingWindowWithProvider(3, 100L, TimeUnit.MILLISECONDS, clock);
+		// When + Then
+		assertThat("first permit", limiter.tryAcquire(), is(true));
+		clock.step(50L);
+		assertThat("two more permits", limiter.tryAcquire(2), is(true));
+		assertThat("window full", limiter.tryAcquire(), is(false));
+		clock.step(50L);
+		assertThat("first permit left window", limiter.tryAcquire(), is(true));
+		assertThat("window full again", limiter.tryAcquire(), is(false));
+		clock.step(49L);
+		assertThat("batch still in window", limiter.tryAcquire(), is(false));
+		clock.step(1L);
+		assertThat("batch left window", limiter.tryAcquire(2), is(true));
+	}
+
+	@Test
+	public void shouldBeDeterministicWithSteppingClock() throws Exception {
+		// Given
+		final int[] results = new int[2];
+		for (int run = 0; run < 2; ++run) {
+			final SteppingTimeProvider clock = new SteppingTimeProvider(0L, 3L);
+			final RateLimiter limiter = RateLimiters.tokenBucketWithProvider(4, 100.0, clock);
+			// When
+			for (int i = 0; i < 1000; ++i) {
+				if (limiter.tryAcquire()) {
+					++results[run];
+				}
+			}
+		}
+		// Then
+		assertThat("same outcome", results[1], is(results[0]));
+		assertThat("rate respected", results[0] <= 4 + 3000 / 10, is(true));
+	}
+
+	@Test
+	public void shouldGiveUpWhenTimeoutElapses() throws Exception {
+		// Given
+		final ManualTimeProvider clock = new ManualTimeProvider(0L);
+		final RateLimiter limiter = RateLimiters.tokenBucketWithProvider(1, 1.0, clock);
+		limiter.tryAcquire();
+		// When
+		final boolean acquired = limiter.acquire(1, Timeouts.simpleWithProvider(100L, TimeUnit.MILLISECONDS, clock));
+		// Then
+		assertThat("acquired", acquired, is(false));
+	}
+
+	@Test
+	public void shouldWaitForPermits() throws Exception {
+		// Given
+		final RateLimiter limiter = RateLimiters.leakyBucket(10, 200.0);
+		limiter.tryAcquire();
+		// When
+		final long startTime = System.currentTimeMillis();
+		final boolean acquired = limiter.acquire(2, Timeouts.simple(1L, TimeUnit.SECONDS));
+		final long waitTime = System.currentTimeMillis() - startTime;
+		// Then
+		assertThat("acquired", acquired, is(true));
+		assertThat("waited for slot", waitTime >= 4L, is(true));
+	}
+
+	@Test
+	public void shouldNotWaitForStoppedManualClock() throws Exception {
+		// Given
+		final ManualTimeProvider clock = new ManualTimeProvider(0L);
+		final RateLimiter limiter = RateLimiters.tokenBucketWithProvider(1, 100.0, clock);
+		limiter.tryAcquire();
+		// When
+		final boolean acquired = limiter.acquire(1, Timeouts.simpleWithProvider(1L, TimeUnit.SECONDS, clock));
+		// Then
+		assertThat("acquired", acquired, is(false));
+		assertThat("clock unchanged", clock.getTimeInMillis(), is(0L));
+	}
+
+	@Test
+	public void shouldWaitForPermitsOnManualClock() throws Exception {
+		// Given
+		final ManualTimeProvider clock = new ManualTimeProvider(0L);
+		final RateLimiter limiter = RateLimiters.tokenBucketWithProvider(1, 100.0, clock);
+		((AbstractRateLimiter) limiter).setSleeper(new ClockStepper(clock));
+		limiter.tryAcquire();
+		// When
+		final boolean acquired = limiter.acquire(1, Timeouts.simpleWithProvider(1L, TimeUnit.SECONDS, clock));
+		// Then
+		assertThat("acquired", acquired, is(true));
+		assertThat("waited for refill", clock.getTimeInMillis(), is(10L));
+		assertThat("bucket empty", limiter.tryAcquire(), is(false));
+	}
+
+	@Test
+	public void shouldLimitLeakyBucketQueueToCapacity() throws Exception {
+		// Given
+		final ManualTimeProvider clock = new ManualTimeProvider(0L);
+		final RateLimiter limiter = RateLimiters.leakyBucketWithProvider(4, 100.0, clock);
+		((AbstractRateLimiter) limiter).setSleeper(new ClockStepper(clock));
+		limiter.tryAcquire();
+		// When
+		final boolean acquired = limiter.acquire(4, Timeouts.simpleWithProvider(1L, TimeUnit.SECONDS, clock));
+		// Then
+		assertThat("acquired", acquired, is(true));
+		assertThat("waited for queue space and for slot", clock.getTimeInMillis(), is(10L));
+		clock.step(39L);
+		assertThat("queued permits still pending", limiter.tryAcquire(), is(false));
+		clock.step(1L);
+		assertThat("queue drained", limiter.tryAcquire(), is(true));
+	}
+
+	@Test
+	public void shouldReleaseLeakyBucketSlotOnInterrupt() throws Exception {
+		// Given
+		final ManualTimeProvider clock = new ManualTimeProvider(0L);
+		final RateLimiter limiter = RateLimiters.leakyBucketWithProvider(4, 100.0, clock);
+		((AbstractRateLimiter) limiter).setSleeper(new AbstractRateLimiter.Sleeper() {
+			@Override
+			public void sleep(long millis) throws InterruptedException {
+				throw new InterruptedException();
+			}
+		});
+		limiter.tryAcquire();
+		// When
+		boolean interrupted = false;
+		try {
+			limiter.acquire(1, Timeouts.simpleWithProvider(1L, TimeUnit.SECONDS, clock));
+		} catch (InterruptedException e) {
+			interrupted = true;
+		}
+		// Then
+		assertThat("interrupted", interrupted, is(true));
+		clock.step(10L);
+		assertThat("released slot available", limiter.tryAcquire(), is(true));
+	}
+
+	static final class ClockStepper implements AbstractRateLimiter.Sleeper {
+
+		private final ManualTimeProvider clock;
+
+		ClockStepper(ManualTimeProvider clock) {
+			this.clock = clock;
+		}
+
+		@Override
+		public void sleep(long millis) {
+			clock.step(millis);
+		}
+	}
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time.stats;
+
+import cz.auderis.tools.time.ManualTimeProvider;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class RollingStatsTest {
+
+	@Test
+	public void shouldForgetEventsOutsideWindow() throws Exception {
+		// Given
+		final ManualTimeProvider clock = new ManualTimeProvider(10000L);
+		final RollingCounter counter = RollingCounter.perSecond(clock);
+		// When + Then
+		counter.add(5L);
+		clock.step(500L);
+		counter.add(3L);
+		assertThat("sum within window", counter.sum(), is(8L));
+		assertThat("sum of recent buckets", counter.sum(3), is(3L));
+		clock.step(500L);
+		assertThat("first bucket expired", counter.sum(), is(3L));
+		counter.increment();
+		assertThat("reused bucket", counter.sum(), is(4L));
+		clock.step(2000L);
+		assertThat("all expired", counter.sum(), is(0L));
+	}
+
+	@Test
+	public void shouldTrackHierarchicalRates() throws Exception {
+		// Given
+		final ManualTimeProvider clock = new ManualTimeProvider(0L);
+		final RollingRates rates = new RollingRates(clock);
+		// When
+		for (int i = 0; i < 120; ++i) {
+			rates.add(10L);
+			clock.step(1L, TimeUnit.SECONDS);
+		}
+		// Then
+		assertThat("last second", rates.getLastSecond(), is(0L));
+		assertThat("last minute", rates.getLastMinute(), is(590L));
+		assertThat("last hour", rates.getLastHour(), is(1200L));
+		assertThat("rate per second", rates.getMinuteCounter().getRate(TimeUnit.SECONDS), is(590.0 / 60.0));
+	}
+
+	@Test
+	public void shouldComputePercentilesWithinPrecision() throws Exception {
+		// Given
+		final LogLinearHistogram histogram = new LogLinearHistogram(7, 3600000000L);
+		final Random random = new Random(7L);
+		final long[] values = new long[100000];
+		for (int i = 0; i < values.length; ++i) {
+			values[i] = (long) Math.exp(random.nextGaussian() * 2.0 + 10.0);
+			histogram.recordValue(values[i]);
+		}
+		Arrays.sort(values);
+		// When
+		final HistogramSnapshot snapshot = histogram.snapshot();
+		// Then
+		assertThat("total count", snapshot.getTotalCount(), is((long) values.length));
+		for (double percentile : new double[] { 50.0, 99.0, 99.9, 100.0 }) {
+			final long exact = values[(int) Math.ceil(percentile / 100.0 * values.length) - 1];
+			final long estimate = snapshot.getValueAtPercentile(percentile);
+			assertTrue("p" + percentile + " below exact value", estimate >= exact);
+			assertTrue("p" + percentile + " error too high", estimate - exact <= exact / 128L + 1L);
+		}
+	}
+
+	@Test
+	public void shouldMergeSnapshots() throws Exception {
+		// Given
+		final LogLinearHistogram first = new LogLinearHistogram(5, 1000000L);
+		final LogLinearHistogram second = new LogLinearHistogram(5, 1000000L);
+		for (int i = 1; i <= 100; ++i) {
+			first.recordValue(i);
+			second.recordValue(1000L * i);
+		}
+		// When
+		final HistogramSnapshot merged = first.snapshot().merge(second.snapshot());
+		// Then
+		assertThat("total count", merged.getTotalCount(), is(200L));
+		assertThat("median", merged.getMedian(), is(first.snapshot().getMaxValue()));
+		assertThat("maximum", merged.getMaxValue(), is(second.snapshot().getMaxValue()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldNotMergeSnapshotsWithDifferentMaxValues() throws Exception {
+		// Given
+		final LogLinearHistogram first = new LogLinearHistogram(5, 1000000L);
+		final LogLinearHistogram second = new LogLinearHistogram(5, 1000001L);
+		// When
+		first.snapshot().merge(second.snapshot());
+	}
+
+	@Test
+	public void shouldRollHistogramBuckets() throws Exception {
+		// Given
+		final ManualTimeProvider clock = new ManualTimeProvider(0L);
+		final RollingHistogram histogram = new RollingHistogram(6, 60000L, 1L, TimeUnit.SECONDS, 10, clock);
+		// When
+		histogram.recordValue(10L);
+		clock.step(5L, TimeUnit.SECONDS);
+		histogram.recordValue(20L);
+		histogram.recordValue(30L);
+		final long countBeforeRoll = histogram.snapshot().getTotalCount();
+		clock.step(5L, TimeUnit.SECONDS);
+		// Then
+		assertThat("count before roll", countBeforeRoll, is(3L));
+		assertThat("count after roll", histogram.snapshot().getTotalCount(), is(2L));
+		assertThat("recent median", histogram.snapshot(6).getMedian(), is(20L));
+	}
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time.timeout;
+
+import cz.auderis.tools.time.ManualTimeProvider;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class BackoffTimeoutTest {
+
+	@Test
+	public void shouldGrowExponentiallyUpToCap() throws Exception {
+		// Given
+		final ManualTimeProvider clock = new ManualTimeProvider(0L);
+		final BackoffTimeout timeout = Timeouts.exponentialBackoffWithProvider(100L, 2.0, 1000L, TimeUnit.MILLISECONDS, BackoffJitter.NONE, clock, 1L);
+		final long[] expectedTimeouts = { 100L, 200L, 400L, 800L, 1000L, 1000L };
+		// When + Then
+		timeout.start();
+		for (int i = 0; i < expectedTimeouts.length; ++i) {
+			assertThat("timeout " + i, timeout.getTimeout(), is(expectedTimeouts[i]));
+			assertThat("expiration count " + i, timeout.getExpirationCount(), is(i));
+			clock.step(expectedTimeouts[i]);
+			assertThat("elapsed " + i, timeout.isElapsed(), is(true));
+			assertThat("restarted " + i, timeout.restartIfElapsed(), is(true));
+		}
+	}
+
+	@Test
+	public void shouldKeepDurationOnEarlyRestart() throws Exception {
+		// Given
+		final ManualTimeProvider clock = new ManualTimeProvider(0L);
+		final BackoffTimeout timeout = Timeouts.exponentialBackoffWithProvider(100L, 2.0, 1000L, TimeUnit.MILLISECONDS, BackoffJitter.NONE, clock, 1L);
+		timeout.start();
+		timeout.expireNow();
+		timeout.restart();
+		// When
+		clock.step(50L);
+		timeout.restart();
+		// Then
+		assertThat("timeout", timeout.getTimeout(), is(200L));
+		assertThat("first run", timeout.isFirstRun(), is(false));
+		timeout.resetExpirationCount().restart();
+		assertThat("timeout after reset", timeout.getTimeout(), is(100L));
+	}
+
+	@Test
+	public void shouldKeepJitteredDurationsInRange() throws Exception {
+		// Given
+		final ManualTimeProvider clock = new ManualTimeProvider(0L);
+		for (BackoffJitter jitter : BackoffJitter.values()) {
+			final BackoffTimeout timeout = Timeouts.exponentialBackoffWithProvider(10L, 3.0, 5000L, TimeUnit.MILLISECONDS, jitter, clock, 42L);
+			timeout.start();
+			for (int i = 0; i < 50; ++i) {
+				// When
+				timeout.expireNow();
+				timeout.restart();
+				// Then
+				final long duration = timeout.getTimeout();
+				final long exponential = (long) Math.min(5000.0, 10.0 * Math.pow(3.0, timeout.getExpirationCount()));
+				final long minDuration = (BackoffJitter.FULL == jitter) ? 0L : (BackoffJitter.EQUAL == jitter) ? exponential / 2L : 10L;
+				assertTrue(jitter + " duration " + duration + " too low", duration >= minDuration);
+				assertTrue(jitter + " duration " + duration + " too high", duration <= 5000L);
+				if (BackoffJitter.DECORRELATED != jitter) {
+					assertTrue(jitter + " duration " + duration + " above exponential", duration <= exponential);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void shouldDesynchronizeClients() throws Exception {
+		// Given
+		final Set<Long> durations = new HashSet<Long>();
+		// When
+		for (int i = 0; i < 100; ++i) {
+			final BackoffTimeout timeout = Timeouts.exponentialBackoff(1L, 2.0, 1L, TimeUnit.HOURS, BackoffJitter.FULL);
+			timeout.start();
+			timeout.expireNow();
+			timeout.restart();
+			durations.add(timeout.getTimeout());
+		}
+		// Then
+		assertTrue("durations not randomized", durations.size() > 90);
+	}
+
+	@Test
+	public void shouldSurviveSerialization() throws Exception {
+		// Given
+		final ManualTimeProvider clock = new ManualTimeProvider(0L);
+		final BackoffTimeout timeout = Timeouts.exponentialBackoffWithProvider(100L, 2.0, 1000L, TimeUnit.MILLISECONDS, BackoffJitter.NONE, clock, 1L);
+		timeout.start();
+		timeout.expireNow();
+		timeout.restart();
+		// When
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final ObjectOutputStream output = new ObjectOutputStream(bytes);
+		output.writeObject(timeout);
+		output.close();
+		final ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		final BackoffTimeout copy = (BackoffTimeout) input.readObject();
+		input.close();
+		// Then
+		assertThat("running", copy.isRunning(), is(true));
+		assertThat("timeout", copy.getTimeout(), is(200L));
+		assertThat("expiration count", copy.getExpirationCount(), is(1));
+		copy.expireNow();
+		copy.restart();
+		assertThat("timeout after restart", copy.getTimeout(), is(400L));
+	}
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time.timeout;
+
+import cz.auderis.tools.time.ManualTimeProvider;
+import org.junit.Test;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class LockFreeTimeoutTest {
+
+	private static final int THREAD_COUNT = 8;
+
+	@Test
+	public void shouldFollowTimeoutLifecycle() throws Exception {
+		// Given
+		final ManualTimeProvider clock = new ManualTimeProvider(-500L);
+		final BeanBasedTimeout timeout = Timeouts.lockFreeWithProvider(100L, TimeUnit.MILLISECONDS, clock);
+		// When
+		final Long remainingBeforeStart = timeout.getRemainingMillis();
+		timeout.start();
+		clock.step(25L);
+		final int remainingPercent = timeout.getRemainingPercent();
+		final Long remainingMillis = timeout.getRemainingMillis();
+		clock.step(75L);
+		final boolean elapsed = timeout.isElapsed();
+		timeout.stop();
+		// Then
+		assertThat("remaining before start", remainingBeforeStart, nullValue());
+		assertThat("remaining percent", remainingPercent, is(75));
+		assertThat("remaining millis", remainingMillis, is(75L));
+		assertThat("elapsed at deadline", elapsed, is(true));
+		assertThat("running after stop", timeout.isRunning(), is(false));
+		assertThat("expired after stop", timeout.isExpired(), is(false));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void shouldRejectRepeatedStart() throws Exception {
+		final BeanBasedTimeout timeout = Timeouts.lockFree(1L, TimeUnit.SECONDS);
+		timeout.start();
+		timeout.start();
+	}
+
+	@Test
+	public void shouldExpireImmediately() throws Exception {
+		// Given
+		final ManualTimeProvider clock = new ManualTimeProvider(1000L);
+		final BeanBasedTimeout timeout = Timeouts.lockFreeWithProvider(1L, TimeUnit.HOURS, clock);
+		// When
+		timeout.start();
+		timeout.expireNow();
+		// Then
+		assertThat("expired", timeout.isExpired(), is(true));
+		assertThat("remaining millis", timeout.getRemainingMillis(), is(0L));
+	}
+
+	@Test
+	public void shouldRestartElapsedTimeoutOnlyOnce() throws Exception {
+		// Given
+		final ManualTimeProvider clock = new ManualTimeProvider(0L);
+		final BeanBasedTimeout timeout = Timeouts.lockFreeWithProvider(10L, TimeUnit.MILLISECONDS, clock);
+		timeout.start();
+		clock.step(10L);
+		final AtomicInteger restartCount = new AtomicInteger();
+		final CountDownLatch startSignal = new CountDownLatch(1);
+		final Thread[] threads = new Thread[THREAD_COUNT];
+		for (int i = 0; i < THREAD_COUNT; ++i) {
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						startSignal.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					if (timeout.restartIfElapsed()) {
+						restartCount.incrementAndGet();
+					}
+				}
+			});
+			threads[i].start();
+		}
+		// When
+		startSignal.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		// Then
+		assertThat("restart count", restartCount.get(), is(1));
+		assertThat("elapsed after restart", timeout.isElapsed(), is(false));
+	}
+
+	@Test
+	public void shouldNotifyRegisteredListeners() throws Exception {
+		// Given
+		final ManualTimeProvider clock = new ManualTimeProvider(0L);
+		final BeanBasedTimeout timeout = Timeouts.lockFreeWithProvider(10L, TimeUnit.MILLISECONDS, clock);
+		final List<String> events = new ArrayList<String>();
+		timeout.addPropertyChangeListener(BeanBasedTimeout.PROPERTY_RUNNING, new PropertyChangeListener() {
+			@Override
+			public void propertyChange(PropertyChangeEvent evt) {
+				events.add(evt.getPropertyName() + "=" + evt.getNewValue());
+			}
+		});
+		// When
+		timeout.start();
+		timeout.expireNow();
+		timeout.stop();
+		// Then
+		assertThat("events", events.toString(), is("[running=true, running=false]"));
+	}
+
+}
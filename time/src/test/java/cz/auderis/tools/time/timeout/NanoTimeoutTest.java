@@ -0,0 +1,108 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time.timeout;
+
+import cz.auderis.tools.time.ManualNanoTimeProvider;
+import cz.auderis.tools.time.SteppingNanoTimeProvider;
+import cz.auderis.tools.time.TimeProviders;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class NanoTimeoutTest {
+
+	@Test
+	public void shouldExpireWithSubMillisecondPrecision() throws Exception {
+		// Given
+		final ManualNanoTimeProvider clock = new ManualNanoTimeProvider(0L);
+		final NanoTimeout timeout = Timeouts.nanosWithProvider(250L, TimeUnit.MICROSECONDS, clock);
+		// When
+		timeout.start();
+		clock.step(249999L);
+		final boolean elapsedBeforeDeadline = timeout.isElapsed();
+		final long remainingBeforeDeadline = timeout.getRemainingNanos();
+		clock.step(1L);
+		// Then
+		assertThat("elapsed before deadline", elapsedBeforeDeadline, is(false));
+		assertThat("remaining nanos", remainingBeforeDeadline, is(1L));
+		assertThat("elapsed at deadline", timeout.isElapsed(), is(true));
+		assertThat("remaining nanos at deadline", timeout.getRemainingNanos(), is(0L));
+	}
+
+	@Test
+	public void shouldReportMillisecondValues() throws Exception {
+		// Given
+		final ManualNanoTimeProvider clock = new ManualNanoTimeProvider(-1500000L);
+		final NanoTimeout timeout = Timeouts.nanosWithProvider(3L, TimeUnit.MILLISECONDS, clock);
+		// When
+		final Long remainingBeforeStart = timeout.getRemainingMillis();
+		timeout.start();
+		clock.step(1L, TimeUnit.MILLISECONDS);
+		// Then
+		assertThat("clock millis", clock.getTimeInMillis(), is(-1L));
+		assertThat("remaining before start", remainingBeforeStart, nullValue());
+		assertThat("timeout millis", timeout.getTimeout(), is(3L));
+		assertThat("remaining millis", timeout.getRemainingMillis(), is(2L));
+		assertThat("remaining percent", timeout.getRemainingPercent(), is(67));
+	}
+
+	@Test
+	public void shouldHandleClockOverflow() throws Exception {
+		// Given
+		final ManualNanoTimeProvider clock = new ManualNanoTimeProvider(Long.MAX_VALUE - 100L);
+		final NanoTimeout timeout = Timeouts.nanosWithProvider(1000L, TimeUnit.NANOSECONDS, clock);
+		// When
+		timeout.start();
+		clock.step(500L);
+		final boolean elapsedAfterOverflow = timeout.isElapsed();
+		clock.step(500L);
+		// Then
+		assertThat("elapsed after overflow", elapsedAfterOverflow, is(false));
+		assertThat("elapsed at deadline", timeout.isElapsed(), is(true));
+	}
+
+	@Test
+	public void shouldRestartWithSteppingClock() throws Exception {
+		// Given
+		final SteppingNanoTimeProvider clock = new SteppingNanoTimeProvider(0L, 400L);
+		final NanoTimeout timeout = Timeouts.nanosWithProvider(1000L, TimeUnit.NANOSECONDS, clock);
+		// When
+		timeout.start();
+		final boolean firstRestart = timeout.restartIfElapsed();
+		final boolean secondRestart = timeout.restartIfElapsed();
+		final boolean thirdRestart = timeout.restartIfElapsed();
+		// Then
+		assertThat("restart at 400", firstRestart, is(false));
+		assertThat("restart at 800", secondRestart, is(false));
+		assertThat("restart at 1200", thirdRestart, is(true));
+	}
+
+	@Test
+	public void shouldUseSystemNanoClock() throws Exception {
+		// When
+		final NanoTimeout timeout = Timeouts.nanos(1L, TimeUnit.HOURS).start();
+		// Then
+		assertThat("system clock is nano clock", TimeProviders.systemNanoClock() == TimeProviders.systemClock(), is(true));
+		assertThat("elapsed", timeout.isElapsed(), is(false));
+		assertThat("timeout nanos", timeout.getTimeoutNanos(), is(TimeUnit.HOURS.toNanos(1L)));
+	}
+
+}
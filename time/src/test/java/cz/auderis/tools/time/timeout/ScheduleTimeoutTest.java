@@ -0,0 +1,95 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time.timeout;
+
+import cz.auderis.tools.time.ManualTimeProvider;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ScheduleTimeoutTest {
+
+	private static final long[] DURATIONS = { 100L, 1000L, 5000L };
+	private static final int[] REPEATS = { 2, 3, 1 };
+
+	@Test
+	public void shouldAdvanceThroughStages() throws Exception {
+		// Given
+		final ManualTimeProvider clock = new ManualTimeProvider(1000L);
+		final ScheduleTimeout timeout = Timeouts.scheduleWithProvider(DURATIONS, REPEATS, TimeUnit.MILLISECONDS, false, clock);
+		final long[] expectedTimeouts = { 100L, 100L, 1000L, 1000L, 1000L, 5000L, 5000L, 5000L };
+		// When + Then
+		timeout.start();
+		for (int i = 0; i < expectedTimeouts.length; ++i) {
+			assertThat("timeout of step " + i, timeout.getTimeout(), is(expectedTimeouts[i]));
+			assertThat("expiration of step " + i, timeout.getExpirationTime(), is(clock.getTimeInMillis() + expectedTimeouts[i]));
+			clock.step(expectedTimeouts[i] - 1L);
+			assertThat("restart before expiration " + i, timeout.restartIfElapsed(), is(false));
+			clock.step(1L);
+			assertThat("elapsed " + i, timeout.isElapsed(), is(true));
+			assertThat("restart after expiration " + i, timeout.restartIfElapsed(), is(true));
+		}
+		assertThat("stage index", timeout.getStageIndex(), is(2));
+		assertThat("expiration count", timeout.getExpirationCount(), is(6));
+	}
+
+	@Test
+	public void shouldCycleThroughStages() throws Exception {
+		// Given
+		final ManualTimeProvider clock = new ManualTimeProvider(0L);
+		final ScheduleTimeout timeout = Timeouts.scheduleWithProvider(DURATIONS, REPEATS, TimeUnit.MILLISECONDS, true, clock);
+		timeout.start();
+		// When
+		for (int i = 0; i < 6; ++i) {
+			timeout.expireNow();
+			timeout.restart();
+		}
+		// Then
+		assertThat("stage index", timeout.getStageIndex(), is(0));
+		assertThat("timeout", timeout.getTimeout(), is(100L));
+	}
+
+	@Test
+	public void shouldKeepStepWhenRestartedEarly() throws Exception {
+		// Given
+		final ManualTimeProvider clock = new ManualTimeProvider(0L);
+		final ScheduleTimeout timeout = Timeouts.scheduleWithProvider(DURATIONS, REPEATS, TimeUnit.MILLISECONDS, false, clock);
+		timeout.start();
+		timeout.expireNow();
+		timeout.restart();
+		// When
+		clock.step(50L);
+		timeout.restart();
+		timeout.stop();
+		timeout.restart();
+		// Then
+		assertThat("expiration count", timeout.getExpirationCount(), is(1));
+		assertThat("remaining millis", timeout.getRemainingMillis(), is(100L));
+		timeout.reset();
+		assertThat("running after reset", timeout.isRunning(), is(false));
+		assertThat("count after reset", timeout.getExpirationCount(), is(0));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectInvalidStageTable() throws Exception {
+		Timeouts.schedule(new long[] { 100L }, new int[] { 1, 2 }, TimeUnit.MILLISECONDS, false);
+	}
+
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2014 Boleslav Bobcik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.time.timeout;
+
+import cz.auderis.tools.time.ManualTimeProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class TimeoutSchedulerTest {
+
+	private ManualTimeProvider clock;
+	private TimeoutScheduler scheduler;
+
+	@Before
+	public void createScheduler() {
+		clock = new ManualTimeProvider(0L);
+		scheduler = new TimeoutScheduler(10L, TimeUnit.MILLISECONDS, 64, clock);
+	}
+
+	@After
+	public void stopScheduler() {
+		scheduler.stop();
+	}
+
+	@Test
+	public void shouldNotifyAboutExpiredTimeout() throws Exception {
+		// Given
+		final Timeout timeout = Timeouts.lockFreeWithProvider(100L, TimeUnit.MILLISECONDS, clock).start();
+		final CountingListener listener = new CountingListener(1);
+		// When
+		final TimeoutScheduler.Registration registration = scheduler.schedule(timeout, listener);
+		clock.step(50L);
+		final boolean firedBeforeDeadline = listener.await(100L);
+		clock.step(60L);
+		// Then
+		assertThat("fired before deadline", firedBeforeDeadline, is(false));
+		assertThat("fired after deadline", listener.await(5000L), is(true));
+		assertThat("registration fired", registration.isFired(), is(true));
+		assertThat("scheduled count", scheduler.getScheduledCount(), is(0));
+	}
+
+	@Test
+	public void shouldRescheduleRestartedTimeout() throws Exception {
+		// Given
+		final Timeout timeout = Timeouts.lockFreeWithProvider(100L, TimeUnit.MILLISECONDS, clock).start();
+		final CountingListener listener = new CountingListener(1);
+		scheduler.schedule(timeout, listener);
+		// When
+		clock.step(90L);
+		timeout.restart();
+		clock.step(30L);
+		final boolean firedAfterOriginalDeadline = listener.await(200L);
+		clock.step(80L);
+		// Then
+		assertThat("fired after original deadline", firedAfterOriginalDeadline, is(false));
+		assertThat("fired after new deadline", listener.await(5000L), is(true));
+	}
+
+	@Test
+	public void shouldNotFireCancelledRegistration() throws Exception {
+		// Given
+		final Timeout timeout = Timeouts.lockFreeWithProvider(10L, TimeUnit.MILLISECONDS, clock).start();
+		final CountingListener listener = new CountingListener(1);
+		final TimeoutScheduler.Registration registration = scheduler.schedule(timeout, listener);
+		// When
+		final boolean cancelled = registration.cancel();
+		clock.step(100L);
+		// Then
+		assertThat("cancelled", cancelled, is(true));
+		assertThat("fired", listener.await(200L), is(false));
+		assertThat("second cancel", registration.cancel(), is(false));
+		assertThat("scheduled count", scheduler.getScheduledCount(), is(0));
+	}
+
+	@Test
+	public void shouldExpireTrigger() throws Exception {
+		// Given
+		final Timeout trigger = Timeouts.lockFreeWithProvider(1L, TimeUnit.HOURS, clock).start();
+		// When
+		final TimeoutScheduler.Registration registration = scheduler.schedule(trigger, 20L, TimeUnit.MILLISECONDS);
+		clock.step(50L);
+		final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5L);
+		while (!registration.isFired() && (System.nanoTime() < deadline)) {
+			Thread.sleep(1L);
+		}
+		// Then
+		assertThat("registration fired", registration.isFired(), is(true));
+		assertThat("trigger expired", trigger.isExpired(), is(true));
+	}
+
+	@Test
+	public void shouldReportFailingListenerAndContinue() throws Exception {
+		// Given
+		final List<Throwable> exceptions = new CopyOnWriteArrayList<Throwable>();
+		scheduler.setExceptionHandler(new Thread.UncaughtExceptionHandler() {
+			@Override
+			public void uncaughtException(Thread thread, Throwable e) {
+				exceptions.add(e);
+			}
+		});
+		final IllegalStateException failure = new IllegalStateException("listener failure");
+		final CountingListener listener = new CountingListener(2);
+		final ExpirationListener failingListener = new ExpirationListener() {
+			@Override
+			public void timeoutExpired(Timeout timeout) {
+				throw failure;
+			}
+		};
+		scheduler.schedule(Timeouts.lockFreeWithProvider(100L, TimeUnit.MILLISECONDS, clock).start(), listener);
+		scheduler.schedule(Timeouts.lockFreeWithProvider(100L, TimeUnit.MILLISECONDS, clock).start(), failingListener);
+		scheduler.schedule(Timeouts.lockFreeWithProvider(100L, TimeUnit.MILLISECONDS, clock).start(), listener);
+		// When
+		clock.step(150L);
+		// Then
+		assertThat("other listeners notified", listener.await(5000L), is(true));
+		final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5L);
+		while (exceptions.isEmpty() && (System.nanoTime() < deadline)) {
+			Thread.sleep(1L);
+		}
+		assertThat("reported exceptions", exceptions.size(), is(1));
+		assertTrue("reported failure", failure == exceptions.get(0));
+		assertThat("scheduled count", scheduler.getScheduledCount(), is(0));
+		assertThat("scheduler running", scheduler.isRunning(), is(true));
+	}
+
+	@Test
+	public void shouldFirePropertyChangeOnTime() throws Exception {
+		// Given
+		final TimeoutPropertyDecorator timeout = new TimeoutPropertyDecorator(
+				Timeouts.lockFreeWithProvider(100L, TimeUnit.MILLISECONDS, clock).start()
+		);
+		final List<Object> elapsedEvents = new ArrayList<Object>();
+		final CountDownLatch eventLatch = new CountDownLatch(1);
+		timeout.addPropertyChangeListener(BeanBasedTimeout.PROPERTY_ELAPSED, new PropertyChangeListener() {
+			@Override
+			public void propertyChange(PropertyChangeEvent evt) {
+				elapsedEvents.add(evt.getNewValue());
+				eventLatch.countDown();
+			}
+		});
+		final CountingListener listener = new CountingListener(1);
+		scheduler.schedule(timeout, listener);
+		// When
+		clock.step(150L);
+		// Then
+		assertThat("listener notified", listener.await(5000L), is(true));
+		assertTrue("property change fired", eventLatch.await(5L, TimeUnit.SECONDS));
+		assertThat("elapsed events", elapsedEvents.toString(), is("[true]"));
+	}
+
+	@Test
+	public void shouldHandleManyTimeouts() throws Exception {
+		// Given
+		final int timeoutCount = 100000;
+		final CountingListener listener = new CountingListener(timeoutCount / 2);
+		final List<TimeoutScheduler.Registration> registrations = new ArrayList<TimeoutScheduler.Registration>(timeoutCount);
+		for (int i = 0; i < timeoutCount; ++i) {
+			final long duration = 10L + (i % 1000) * 10L;
+			final Timeout timeout = Timeouts.lockFreeWithProvider(duration, TimeUnit.MILLISECONDS, clock).start();
+			registrations.add(scheduler.schedule(timeout, listener));
+		}
+		// When
+		for (int i = 1; i < timeoutCount; i += 2) {
+			registrations.get(i).cancel();
+		}
+		clock.step(20000L);
+		// Then
+		assertThat("all fired", listener.await(10000L), is(true));
+		Thread.sleep(50L);
+		assertThat("notification count", listener.getCount(), is(timeoutCount / 2));
+		assertThat("scheduled count", scheduler.getScheduledCount(), is(0));
+	}
+
+	static final class CountingListener implements ExpirationListener {
+		private final AtomicInteger count = new AtomicInteger();
+		private final CountDownLatch latch;
+
+		CountingListener(int expectedCount) {
+			this.latch = new CountDownLatch(expectedCount);
+		}
+
+		@Override
+		public void timeoutExpired(Timeout timeout) {
+			count.incrementAndGet();
+			latch.countDown();
+		}
+
+		boolean await(long millis) throws InterruptedException {
+			return latch.await(millis, TimeUnit.MILLISECONDS);
+		}
+
+		int getCount() {
+			return count.get();
+		}
+	}
+
+}